@@ -0,0 +1,150 @@
+package akka.cluster;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.github.ddth.mappings.AbstractMappingDao;
+import com.github.ddth.mappings.IMappingDao;
+
+import akka.actor.Cancellable;
+import modules.registry.IRegistry;
+import play.Logger;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+/**
+ * Actor that keeps in-process L1 caches of mapping DAOs in sync across the cluster:
+ * 
+ * <ul>
+ * <li>Periodically drains {@link CacheInvalidationBroadcaster} and publishes buffered
+ * invalidations to topic {@link ClusterConstants#TOPIC_CACHE_INVALIDATION}.</li>
+ * <li>Subscribes to topic {@link ClusterConstants#TOPIC_CACHE_INVALIDATION} and evicts matching
+ * L1 cache entries of mapping DAOs on the current node.</li>
+ * </ul>
+ * 
+ * <p>
+ * Deployed on all nodes (add to {@code akka.cluster.workers}).
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class CacheInvalidationActor extends BaseClusterActor {
+
+    /**
+     * Local message to trigger a flush.
+     */
+    private final static class FlushMessage {
+    }
+
+    private final static FlushMessage FLUSH = new FlushMessage();
+
+    private CacheInvalidationBroadcaster broadcaster;
+    private Cancellable flushTick;
+    private String selfAddress;
+
+    public CacheInvalidationActor() {
+    }
+
+    public CacheInvalidationActor(IRegistry registry) {
+        super(registry);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Collection<String[]> topicSubscriptions() {
+        return Collections
+                .singleton(new String[] { ClusterConstants.TOPIC_CACHE_INVALIDATION });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void initActor() throws Exception {
+        super.initActor();
+
+        selfAddress = getCluster().selfAddress().toString();
+        addMessageHandler(CacheInvalidationMessage.class, this::onInvalidation);
+
+        broadcaster = getRegistry().getBean(CacheInvalidationBroadcaster.class);
+        if (broadcaster == null) {
+            Logger.warn("{" + getActorPath() + "} No bean of type "
+                    + CacheInvalidationBroadcaster.class.getSimpleName()
+                    + " found, cache invalidations of this node are not published.");
+        } else {
+            addMessageHandler(FlushMessage.class, msg -> flush());
+            FiniteDuration interval = Duration.create(Math.max(1, broadcaster.getFlushIntervalMs()),
+                    TimeUnit.MILLISECONDS);
+            flushTick = getContext().system().scheduler().schedule(interval, interval,
+                    () -> self().tell(FLUSH, self()), getContext().dispatcher());
+            broadcaster.setActive(true);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void destroyActor() throws Exception {
+        try {
+            if (flushTick != null) {
+                flushTick.cancel();
+            }
+        } catch (Exception e) {
+            Logger.warn(e.getMessage(), e);
+        }
+
+        try {
+            if (broadcaster != null) {
+                broadcaster.setActive(false);
+            }
+        } catch (Exception e) {
+            Logger.warn(e.getMessage(), e);
+        }
+
+        super.destroyActor();
+    }
+
+    protected void flush() {
+        Map<String, Set<String>> keys = broadcaster.drain();
+        if (!keys.isEmpty()) {
+            publishToTopic(new CacheInvalidationMessage(selfAddress, keys),
+                    ClusterConstants.TOPIC_CACHE_INVALIDATION, false);
+        }
+    }
+
+    protected void onInvalidation(CacheInvalidationMessage msg) {
+        IRegistry registry = getRegistry();
+        evictL1Caches(selfAddress, msg, registry.getMappingOneOneDao(),
+                registry.getMappingManyOneDao(), registry.getMappingManyManyDao());
+    }
+
+    /**
+     * Evict L1 cache entries of mapping DAOs upon invalidations published by another node.
+     * 
+     * @param selfAddress
+     *            address of the current node
+     * @param msg
+     * @param daos
+     */
+    static void evictL1Caches(String selfAddress, CacheInvalidationMessage msg,
+            IMappingDao... daos) {
+        if (selfAddress.equals(msg.origin)) {
+            // local L1 caches were already invalidated by the DAOs themselves
+            return;
+        }
+        for (IMappingDao dao : daos) {
+            if (dao instanceof AbstractMappingDao) {
+                msg.keys.forEach((cacheName, keys) -> ((AbstractMappingDao) dao)
+                        .evictL1Cache(cacheName, keys));
+            }
+        }
+    }
+
+}
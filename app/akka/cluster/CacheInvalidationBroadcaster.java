@@ -0,0 +1,117 @@
+package akka.cluster;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import com.github.ddth.mappings.ICacheInvalidationBroadcaster;
+
+import play.Logger;
+
+/**
+ * {@link ICacheInvalidationBroadcaster} that buffers invalidations in memory.
+ * {@link CacheInvalidationActor} drains the buffer every {@link #getFlushIntervalMs()} and
+ * publishes it to the cluster as one {@link CacheInvalidationMessage}.
+ * 
+ * <p>
+ * Note: invalidations are buffered only while {@link CacheInvalidationActor} is running on the
+ * current node (see {@link #isActive()}), otherwise they are discarded.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class CacheInvalidationBroadcaster implements ICacheInvalidationBroadcaster {
+
+    private long flushIntervalMs = 10;
+    private int maxPendingKeys = 100000;
+    private volatile boolean active = false;
+
+    private final Queue<Pair<String, String>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numPending = new AtomicInteger(0);
+    private final AtomicLong numDropped = new AtomicLong(0);
+
+    /**
+     * Interval (in milliseconds) to publish buffered invalidations, default 10.
+     * 
+     * @return
+     */
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public CacheInvalidationBroadcaster setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+        return this;
+    }
+
+    /**
+     * Max number of buffered invalidations, default 100000. Invalidations beyond this limit are
+     * discarded (entries on other nodes then expire by their TTL), the number of discarded
+     * invalidations is logged once per {@link #drain()}.
+     * 
+     * @return
+     */
+    public int getMaxPendingKeys() {
+        return maxPendingKeys;
+    }
+
+    public CacheInvalidationBroadcaster setMaxPendingKeys(int maxPendingKeys) {
+        this.maxPendingKeys = maxPendingKeys;
+        return this;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public CacheInvalidationBroadcaster setActive(boolean active) {
+        this.active = active;
+        if (!active) {
+            drain();
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void broadcast(String cacheName, String key) {
+        if (active) {
+            if (numPending.incrementAndGet() <= maxPendingKeys) {
+                pending.offer(Pair.of(cacheName, key));
+            } else {
+                numPending.decrementAndGet();
+                numDropped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Remove all buffered invalidations.
+     * 
+     * @return buffered invalidations, grouped by cache name (empty if there is nothing buffered)
+     */
+    public Map<String, Set<String>> drain() {
+        Map<String, Set<String>> result = new HashMap<>();
+        for (Pair<String, String> entry = pending.poll(); entry != null; entry = pending.poll()) {
+            numPending.decrementAndGet();
+            result.computeIfAbsent(entry.getLeft(), k -> new HashSet<>()).add(entry.getRight());
+        }
+        long dropped = numDropped.getAndSet(0);
+        if (dropped > 0) {
+            Logger.warn("Too many pending cache invalidations, discarded " + dropped
+                    + " invalidation(s).");
+        }
+        return result;
+    }
+
+}
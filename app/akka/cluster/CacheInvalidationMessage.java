@@ -0,0 +1,46 @@
+package akka.cluster;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * A batch of cache invalidations, published to topic
+ * {@link ClusterConstants#TOPIC_CACHE_INVALIDATION}.
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class CacheInvalidationMessage implements Serializable {
+
+    private static final long serialVersionUID = "0.1.0".hashCode();
+
+    /**
+     * Address of the node that publishes the message.
+     */
+    public final String origin;
+
+    /**
+     * Invalidated keys, grouped by cache name: {@code cacheName -> keys}.
+     */
+    public final Map<String, Set<String>> keys;
+
+    public CacheInvalidationMessage(String origin, Map<String, Set<String>> keys) {
+        this.origin = origin;
+        this.keys = keys;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        ToStringBuilder tsb = new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE);
+        tsb.append("origin", origin).append("keys", keys);
+        return tsb.toString();
+    }
+
+}
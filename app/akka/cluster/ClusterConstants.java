@@ -10,4 +10,9 @@ public class ClusterConstants {
 
     public final static String TOPIC_TICK_ONE_PER_GROUP = "TICK";
     public final static String TOPIC_TICK_ALL = "TICK-ALL";
+
+    /**
+     * Topic of L1 cache invalidation messages, see {@link CacheInvalidationMessage}.
+     */
+    public final static String TOPIC_CACHE_INVALIDATION = "CACHE-INVALIDATION";
 }
@@ -0,0 +1,1075 @@
+package com.github.ddth.mappings;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.ddth.cacheadapter.ICacheFactory;
+import com.github.ddth.dao.BaseDao;
+import com.github.ddth.mappings.redis.RedisDelegator;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Common base of mapping DAOs: cache settings, cache keys and cache helpers.
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public abstract class AbstractMappingDao extends BaseDao
+        implements IMappingDao, IAsyncMappingDao {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(AbstractMappingDao.class);
+
+    private String cacheName;
+    private long cacheTtlAbsent = 30;
+    private Executor asyncExecutor;
+    private ICacheInvalidationBroadcaster cacheInvalidationBroadcaster;
+    private long existenceFilterExpectedItems = 0;
+    private double existenceFilterFpp = 0.01;
+    private long existenceFilterRebuildIntervalMs = 3600000;
+    private RedisDelegator existenceFilterRedis;
+    private ICacheBulkAccessor cacheBulkAccessor;
+
+    private final L1Caches l1Caches = new L1Caches();
+    private final SingleFlightLoader loader = new SingleFlightLoader()
+            .setLeaseName(key -> "lease:" + getCacheName() + ":" + key)
+            .setCacheReader(key -> getFromCache(getCacheName(), key));
+    private final NamespaceGenerations namespaceGenerations = new NamespaceGenerations()
+            .setCounterName(namespace -> "nsgen:" + getCacheName() + ":" + namespace);
+    private final RefreshAheadTracker refreshAheadTracker = new RefreshAheadTracker();
+    private volatile ExistenceFilters existenceFilters;
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public void setCacheName(String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    /**
+     * TTL (in seconds) of "known absent" cache entries (negative caching), default 30. Value
+     * {@code 0} or negative disables negative caching.
+     *
+     * @return
+     */
+    public long getCacheTtlAbsent() {
+        return cacheTtlAbsent;
+    }
+
+    public AbstractMappingDao setCacheTtlAbsent(long cacheTtlAbsent) {
+        this.cacheTtlAbsent = cacheTtlAbsent;
+        return this;
+    }
+
+    /**
+     * Executor to run async operations and their continuations, so that storage driver's I/O
+     * threads are never blocked. Required, should be a dedicated bounded pool.
+     *
+     * @return
+     */
+    public Executor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    public AbstractMappingDao setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        return this;
+    }
+
+    /**
+     * If set, cache-miss loads are also coalesced cluster-wide by a short Redis lease. Default
+     * {@code null} (coalesced per node only).
+     *
+     * @return
+     */
+    public RedisDelegator getLoadLeaseRedis() {
+        return loader.getLeaseRedis();
+    }
+
+    public AbstractMappingDao setLoadLeaseRedis(RedisDelegator loadLeaseRedis) {
+        loader.setLeaseRedis(loadLeaseRedis);
+        return this;
+    }
+
+    /**
+     * TTL (in milliseconds) of load leases, also the max time a node waits for another node's
+     * load. Default 1000.
+     *
+     * @return
+     */
+    public long getLoadLeaseTtlMs() {
+        return loader.getLeaseTtlMs();
+    }
+
+    public AbstractMappingDao setLoadLeaseTtlMs(long loadLeaseTtlMs) {
+        loader.setLeaseTtlMs(loadLeaseTtlMs);
+        return this;
+    }
+
+    /**
+     * Max total weight (number of mappings) of the in-process L1 cache, default 10000.
+     * {@code 0} or negative disables L1.
+     *
+     * @return
+     */
+    public long getL1CacheMaxWeight() {
+        return l1Caches.getMaxWeight();
+    }
+
+    public AbstractMappingDao setL1CacheMaxWeight(long l1CacheMaxWeight) {
+        l1Caches.setMaxWeight(l1CacheMaxWeight);
+        return this;
+    }
+
+    /**
+     * TTL (in seconds) of L1 cache entries, default 5. {@code 0} or negative disables L1.
+     *
+     * @return
+     */
+    public long getL1CacheTtlSeconds() {
+        return l1Caches.getTtlSeconds();
+    }
+
+    public AbstractMappingDao setL1CacheTtlSeconds(long l1CacheTtlSeconds) {
+        l1Caches.setTtlSeconds(l1CacheTtlSeconds);
+        return this;
+    }
+
+    /**
+     * Coalesce concurrent cache-miss loads of a same key, default {@code true}.
+     *
+     * @return
+     */
+    public boolean isSingleFlightLoads() {
+        return loader.isEnabled();
+    }
+
+    public AbstractMappingDao setSingleFlightLoads(boolean singleFlightLoads) {
+        loader.setEnabled(singleFlightLoads);
+        return this;
+    }
+
+    /**
+     * Expected number of objects (and of targets) per namespace of existence filters, default
+     * {@code 0} (disabled). Lookups of keys that definitely have no mapping then return empty
+     * without touching cache or storage.
+     *
+     * <p>Note: must be set before {@link #init()}, and requires
+     * {@link #getExistenceFilterRedis()}.</p>
+     *
+     * @return
+     */
+    public long getExistenceFilterExpectedItems() {
+        return existenceFilterExpectedItems;
+    }
+
+    public AbstractMappingDao setExistenceFilterExpectedItems(long existenceFilterExpectedItems) {
+        this.existenceFilterExpectedItems = existenceFilterExpectedItems;
+        return this;
+    }
+
+    /**
+     * Desired false positive probability of existence filters, default {@code 0.01}.
+     *
+     * @return
+     */
+    public double getExistenceFilterFpp() {
+        return existenceFilterFpp;
+    }
+
+    public AbstractMappingDao setExistenceFilterFpp(double existenceFilterFpp) {
+        this.existenceFilterFpp = existenceFilterFpp;
+        return this;
+    }
+
+    /**
+     * Existence filters are rebuilt from a full scan of storage every
+     * {@code existenceFilterRebuildIntervalMs} milliseconds, default 1 hour.
+     *
+     * @return
+     */
+    public long getExistenceFilterRebuildIntervalMs() {
+        return existenceFilterRebuildIntervalMs;
+    }
+
+    public AbstractMappingDao setExistenceFilterRebuildIntervalMs(
+            long existenceFilterRebuildIntervalMs) {
+        this.existenceFilterRebuildIntervalMs = existenceFilterRebuildIntervalMs;
+        return this;
+    }
+
+    /**
+     * Redis to keep existence filters in, shared by all nodes. Default {@code null}.
+     *
+     * @return
+     */
+    public RedisDelegator getExistenceFilterRedis() {
+        return existenceFilterRedis;
+    }
+
+    public AbstractMappingDao setExistenceFilterRedis(RedisDelegator existenceFilterRedis) {
+        this.existenceFilterRedis = existenceFilterRedis;
+        return this;
+    }
+
+    /**
+     * If set, namespace generations (see {@link #resetNamespace(String)}) are shared
+     * cluster-wide via Redis counters, which must not be evicted. Default {@code null}.
+     *
+     * @return
+     */
+    public RedisDelegator getNamespaceGenerationRedis() {
+        return namespaceGenerations.getRedis();
+    }
+
+    public AbstractMappingDao setNamespaceGenerationRedis(RedisDelegator namespaceGenerationRedis) {
+        namespaceGenerations.setRedis(namespaceGenerationRedis);
+        return this;
+    }
+
+    /**
+     * Namespace generations read from Redis are cached locally for this number of milliseconds,
+     * default 5000.
+     *
+     * @return
+     */
+    public long getNamespaceGenerationRefreshMs() {
+        return namespaceGenerations.getRefreshMs();
+    }
+
+    public AbstractMappingDao setNamespaceGenerationRefreshMs(long namespaceGenerationRefreshMs) {
+        namespaceGenerations.setRefreshMs(namespaceGenerationRefreshMs);
+        return this;
+    }
+
+    /**
+     * If set, multi-key cache reads/writes go through this accessor in one round-trip per batch.
+     * Must access the same remote cache as {@link #getCacheFactory()}.
+     *
+     * @return
+     */
+    public ICacheBulkAccessor getCacheBulkAccessor() {
+        return cacheBulkAccessor;
+    }
+
+    public AbstractMappingDao setCacheBulkAccessor(ICacheBulkAccessor cacheBulkAccessor) {
+        this.cacheBulkAccessor = cacheBulkAccessor;
+        return this;
+    }
+
+    /**
+     * Refresh-ahead: a cache hit on an entry (written by this node) older than this fraction of
+     * its TTL also reloads the entry in background. Value in {@code (0, 1)}, default {@code 0}
+     * (disabled).
+     *
+     * @return
+     */
+    public double getRefreshAheadFactor() {
+        return refreshAheadTracker.getFactor();
+    }
+
+    public AbstractMappingDao setRefreshAheadFactor(double refreshAheadFactor) {
+        refreshAheadTracker.setFactor(refreshAheadFactor);
+        return this;
+    }
+
+    /**
+     * Max number of cache entries tracked for refresh-ahead, default 100000.
+     *
+     * @return
+     */
+    public long getRefreshAheadMaxKeys() {
+        return refreshAheadTracker.getMaxKeys();
+    }
+
+    public AbstractMappingDao setRefreshAheadMaxKeys(long refreshAheadMaxKeys) {
+        refreshAheadTracker.setMaxKeys(refreshAheadMaxKeys);
+        return this;
+    }
+
+    /**
+     * Executor to run refresh-ahead reloads, default {@code null} ({@link #getAsyncExecutor()}
+     * is used).
+     *
+     * @return
+     */
+    public Executor getRefreshAheadExecutor() {
+        return refreshAheadTracker.getExecutor();
+    }
+
+    public AbstractMappingDao setRefreshAheadExecutor(Executor refreshAheadExecutor) {
+        refreshAheadTracker.setExecutor(refreshAheadExecutor);
+        return this;
+    }
+
+    /*
+     * Cache key prefixes carry a format version: bump it when type of cached values changes.
+     */
+    private final static String CACHE_KEY_PREFIX_OBJ = "OBJ2-";
+    private final static String CACHE_KEY_PREFIX_TARGET = "TARGET2-";
+    private final static String CACHE_KEY_PREFIX_PAGE_OBJ = "POBJ2-";
+    private final static String CACHE_KEY_PREFIX_PAGE_TARGET = "PTARGET2-";
+    private final static String CACHE_KEY_PREFIX_COUNT_OBJ = "COBJ2-";
+    private final static String CACHE_KEY_PREFIX_COUNT_TARGET = "CTARGET2-";
+
+    /**
+     * Build a cache key: {@code prefix + namespace + "_" + key}, or
+     * {@code prefix + namespace + "@" + generation + "_" + key} once the namespace has been reset.
+     */
+    private String cacheKey(String prefix, String namespace, String key) {
+        long generation = namespaceGenerations.get(namespace);
+        return generation != 0 ? prefix + namespace + "@" + generation + "_" + key
+                : prefix + namespace + "_" + key;
+    }
+
+    protected String cacheKeyObjTarget(String namespace, String obj) {
+        return cacheKey(CACHE_KEY_PREFIX_OBJ, namespace, obj);
+    }
+
+    protected String cacheKeyTargetObj(String namespace, String target) {
+        return cacheKey(CACHE_KEY_PREFIX_TARGET, namespace, target);
+    }
+
+    protected String cacheKeyObjTargetPage(String namespace, String obj) {
+        return cacheKey(CACHE_KEY_PREFIX_PAGE_OBJ, namespace, obj);
+    }
+
+    protected String cacheKeyTargetObjPage(String namespace, String target) {
+        return cacheKey(CACHE_KEY_PREFIX_PAGE_TARGET, namespace, target);
+    }
+
+    protected String cacheKeyObjTargetCount(String namespace, String obj) {
+        return cacheKey(CACHE_KEY_PREFIX_COUNT_OBJ, namespace, obj);
+    }
+
+    protected String cacheKeyTargetObjCount(String namespace, String target) {
+        return cacheKey(CACHE_KEY_PREFIX_COUNT_TARGET, namespace, target);
+    }
+
+    protected String cacheKeyObjTarget(Mapping m) {
+        return cacheKeyObjTarget(m.getNamespace(), m.getObject());
+    }
+
+    protected String cacheKeyTargetObj(Mapping m) {
+        return cacheKeyTargetObj(m.getNamespace(), m.getTarget());
+    }
+
+    /**
+     * Output of public API for a single mapping.
+     *
+     * @param m
+     * @return empty set if input is {@code null}
+     */
+    protected static Collection<Mapping> toOutput(Mapping m) {
+        return m != null ? Collections.singleton(m) : Collections.emptySet();
+    }
+
+    /**
+     * Output of public API: a read-only view of (cached) mappings.
+     *
+     * @param mappings
+     * @return empty set if input is {@code null}
+     */
+    protected static Collection<Mapping> toOutput(Collection<Mapping> mappings) {
+        return mappings != null ? Collections.unmodifiableCollection(mappings)
+                : Collections.emptySet();
+    }
+
+    /**
+     * A page of mappings read from storage, also the value of first-page cache entries.
+     */
+    protected final static class Page implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private ArrayList<Mapping> mappings;
+        private String cursor;
+
+        /**
+         * For serialization frameworks only.
+         */
+        private Page() {
+        }
+
+        public Page(Collection<Mapping> mappings, String cursor) {
+            this.mappings = mappings != null ? new ArrayList<>(mappings) : new ArrayList<>();
+            this.cursor = cursor;
+        }
+
+        public List<Mapping> getMappings() {
+            return mappings;
+        }
+
+        /**
+         * Opaque cursor to fetch the next page, {@code null} if there is no more page.
+         *
+         * @return
+         */
+        public String getCursor() {
+            return cursor;
+        }
+
+        public MappingsPage toMappingsPage() {
+            return new MappingsPage(Mapping.toMappingBos(mappings), cursor);
+        }
+    }
+
+    /**
+     * Value of "known absent" cache entries.
+     */
+    protected final static class AbsentMarker implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private AbsentMarker() {
+        }
+    }
+
+    protected final static AbsentMarker ABSENT = new AbsentMarker();
+
+    /**
+     * Is a cached value the "known absent" marker (not by identity: entries may be deserialized)?
+     *
+     * @param value
+     * @return
+     */
+    protected static boolean isAbsent(Object value) {
+        return value instanceof AbsentMarker;
+    }
+
+    /**
+     * If set, invalidations are broadcast to other nodes to evict their L1 cache entries, see
+     * {@link #evictL1Cache(String, Collection)}. Default {@code null}.
+     *
+     * @return
+     */
+    public ICacheInvalidationBroadcaster getCacheInvalidationBroadcaster() {
+        return cacheInvalidationBroadcaster;
+    }
+
+    public AbstractMappingDao setCacheInvalidationBroadcaster(
+            ICacheInvalidationBroadcaster cacheInvalidationBroadcaster) {
+        this.cacheInvalidationBroadcaster = cacheInvalidationBroadcaster;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AbstractMappingDao init() {
+        if (asyncExecutor == null) {
+            throw new IllegalStateException("Async executor is not set.");
+        }
+        super.init();
+        refreshAheadTracker.init();
+        if (existenceFilterExpectedItems > 0 && existenceFilterRedis == null) {
+            LOGGER.warn("Existence filters are disabled: no existence filter Redis.");
+        } else if (existenceFilterExpectedItems > 0 && existenceFilters == null) {
+            existenceFilters = new ExistenceFilters().setRedis(existenceFilterRedis)
+                    .setExpectedItems(existenceFilterExpectedItems).setFpp(existenceFilterFpp)
+                    .setRebuildIntervalMs(existenceFilterRebuildIntervalMs)
+                    .setFilterName(this::existenceFilterName).setScanner(this::storageScanKeys)
+                    .init();
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy() {
+        try {
+            if (existenceFilters != null) {
+                existenceFilters.destroy();
+                existenceFilters = null;
+            }
+            if (delayedRemover != null) {
+                delayedRemover.shutdown();
+                delayedRemover = null;
+            }
+            l1Caches.destroy();
+            refreshAheadTracker.destroy();
+        } finally {
+            super.destroy();
+        }
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * Get current generation of a namespace, embedded in cache keys.
+     *
+     * @param namespace
+     * @return {@code 0} if the namespace has never been reset
+     */
+    protected long namespaceGeneration(String namespace) {
+        return namespaceGenerations.get(namespace);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Bumps the namespace's generation: cache entries of previous generations are no longer
+     * reachable, and expire by TTL.</p>
+     */
+    @Override
+    public void resetNamespace(String namespace) {
+        namespaceGenerations.reset(namespace);
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * Visit all objects and targets that have mappings in a namespace (full scan), used to
+     * build existence filters. A key may be visited more than once.
+     *
+     * @param namespace
+     * @param objConsumer
+     * @param targetConsumer
+     */
+    protected abstract void storageScanKeys(String namespace, Consumer<String> objConsumer,
+            Consumer<String> targetConsumer);
+
+    /**
+     * Name of the existence filter of a namespace: a new generation starts a new filter.
+     *
+     * @param namespace
+     * @return
+     */
+    private String existenceFilterName(String namespace) {
+        return cacheName + ":" + namespace + "@" + namespaceGeneration(namespace);
+    }
+
+    /**
+     * Rebuild the existence filter of a namespace from a full scan of storage now.
+     *
+     * @param namespace
+     */
+    public void rebuildExistenceFilter(String namespace) {
+        ExistenceFilters filters = existenceFilters;
+        if (filters != null) {
+            filters.rebuild(namespace, true);
+        }
+    }
+
+    /**
+     * Add a written mapping's object & target to the existence filter of its namespace.
+     *
+     * @param m
+     */
+    protected void existenceFilterAdd(Mapping m) {
+        ExistenceFilters filters = existenceFilters;
+        if (filters != null && m != null && m.getNamespace() != null) {
+            filters.add(m.getNamespace(), m.getObject(), m.getTarget());
+        }
+    }
+
+    /**
+     * Check if an object definitely has no mapping, according to existence filters.
+     *
+     * @param namespace
+     * @param obj
+     * @return {@code false} if the object may have mappings, or filters are not available
+     */
+    protected boolean isKnownAbsentObj(String namespace, String obj) {
+        ExistenceFilters filters = existenceFilters;
+        return filters != null && filters.isKnownAbsent(namespace, obj, true);
+    }
+
+    /**
+     * Check if a target definitely has no mapping, according to existence filters.
+     *
+     * @param namespace
+     * @param target
+     * @return {@code false} if the target may have mappings, or filters are not available
+     */
+    protected boolean isKnownAbsentTarget(String namespace, String target) {
+        ExistenceFilters filters = existenceFilters;
+        return filters != null && filters.isKnownAbsent(namespace, target, false);
+    }
+
+    /**
+     * Split keys (objects or targets) into those that may have mappings and those that
+     * definitely have none.
+     *
+     * @param namespace
+     * @param keys
+     * @param isObj
+     * @param knownAbsent
+     *         receives keys that definitely have no mapping
+     * @return keys that may have mappings ({@code keys} itself if filters are not available)
+     */
+    protected Collection<String> excludeKnownAbsent(String namespace, Collection<String> keys,
+            boolean isObj, Set<String> knownAbsent) {
+        ExistenceFilters filters = existenceFilters;
+        return filters != null ? filters.excludeKnownAbsent(namespace, keys, isObj, knownAbsent)
+                : keys;
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * Get the L1 cache of a cache name.
+     *
+     * @param cacheName
+     * @return {@code null} if L1 cache is disabled
+     */
+    protected Cache<String, Object> getL1Cache(String cacheName) {
+        return l1Caches.get(cacheName);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Look up the L1 cache first, entries found in remote cache are copied to L1.</p>
+     */
+    @Override
+    protected Object getFromCache(String cacheName, String key) {
+        Cache<String, Object> l1 = getL1Cache(cacheName);
+        Object value = l1 != null ? l1.getIfPresent(key) : null;
+        if (value == null) {
+            value = super.getFromCache(cacheName, key);
+            if (value != null && l1 != null) {
+                l1.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void putToCache(String cacheName, String key, Object value) {
+        super.putToCache(cacheName, key, value);
+        l1Caches.put(cacheName, key, value);
+        trackRefreshAhead(cacheName, key, value, -1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void putToCache(String cacheName, String key, Object value, long ttlSeconds) {
+        super.putToCache(cacheName, key, value, ttlSeconds);
+        l1Caches.put(cacheName, key, value);
+        trackRefreshAhead(cacheName, key, value, ttlSeconds);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Entry is removed from both L1 and remote cache, and the removal is broadcast to other
+     * nodes.</p>
+     */
+    @Override
+    protected void removeFromCache(String cacheName, String key) {
+        l1Caches.invalidate(cacheName, key);
+        super.removeFromCache(cacheName, key);
+        broadcastInvalidation(cacheName, key);
+        if (cacheName != null && cacheName.equals(getCacheName())) {
+            refreshAheadTracker.invalidate(key);
+        }
+    }
+
+    /**
+     * Broadcast invalidation of a cache entry to other nodes, if
+     * {@link #getCacheInvalidationBroadcaster()} is set.
+     *
+     * @param cacheName
+     * @param key
+     */
+    protected void broadcastInvalidation(String cacheName, String key) {
+        ICacheInvalidationBroadcaster broadcaster = cacheInvalidationBroadcaster;
+        if (broadcaster != null && cacheName != null) {
+            broadcaster.broadcast(cacheName, key);
+        }
+    }
+
+    /**
+     * Evict entries from in-process L1 cache only (e.g. upon invalidations broadcast by other
+     * nodes). Remote cache is not touched.
+     *
+     * @param cacheName
+     * @param keys
+     */
+    public void evictL1Cache(String cacheName, Collection<String> keys) {
+        l1Caches.evict(cacheName, keys);
+    }
+
+    /**
+     * Mark a key as "known absent" in cache, with TTL {@link #getCacheTtlAbsent()}.
+     *
+     * @param cacheName
+     * @param key
+     */
+    protected void putAbsentToCache(String cacheName, String key) {
+        ICacheFactory cacheFactory = getCacheFactory();
+        if (cacheTtlAbsent > 0 && !StringUtils.isBlank(cacheName)) {
+            if (cacheFactory != null) {
+                cacheFactory.createCache(cacheName).set(key, ABSENT, cacheTtlAbsent, -1);
+            }
+            l1Caches.put(cacheName, key, ABSENT);
+        }
+    }
+
+    /**
+     * Mark multiple keys as "known absent" in cache.
+     *
+     * @param cacheName
+     * @param keys
+     */
+    protected void putAbsentToCache(String cacheName, Collection<String> keys) {
+        if (cacheTtlAbsent <= 0 || StringUtils.isBlank(cacheName) || keys.isEmpty()) {
+            return;
+        }
+        if (!useBulkAccessor(keys)) {
+            keys.forEach(key -> putAbsentToCache(cacheName, key));
+            return;
+        }
+        Map<String, Object> entries = new HashMap<>();
+        keys.forEach(key -> entries.put(key, ABSENT));
+        putAllToCache(cacheName, entries, cacheTtlAbsent);
+    }
+
+    /**
+     * Bulk accessor is used for 2 keys or more, if both it and the cache factory are set.
+     */
+    private boolean useBulkAccessor(Collection<String> keys) {
+        return cacheBulkAccessor != null && getCacheFactory() != null && keys.size() > 1;
+    }
+
+    /**
+     * Put entries to remote cache via {@link #getCacheBulkAccessor()}, and to L1 cache.
+     * Failures of the bulk write fall back to per-key writes.
+     */
+    private void putAllToCache(String cacheName, Map<String, ?> entries, long ttlSeconds) {
+        try {
+            cacheBulkAccessor.putAll(cacheName, entries, ttlSeconds);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Bulk cache write failed, writing key by key: " + e.getMessage(), e);
+            ICacheFactory cacheFactory = getCacheFactory();
+            entries.forEach((key, value) -> cacheFactory.createCache(cacheName)
+                    .set(key, value, ttlSeconds, -1));
+        }
+        entries.forEach((key, value) -> {
+            l1Caches.put(cacheName, key, value);
+            trackRefreshAhead(cacheName, key, value, ttlSeconds);
+        });
+    }
+
+    /**
+     * Get multiple entries from cache.
+     *
+     * @param cacheName
+     * @param keys
+     * @return map of found entries {@code key -> value} (value may be the "known absent" marker,
+     * see {@link #isAbsent(Object)}), keys not found in cache are omitted
+     */
+    protected Map<String, Object> getFromCache(String cacheName, Collection<String> keys) {
+        Map<String, Object> result = new HashMap<>();
+        if (!useBulkAccessor(keys) || StringUtils.isBlank(cacheName)) {
+            for (String key : keys) {
+                Object value = getFromCache(cacheName, key);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+            return result;
+        }
+        Cache<String, Object> l1 = getL1Cache(cacheName);
+        List<String> l1Misses = new ArrayList<>();
+        for (String key : keys) {
+            Object value = l1 != null ? l1.getIfPresent(key) : null;
+            if (value != null) {
+                result.put(key, value);
+            } else {
+                l1Misses.add(key);
+            }
+        }
+        if (!l1Misses.isEmpty()) {
+            Map<String, Object> remote;
+            try {
+                remote = cacheBulkAccessor.getAll(cacheName, l1Misses);
+            } catch (RuntimeException e) {
+                // cache is an optimization: failures are treated as misses
+                LOGGER.warn("Bulk cache read failed: " + e.getMessage(), e);
+                remote = Collections.emptyMap();
+            }
+            remote.forEach((key, value) -> {
+                result.put(key, value);
+                if (l1 != null) {
+                    l1.put(key, value);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Put multiple entries to cache.
+     *
+     * @param cacheName
+     * @param entries
+     */
+    protected void putToCache(String cacheName, Map<String, ?> entries) {
+        if (!useBulkAccessor(entries.keySet()) || StringUtils.isBlank(cacheName)) {
+            entries.forEach((key, value) -> putToCache(cacheName, key, value));
+            return;
+        }
+        long ttlSeconds = getCacheFactory().createCache(cacheName).getExpireAfterWrite();
+        putAllToCache(cacheName, entries, ttlSeconds);
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * Track a just-written entry for refresh-ahead. "Known absent" markers are not refreshed.
+     *
+     * @param cacheName
+     * @param key
+     * @param value
+     * @param ttlSeconds
+     *         TTL of the written entry, negative: default TTL of the cache
+     */
+    private void trackRefreshAhead(String cacheName, String key, Object value, long ttlSeconds) {
+        if (!refreshAheadTracker.isEnabled() || cacheName == null
+                || !cacheName.equals(getCacheName())) {
+            return;
+        }
+        ICacheFactory cacheFactory = getCacheFactory();
+        if (ttlSeconds < 0) {
+            ttlSeconds = cacheFactory != null
+                    ? cacheFactory.createCache(cacheName).getExpireAfterWrite()
+                    : (getL1Cache(cacheName) != null ? l1Caches.getTtlSeconds() : -1);
+        }
+        refreshAheadTracker.track(key, value == null || isAbsent(value) ? 0 : ttlSeconds);
+    }
+
+    /**
+     * Check if a cached entry is due for refresh-ahead. If so, the refresh is claimed.
+     *
+     * @param cacheKey
+     * @return
+     */
+    protected boolean claimRefreshAhead(String cacheKey) {
+        return refreshAheadTracker.claim(cacheKey);
+    }
+
+    /**
+     * Run a refresh-ahead reload on {@link #getRefreshAheadExecutor()}. Failures are logged and
+     * ignored.
+     *
+     * @param reload
+     */
+    protected void submitRefreshAhead(Runnable reload) {
+        refreshAheadTracker.submit(reload, asyncExecutor);
+    }
+
+    /**
+     * Upon a cache hit: reload the entry in background if it is due for refresh-ahead. If
+     * another node holds the load lease of the entry, the refresh is re-scheduled.
+     *
+     * @param cacheKey
+     * @param loader
+     *         same as of {@link #loadSingleFlight(String, Supplier)}
+     */
+    protected void refreshAhead(String cacheKey, Supplier<Object> loader) {
+        if (claimRefreshAhead(cacheKey)) {
+            submitRefreshAhead(() -> this.loader.refresh(cacheKey, loader,
+                    () -> refreshAheadTracker.rearm(cacheKey, getLoadLeaseTtlMs())));
+        }
+    }
+
+    /**
+     * Async version of {@link #refreshAhead(String, Supplier)}.
+     *
+     * @param cacheKey
+     * @param loader
+     */
+    protected void refreshAheadAsync(String cacheKey, Supplier<CompletionStage<Object>> loader) {
+        if (claimRefreshAhead(cacheKey)) {
+            loadSingleFlightAsync(cacheKey, loader).whenComplete((value, e) -> {
+                if (e != null) {
+                    LOGGER.warn("Refresh-ahead failed: " + e.getMessage(), e);
+                }
+            });
+        }
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * Load a cache-missed entry, single-flight: concurrent calls with the same {@code cacheKey}
+     * share one invocation of {@code loader}, see {@link #getLoadLeaseRedis()}.
+     *
+     * @param cacheKey
+     * @param loader
+     *         load the entry from storage and put it to cache, returns the cached value (e.g. the
+     *         "known absent" marker if there is nothing in storage)
+     * @return
+     */
+    protected Object loadSingleFlight(String cacheKey, Supplier<Object> loader) {
+        return this.loader.load(cacheKey, loader);
+    }
+
+    /**
+     * Async version of {@link #loadSingleFlight(String, Supplier)}, coalesced per node only.
+     *
+     * @param cacheKey
+     * @param loader
+     * @return
+     */
+    protected CompletionStage<Object> loadSingleFlightAsync(String cacheKey,
+            Supplier<CompletionStage<Object>> loader) {
+        return this.loader.loadAsync(cacheKey, loader);
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * In-progress in-place updates of cache entries on this node, see
+     * {@link #updateCacheEntry(String, String, UnaryOperator)}.
+     */
+    private final ConcurrentMap<String, CompletableFuture<Void>> inflightUpdates
+            = new ConcurrentHashMap<>();
+    private volatile ScheduledExecutorService delayedRemover;
+
+    private ScheduledExecutorService getDelayedRemover() {
+        if (delayedRemover == null) {
+            synchronized (inflightUpdates) {
+                if (delayedRemover == null) {
+                    delayedRemover = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread t = new Thread(r, "mapping-cache-remover");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+            }
+        }
+        return delayedRemover;
+    }
+
+    /**
+     * Update an entry in cache in place (read-modify-write), instead of removing it.
+     *
+     * <p>The update holds the entry's load lease, so it does not interleave with loads or other
+     * updates of the entry. On conflict (or without {@link #getLoadLeaseRedis()} if there is a
+     * shared cache) the entry is removed instead.</p>
+     *
+     * @param cacheName
+     * @param cacheKey
+     * @param updater
+     *         compute the new value from the cached one (never {@code null}), returns
+     *         {@code null} to remove the entry
+     * @return {@code true} if the entry has been updated (or is not cached), {@code false} if it
+     * has been removed instead
+     */
+    protected boolean updateCacheEntry(String cacheName, String cacheKey,
+            UnaryOperator<Object> updater) {
+        boolean clusterLease = loader.hasClusterLease();
+        if (!clusterLease && getCacheFactory() != null) {
+            removeFromCache(cacheName, cacheKey);
+            return false;
+        }
+        CompletableFuture<Void> myUpdate = new CompletableFuture<>();
+        CompletableFuture<?> conflict = inflightUpdates.putIfAbsent(cacheKey, myUpdate);
+        if (conflict == null) {
+            conflict = loader.getInflight(cacheKey);
+        }
+        if (conflict != null) {
+            removeFromCache(cacheName, cacheKey);
+            conflict.whenComplete((v, e) -> removeFromCache(cacheName, cacheKey));
+            if (inflightUpdates.remove(cacheKey, myUpdate)) {
+                myUpdate.complete(null);
+            }
+            return false;
+        }
+        try {
+            if (!clusterLease) {
+                doUpdateCacheEntry(cacheName, cacheKey, updater);
+                return true;
+            }
+            String token = loader.tryAcquireLease(cacheKey);
+            if (token == null) {
+                // another node is loading/updating the entry
+                removeFromCache(cacheName, cacheKey);
+                getDelayedRemover().schedule(() -> removeFromCache(cacheName, cacheKey),
+                        getLoadLeaseTtlMs(), TimeUnit.MILLISECONDS);
+                return false;
+            }
+            long deadline = System.currentTimeMillis() + getLoadLeaseTtlMs();
+            try {
+                doUpdateCacheEntry(cacheName, cacheKey, updater);
+                if (System.currentTimeMillis() >= deadline) {
+                    // lease expired meanwhile, the update may have raced with others
+                    removeFromCache(cacheName, cacheKey);
+                    return false;
+                }
+                return true;
+            } finally {
+                loader.releaseLease(cacheKey, token);
+            }
+        } catch (RuntimeException e) {
+            removeFromCache(cacheName, cacheKey);
+            throw e;
+        } finally {
+            inflightUpdates.remove(cacheKey, myUpdate);
+            myUpdate.complete(null);
+        }
+    }
+
+    private void doUpdateCacheEntry(String cacheName, String cacheKey,
+            UnaryOperator<Object> updater) {
+        // read remote cache (L1 may be stale)
+        Object cached = super.getFromCache(cacheName, cacheKey);
+        if (cached == null) {
+            // not cached remotely: only make sure that no node keeps a stale L1 copy
+            l1Caches.invalidate(cacheName, cacheKey);
+            broadcastInvalidation(cacheName, cacheKey);
+            return;
+        }
+        Object value = updater.apply(cached);
+        if (value == null || (isAbsent(value) && cacheTtlAbsent <= 0)) {
+            removeFromCache(cacheName, cacheKey);
+        } else {
+            if (isAbsent(value)) {
+                putAbsentToCache(cacheName, cacheKey);
+            } else {
+                putToCache(cacheName, cacheKey, value);
+            }
+            broadcastInvalidation(cacheName, cacheKey);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Default implementation calls {@link #getStats(String)} on the calling thread. Sub-class
+     * should override this method if storage supports async access.</p>
+     */
+    @Override
+    public CompletionStage<Map<String, Long>> getStatsAsync(String namespace) {
+        return CompletableFuture.completedFuture(getStats(namespace));
+    }
+}
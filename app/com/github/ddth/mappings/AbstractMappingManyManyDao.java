@@ -1,10 +1,13 @@
 package com.github.ddth.mappings;
 
-import com.github.ddth.dao.BaseDao;
 import com.github.ddth.mappings.utils.MappingsUtils;
+import org.apache.commons.lang3.tuple.Pair;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Abstract implementation of n-n mappings.
@@ -14,39 +17,281 @@ import java.util.Collections;
  * @author Thanh Nguyen <btnguyen2k@gmail.com>
  * @since 0.1.0
  */
-public abstract class AbstractMappingManyManyDao extends BaseDao implements IMappingDao {
+public abstract class AbstractMappingManyManyDao extends AbstractMappingDao {
 
-    private String cacheName;
+    private boolean blindWrites = false;
+    private int pageCacheLimit = 100;
+    private int maxCachedMappings = 0;
+    private boolean incrementalCacheUpdates = false;
 
-    public String getCacheName() {
-        return cacheName;
+    /**
+     * Write-optimized mode: {@code map}/{@code unmap} operations write to storage directly,
+     * without reading existing mappings first. Storage methods then receive {@code null}
+     * existing mappings, and results do not contain existing mappings. Default {@code false}.
+     *
+     * @return
+     */
+    public boolean isBlindWrites() {
+        return blindWrites;
     }
 
-    public void setCacheName(String cacheName) {
-        this.cacheName = cacheName;
+    public AbstractMappingManyManyDao setBlindWrites(boolean blindWrites) {
+        this.blindWrites = blindWrites;
+        return this;
     }
 
-    protected String cacheKeyObjTarget(String namespace, String obj) {
-        return "OBJ-" + namespace + "_" + obj;
+    /**
+     * Paged reads of the first page with exactly this limit are cached. Default 100, {@code 0}
+     * disables caching of first pages.
+     *
+     * @return
+     */
+    public int getPageCacheLimit() {
+        return pageCacheLimit;
     }
 
-    protected String cacheKeyTargetObj(String namespace, String target) {
-        return "TARGET-" + namespace + "_" + target;
+    public AbstractMappingManyManyDao setPageCacheLimit(int pageCacheLimit) {
+        this.pageCacheLimit = pageCacheLimit;
+        return this;
     }
 
-    protected String cacheKeyObjTarget(MappingBo bo) {
-        return cacheKeyObjTarget(bo.getNamespace(), bo.getObject());
+    /**
+     * Mappings of a key are not cached if there are more than this number of them. Default
+     * {@code 0}: no limit.
+     *
+     * @return
+     */
+    public int getMaxCachedMappings() {
+        return maxCachedMappings;
     }
 
-    protected String cacheKeyTargetObj(MappingBo bo) {
-        return cacheKeyTargetObj(bo.getNamespace(), bo.getTarget());
+    public AbstractMappingManyManyDao setMaxCachedMappings(int maxCachedMappings) {
+        this.maxCachedMappings = maxCachedMappings;
+        return this;
     }
 
-    protected void invalidate(MappingBo bo, MappingsUtils.CacheInvalidationType cit) {
+    /**
+     * If enabled, {@code map}/{@code unmap} operations patch cached mappings of the object and
+     * of the target in place instead of removing them, see
+     * {@link #updateCacheEntry(String, String, java.util.function.UnaryOperator)}. Default
+     * {@code false}.
+     *
+     * @return
+     */
+    public boolean isIncrementalCacheUpdates() {
+        return incrementalCacheUpdates;
+    }
+
+    public AbstractMappingManyManyDao setIncrementalCacheUpdates(
+            boolean incrementalCacheUpdates) {
+        this.incrementalCacheUpdates = incrementalCacheUpdates;
+        return this;
+    }
+
+    protected void invalidate(Mapping bo, MappingsUtils.CacheInvalidationType cit) {
         if (bo != null) {
-            removeFromCache(cacheName, cacheKeyObjTarget(bo));
-            removeFromCache(cacheName, cacheKeyTargetObj(bo));
+            existenceFilterAdd(bo);
+            if (incrementalCacheUpdates && (cit == MappingsUtils.CacheInvalidationType.CREATE
+                    || cit == MappingsUtils.CacheInvalidationType.DELETE)) {
+                boolean isAdd = cit == MappingsUtils.CacheInvalidationType.CREATE;
+                updateCacheEntry(getCacheName(), cacheKeyObjTarget(bo),
+                        cached -> updateCachedMappings(cached, bo, isAdd));
+                updateCacheEntry(getCacheName(), cacheKeyTargetObj(bo),
+                        cached -> updateCachedMappings(cached, bo, isAdd));
+            } else {
+                removeFromCache(getCacheName(), cacheKeyObjTarget(bo));
+                removeFromCache(getCacheName(), cacheKeyTargetObj(bo));
+            }
+            if (pageCacheLimit > 0) {
+                removeFromCache(getCacheName(),
+                        cacheKeyObjTargetPage(bo.getNamespace(), bo.getObject()));
+                removeFromCache(getCacheName(),
+                        cacheKeyTargetObjPage(bo.getNamespace(), bo.getTarget()));
+            }
+            removeFromCache(getCacheName(),
+                    cacheKeyObjTargetCount(bo.getNamespace(), bo.getObject()));
+            removeFromCache(getCacheName(),
+                    cacheKeyTargetObjCount(bo.getNamespace(), bo.getTarget()));
+        }
+    }
+
+    /**
+     * Add/remove a mapping to/from a copy of cached mappings.
+     *
+     * @param cached
+     * @param bo
+     * @param isAdd
+     * @return the new value to cache, {@code null} to remove the entry from cache
+     */
+    private Object updateCachedMappings(Object cached, Mapping bo, boolean isAdd) {
+        if (!isAbsent(cached) && !(cached instanceof Collection)) {
+            return null;
+        }
+        Set<Mapping> mappings = new HashSet<>(toMappings(cached));
+        // also replace the existing mapping (if any) on add: timestamp may have changed
+        boolean existed = mappings.remove(bo);
+        if (isAdd) {
+            mappings.add(bo);
+        } else if (!existed) {
+            return cached;
+        }
+        return mappings.isEmpty() ? ABSENT : isCacheable(mappings) ? mappings : null;
+    }
+
+    /**
+     * Check if a collection of mappings is small enough to be cached.
+     *
+     * @param mappings
+     * @return
+     */
+    protected boolean isCacheable(Collection<Mapping> mappings) {
+        return maxCachedMappings <= 0 || mappings == null || mappings.size() <= maxCachedMappings;
+    }
+
+    /**
+     * Cache loaded mappings, or the "known absent" marker if there is no mapping.
+     *
+     * @param cacheKey
+     * @param mappings
+     */
+    protected void cacheMappings(String cacheKey, Collection<Mapping> mappings) {
+        if (mappings != null && mappings.size() > 0) {
+            if (isCacheable(mappings)) {
+                putToCache(getCacheName(), cacheKey, mappings);
+            }
+        } else {
+            putAbsentToCache(getCacheName(), cacheKey);
+        }
+    }
+
+    /**
+     * Cache-aside lookup of mappings of a key, see {@link #loadSingleFlight(String, Supplier)}.
+     *
+     * @param cacheKey
+     * @param loader
+     *         load mappings from storage on cache miss
+     * @return empty set if no mapping found
+     */
+    private Collection<Mapping> getMappings(String cacheKey,
+            Supplier<Collection<Mapping>> loader) {
+        Supplier<Object> load = () -> {
+            Collection<Mapping> mappings = loader.get();
+            cacheMappings(cacheKey, mappings);
+            return mappings != null && mappings.size() > 0 ? mappings : ABSENT;
+        };
+        Object cached = getFromCache(getCacheName(), cacheKey);
+        if (!isAbsent(cached) && !(cached instanceof Collection)) {
+            cached = loadSingleFlight(cacheKey, load);
+        } else {
+            refreshAhead(cacheKey, load);
+        }
+        return toMappings(cached);
+    }
+
+    /**
+     * Convert a cached value to mappings.
+     *
+     * @param value
+     * @return empty set if value is the "known absent" marker (or not a collection)
+     */
+    private static Collection<Mapping> toMappings(Object value) {
+        return value instanceof Collection ? (Collection<Mapping>) value : Collections.emptySet();
+    }
+
+    /**
+     * Cache-aside lookup of mappings of multiple keys, cache misses are loaded in bulk.
+     *
+     * @param keys
+     * @param cacheKeyFunc
+     *         map a key to cache key
+     * @param loader
+     *         load mappings of cache-missed keys from storage
+     * @return
+     */
+    private Map<String, Collection<Mapping>> getMappings(Collection<String> keys,
+            Function<String, String> cacheKeyFunc,
+            Function<Collection<String>, Map<String, Collection<Mapping>>> loader) {
+        Map<String, String> cacheKeys = new HashMap<>();
+        keys.forEach(key -> cacheKeys.put(cacheKeyFunc.apply(key), key));
+        Map<String, Collection<Mapping>> result = new HashMap<>();
+        Set<String> refreshes = new HashSet<>();
+        getFromCache(getCacheName(), cacheKeys.keySet()).forEach((cacheKey, cached) -> {
+            if (isAbsent(cached)) {
+                result.put(cacheKeys.get(cacheKey), Collections.emptySet());
+            } else if (cached instanceof Collection) {
+                result.put(cacheKeys.get(cacheKey), (Collection<Mapping>) cached);
+                if (claimRefreshAhead(cacheKey)) {
+                    refreshes.add(cacheKeys.get(cacheKey));
+                }
+            }
+        });
+        Set<String> misses = new HashSet<>(keys);
+        misses.removeAll(result.keySet());
+        if (misses.size() > 0) {
+            result.putAll(loadMappings(misses, cacheKeyFunc, loader));
         }
+        if (refreshes.size() > 0) {
+            submitRefreshAhead(() -> loadMappings(refreshes, cacheKeyFunc, loader));
+        }
+        return result;
+    }
+
+    /**
+     * Load mappings of multiple keys from storage in bulk, and cache them.
+     *
+     * @param keys
+     * @param cacheKeyFunc
+     * @param loader
+     * @return map {@code key -> mappings}, empty set if no mapping found
+     */
+    private Map<String, Collection<Mapping>> loadMappings(Collection<String> keys,
+            Function<String, String> cacheKeyFunc,
+            Function<Collection<String>, Map<String, Collection<Mapping>>> loader) {
+        Map<String, Collection<Mapping>> result = new HashMap<>();
+        Map<String, Collection<Mapping>> toCache = new HashMap<>();
+        Set<String> absentCacheKeys = new HashSet<>();
+        Map<String, Collection<Mapping>> loaded = loader.apply(keys);
+        keys.forEach(key -> {
+            Collection<Mapping> mappings = loaded.get(key);
+            if (mappings != null && mappings.size() > 0) {
+                if (isCacheable(mappings)) {
+                    toCache.put(cacheKeyFunc.apply(key), mappings);
+                }
+                result.put(key, mappings);
+            } else {
+                absentCacheKeys.add(cacheKeyFunc.apply(key));
+                result.put(key, Collections.emptySet());
+            }
+        });
+        putToCache(getCacheName(), toCache);
+        putAbsentToCache(getCacheName(), absentCacheKeys);
+        return result;
+    }
+
+    /**
+     * Async cache-aside lookup of mappings of a key, cache is accessed on
+     * {@link #getAsyncExecutor()}.
+     *
+     * @param cacheKey
+     * @param loader
+     * @return empty set if no mapping found
+     */
+    private CompletionStage<Collection<Mapping>> getMappingsAsync(String cacheKey,
+            Supplier<CompletionStage<Collection<Mapping>>> loader) {
+        Supplier<CompletionStage<Object>> load = () -> loader.get()
+                .thenApplyAsync(mappings -> {
+                    cacheMappings(cacheKey, mappings);
+                    return mappings != null && mappings.size() > 0 ? mappings : ABSENT;
+                }, getAsyncExecutor());
+        return CompletableFuture
+                .supplyAsync(() -> getFromCache(getCacheName(), cacheKey), getAsyncExecutor())
+                .thenCompose(cached -> {
+                    if (isAbsent(cached) || cached instanceof Collection) {
+                        refreshAheadAsync(cacheKey, load);
+                        return CompletableFuture.completedFuture(cached);
+                    }
+                    return loadSingleFlightAsync(cacheKey, load);
+                }).thenApply(value -> toMappings(value));
     }
 
     /**
@@ -58,14 +303,26 @@ public abstract class AbstractMappingManyManyDao extends BaseDao implements IMap
      * @param obj
      * @return
      */
-    protected Collection<MappingBo> getMappingsObjTargets(String namespace, String obj) {
-        final String cacheKey = cacheKeyObjTarget(namespace, obj);
-        Collection<MappingBo> mappings = getFromCache(cacheName, cacheKey, Collection.class);
-        if (mappings == null) {
-            mappings = storageGetMappingsObjTargets(namespace, obj);
-            putToCache(cacheName, cacheKey, mappings);
+    protected Collection<Mapping> getMappingsObjTargets(String namespace, String obj) {
+        return getMappingsObjTargets(namespace, obj, true);
+    }
+
+    /**
+     * Same as {@link #getMappingsObjTargets(String, String)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param obj
+     * @param useExistenceFilter
+     * @return
+     */
+    protected Collection<Mapping> getMappingsObjTargets(String namespace, String obj,
+            boolean useExistenceFilter) {
+        if (useExistenceFilter && isKnownAbsentObj(namespace, obj)) {
+            return Collections.emptySet();
         }
-        return mappings != null ? mappings : Collections.EMPTY_SET;
+        return getMappings(cacheKeyObjTarget(namespace, obj),
+                () -> storageGetMappingsObjTargets(namespace, obj));
     }
 
     /**
@@ -77,14 +334,160 @@ public abstract class AbstractMappingManyManyDao extends BaseDao implements IMap
      * @param target
      * @return
      */
-    protected Collection<MappingBo> getMappingsTargetObjs(String namespace, String target) {
-        final String cacheKey = cacheKeyTargetObj(namespace, target);
-        Collection<MappingBo> mappings = getFromCache(cacheName, cacheKey, Collection.class);
-        if (mappings == null) {
-            mappings = storageGetMappingsTargetObjs(namespace, target);
-            putToCache(cacheName, cacheKey, mappings);
+    protected Collection<Mapping> getMappingsTargetObjs(String namespace, String target) {
+        return getMappingsTargetObjs(namespace, target, true);
+    }
+
+    /**
+     * Same as {@link #getMappingsTargetObjs(String, String)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param target
+     * @param useExistenceFilter
+     * @return
+     */
+    protected Collection<Mapping> getMappingsTargetObjs(String namespace, String target,
+            boolean useExistenceFilter) {
+        if (useExistenceFilter && isKnownAbsentTarget(namespace, target)) {
+            return Collections.emptySet();
         }
-        return mappings != null ? mappings : Collections.EMPTY_SET;
+        return getMappings(cacheKeyTargetObj(namespace, target),
+                () -> storageGetMappingsTargetObjs(namespace, target));
+    }
+
+    /**
+     * Get existing mappings {@code object -> targets} for multiple objects.
+     *
+     * <p>Result contains an entry (empty set if no mapping found) for each input object.</p>
+     *
+     * @param namespace
+     * @param objs
+     * @return
+     */
+    protected Map<String, Collection<Mapping>> getMappingsObjTargets(String namespace,
+            Collection<String> objs) {
+        return getMappingsObjTargets(namespace, objs, true);
+    }
+
+    /**
+     * Same as {@link #getMappingsObjTargets(String, Collection)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param objs
+     * @param useExistenceFilter
+     * @return
+     */
+    protected Map<String, Collection<Mapping>> getMappingsObjTargets(String namespace,
+            Collection<String> objs, boolean useExistenceFilter) {
+        Set<String> knownAbsent = new HashSet<>();
+        Map<String, Collection<Mapping>> result = getMappings(
+                useExistenceFilter ? excludeKnownAbsent(namespace, objs, true, knownAbsent)
+                        : objs,
+                obj -> cacheKeyObjTarget(namespace, obj),
+                misses -> storageGetMappingsObjTargets(namespace, misses));
+        knownAbsent.forEach(obj -> result.put(obj, Collections.emptySet()));
+        return result;
+    }
+
+    /**
+     * Get existing mappings {@code target -> objects} for multiple targets.
+     *
+     * <p>Result contains an entry (empty set if no mapping found) for each input target.</p>
+     *
+     * @param namespace
+     * @param targets
+     * @return
+     */
+    protected Map<String, Collection<Mapping>> getMappingsTargetObjs(String namespace,
+            Collection<String> targets) {
+        return getMappingsTargetObjs(namespace, targets, true);
+    }
+
+    /**
+     * Same as {@link #getMappingsTargetObjs(String, Collection)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param targets
+     * @param useExistenceFilter
+     * @return
+     */
+    protected Map<String, Collection<Mapping>> getMappingsTargetObjs(String namespace,
+            Collection<String> targets, boolean useExistenceFilter) {
+        Set<String> knownAbsent = new HashSet<>();
+        Map<String, Collection<Mapping>> result = getMappings(
+                useExistenceFilter ? excludeKnownAbsent(namespace, targets, false, knownAbsent)
+                        : targets,
+                target -> cacheKeyTargetObj(namespace, target),
+                misses -> storageGetMappingsTargetObjs(namespace, misses));
+        knownAbsent.forEach(target -> result.put(target, Collections.emptySet()));
+        return result;
+    }
+
+    /**
+     * Get existing mappings {@code object -> targets} asynchronously.
+     *
+     * <p>This method returns an empty set if no mapping found.</p>
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     */
+    protected CompletionStage<Collection<Mapping>> getMappingsObjTargetsAsync(String namespace,
+            String obj) {
+        return getMappingsObjTargetsAsync(namespace, obj, true);
+    }
+
+    /**
+     * Same as {@link #getMappingsObjTargetsAsync(String, String)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param obj
+     * @param useExistenceFilter
+     * @return
+     */
+    protected CompletionStage<Collection<Mapping>> getMappingsObjTargetsAsync(String namespace,
+            String obj, boolean useExistenceFilter) {
+        if (useExistenceFilter && isKnownAbsentObj(namespace, obj)) {
+            return CompletableFuture.completedFuture(Collections.emptySet());
+        }
+        return getMappingsAsync(cacheKeyObjTarget(namespace, obj),
+                () -> storageGetMappingsObjTargetsAsync(namespace, obj));
+    }
+
+    /**
+     * Get existing mappings {@code target -> objects} asynchronously.
+     *
+     * <p>This method returns an empty set if no mapping found.</p>
+     *
+     * @param namespace
+     * @param target
+     * @return
+     */
+    protected CompletionStage<Collection<Mapping>> getMappingsTargetObjsAsync(String namespace,
+            String target) {
+        return getMappingsTargetObjsAsync(namespace, target, true);
+    }
+
+    /**
+     * Same as {@link #getMappingsTargetObjsAsync(String, String)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param target
+     * @param useExistenceFilter
+     * @return
+     */
+    protected CompletionStage<Collection<Mapping>> getMappingsTargetObjsAsync(String namespace,
+            String target, boolean useExistenceFilter) {
+        if (useExistenceFilter && isKnownAbsentTarget(namespace, target)) {
+            return CompletableFuture.completedFuture(Collections.emptySet());
+        }
+        return getMappingsAsync(cacheKeyTargetObj(namespace, target),
+                () -> storageGetMappingsTargetObjsAsync(namespace, target));
     }
 
     /**
@@ -95,7 +498,7 @@ public abstract class AbstractMappingManyManyDao extends BaseDao implements IMap
      * @param obj
      * @return
      */
-    protected abstract Collection<MappingBo> storageGetMappingsObjTargets(String namespace, String
+    protected abstract Collection<Mapping> storageGetMappingsObjTargets(String namespace, String
             obj);
 
     /**
@@ -106,9 +509,125 @@ public abstract class AbstractMappingManyManyDao extends BaseDao implements IMap
      * @param target
      * @return
      */
-    protected abstract Collection<MappingBo> storageGetMappingsTargetObjs(String namespace, String
+    protected abstract Collection<Mapping> storageGetMappingsTargetObjs(String namespace, String
             target);
 
+    /**
+     * Get existing mappings {@code object -> targets} of multiple objects from storage. Sub-class
+     * may override this method to load in bulk.
+     *
+     * @param namespace
+     * @param objs
+     * @return
+     */
+    protected Map<String, Collection<Mapping>> storageGetMappingsObjTargets(String namespace,
+            Collection<String> objs) {
+        Map<String, Collection<Mapping>> result = new HashMap<>();
+        objs.forEach(obj -> result.put(obj, storageGetMappingsObjTargets(namespace, obj)));
+        return result;
+    }
+
+    /**
+     * Get existing mappings {@code target -> objects} of multiple targets from storage. Sub-class
+     * may override this method to load in bulk.
+     *
+     * @param namespace
+     * @param targets
+     * @return
+     */
+    protected Map<String, Collection<Mapping>> storageGetMappingsTargetObjs(String namespace,
+            Collection<String> targets) {
+        Map<String, Collection<Mapping>> result = new HashMap<>();
+        targets.forEach(
+                target -> result.put(target, storageGetMappingsTargetObjs(namespace, target)));
+        return result;
+    }
+
+    private final static Comparator<Mapping> PAGE_ORDER = Comparator
+            .comparing(Mapping::getObject, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Mapping::getTarget, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /**
+     * Get a page of mappings {@code object -> targets} from storage. Sub-class should override
+     * this method to read only one page from storage.
+     *
+     * @param namespace
+     * @param obj
+     * @param limit
+     * @param cursor
+     *         {@code null} for the first page
+     * @return
+     */
+    protected Page storageGetMappingsObjTargetsPage(String namespace, String obj, int limit,
+            String cursor) {
+        Pair<List<Mapping>, String> page = MappingsUtils
+                .slice(storageGetMappingsObjTargets(namespace, obj), PAGE_ORDER, limit, cursor);
+        return new Page(page.getLeft(), page.getRight());
+    }
+
+    /**
+     * Get a page of mappings {@code target -> objects} from storage.
+     *
+     * @param namespace
+     * @param target
+     * @param limit
+     * @param cursor
+     * @return
+     */
+    protected Page storageGetMappingsTargetObjsPage(String namespace, String target, int limit,
+            String cursor) {
+        Pair<List<Mapping>, String> page = MappingsUtils
+                .slice(storageGetMappingsTargetObjs(namespace, target), PAGE_ORDER, limit, cursor);
+        return new Page(page.getLeft(), page.getRight());
+    }
+
+    /**
+     * Count mappings {@code object -> targets} in storage. Sub-class should override this method
+     * to count without loading mappings.
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     */
+    protected long storageCountMappingsObjTargets(String namespace, String obj) {
+        return storageGetMappingsObjTargets(namespace, obj).size();
+    }
+
+    /**
+     * Count mappings {@code target -> objects} in storage.
+     *
+     * @param namespace
+     * @param target
+     * @return
+     */
+    protected long storageCountMappingsTargetObjs(String namespace, String target) {
+        return storageGetMappingsTargetObjs(namespace, target).size();
+    }
+
+    /**
+     * Iterate over mappings {@code object -> targets} in storage. Sub-class should override this
+     * method to stream mappings from storage.
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     */
+    protected Iterator<Mapping> storageIterateMappingsObjTargets(String namespace, String obj) {
+        return storageGetMappingsObjTargets(namespace, obj).iterator();
+    }
+
+    /**
+     * Iterate over mappings {@code target -> objects} in storage.
+     *
+     * @param namespace
+     * @param target
+     * @return
+     */
+    protected Iterator<Mapping> storageIterateMappingsTargetObjs(String namespace,
+            String target) {
+        return storageGetMappingsTargetObjs(namespace, target).iterator();
+    }
+
     /**
      * Save mapping {@code object <-> target} to storage. Sub-class will implement this method.
      *
@@ -117,8 +636,8 @@ public abstract class AbstractMappingManyManyDao extends BaseDao implements IMap
      * @param existingTO
      * @return
      */
-    protected abstract MappingsUtils.DaoResult storageMap(MappingBo mappingToAdd,
-            Collection<MappingBo> existingOT, Collection<MappingBo> existingTO);
+    protected abstract MappingsUtils.DaoResult storageMap(Mapping mappingToAdd,
+            Collection<Mapping> existingOT, Collection<Mapping> existingTO);
 
     /**
      * Remove mapping {@code object <-> target} from storage. Sub-class will implement this method.
@@ -128,8 +647,106 @@ public abstract class AbstractMappingManyManyDao extends BaseDao implements IMap
      * @param existingTO
      * @return
      */
-    protected abstract MappingsUtils.DaoResult storageUnmap(MappingBo mappingToRemove,
-            Collection<MappingBo> existingOT, Collection<MappingBo> existingTO);
+    protected abstract MappingsUtils.DaoResult storageUnmap(Mapping mappingToRemove,
+            Collection<Mapping> existingOT, Collection<Mapping> existingTO);
+
+    /**
+     * Save multiple mappings {@code object <-> target} to storage. Sub-class may override this
+     * method to save mappings in bulk.
+     *
+     * <p>{@code existingOTs[i]} and {@code existingTOs[i]} already include effects of mappings
+     * {@code 0..i-1}.</p>
+     *
+     * @param mappingsToAdd
+     * @param existingOTs
+     * @param existingTOs
+     * @return per-mapping results, in the same order as {@code mappingsToAdd}
+     */
+    protected List<MappingsUtils.DaoResult> storageMapBatch(List<Mapping> mappingsToAdd,
+            List<Collection<Mapping>> existingOTs, List<Collection<Mapping>> existingTOs) {
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(mappingsToAdd.size());
+        for (int i = 0, n = mappingsToAdd.size(); i < n; i++) {
+            result.add(storageMap(mappingsToAdd.get(i), existingOTs.get(i), existingTOs.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Remove multiple mappings {@code object <-> target} from storage.
+     *
+     * @param mappingsToRemove
+     * @param existingOTs
+     * @param existingTOs
+     * @return per-mapping results, in the same order as {@code mappingsToRemove}
+     */
+    protected List<MappingsUtils.DaoResult> storageUnmapBatch(List<Mapping> mappingsToRemove,
+            List<Collection<Mapping>> existingOTs, List<Collection<Mapping>> existingTOs) {
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(mappingsToRemove.size());
+        for (int i = 0, n = mappingsToRemove.size(); i < n; i++) {
+            result.add(storageUnmap(mappingsToRemove.get(i), existingOTs.get(i),
+                    existingTOs.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Get existing mappings {@code object -> targets} from storage asynchronously. Sub-class
+     * should override this method if storage supports non-blocking access.
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     */
+    protected CompletionStage<Collection<Mapping>> storageGetMappingsObjTargetsAsync(
+            String namespace, String obj) {
+        return CompletableFuture.supplyAsync(() -> storageGetMappingsObjTargets(namespace, obj),
+                getAsyncExecutor());
+    }
+
+    /**
+     * Get existing mappings {@code target -> objects} from storage asynchronously.
+     *
+     * @param namespace
+     * @param target
+     * @return
+     */
+    protected CompletionStage<Collection<Mapping>> storageGetMappingsTargetObjsAsync(
+            String namespace, String target) {
+        return CompletableFuture
+                .supplyAsync(() -> storageGetMappingsTargetObjs(namespace, target),
+                        getAsyncExecutor());
+    }
+
+    /**
+     * Save mapping {@code object <-> target} to storage asynchronously.
+     *
+     * @param mappingToAdd
+     * @param existingOT
+     * @param existingTO
+     * @return
+     */
+    protected CompletionStage<MappingsUtils.DaoResult> storageMapAsync(Mapping mappingToAdd,
+            Collection<Mapping> existingOT, Collection<Mapping> existingTO) {
+        return CompletableFuture
+                .supplyAsync(() -> storageMap(mappingToAdd, existingOT, existingTO),
+                        getAsyncExecutor());
+    }
+
+    /**
+     * Remove mapping {@code object <-> target} from storage asynchronously.
+     *
+     * @param mappingToRemove
+     * @param existingOT
+     * @param existingTO
+     * @return
+     */
+    protected CompletionStage<MappingsUtils.DaoResult> storageUnmapAsync(
+            Mapping mappingToRemove, Collection<Mapping> existingOT,
+            Collection<Mapping> existingTO) {
+        return CompletableFuture
+                .supplyAsync(() -> storageUnmap(mappingToRemove, existingOT, existingTO),
+                        getAsyncExecutor());
+    }
 
     /*----------------------------------------------------------------------*/
 
@@ -138,22 +755,29 @@ public abstract class AbstractMappingManyManyDao extends BaseDao implements IMap
      */
     @Override
     public MappingsUtils.DaoResult map(String namespace, String obj, String target) {
-        MappingBo mappingToAdd = MappingBo.newInstance(namespace, obj, target);
-        Collection<MappingBo> existingOT = getMappingsObjTargets(namespace, obj);
-        Collection<MappingBo> existingTO = getMappingsTargetObjs(namespace, target);
+        Mapping mappingToAdd = Mapping.of(namespace, obj, target);
+        if (blindWrites) {
+            MappingsUtils.DaoResult mapResult = storageMap(mappingToAdd, null, null);
+            if (mapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL ||
+                    mapResult.status == MappingsUtils.DaoActionStatus.DUPLICATED) {
+                invalidate(mappingToAdd, MappingsUtils.CacheInvalidationType.CREATE);
+            }
+            return new MappingsUtils.DaoResult(mapResult.status);
+        }
+        Collection<Mapping> existingOT = getMappingsObjTargets(namespace, obj, false);
+        Collection<Mapping> existingTO = getMappingsTargetObjs(namespace, target, false);
         MappingsUtils.DaoResult mapResult = null;
         if (existingOT == null || !existingOT.contains(mappingToAdd)) {
             mapResult = storageMap(mappingToAdd, existingOT, existingTO);
             if (mapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL ||
                     mapResult.status == MappingsUtils.DaoActionStatus.DUPLICATED) {
-                invalidate(mappingToAdd, MappingsUtils.CacheInvalidationType.DELETE);
+                invalidate(mappingToAdd, MappingsUtils.CacheInvalidationType.CREATE);
             }
         }
         if (mapResult == null) {
-            return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL,
-                    existingOT);
+            return MappingsUtils.DaoResult.of(MappingsUtils.DaoActionStatus.SUCCESSFUL, existingOT);
         } else {
-            return new MappingsUtils.DaoResult(mapResult.status, existingOT);
+            return MappingsUtils.DaoResult.of(mapResult.status, existingOT);
         }
     }
 
@@ -162,9 +786,16 @@ public abstract class AbstractMappingManyManyDao extends BaseDao implements IMap
      */
     @Override
     public MappingsUtils.DaoResult unmap(String namespace, String obj, String target) {
-        MappingBo mappingToRemove = MappingBo.newInstance(namespace, obj, target);
-        Collection<MappingBo> existingOT = getMappingsObjTargets(namespace, obj);
-        Collection<MappingBo> existingTO = getMappingsTargetObjs(namespace, target);
+        Mapping mappingToRemove = Mapping.of(namespace, obj, target);
+        if (blindWrites) {
+            MappingsUtils.DaoResult unmapResult = storageUnmap(mappingToRemove, null, null);
+            if (unmapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL) {
+                invalidate(mappingToRemove, MappingsUtils.CacheInvalidationType.DELETE);
+            }
+            return new MappingsUtils.DaoResult(unmapResult.status);
+        }
+        Collection<Mapping> existingOT = getMappingsObjTargets(namespace, obj, false);
+        Collection<Mapping> existingTO = getMappingsTargetObjs(namespace, target, false);
         MappingsUtils.DaoResult unmapResult = null;
         if (existingOT != null && existingOT.contains(mappingToRemove)) {
             unmapResult = storageUnmap(mappingToRemove, existingOT, existingTO);
@@ -173,25 +804,452 @@ public abstract class AbstractMappingManyManyDao extends BaseDao implements IMap
             }
         }
         if (unmapResult == null) {
-            return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.NOT_FOUND, existingOT);
+            return MappingsUtils.DaoResult.of(MappingsUtils.DaoActionStatus.NOT_FOUND, existingOT);
         } else {
-            return new MappingsUtils.DaoResult(unmapResult.status, existingOT);
+            return MappingsUtils.DaoResult.of(unmapResult.status, existingOT);
+        }
+    }
+
+    /**
+     * Output of public API: read-only views of (cached) mappings.
+     */
+    private static Map<String, Collection<Mapping>> toOutput(
+            Map<String, Collection<Mapping>> mappings) {
+        Map<String, Collection<Mapping>> result = new HashMap<>();
+        mappings.forEach((key, value) -> result.put(key, toOutput(value)));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<MappingsUtils.DaoResult> mapBatch(String namespace,
+            Collection<Pair<String, String>> objTargets) {
+        return blindWrites ? mapBatchBlind(namespace, objTargets)
+                : writeBatch(namespace, objTargets, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<MappingsUtils.DaoResult> unmapBatch(String namespace,
+            Collection<Pair<String, String>> objTargets) {
+        return blindWrites ? unmapBatchBlind(namespace, objTargets)
+                : writeBatch(namespace, objTargets, false);
+    }
+
+    /**
+     * Map/unmap a batch of {@code object <-> target}, existing mappings are prefetched in bulk.
+     *
+     * @param namespace
+     * @param objTargets
+     * @param isAdd
+     * @return
+     */
+    private List<MappingsUtils.DaoResult> writeBatch(String namespace,
+            Collection<Pair<String, String>> objTargets, boolean isAdd) {
+        Set<String> objs = new HashSet<>(), targets = new HashSet<>();
+        objTargets.forEach(pair -> {
+            objs.add(pair.getLeft());
+            targets.add(pair.getRight());
+        });
+        // prefetch existing mappings, working sets are copied on first change only
+        Map<String, MappingWorkingSet> workingOT = MappingWorkingSet
+                .of(getMappingsObjTargets(namespace, objs, false));
+        Map<String, MappingWorkingSet> workingTO = MappingWorkingSet
+                .of(getMappingsTargetObjs(namespace, targets, false));
+
+        List<Collection<Mapping>> outputs = new ArrayList<>(objTargets.size());
+        List<Integer> pendingIndexes = new ArrayList<>();
+        List<Mapping> pendingMappings = new ArrayList<>();
+        List<Collection<Mapping>> pendingOTs = new ArrayList<>(), pendingTOs = new ArrayList<>();
+        for (Pair<String, String> pair : objTargets) {
+            Mapping mapping = Mapping.of(namespace, pair.getLeft(), pair.getRight());
+            MappingWorkingSet wsOT = workingOT.get(pair.getLeft());
+            MappingWorkingSet wsTO = workingTO.get(pair.getRight());
+            Collection<Mapping> existingOT = wsOT.snapshot();
+            if (wsOT.contains(mapping) != isAdd) {
+                pendingIndexes.add(outputs.size());
+                pendingMappings.add(mapping);
+                pendingOTs.add(existingOT);
+                pendingTOs.add(wsTO.snapshot());
+                wsOT.change(mapping, isAdd);
+                wsTO.change(mapping, isAdd);
+            }
+            outputs.add(existingOT);
+        }
+
+        MappingsUtils.DaoActionStatus[] statuses = new MappingsUtils.DaoActionStatus[outputs
+                .size()];
+        Arrays.fill(statuses, isAdd ? MappingsUtils.DaoActionStatus.SUCCESSFUL
+                : MappingsUtils.DaoActionStatus.NOT_FOUND);
+        if (pendingMappings.size() > 0) {
+            List<MappingsUtils.DaoResult> writeResults = isAdd
+                    ? storageMapBatch(pendingMappings, pendingOTs, pendingTOs)
+                    : storageUnmapBatch(pendingMappings, pendingOTs, pendingTOs);
+            for (int i = 0, n = pendingIndexes.size(); i < n; i++) {
+                MappingsUtils.DaoActionStatus status = writeResults.get(i).status;
+                if (status == MappingsUtils.DaoActionStatus.SUCCESSFUL
+                        || (isAdd && status == MappingsUtils.DaoActionStatus.DUPLICATED)) {
+                    invalidate(pendingMappings.get(i), isAdd
+                            ? MappingsUtils.CacheInvalidationType.CREATE
+                            : MappingsUtils.CacheInvalidationType.DELETE);
+                } else if (status == MappingsUtils.DaoActionStatus.ERROR) {
+                    // may be partially applied: drop cached entries (UPDATE is not patched)
+                    invalidate(pendingMappings.get(i),
+                            MappingsUtils.CacheInvalidationType.UPDATE);
+                }
+                statuses[pendingIndexes.get(i)] = status;
+            }
+        }
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(outputs.size());
+        for (int i = 0, n = outputs.size(); i < n; i++) {
+            result.add(MappingsUtils.DaoResult.withOutputView(statuses[i], outputs.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * {@link #mapBatch(String, Collection)} in blind-write mode: mappings are saved without
+     * reading existing ones.
+     */
+    private List<MappingsUtils.DaoResult> mapBatchBlind(String namespace,
+            Collection<Pair<String, String>> objTargets) {
+        List<Mapping> mappingsToAdd = new ArrayList<>(objTargets.size());
+        objTargets.forEach(
+                pair -> mappingsToAdd.add(Mapping.of(namespace, pair.getLeft(), pair.getRight())));
+        List<MappingsUtils.DaoResult> mapResults = storageMapBatch(mappingsToAdd,
+                Collections.nCopies(mappingsToAdd.size(), null),
+                Collections.nCopies(mappingsToAdd.size(), null));
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(mapResults.size());
+        for (int i = 0, n = mappingsToAdd.size(); i < n; i++) {
+            MappingsUtils.DaoResult mapResult = mapResults.get(i);
+            if (mapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL ||
+                    mapResult.status == MappingsUtils.DaoActionStatus.DUPLICATED) {
+                invalidate(mappingsToAdd.get(i), MappingsUtils.CacheInvalidationType.CREATE);
+            }
+            result.add(new MappingsUtils.DaoResult(mapResult.status));
+        }
+        return result;
+    }
+
+    /**
+     * {@link #unmapBatch(String, Collection)} in blind-write mode: mappings are removed without
+     * reading existing ones.
+     */
+    private List<MappingsUtils.DaoResult> unmapBatchBlind(String namespace,
+            Collection<Pair<String, String>> objTargets) {
+        Set<Mapping> unique = new LinkedHashSet<>();
+        objTargets.forEach(
+                pair -> unique.add(Mapping.of(namespace, pair.getLeft(), pair.getRight())));
+        List<Mapping> mappingsToRemove = new ArrayList<>(unique);
+        List<MappingsUtils.DaoResult> unmapResults = storageUnmapBatch(mappingsToRemove,
+                Collections.nCopies(mappingsToRemove.size(), null),
+                Collections.nCopies(mappingsToRemove.size(), null));
+        Map<Mapping, MappingsUtils.DaoActionStatus> statuses = new HashMap<>();
+        for (int i = 0, n = mappingsToRemove.size(); i < n; i++) {
+            MappingsUtils.DaoResult unmapResult = unmapResults.get(i);
+            if (unmapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL) {
+                invalidate(mappingsToRemove.get(i), MappingsUtils.CacheInvalidationType.DELETE);
+            } else if (unmapResult.status == MappingsUtils.DaoActionStatus.ERROR) {
+                // may be partially applied: drop cached entries (UPDATE is not patched)
+                invalidate(mappingsToRemove.get(i), MappingsUtils.CacheInvalidationType.UPDATE);
+            }
+            statuses.put(mappingsToRemove.get(i), unmapResult.status);
+        }
+        // a mapping listed more than once is removed once, later occurrences are NOT_FOUND
+        Set<Mapping> reported = new HashSet<>();
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(objTargets.size());
+        objTargets.forEach(pair -> {
+            Mapping m = Mapping.of(namespace, pair.getLeft(), pair.getRight());
+            result.add(new MappingsUtils.DaoResult(reported.add(m) ? statuses.get(m)
+                    : MappingsUtils.DaoActionStatus.NOT_FOUND));
+        });
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Mapping> findMappingsForObject(String namespace, String obj) {
+        return toOutput(getMappingsObjTargets(namespace, obj));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Mapping> findMappingsForTarget(String namespace, String target) {
+        return toOutput(getMappingsTargetObjs(namespace, target));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Collection<Mapping>> findMappingsForObjects(String namespace,
+            Collection<String> objs) {
+        return toOutput(getMappingsObjTargets(namespace, objs));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Collection<Mapping>> findMappingsForTargets(String namespace,
+            Collection<String> targets) {
+        return toOutput(getMappingsTargetObjs(namespace, targets));
+    }
+
+    /**
+     * Paged read of mappings of a key. Only the first page of limit {@link #getPageCacheLimit()}
+     * is cached.
+     *
+     * @param cacheKey
+     * @param limit
+     * @param cursor
+     * @param loader
+     *         load the page from storage
+     * @return
+     */
+    private MappingsPage getMappingsPage(String cacheKey, int limit, String cursor,
+            Supplier<Page> loader) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Invalid limit: " + limit);
+        }
+        if (cursor != null || limit != pageCacheLimit) {
+            return loader.get().toMappingsPage();
+        }
+        Supplier<Object> load = () -> {
+            Page page = loader.get();
+            putToCache(getCacheName(), cacheKey, page);
+            return page;
+        };
+        Object cached = getFromCache(getCacheName(), cacheKey);
+        if (!(cached instanceof Page)) {
+            cached = loadSingleFlight(cacheKey, load);
+        } else {
+            refreshAhead(cacheKey, load);
+        }
+        return ((Page) cached).toMappingsPage();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Only one page is read from storage.</p>
+     */
+    @Override
+    public MappingsPage getMappingsForObject(String namespace, String obj, int limit,
+            String cursor) {
+        return getMappingsPage(cacheKeyObjTargetPage(namespace, obj), limit, cursor,
+                () -> storageGetMappingsObjTargetsPage(namespace, obj, limit, cursor));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Only one page is read from storage.</p>
+     */
+    @Override
+    public MappingsPage getMappingsForTarget(String namespace, String target, int limit,
+            String cursor) {
+        return getMappingsPage(cacheKeyTargetObjPage(namespace, target), limit, cursor,
+                () -> storageGetMappingsTargetObjsPage(namespace, target, limit, cursor));
+    }
+
+    /**
+     * Cache-aside count of mappings of a key. Counts are cached separately from mappings; on
+     * cache miss, the count is taken from cached mappings of the key if any, otherwise counted
+     * in storage.
+     *
+     * @param countCacheKey
+     * @param mappingsCacheKey
+     * @param counter
+     *         count mappings in storage
+     * @return
+     */
+    private long countMappings(String countCacheKey, String mappingsCacheKey,
+            Supplier<Long> counter) {
+        Supplier<Object> load = () -> {
+            Object mappings = getFromCache(getCacheName(), mappingsCacheKey);
+            Long count;
+            if (isAbsent(mappings)) {
+                count = Long.valueOf(0);
+            } else if (mappings instanceof Collection) {
+                count = Long.valueOf(((Collection<?>) mappings).size());
+            } else {
+                count = counter.get();
+            }
+            putToCache(getCacheName(), countCacheKey, count);
+            return count;
+        };
+        Object cached = getFromCache(getCacheName(), countCacheKey);
+        if (!(cached instanceof Long)) {
+            cached = loadSingleFlight(countCacheKey, load);
+        } else {
+            refreshAhead(countCacheKey, load);
+        }
+        return ((Long) cached).longValue();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Mappings are not loaded, see {@link #storageCountMappingsObjTargets(String, String)}.</p>
+     */
+    @Override
+    public long countMappingsForObject(String namespace, String obj) {
+        return countMappings(cacheKeyObjTargetCount(namespace, obj),
+                cacheKeyObjTarget(namespace, obj),
+                () -> storageCountMappingsObjTargets(namespace, obj));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Mappings are not loaded, see {@link #storageCountMappingsTargetObjs(String, String)}.</p>
+     */
+    @Override
+    public long countMappingsForTarget(String namespace, String target) {
+        return countMappings(cacheKeyTargetObjCount(namespace, target),
+                cacheKeyTargetObj(namespace, target),
+                () -> storageCountMappingsTargetObjs(namespace, target));
+    }
+
+    /**
+     * Convert an iterator of internal mappings to output of public API.
+     */
+    private static Iterator<MappingBo> toOutput(Iterator<Mapping> mappings) {
+        return new Iterator<MappingBo>() {
+            @Override
+            public boolean hasNext() {
+                return mappings.hasNext();
+            }
+
+            @Override
+            public MappingBo next() {
+                return mappings.next().toMappingBo();
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Mappings are streamed from storage, bypassing cache.</p>
+     */
+    @Override
+    public Iterator<MappingBo> iterateMappingsForObject(String namespace, String obj) {
+        return toOutput(storageIterateMappingsObjTargets(namespace, obj));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Mappings are streamed from storage, bypassing cache.</p>
+     */
+    @Override
+    public Iterator<MappingBo> iterateMappingsForTarget(String namespace, String target) {
+        return toOutput(storageIterateMappingsTargetObjs(namespace, target));
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<MappingsUtils.DaoResult> mapAsync(String namespace, String obj,
+            String target) {
+        Mapping mappingToAdd = Mapping.of(namespace, obj, target);
+        if (blindWrites) {
+            return storageMapAsync(mappingToAdd, null, null).thenApplyAsync(mapResult -> {
+                if (mapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL ||
+                        mapResult.status == MappingsUtils.DaoActionStatus.DUPLICATED) {
+                    invalidate(mappingToAdd, MappingsUtils.CacheInvalidationType.CREATE);
+                }
+                return new MappingsUtils.DaoResult(mapResult.status);
+            }, getAsyncExecutor());
+        }
+        return getMappingsObjTargetsAsync(namespace, obj, false)
+                .thenCombine(getMappingsTargetObjsAsync(namespace, target, false),
+                        (ot, to) -> Pair.of(ot, to)).thenCompose(existing -> {
+                    final Collection<Mapping> existingOT = existing.getLeft();
+                    final Collection<Mapping> existingTO = existing.getRight();
+                    if (existingOT.contains(mappingToAdd)) {
+                        return CompletableFuture.completedFuture(MappingsUtils.DaoResult.of(
+                                MappingsUtils.DaoActionStatus.SUCCESSFUL, existingOT));
+                    }
+                    return storageMapAsync(mappingToAdd, existingOT, existingTO)
+                            .thenApplyAsync(mapResult -> {
+                                if (mapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL ||
+                                        mapResult.status
+                                                == MappingsUtils.DaoActionStatus.DUPLICATED) {
+                                    invalidate(mappingToAdd,
+                                            MappingsUtils.CacheInvalidationType.CREATE);
+                                }
+                                return MappingsUtils.DaoResult.of(mapResult.status, existingOT);
+                            }, getAsyncExecutor());
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<MappingsUtils.DaoResult> unmapAsync(String namespace, String obj,
+            String target) {
+        Mapping mappingToRemove = Mapping.of(namespace, obj, target);
+        if (blindWrites) {
+            return storageUnmapAsync(mappingToRemove, null, null).thenApplyAsync(unmapResult -> {
+                if (unmapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL) {
+                    invalidate(mappingToRemove, MappingsUtils.CacheInvalidationType.DELETE);
+                }
+                return new MappingsUtils.DaoResult(unmapResult.status);
+            }, getAsyncExecutor());
         }
+        return getMappingsObjTargetsAsync(namespace, obj, false)
+                .thenCombine(getMappingsTargetObjsAsync(namespace, target, false),
+                        (ot, to) -> Pair.of(ot, to)).thenCompose(existing -> {
+                    final Collection<Mapping> existingOT = existing.getLeft();
+                    final Collection<Mapping> existingTO = existing.getRight();
+                    if (!existingOT.contains(mappingToRemove)) {
+                        return CompletableFuture.completedFuture(MappingsUtils.DaoResult.of(
+                                MappingsUtils.DaoActionStatus.NOT_FOUND, existingOT));
+                    }
+                    return storageUnmapAsync(mappingToRemove, existingOT, existingTO)
+                            .thenApplyAsync(unmapResult -> {
+                                if (unmapResult.status
+                                        == MappingsUtils.DaoActionStatus.SUCCESSFUL) {
+                                    invalidate(mappingToRemove,
+                                            MappingsUtils.CacheInvalidationType.DELETE);
+                                }
+                                return MappingsUtils.DaoResult.of(unmapResult.status, existingOT);
+                            }, getAsyncExecutor());
+                });
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public Collection<MappingBo> getMappingsForObject(String namespace, String obj) {
-        return getMappingsObjTargets(namespace, obj);
+    public CompletionStage<Collection<Mapping>> findMappingsForObjectAsync(String namespace,
+            String obj) {
+        return getMappingsObjTargetsAsync(namespace, obj)
+                .thenApply(mappings -> toOutput(mappings));
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public Collection<MappingBo> getMappingsForTarget(String namespace, String target) {
-        return getMappingsTargetObjs(namespace, target);
+    public CompletionStage<Collection<Mapping>> findMappingsForTargetAsync(String namespace,
+            String target) {
+        return getMappingsTargetObjsAsync(namespace, target)
+                .thenApply(mappings -> toOutput(mappings));
     }
 }
@@ -0,0 +1,657 @@
+package com.github.ddth.mappings;
+
+import com.github.ddth.mappings.utils.MappingsUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Abstract implementation of n-1 mappings.
+ *
+ * <p>n-1 mappings: one object can be mapped to only one target, but one target can be mapped to
+ * multiple objects. Mapping {@code object -> target} is cached as a single {@link Mapping},
+ * mappings {@code target -> objects} are cached as a collection.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public abstract class AbstractMappingManyOneDao extends AbstractMappingDao {
+
+    protected void invalidate(Mapping bo, MappingsUtils.CacheInvalidationType cit) {
+        if (bo != null) {
+            existenceFilterAdd(bo);
+            removeFromCache(getCacheName(), cacheKeyObjTarget(bo));
+            removeFromCache(getCacheName(), cacheKeyTargetObj(bo));
+        }
+    }
+
+    /**
+     * Cache a loaded value, or the "known absent" marker if {@code value} is {@code null}.
+     *
+     * @param cacheKey
+     * @param value
+     */
+    protected void cacheValue(String cacheKey, Object value) {
+        if (value != null) {
+            putToCache(getCacheName(), cacheKey, value);
+        } else {
+            putAbsentToCache(getCacheName(), cacheKey);
+        }
+    }
+
+    private static Collection<Mapping> nullIfEmpty(Collection<Mapping> mappings) {
+        return mappings != null && mappings.size() > 0 ? mappings : null;
+    }
+
+    private static Mapping toMapping(Object value) {
+        return value instanceof Mapping ? (Mapping) value : null;
+    }
+
+    private static Collection<Mapping> toMappings(Object value) {
+        return value instanceof Collection ? (Collection<Mapping>) value : Collections.emptySet();
+    }
+
+    /**
+     * Cache-aside lookup of a key. Concurrent cache misses of the same key are coalesced into one
+     * storage load, see {@link #loadSingleFlight(String, Supplier)}. Hot entries are reloaded
+     * before they expire, see {@link #refreshAhead(String, Supplier)}.
+     *
+     * @param cacheKey
+     * @param type
+     *         type of cached values
+     * @param loader
+     *         load value from storage on cache miss, {@code null} if not found
+     * @return the value, or {@link #ABSENT}
+     */
+    private Object getCached(String cacheKey, Class<?> type, Supplier<Object> loader) {
+        Supplier<Object> load = () -> {
+            Object value = loader.get();
+            cacheValue(cacheKey, value);
+            return value != null ? value : ABSENT;
+        };
+        Object cached = getFromCache(getCacheName(), cacheKey);
+        if (!isAbsent(cached) && !type.isInstance(cached)) {
+            cached = loadSingleFlight(cacheKey, load);
+        } else {
+            refreshAhead(cacheKey, load);
+        }
+        return cached;
+    }
+
+    /**
+     * Cache-aside lookup of multiple keys, cache misses are loaded in bulk.
+     *
+     * @param keys
+     * @param cacheKeyFunc
+     *         map a key to cache key
+     * @param type
+     *         type of cached values
+     * @param loader
+     *         load values of cache-missed keys from storage ({@code null} values if not found)
+     * @return map {@code key -> value or ABSENT}
+     */
+    private Map<String, Object> getCached(Collection<String> keys,
+            Function<String, String> cacheKeyFunc, Class<?> type,
+            Function<Collection<String>, Map<String, ?>> loader) {
+        Map<String, String> cacheKeys = new HashMap<>();
+        keys.forEach(key -> cacheKeys.put(cacheKeyFunc.apply(key), key));
+        Map<String, Object> result = new HashMap<>();
+        Set<String> refreshes = new HashSet<>();
+        getFromCache(getCacheName(), cacheKeys.keySet()).forEach((cacheKey, cached) -> {
+            if (isAbsent(cached) || type.isInstance(cached)) {
+                result.put(cacheKeys.get(cacheKey), cached);
+                if (claimRefreshAhead(cacheKey)) {
+                    refreshes.add(cacheKeys.get(cacheKey));
+                }
+            }
+        });
+        Set<String> misses = new HashSet<>(keys);
+        misses.removeAll(result.keySet());
+        if (misses.size() > 0) {
+            result.putAll(loadCached(misses, cacheKeyFunc, loader));
+        }
+        if (refreshes.size() > 0) {
+            submitRefreshAhead(() -> loadCached(refreshes, cacheKeyFunc, loader));
+        }
+        return result;
+    }
+
+    /**
+     * Load values of multiple keys from storage in bulk, and cache them.
+     *
+     * @param keys
+     * @param cacheKeyFunc
+     * @param loader
+     * @return map {@code key -> value or ABSENT}
+     */
+    private Map<String, Object> loadCached(Collection<String> keys,
+            Function<String, String> cacheKeyFunc,
+            Function<Collection<String>, Map<String, ?>> loader) {
+        Map<String, Object> result = new HashMap<>();
+        Map<String, Object> toCache = new HashMap<>();
+        Set<String> absentCacheKeys = new HashSet<>();
+        Map<String, ?> loaded = loader.apply(keys);
+        keys.forEach(key -> {
+            Object value = loaded.get(key);
+            if (value != null) {
+                toCache.put(cacheKeyFunc.apply(key), value);
+                result.put(key, value);
+            } else {
+                absentCacheKeys.add(cacheKeyFunc.apply(key));
+                result.put(key, ABSENT);
+            }
+        });
+        putToCache(getCacheName(), toCache);
+        putAbsentToCache(getCacheName(), absentCacheKeys);
+        return result;
+    }
+
+    /**
+     * Async cache-aside lookup of a key. Cache is accessed and updated on
+     * {@link #getAsyncExecutor()}, the calling thread is not blocked. Concurrent cache misses of
+     * the same key are coalesced, see {@link #loadSingleFlightAsync(String, Supplier)}.
+     *
+     * @param cacheKey
+     * @param type
+     * @param loader
+     * @return the value, or {@link #ABSENT}
+     */
+    private CompletionStage<Object> getCachedAsync(String cacheKey, Class<?> type,
+            Supplier<CompletionStage<Object>> loader) {
+        Supplier<CompletionStage<Object>> load = () -> loader.get().thenApplyAsync(value -> {
+            cacheValue(cacheKey, value);
+            return value != null ? value : ABSENT;
+        }, getAsyncExecutor());
+        return CompletableFuture
+                .supplyAsync(() -> getFromCache(getCacheName(), cacheKey), getAsyncExecutor())
+                .thenCompose(cached -> {
+                    if (isAbsent(cached) || type.isInstance(cached)) {
+                        refreshAheadAsync(cacheKey, load);
+                        return CompletableFuture.completedFuture(cached);
+                    }
+                    return loadSingleFlightAsync(cacheKey, load);
+                });
+    }
+
+    /**
+     * Get existing mapping {@code object -> target}.
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     */
+    protected Mapping getMappingObjTarget(String namespace, String obj) {
+        return getMappingObjTarget(namespace, obj, true);
+    }
+
+    /**
+     * Same as {@link #getMappingObjTarget(String, String)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param obj
+     * @param useExistenceFilter
+     * @return
+     */
+    protected Mapping getMappingObjTarget(String namespace, String obj,
+            boolean useExistenceFilter) {
+        if (useExistenceFilter && isKnownAbsentObj(namespace, obj)) {
+            return null;
+        }
+        return toMapping(getCached(cacheKeyObjTarget(namespace, obj), Mapping.class,
+                () -> storageGetMappingObjTarget(namespace, obj)));
+    }
+
+    /**
+     * Get existing mappings {@code target -> objects}.
+     *
+     * <p>This method returns an empty set if no mapping found.</p>
+     *
+     * @param namespace
+     * @param target
+     * @return
+     */
+    protected Collection<Mapping> getMappingsTargetObjs(String namespace, String target) {
+        return getMappingsTargetObjs(namespace, target, true);
+    }
+
+    /**
+     * Same as {@link #getMappingsTargetObjs(String, String)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param target
+     * @param useExistenceFilter
+     * @return
+     */
+    protected Collection<Mapping> getMappingsTargetObjs(String namespace, String target,
+            boolean useExistenceFilter) {
+        if (useExistenceFilter && isKnownAbsentTarget(namespace, target)) {
+            return Collections.emptySet();
+        }
+        return toMappings(getCached(cacheKeyTargetObj(namespace, target), Collection.class,
+                () -> nullIfEmpty(storageGetMappingsTargetObjs(namespace, target))));
+    }
+
+    /**
+     * Get existing mapping {@code object -> target} asynchronously.
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     */
+    protected CompletionStage<Mapping> getMappingObjTargetAsync(String namespace, String obj) {
+        return getMappingObjTargetAsync(namespace, obj, true);
+    }
+
+    /**
+     * Same as {@link #getMappingObjTargetAsync(String, String)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param obj
+     * @param useExistenceFilter
+     * @return
+     */
+    protected CompletionStage<Mapping> getMappingObjTargetAsync(String namespace, String obj,
+            boolean useExistenceFilter) {
+        if (useExistenceFilter && isKnownAbsentObj(namespace, obj)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return getCachedAsync(cacheKeyObjTarget(namespace, obj), Mapping.class,
+                () -> storageGetMappingObjTargetAsync(namespace, obj).thenApply(m -> m))
+                .thenApply(value -> toMapping(value));
+    }
+
+    /**
+     * Get existing mappings {@code target -> objects} asynchronously.
+     *
+     * <p>This method returns an empty set if no mapping found.</p>
+     *
+     * @param namespace
+     * @param target
+     * @return
+     */
+    protected CompletionStage<Collection<Mapping>> getMappingsTargetObjsAsync(String namespace,
+            String target) {
+        return getMappingsTargetObjsAsync(namespace, target, true);
+    }
+
+    /**
+     * Same as {@link #getMappingsTargetObjsAsync(String, String)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param target
+     * @param useExistenceFilter
+     * @return
+     */
+    protected CompletionStage<Collection<Mapping>> getMappingsTargetObjsAsync(String namespace,
+            String target, boolean useExistenceFilter) {
+        if (useExistenceFilter && isKnownAbsentTarget(namespace, target)) {
+            return CompletableFuture.completedFuture(Collections.emptySet());
+        }
+        return getCachedAsync(cacheKeyTargetObj(namespace, target), Collection.class,
+                () -> storageGetMappingsTargetObjsAsync(namespace, target)
+                        .thenApply(mappings -> nullIfEmpty(mappings)))
+                .thenApply(value -> toMappings(value));
+    }
+
+    /**
+     * Get existing mapping {@code object -> target} from storage (single-row read). Sub-class
+     * will implement this method.
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     */
+    protected abstract Mapping storageGetMappingObjTarget(String namespace, String obj);
+
+    /**
+     * Get existing mappings {@code target -> objects} from storage (range read). Sub-class will
+     * implement this method.
+     *
+     * @param namespace
+     * @param target
+     * @return
+     */
+    protected abstract Collection<Mapping> storageGetMappingsTargetObjs(String namespace,
+            String target);
+
+    /**
+     * Get existing mappings {@code object -> target} of multiple objects from storage.
+     *
+     * <p>Default implementation calls {@link #storageGetMappingObjTarget(String, String)} for
+     * each object. Sub-class may override this method to load in bulk.</p>
+     *
+     * @param namespace
+     * @param objs
+     * @return
+     */
+    protected Map<String, Mapping> storageGetMappingObjTarget(String namespace,
+            Collection<String> objs) {
+        Map<String, Mapping> result = new HashMap<>();
+        objs.forEach(obj -> result.put(obj, storageGetMappingObjTarget(namespace, obj)));
+        return result;
+    }
+
+    /**
+     * Get existing mappings {@code target -> objects} of multiple targets from storage.
+     *
+     * <p>Default implementation calls {@link #storageGetMappingsTargetObjs(String, String)} for
+     * each target. Sub-class may override this method to load in bulk.</p>
+     *
+     * @param namespace
+     * @param targets
+     * @return
+     */
+    protected Map<String, Collection<Mapping>> storageGetMappingsTargetObjs(String namespace,
+            Collection<String> targets) {
+        Map<String, Collection<Mapping>> result = new HashMap<>();
+        targets.forEach(
+                target -> result.put(target, storageGetMappingsTargetObjs(namespace, target)));
+        return result;
+    }
+
+    /**
+     * Get existing mapping {@code object -> target} from storage asynchronously.
+     *
+     * <p>Default implementation calls {@link #storageGetMappingObjTarget(String, String)} on
+     * {@link #getAsyncExecutor()}. Sub-class should override this method if storage supports
+     * non-blocking access.</p>
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     */
+    protected CompletionStage<Mapping> storageGetMappingObjTargetAsync(String namespace,
+            String obj) {
+        return CompletableFuture.supplyAsync(() -> storageGetMappingObjTarget(namespace, obj),
+                getAsyncExecutor());
+    }
+
+    /**
+     * Get existing mappings {@code target -> objects} from storage asynchronously.
+     *
+     * <p>See {@link #storageGetMappingObjTargetAsync(String, String)}.</p>
+     *
+     * @param namespace
+     * @param target
+     * @return
+     */
+    protected CompletionStage<Collection<Mapping>> storageGetMappingsTargetObjsAsync(
+            String namespace, String target) {
+        return CompletableFuture
+                .supplyAsync(() -> storageGetMappingsTargetObjs(namespace, target),
+                        getAsyncExecutor());
+    }
+
+    /**
+     * Save mapping {@code object -> target} to storage, replacing existing mapping
+     * {@code object -> old-target} if any. Sub-class will implement this method.
+     *
+     * @param mappingToAdd
+     * @param existingOT
+     *         existing mapping {@code object -> old-target}, {@code null} if none
+     * @param existingTO
+     *         existing mappings {@code target -> objects}
+     * @param existingOldTO
+     *         existing mappings {@code old-target -> objects}, {@code null} if
+     *         {@code existingOT} is {@code null}
+     * @return
+     */
+    protected abstract MappingsUtils.DaoResult storageMap(Mapping mappingToAdd,
+            Mapping existingOT, Collection<Mapping> existingTO,
+            Collection<Mapping> existingOldTO);
+
+    /**
+     * Remove mapping {@code object -> target} from storage. Sub-class will implement this method.
+     *
+     * @param mappingToRemove
+     * @param existingTO
+     *         existing mappings {@code target -> objects}
+     * @return
+     */
+    protected abstract MappingsUtils.DaoResult storageUnmap(Mapping mappingToRemove,
+            Collection<Mapping> existingTO);
+
+    /**
+     * Save mapping {@code object -> target} to storage asynchronously.
+     *
+     * <p>Default implementation calls
+     * {@link #storageMap(Mapping, Mapping, Collection, Collection)} on
+     * {@link #getAsyncExecutor()}.</p>
+     *
+     * @param mappingToAdd
+     * @param existingOT
+     * @param existingTO
+     * @param existingOldTO
+     * @return
+     */
+    protected CompletionStage<MappingsUtils.DaoResult> storageMapAsync(Mapping mappingToAdd,
+            Mapping existingOT, Collection<Mapping> existingTO,
+            Collection<Mapping> existingOldTO) {
+        return CompletableFuture.supplyAsync(
+                () -> storageMap(mappingToAdd, existingOT, existingTO, existingOldTO),
+                getAsyncExecutor());
+    }
+
+    /**
+     * Remove mapping {@code object -> target} from storage asynchronously.
+     *
+     * <p>Default implementation calls {@link #storageUnmap(Mapping, Collection)} on
+     * {@link #getAsyncExecutor()}.</p>
+     *
+     * @param mappingToRemove
+     * @param existingTO
+     * @return
+     */
+    protected CompletionStage<MappingsUtils.DaoResult> storageUnmapAsync(
+            Mapping mappingToRemove, Collection<Mapping> existingTO) {
+        return CompletableFuture
+                .supplyAsync(() -> storageUnmap(mappingToRemove, existingTO), getAsyncExecutor());
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    private void invalidateAfterMap(Mapping mappingToAdd, Mapping existingOT,
+            MappingsUtils.DaoResult mapResult) {
+        if (mapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL ||
+                mapResult.status == MappingsUtils.DaoActionStatus.DUPLICATED) {
+            invalidate(existingOT, MappingsUtils.CacheInvalidationType.DELETE);
+            invalidate(mappingToAdd, MappingsUtils.CacheInvalidationType.DELETE);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Existing mapping {@code object -> old-target}, if any, is replaced.</p>
+     */
+    @Override
+    public MappingsUtils.DaoResult map(String namespace, String obj, String target) {
+        Mapping existingOT = getMappingObjTarget(namespace, obj, false);
+        if (existingOT != null && StringUtils.equals(target, existingOT.getTarget())) {
+            return MappingsUtils.DaoResult.of(MappingsUtils.DaoActionStatus.SUCCESSFUL, existingOT);
+        }
+        Mapping mappingToAdd = Mapping.of(namespace, obj, target);
+        Collection<Mapping> existingTO = getMappingsTargetObjs(namespace, target, false);
+        Collection<Mapping> existingOldTO = existingOT != null
+                ? getMappingsTargetObjs(namespace, existingOT.getTarget(), false) : null;
+        MappingsUtils.DaoResult mapResult = storageMap(mappingToAdd, existingOT, existingTO,
+                existingOldTO);
+        invalidateAfterMap(mappingToAdd, existingOT, mapResult);
+        return MappingsUtils.DaoResult.of(mapResult.status, existingOT);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MappingsUtils.DaoResult unmap(String namespace, String obj, String target) {
+        Mapping existing = getMappingObjTarget(namespace, obj, false);
+        if (existing == null || !StringUtils.equals(target, existing.getTarget())) {
+            return MappingsUtils.DaoResult.of(MappingsUtils.DaoActionStatus.NOT_FOUND, existing);
+        }
+        MappingsUtils.DaoResult unmapResult = storageUnmap(existing,
+                getMappingsTargetObjs(namespace, target, false));
+        if (unmapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL) {
+            invalidate(existing, MappingsUtils.CacheInvalidationType.DELETE);
+        }
+        return MappingsUtils.DaoResult.of(unmapResult.status, existing);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Pairs are mapped one by one.</p>
+     */
+    @Override
+    public List<MappingsUtils.DaoResult> mapBatch(String namespace,
+            Collection<Pair<String, String>> objTargets) {
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(objTargets.size());
+        objTargets.forEach(pair -> result.add(map(namespace, pair.getLeft(), pair.getRight())));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Pairs are unmapped one by one.</p>
+     */
+    @Override
+    public List<MappingsUtils.DaoResult> unmapBatch(String namespace,
+            Collection<Pair<String, String>> objTargets) {
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(objTargets.size());
+        objTargets
+                .forEach(pair -> result.add(unmap(namespace, pair.getLeft(), pair.getRight())));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Mapping> findMappingsForObject(String namespace, String obj) {
+        return toOutput(getMappingObjTarget(namespace, obj));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Mapping> findMappingsForTarget(String namespace, String target) {
+        return toOutput(getMappingsTargetObjs(namespace, target));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Collection<Mapping>> findMappingsForObjects(String namespace,
+            Collection<String> objs) {
+        Map<String, Collection<Mapping>> result = new HashMap<>();
+        Set<String> knownAbsent = new HashSet<>();
+        getCached(excludeKnownAbsent(namespace, objs, true, knownAbsent),
+                obj -> cacheKeyObjTarget(namespace, obj), Mapping.class,
+                misses -> storageGetMappingObjTarget(namespace, misses))
+                .forEach((obj, value) -> result.put(obj, toOutput(toMapping(value))));
+        knownAbsent.forEach(obj -> result.put(obj, Collections.emptySet()));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Collection<Mapping>> findMappingsForTargets(String namespace,
+            Collection<String> targets) {
+        Map<String, Collection<Mapping>> result = new HashMap<>();
+        Set<String> knownAbsent = new HashSet<>();
+        getCached(excludeKnownAbsent(namespace, targets, false, knownAbsent),
+                target -> cacheKeyTargetObj(namespace, target), Collection.class,
+                misses -> {
+                    Map<String, Collection<Mapping>> loaded = new HashMap<>();
+                    storageGetMappingsTargetObjs(namespace, misses).forEach(
+                            (target, mappings) -> loaded.put(target, nullIfEmpty(mappings)));
+                    return loaded;
+                }).forEach((target, value) -> result.put(target, toOutput(toMappings(value))));
+        knownAbsent.forEach(target -> result.put(target, Collections.emptySet()));
+        return result;
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<MappingsUtils.DaoResult> mapAsync(String namespace, String obj,
+            String target) {
+        Mapping mappingToAdd = Mapping.of(namespace, obj, target);
+        return getMappingObjTargetAsync(namespace, obj, false).thenCompose(existingOT -> {
+            if (existingOT != null && StringUtils.equals(target, existingOT.getTarget())) {
+                return CompletableFuture.completedFuture(MappingsUtils.DaoResult.of(
+                        MappingsUtils.DaoActionStatus.SUCCESSFUL, existingOT));
+            }
+            CompletionStage<Collection<Mapping>> existingOldTO = existingOT != null
+                    ? getMappingsTargetObjsAsync(namespace, existingOT.getTarget(), false)
+                    : CompletableFuture.completedFuture(null);
+            return getMappingsTargetObjsAsync(namespace, target, false)
+                    .thenCombine(existingOldTO, (to, oldTO) -> Pair.of(to, oldTO))
+                    .thenCompose(existing -> storageMapAsync(mappingToAdd, existingOT,
+                            existing.getLeft(), existing.getRight()))
+                    .thenApplyAsync(mapResult -> {
+                        invalidateAfterMap(mappingToAdd, existingOT, mapResult);
+                        return MappingsUtils.DaoResult.of(mapResult.status, existingOT);
+                    }, getAsyncExecutor());
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<MappingsUtils.DaoResult> unmapAsync(String namespace, String obj,
+            String target) {
+        return getMappingObjTargetAsync(namespace, obj, false).thenCompose(existing -> {
+            if (existing == null || !StringUtils.equals(target, existing.getTarget())) {
+                return CompletableFuture.completedFuture(
+                        MappingsUtils.DaoResult.of(MappingsUtils.DaoActionStatus.NOT_FOUND,
+                                existing));
+            }
+            return getMappingsTargetObjsAsync(namespace, target, false)
+                    .thenCompose(existingTO -> storageUnmapAsync(existing, existingTO))
+                    .thenApplyAsync(unmapResult -> {
+                        if (unmapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL) {
+                            invalidate(existing, MappingsUtils.CacheInvalidationType.DELETE);
+                        }
+                        return MappingsUtils.DaoResult.of(unmapResult.status, existing);
+                    }, getAsyncExecutor());
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Collection<Mapping>> findMappingsForObjectAsync(String namespace,
+            String obj) {
+        return getMappingObjTargetAsync(namespace, obj).thenApply(existing -> toOutput(existing));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Collection<Mapping>> findMappingsForTargetAsync(String namespace,
+            String target) {
+        return getMappingsTargetObjsAsync(namespace, target)
+                .thenApply(mappings -> toOutput(mappings));
+    }
+}
@@ -1,11 +1,14 @@
 package com.github.ddth.mappings;
 
-import com.github.ddth.dao.BaseDao;
 import com.github.ddth.mappings.utils.MappingsUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Abstract implementation of 1-1 mappings.
@@ -15,82 +18,346 @@ import java.util.Collections;
  * @author Thanh Nguyen <btnguyen2k@gmail.com>
  * @since 0.1.0
  */
-public abstract class AbstractMappingOneOneDao extends BaseDao implements IMappingDao {
+public abstract class AbstractMappingOneOneDao extends AbstractMappingDao {
 
-    private String cacheName;
+    protected void invalidate(Mapping bo, MappingsUtils.CacheInvalidationType cit) {
+        if (bo != null) {
+            existenceFilterAdd(bo);
+            switch (cit) {
+                case CREATE:
+                case UPDATE:
+                    putToCache(getCacheName(), cacheKeyObjTarget(bo), bo);
+                    putToCache(getCacheName(), cacheKeyTargetObj(bo), bo);
+                    broadcastInvalidation(getCacheName(), cacheKeyObjTarget(bo));
+                    broadcastInvalidation(getCacheName(), cacheKeyTargetObj(bo));
+                    break;
+                case DELETE:
+                    removeFromCache(getCacheName(), cacheKeyObjTarget(bo));
+                    removeFromCache(getCacheName(), cacheKeyTargetObj(bo));
+                    break;
+            }
+        }
+    }
 
-    public String getCacheName() {
-        return cacheName;
+    /**
+     * Cache a loaded mapping, or the "known absent" marker if {@code m} is {@code null}.
+     *
+     * @param cacheKey
+     * @param m
+     */
+    protected void cacheMapping(String cacheKey, Mapping m) {
+        if (m != null) {
+            putToCache(getCacheName(), cacheKey, m);
+        } else {
+            putAbsentToCache(getCacheName(), cacheKey);
+        }
     }
 
-    public void setCacheName(String cacheName) {
-        this.cacheName = cacheName;
+    /**
+     * Cache-aside lookup of a single mapping. Concurrent cache misses of the same key are
+     * coalesced into one storage load, see {@link #loadSingleFlight(String, Supplier)}. Hot
+     * entries are reloaded before they expire, see {@link #refreshAhead(String, Supplier)}.
+     *
+     * @param cacheKey
+     * @param loader
+     *         load the mapping from storage on cache miss
+     * @return
+     */
+    private Mapping getMapping(String cacheKey, Supplier<Mapping> loader) {
+        Supplier<Object> load = () -> {
+            Mapping m = loader.get();
+            cacheMapping(cacheKey, m);
+            return m != null ? m : ABSENT;
+        };
+        Object cached = getFromCache(getCacheName(), cacheKey);
+        if (!isAbsent(cached) && !(cached instanceof Mapping)) {
+            cached = loadSingleFlight(cacheKey, load);
+        } else {
+            refreshAhead(cacheKey, load);
+        }
+        return cached instanceof Mapping ? (Mapping) cached : null;
     }
 
-    protected String cacheKeyObjTarget(String namespace, String obj) {
-        return "OBJ-" + namespace + "_" + obj;
+    /**
+     * Cache-aside lookup of multiple mappings, cache misses are loaded in bulk.
+     *
+     * @param keys
+     * @param cacheKeyFunc
+     *         map a key to cache key
+     * @param loader
+     *         load mappings of cache-missed keys from storage
+     * @return
+     */
+    private Map<String, Mapping> getMappings(Collection<String> keys,
+            Function<String, String> cacheKeyFunc,
+            Function<Collection<String>, Map<String, Mapping>> loader) {
+        Map<String, String> cacheKeys = new HashMap<>();
+        keys.forEach(key -> cacheKeys.put(cacheKeyFunc.apply(key), key));
+        Map<String, Mapping> result = new HashMap<>();
+        Set<String> refreshes = new HashSet<>();
+        getFromCache(getCacheName(), cacheKeys.keySet()).forEach((cacheKey, cached) -> {
+            if (isAbsent(cached)) {
+                result.put(cacheKeys.get(cacheKey), null);
+            } else if (cached instanceof Mapping) {
+                result.put(cacheKeys.get(cacheKey), (Mapping) cached);
+                if (claimRefreshAhead(cacheKey)) {
+                    refreshes.add(cacheKeys.get(cacheKey));
+                }
+            }
+        });
+        Set<String> misses = new HashSet<>(keys);
+        misses.removeAll(result.keySet());
+        if (misses.size() > 0) {
+            result.putAll(loadMappings(misses, cacheKeyFunc, loader));
+        }
+        if (refreshes.size() > 0) {
+            submitRefreshAhead(() -> loadMappings(refreshes, cacheKeyFunc, loader));
+        }
+        return result;
     }
 
-    protected String cacheKeyTargetObj(String namespace, String target) {
-        return "TARGET-" + namespace + "_" + target;
+    /**
+     * Load mappings of multiple keys from storage in bulk, and cache them.
+     *
+     * @param keys
+     * @param cacheKeyFunc
+     * @param loader
+     * @return map {@code key -> mapping or null}
+     */
+    private Map<String, Mapping> loadMappings(Collection<String> keys,
+            Function<String, String> cacheKeyFunc,
+            Function<Collection<String>, Map<String, Mapping>> loader) {
+        Map<String, Mapping> result = new HashMap<>();
+        Map<String, Mapping> toCache = new HashMap<>();
+        Set<String> absentCacheKeys = new HashSet<>();
+        Map<String, Mapping> loaded = loader.apply(keys);
+        keys.forEach(key -> {
+            Mapping m = loaded.get(key);
+            if (m != null) {
+                toCache.put(cacheKeyFunc.apply(key), m);
+            } else {
+                absentCacheKeys.add(cacheKeyFunc.apply(key));
+            }
+            result.put(key, m);
+        });
+        putToCache(getCacheName(), toCache);
+        putAbsentToCache(getCacheName(), absentCacheKeys);
+        return result;
     }
 
-    protected String cacheKeyObjTarget(MappingBo bo) {
-        return cacheKeyObjTarget(bo.getNamespace(), bo.getObject());
+    /**
+     * Async cache-aside lookup of a single mapping. Cache is accessed and updated on
+     * {@link #getAsyncExecutor()}, the calling thread is not blocked. Concurrent cache misses of
+     * the same key are coalesced, see {@link #loadSingleFlightAsync(String, Supplier)}.
+     *
+     * @param cacheKey
+     * @param loader
+     * @return
+     */
+    private CompletionStage<Mapping> getMappingAsync(String cacheKey,
+            Supplier<CompletionStage<Mapping>> loader) {
+        Supplier<CompletionStage<Object>> load = () -> loader.get().thenApplyAsync(m -> {
+            cacheMapping(cacheKey, m);
+            return m != null ? m : ABSENT;
+        }, getAsyncExecutor());
+        return CompletableFuture
+                .supplyAsync(() -> getFromCache(getCacheName(), cacheKey), getAsyncExecutor())
+                .thenCompose(cached -> {
+                    if (isAbsent(cached) || cached instanceof Mapping) {
+                        refreshAheadAsync(cacheKey, load);
+                        return CompletableFuture.completedFuture(cached);
+                    }
+                    return loadSingleFlightAsync(cacheKey, load);
+                }).thenApply(value -> value instanceof Mapping ? (Mapping) value : null);
     }
 
-    protected String cacheKeyTargetObj(MappingBo bo) {
-        return cacheKeyTargetObj(bo.getNamespace(), bo.getTarget());
+    /**
+     * Get existing mapping {@code object -> target}.
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     */
+    protected Mapping getMappingObjTarget(String namespace, String obj) {
+        return getMappingObjTarget(namespace, obj, true);
     }
 
-    protected void invalidate(MappingBo bo, MappingsUtils.CacheInvalidationType cit) {
-        if (bo != null) {
-            switch (cit) {
-                case CREATE:
-                case UPDATE:
-                    putToCache(cacheName, cacheKeyObjTarget(bo), bo);
-                    putToCache(cacheName, cacheKeyTargetObj(bo), bo);
-                    break;
-                case DELETE:
-                    removeFromCache(cacheName, cacheKeyObjTarget(bo));
-                    removeFromCache(cacheName, cacheKeyTargetObj(bo));
-                    break;
-            }
+    /**
+     * Same as {@link #getMappingObjTarget(String, String)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param obj
+     * @param useExistenceFilter
+     * @return
+     */
+    protected Mapping getMappingObjTarget(String namespace, String obj,
+            boolean useExistenceFilter) {
+        if (useExistenceFilter && isKnownAbsentObj(namespace, obj)) {
+            return null;
         }
+        return getMapping(cacheKeyObjTarget(namespace, obj),
+                () -> storageGetMappingObjTarget(namespace, obj));
     }
 
     /**
-     * Get existing mapping {@code object -> target}.
+     * Get existing mapping {@code target -> object}.
+     *
+     * @param namespace
+     * @param target
+     * @return
+     */
+    protected Mapping getMappingTargetObj(String namespace, String target) {
+        return getMappingTargetObj(namespace, target, true);
+    }
+
+    /**
+     * Same as {@link #getMappingTargetObj(String, String)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param target
+     * @param useExistenceFilter
+     * @return
+     */
+    protected Mapping getMappingTargetObj(String namespace, String target,
+            boolean useExistenceFilter) {
+        if (useExistenceFilter && isKnownAbsentTarget(namespace, target)) {
+            return null;
+        }
+        return getMapping(cacheKeyTargetObj(namespace, target),
+                () -> storageGetMappingTargetObj(namespace, target));
+    }
+
+    /**
+     * Get existing mappings {@code object -> target} for multiple objects.
+     *
+     * <p>Result contains an entry (value {@code null} if no mapping found) for each input
+     * object. Cache misses are loaded from storage in bulk.</p>
+     *
+     * @param namespace
+     * @param objs
+     * @return
+     */
+    protected Map<String, Mapping> getMappingObjTarget(String namespace,
+            Collection<String> objs) {
+        return getMappingObjTarget(namespace, objs, true);
+    }
+
+    /**
+     * Same as {@link #getMappingObjTarget(String, Collection)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param objs
+     * @param useExistenceFilter
+     * @return
+     */
+    protected Map<String, Mapping> getMappingObjTarget(String namespace, Collection<String> objs,
+            boolean useExistenceFilter) {
+        Set<String> knownAbsent = new HashSet<>();
+        Map<String, Mapping> result = getMappings(
+                useExistenceFilter ? excludeKnownAbsent(namespace, objs, true, knownAbsent)
+                        : objs,
+                obj -> cacheKeyObjTarget(namespace, obj),
+                misses -> storageGetMappingObjTarget(namespace, misses));
+        knownAbsent.forEach(obj -> result.put(obj, null));
+        return result;
+    }
+
+    /**
+     * Get existing mappings {@code target -> object} for multiple targets.
+     *
+     * <p>Result contains an entry (value {@code null} if no mapping found) for each input
+     * target. Cache misses are loaded from storage in bulk.</p>
+     *
+     * @param namespace
+     * @param targets
+     * @return
+     */
+    protected Map<String, Mapping> getMappingTargetObj(String namespace,
+            Collection<String> targets) {
+        return getMappingTargetObj(namespace, targets, true);
+    }
+
+    /**
+     * Same as {@link #getMappingTargetObj(String, Collection)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param targets
+     * @param useExistenceFilter
+     * @return
+     */
+    protected Map<String, Mapping> getMappingTargetObj(String namespace, Collection<String> targets,
+            boolean useExistenceFilter) {
+        Set<String> knownAbsent = new HashSet<>();
+        Map<String, Mapping> result = getMappings(
+                useExistenceFilter ? excludeKnownAbsent(namespace, targets, false, knownAbsent)
+                        : targets,
+                target -> cacheKeyTargetObj(namespace, target),
+                misses -> storageGetMappingTargetObj(namespace, misses));
+        knownAbsent.forEach(target -> result.put(target, null));
+        return result;
+    }
+
+    /**
+     * Get existing mapping {@code object -> target} asynchronously.
      *
      * @param namespace
      * @param obj
      * @return
      */
-    protected MappingBo getMappingObjTarget(String namespace, String obj) {
-        final String cacheKey = cacheKeyObjTarget(namespace, obj);
-        MappingBo bo = getFromCache(cacheName, cacheKey, MappingBo.class);
-        if (bo == null) {
-            bo = storageGetMappingObjTarget(namespace, obj);
-            putToCache(cacheName, cacheKey, bo);
+    protected CompletionStage<Mapping> getMappingObjTargetAsync(String namespace, String obj) {
+        return getMappingObjTargetAsync(namespace, obj, true);
+    }
+
+    /**
+     * Same as {@link #getMappingObjTargetAsync(String, String)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param obj
+     * @param useExistenceFilter
+     * @return
+     */
+    protected CompletionStage<Mapping> getMappingObjTargetAsync(String namespace, String obj,
+            boolean useExistenceFilter) {
+        if (useExistenceFilter && isKnownAbsentObj(namespace, obj)) {
+            return CompletableFuture.completedFuture(null);
         }
-        return bo;
+        return getMappingAsync(cacheKeyObjTarget(namespace, obj),
+                () -> storageGetMappingObjTargetAsync(namespace, obj));
     }
 
     /**
-     * Get existing mapping {@code target -> object}.
+     * Get existing mapping {@code target -> object} asynchronously.
      *
      * @param namespace
      * @param target
      * @return
      */
-    protected MappingBo getMappingTargetObj(String namespace, String target) {
-        final String cacheKey = cacheKeyTargetObj(namespace, target);
-        MappingBo bo = getFromCache(cacheName, cacheKey, MappingBo.class);
-        if (bo == null) {
-            bo = storageGetMappingTargetObj(namespace, target);
-            putToCache(cacheName, cacheKey, bo);
+    protected CompletionStage<Mapping> getMappingTargetObjAsync(String namespace,
+            String target) {
+        return getMappingTargetObjAsync(namespace, target, true);
+    }
+
+    /**
+     * Same as {@link #getMappingTargetObjAsync(String, String)}, existence filters are consulted
+     * only if {@code useExistenceFilter}.
+     *
+     * @param namespace
+     * @param target
+     * @param useExistenceFilter
+     * @return
+     */
+    protected CompletionStage<Mapping> getMappingTargetObjAsync(String namespace, String target,
+            boolean useExistenceFilter) {
+        if (useExistenceFilter && isKnownAbsentTarget(namespace, target)) {
+            return CompletableFuture.completedFuture(null);
         }
-        return bo;
+        return getMappingAsync(cacheKeyTargetObj(namespace, target),
+                () -> storageGetMappingTargetObjAsync(namespace, target));
     }
 
     /**
@@ -101,7 +368,7 @@ public abstract class AbstractMappingOneOneDao extends BaseDao implements IMappi
      * @param obj
      * @return
      */
-    protected abstract MappingBo storageGetMappingObjTarget(String namespace, String obj);
+    protected abstract Mapping storageGetMappingObjTarget(String namespace, String obj);
 
     /**
      * Get existing mapping {@code target -> object} from storage. Sub-class will implement this
@@ -111,7 +378,42 @@ public abstract class AbstractMappingOneOneDao extends BaseDao implements IMappi
      * @param target
      * @return
      */
-    protected abstract MappingBo storageGetMappingTargetObj(String namespace, String target);
+    protected abstract Mapping storageGetMappingTargetObj(String namespace, String target);
+
+    /**
+     * Get existing mappings {@code object -> target} of multiple objects from storage.
+     *
+     * <p>Default implementation calls {@link #storageGetMappingObjTarget(String, String)} for
+     * each object. Sub-class may override this method to load in bulk.</p>
+     *
+     * @param namespace
+     * @param objs
+     * @return
+     */
+    protected Map<String, Mapping> storageGetMappingObjTarget(String namespace,
+            Collection<String> objs) {
+        Map<String, Mapping> result = new HashMap<>();
+        objs.forEach(obj -> result.put(obj, storageGetMappingObjTarget(namespace, obj)));
+        return result;
+    }
+
+    /**
+     * Get existing mappings {@code target -> object} of multiple targets from storage.
+     *
+     * <p>Default implementation calls {@link #storageGetMappingTargetObj(String, String)} for
+     * each target. Sub-class may override this method to load in bulk.</p>
+     *
+     * @param namespace
+     * @param targets
+     * @return
+     */
+    protected Map<String, Mapping> storageGetMappingTargetObj(String namespace,
+            Collection<String> targets) {
+        Map<String, Mapping> result = new HashMap<>();
+        targets.forEach(
+                target -> result.put(target, storageGetMappingTargetObj(namespace, target)));
+        return result;
+    }
 
     /**
      * Save mapping {@code object <-> target} to storage. Sub-class will implement this method.
@@ -121,8 +423,8 @@ public abstract class AbstractMappingOneOneDao extends BaseDao implements IMappi
      * @param existingTO
      * @return
      */
-    protected abstract MappingsUtils.DaoResult storageMap(MappingBo mappingToAdd,
-            MappingBo existingOT, MappingBo existingTO);
+    protected abstract MappingsUtils.DaoResult storageMap(Mapping mappingToAdd,
+            Mapping existingOT, Mapping existingTO);
 
     /**
      * Remove mapping {@code object <-> target} from storage. Sub-class will implement this method.
@@ -130,7 +432,111 @@ public abstract class AbstractMappingOneOneDao extends BaseDao implements IMappi
      * @param mappingToRemove
      * @return
      */
-    protected abstract MappingsUtils.DaoResult storageUnmap(MappingBo mappingToRemove);
+    protected abstract MappingsUtils.DaoResult storageUnmap(Mapping mappingToRemove);
+
+    /**
+     * Save multiple mappings {@code object <-> target} to storage.
+     *
+     * <p>{@code existingOTs[i]} and {@code existingTOs[i]} are the existing mappings at the time
+     * {@code mappingsToAdd[i]} is about to be saved (i.e. they already include effects of
+     * mappings {@code 0..i-1}).</p>
+     *
+     * <p>Default implementation calls {@link #storageMap(Mapping, Mapping, Mapping)} for
+     * each mapping. Sub-class may override this method to save mappings in bulk.</p>
+     *
+     * @param mappingsToAdd
+     * @param existingOTs
+     * @param existingTOs
+     * @return per-mapping results, in the same order as {@code mappingsToAdd}
+     */
+    protected List<MappingsUtils.DaoResult> storageMapBatch(List<Mapping> mappingsToAdd,
+            List<Mapping> existingOTs, List<Mapping> existingTOs) {
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(mappingsToAdd.size());
+        for (int i = 0, n = mappingsToAdd.size(); i < n; i++) {
+            result.add(storageMap(mappingsToAdd.get(i), existingOTs.get(i), existingTOs.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Remove multiple mappings {@code object <-> target} from storage.
+     *
+     * <p>Default implementation calls {@link #storageUnmap(Mapping)} for each mapping.
+     * Sub-class may override this method to remove mappings in bulk.</p>
+     *
+     * @param mappingsToRemove
+     * @return per-mapping results, in the same order as {@code mappingsToRemove}
+     */
+    protected List<MappingsUtils.DaoResult> storageUnmapBatch(List<Mapping> mappingsToRemove) {
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(mappingsToRemove.size());
+        mappingsToRemove.forEach(bo -> result.add(storageUnmap(bo)));
+        return result;
+    }
+
+    /**
+     * Get existing mapping {@code object -> target} from storage asynchronously.
+     *
+     * <p>Default implementation calls {@link #storageGetMappingObjTarget(String, String)} on
+     * {@link #getAsyncExecutor()}. Sub-class should override this method if storage supports
+     * non-blocking access.</p>
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     */
+    protected CompletionStage<Mapping> storageGetMappingObjTargetAsync(String namespace,
+            String obj) {
+        return CompletableFuture.supplyAsync(() -> storageGetMappingObjTarget(namespace, obj),
+                getAsyncExecutor());
+    }
+
+    /**
+     * Get existing mapping {@code target -> object} from storage asynchronously.
+     *
+     * <p>See {@link #storageGetMappingObjTargetAsync(String, String)}.</p>
+     *
+     * @param namespace
+     * @param target
+     * @return
+     */
+    protected CompletionStage<Mapping> storageGetMappingTargetObjAsync(String namespace,
+            String target) {
+        return CompletableFuture.supplyAsync(() -> storageGetMappingTargetObj(namespace, target),
+                getAsyncExecutor());
+    }
+
+    /**
+     * Save mapping {@code object <-> target} to storage asynchronously.
+     *
+     * <p>Default implementation calls {@link #storageMap(Mapping, Mapping, Mapping)} on
+     * {@link #getAsyncExecutor()}.</p>
+     *
+     * @param mappingToAdd
+     * @param existingOT
+     * @param existingTO
+     * @return
+     */
+    protected CompletionStage<MappingsUtils.DaoResult> storageMapAsync(Mapping mappingToAdd,
+            Mapping existingOT, Mapping existingTO) {
+        return CompletableFuture
+                .supplyAsync(() -> storageMap(mappingToAdd, existingOT, existingTO),
+                        getAsyncExecutor());
+    }
+
+    /**
+     * Remove mapping {@code object <-> target} from storage asynchronously.
+     *
+     * <p>Default implementation calls {@link #storageUnmap(Mapping)} on
+     * {@link #getAsyncExecutor()}.</p>
+     *
+     * @param mappingToRemove
+     * @return
+     */
+    protected CompletionStage<MappingsUtils.DaoResult> storageUnmapAsync(
+            Mapping mappingToRemove) {
+        return CompletableFuture
+                .supplyAsync(() -> storageUnmap(mappingToRemove), getAsyncExecutor());
+    }
 
     /*----------------------------------------------------------------------*/
 
@@ -139,9 +545,9 @@ public abstract class AbstractMappingOneOneDao extends BaseDao implements IMappi
      */
     @Override
     public MappingsUtils.DaoResult map(String namespace, String obj, String target) {
-        MappingBo mappingToAdd = MappingBo.newInstance(namespace, obj, target);
-        MappingBo existingOT = getMappingObjTarget(namespace, obj);
-        MappingBo existingTO = getMappingTargetObj(namespace, target);
+        Mapping mappingToAdd = Mapping.of(namespace, obj, target);
+        Mapping existingOT = getMappingObjTarget(namespace, obj, false);
+        Mapping existingTO = getMappingTargetObj(namespace, target, false);
         MappingsUtils.DaoResult mapResult = null;
         if (existingOT == null || !StringUtils.equals(target, existingOT.getTarget())) {
             mapResult = storageMap(mappingToAdd, existingOT, existingTO);
@@ -149,14 +555,16 @@ public abstract class AbstractMappingOneOneDao extends BaseDao implements IMappi
                     mapResult.status == MappingsUtils.DaoActionStatus.DUPLICATED) {
                 invalidate(existingOT, MappingsUtils.CacheInvalidationType.DELETE);
                 invalidate(existingTO, MappingsUtils.CacheInvalidationType.DELETE);
-                invalidate(mapResult.getSingleOutput(), MappingsUtils.CacheInvalidationType.CREATE);
+                // also clear "known absent" entries of the new mapping's keys
+                invalidate(mappingToAdd, MappingsUtils.CacheInvalidationType.DELETE);
+                invalidate(mapResult.getSingleMapping(),
+                        MappingsUtils.CacheInvalidationType.CREATE);
             }
         }
         if (mapResult == null) {
-            return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL,
-                    Collections.singleton(existingOT));
+            return MappingsUtils.DaoResult.of(MappingsUtils.DaoActionStatus.SUCCESSFUL, existingOT);
         } else {
-            return new MappingsUtils.DaoResult(mapResult.status, Collections.singleton(existingOT));
+            return MappingsUtils.DaoResult.of(mapResult.status, existingOT);
         }
     }
 
@@ -165,9 +573,9 @@ public abstract class AbstractMappingOneOneDao extends BaseDao implements IMappi
      */
     @Override
     public MappingsUtils.DaoResult unmap(String namespace, String obj, String target) {
-        MappingBo mappingToRemove = MappingBo.newInstance(namespace, obj, target);
+        Mapping mappingToRemove = Mapping.of(namespace, obj, target);
         MappingsUtils.DaoResult unmapResult = null;
-        MappingBo existing = getMappingObjTarget(namespace, obj);
+        Mapping existing = getMappingObjTarget(namespace, obj, false);
         if (existing != null && StringUtils.equals(target, existing.getTarget())) {
             unmapResult = storageUnmap(mappingToRemove);
             if (unmapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL) {
@@ -175,10 +583,9 @@ public abstract class AbstractMappingOneOneDao extends BaseDao implements IMappi
             }
         }
         if (unmapResult == null) {
-            return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.NOT_FOUND,
-                    Collections.singleton(existing));
+            return MappingsUtils.DaoResult.of(MappingsUtils.DaoActionStatus.NOT_FOUND, existing);
         } else {
-            return new MappingsUtils.DaoResult(unmapResult.status, Collections.singleton(existing));
+            return MappingsUtils.DaoResult.of(unmapResult.status, existing);
         }
     }
 
@@ -186,17 +593,223 @@ public abstract class AbstractMappingOneOneDao extends BaseDao implements IMappi
      * {@inheritDoc}
      */
     @Override
-    public Collection<MappingBo> getMappingsForObject(String namespace, String obj) {
-        MappingBo existing = getMappingObjTarget(namespace, obj);
-        return existing != null ? Collections.singleton(existing) : Collections.EMPTY_SET;
+    public List<MappingsUtils.DaoResult> mapBatch(String namespace,
+            Collection<Pair<String, String>> objTargets) {
+        Set<String> objs = new HashSet<>(), targets = new HashSet<>();
+        objTargets.forEach(pair -> {
+            objs.add(pair.getLeft());
+            targets.add(pair.getRight());
+        });
+        // prefetch & working copies of existing mappings
+        Map<String, Mapping> workingOT = getMappingObjTarget(namespace, objs, false);
+        Map<String, Mapping> workingTO = getMappingTargetObj(namespace, targets, false);
+
+        List<Mapping> outputs = new ArrayList<>(objTargets.size());
+        List<Integer> pendingIndexes = new ArrayList<>();
+        List<Mapping> pendingMappings = new ArrayList<>();
+        List<Mapping> pendingOTs = new ArrayList<>(), pendingTOs = new ArrayList<>();
+        for (Pair<String, String> pair : objTargets) {
+            final String obj = pair.getLeft(), target = pair.getRight();
+            Mapping existingOT = workingOT.get(obj);
+            Mapping existingTO = workingTO.get(target);
+            if (existingOT == null || !StringUtils.equals(target, existingOT.getTarget())) {
+                Mapping mappingToAdd = Mapping.of(namespace, obj, target);
+                pendingIndexes.add(outputs.size());
+                pendingMappings.add(mappingToAdd);
+                pendingOTs.add(existingOT);
+                pendingTOs.add(existingTO);
+                if (existingOT != null) {
+                    workingTO.put(existingOT.getTarget(), null);
+                }
+                workingOT.put(obj, mappingToAdd);
+                workingTO.put(target, mappingToAdd);
+            }
+            outputs.add(existingOT);
+        }
+
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(outputs.size());
+        outputs.forEach(existingOT -> result.add(
+                MappingsUtils.DaoResult.of(MappingsUtils.DaoActionStatus.SUCCESSFUL, existingOT)));
+        if (pendingMappings.size() > 0) {
+            List<MappingsUtils.DaoResult> mapResults = storageMapBatch(pendingMappings, pendingOTs,
+                    pendingTOs);
+            for (int i = 0, n = pendingIndexes.size(); i < n; i++) {
+                MappingsUtils.DaoResult mapResult = mapResults.get(i);
+                if (mapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL ||
+                        mapResult.status == MappingsUtils.DaoActionStatus.DUPLICATED) {
+                    invalidate(pendingOTs.get(i), MappingsUtils.CacheInvalidationType.DELETE);
+                    invalidate(pendingTOs.get(i), MappingsUtils.CacheInvalidationType.DELETE);
+                    invalidate(pendingMappings.get(i),
+                            MappingsUtils.CacheInvalidationType.CREATE);
+                }
+                int index = pendingIndexes.get(i);
+                result.set(index, MappingsUtils.DaoResult.of(mapResult.status, outputs.get(index)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<MappingsUtils.DaoResult> unmapBatch(String namespace,
+            Collection<Pair<String, String>> objTargets) {
+        Set<String> objs = new HashSet<>();
+        objTargets.forEach(pair -> objs.add(pair.getLeft()));
+        // prefetch & working copy of existing mappings
+        Map<String, Mapping> workingOT = getMappingObjTarget(namespace, objs, false);
+
+        List<Mapping> outputs = new ArrayList<>(objTargets.size());
+        List<Integer> pendingIndexes = new ArrayList<>();
+        List<Mapping> pendingMappings = new ArrayList<>();
+        for (Pair<String, String> pair : objTargets) {
+            final String obj = pair.getLeft(), target = pair.getRight();
+            Mapping existing = workingOT.get(obj);
+            if (existing != null && StringUtils.equals(target, existing.getTarget())) {
+                pendingIndexes.add(outputs.size());
+                pendingMappings.add(Mapping.of(namespace, obj, target));
+                workingOT.put(obj, null);
+            }
+            outputs.add(existing);
+        }
+
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(outputs.size());
+        outputs.forEach(existing -> result.add(
+                MappingsUtils.DaoResult.of(MappingsUtils.DaoActionStatus.NOT_FOUND, existing)));
+        if (pendingMappings.size() > 0) {
+            List<MappingsUtils.DaoResult> unmapResults = storageUnmapBatch(pendingMappings);
+            for (int i = 0, n = pendingIndexes.size(); i < n; i++) {
+                MappingsUtils.DaoResult unmapResult = unmapResults.get(i);
+                int index = pendingIndexes.get(i);
+                if (unmapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL) {
+                    invalidate(outputs.get(index), MappingsUtils.CacheInvalidationType.DELETE);
+                }
+                result.set(index, MappingsUtils.DaoResult.of(unmapResult.status,
+                        outputs.get(index)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Mapping> findMappingsForObject(String namespace, String obj) {
+        Mapping existing = getMappingObjTarget(namespace, obj);
+        return toOutput(existing);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Mapping> findMappingsForTarget(String namespace, String target) {
+        Mapping existing = getMappingTargetObj(namespace, target);
+        return toOutput(existing);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Collection<Mapping>> findMappingsForObjects(String namespace,
+            Collection<String> objs) {
+        Map<String, Collection<Mapping>> result = new HashMap<>();
+        getMappingObjTarget(namespace, objs).forEach((obj, m) -> result.put(obj, toOutput(m)));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Collection<Mapping>> findMappingsForTargets(String namespace,
+            Collection<String> targets) {
+        Map<String, Collection<Mapping>> result = new HashMap<>();
+        getMappingTargetObj(namespace, targets)
+                .forEach((target, m) -> result.put(target, toOutput(m)));
+        return result;
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<MappingsUtils.DaoResult> mapAsync(String namespace, String obj,
+            String target) {
+        Mapping mappingToAdd = Mapping.of(namespace, obj, target);
+        return getMappingObjTargetAsync(namespace, obj, false)
+                .thenCombine(getMappingTargetObjAsync(namespace, target, false),
+                        (ot, to) -> Pair.of(ot, to)).thenCompose(existing -> {
+                    final Mapping existingOT = existing.getLeft();
+                    final Mapping existingTO = existing.getRight();
+                    if (existingOT != null && StringUtils.equals(target, existingOT.getTarget())) {
+                        return CompletableFuture.completedFuture(MappingsUtils.DaoResult.of(
+                                MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                                existingOT));
+                    }
+                    return storageMapAsync(mappingToAdd, existingOT, existingTO)
+                            .thenApplyAsync(mapResult -> {
+                                if (mapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL ||
+                                        mapResult.status
+                                                == MappingsUtils.DaoActionStatus.DUPLICATED) {
+                                    invalidate(existingOT,
+                                            MappingsUtils.CacheInvalidationType.DELETE);
+                                    invalidate(existingTO,
+                                            MappingsUtils.CacheInvalidationType.DELETE);
+                                    invalidate(mappingToAdd,
+                                            MappingsUtils.CacheInvalidationType.DELETE);
+                                    invalidate(mapResult.getSingleMapping(),
+                                            MappingsUtils.CacheInvalidationType.CREATE);
+                                }
+                                return MappingsUtils.DaoResult.of(mapResult.status, existingOT);
+                            }, getAsyncExecutor());
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<MappingsUtils.DaoResult> unmapAsync(String namespace, String obj,
+            String target) {
+        Mapping mappingToRemove = Mapping.of(namespace, obj, target);
+        return getMappingObjTargetAsync(namespace, obj, false).thenCompose(existing -> {
+            if (existing == null || !StringUtils.equals(target, existing.getTarget())) {
+                return CompletableFuture.completedFuture(
+                        MappingsUtils.DaoResult.of(MappingsUtils.DaoActionStatus.NOT_FOUND,
+                                existing));
+            }
+            return storageUnmapAsync(mappingToRemove).thenApplyAsync(unmapResult -> {
+                if (unmapResult.status == MappingsUtils.DaoActionStatus.SUCCESSFUL) {
+                    invalidate(existing, MappingsUtils.CacheInvalidationType.DELETE);
+                }
+                return MappingsUtils.DaoResult.of(unmapResult.status, existing);
+            }, getAsyncExecutor());
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Collection<Mapping>> findMappingsForObjectAsync(String namespace,
+            String obj) {
+        return getMappingObjTargetAsync(namespace, obj).thenApply(
+                existing -> toOutput(existing));
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public Collection<MappingBo> getMappingsForTarget(String namespace, String target) {
-        MappingBo existing = getMappingTargetObj(namespace, target);
-        return existing != null ? Collections.singleton(existing) : Collections.EMPTY_SET;
+    public CompletionStage<Collection<Mapping>> findMappingsForTargetAsync(String namespace,
+            String target) {
+        return getMappingTargetObjAsync(namespace, target).thenApply(
+                existing -> toOutput(existing));
     }
 }
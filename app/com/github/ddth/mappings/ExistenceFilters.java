@@ -0,0 +1,340 @@
+package com.github.ddth.mappings;
+
+import com.github.ddth.mappings.redis.RedisDelegator;
+import com.github.ddth.mappings.utils.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Per-namespace Bloom filters of mapped objects/targets, shared cluster-wide as Redis bitmaps
+ * (see {@link RedisDelegator#bloomAdd(String, long[])}).
+ *
+ * <p>Every write adds its object & target to the shared filter, so no node ever sees a false
+ * negative. A filter that cannot be updated is dropped (lookups then go to cache/storage until
+ * it is rebuilt); lookups fail open if Redis is not available. Filters are rebuilt from a full
+ * scan of storage upon first lookup and then periodically (by one node per interval), so that
+ * removed mappings are accounted for.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+class ExistenceFilters {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ExistenceFilters.class);
+
+    /**
+     * Full scan of storage, see {@link AbstractMappingDao#storageScanKeys(String, Consumer,
+     * Consumer)}.
+     */
+    interface Scanner {
+        void scan(String namespace, Consumer<String> objConsumer, Consumer<String> targetConsumer);
+    }
+
+    private final static long MIN_REBUILD_LEASE_MS = 600000;
+    private final static long RETRY_MS = 10000;
+    private final static long WARN_INTERVAL_MS = 60000;
+
+    private RedisDelegator redis;
+    private long expectedItems;
+    private double fpp = 0.01;
+    private long rebuildIntervalMs = 3600000;
+    private Function<String, String> filterName;
+    private Scanner scanner;
+
+    private long numBits;
+    private int numHashes;
+    private ScheduledExecutorService rebuilder;
+    private final ConcurrentMap<String, Long> lastRebuildAttempts = new ConcurrentHashMap<>();
+    private final Set<String> rebuilding = ConcurrentHashMap.newKeySet();
+    private final Set<String> pendingDrops = ConcurrentHashMap.newKeySet();
+    private final AtomicLong lastWarn = new AtomicLong();
+
+    public ExistenceFilters setRedis(RedisDelegator redis) {
+        this.redis = redis;
+        return this;
+    }
+
+    /**
+     * Expected number of objects (and of targets) per namespace.
+     *
+     * @param expectedItems
+     * @return
+     */
+    public ExistenceFilters setExpectedItems(long expectedItems) {
+        this.expectedItems = expectedItems;
+        return this;
+    }
+
+    public ExistenceFilters setFpp(double fpp) {
+        this.fpp = fpp;
+        return this;
+    }
+
+    public ExistenceFilters setRebuildIntervalMs(long rebuildIntervalMs) {
+        this.rebuildIntervalMs = rebuildIntervalMs;
+        return this;
+    }
+
+    /**
+     * Name of the shared filter of a namespace; a new name (e.g. after a namespace reset) starts
+     * a new, not-yet-built filter.
+     *
+     * @param filterName
+     * @return
+     */
+    public ExistenceFilters setFilterName(Function<String, String> filterName) {
+        this.filterName = filterName;
+        return this;
+    }
+
+    public ExistenceFilters setScanner(Scanner scanner) {
+        this.scanner = scanner;
+        return this;
+    }
+
+    public ExistenceFilters init() {
+        // objects & targets share one filter
+        numBits = BloomFilter.numBits(expectedItems * 2, fpp);
+        numHashes = BloomFilter.numHashes(expectedItems * 2, numBits);
+        if (numBits > 1L << 32) {
+            throw new IllegalArgumentException("Existence filters exceed the max size of a Redis"
+                    + " bitmap, decrease expected items or increase fpp.");
+        }
+        rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "mapping-filter-rebuilder");
+            t.setDaemon(true);
+            return t;
+        });
+        if (rebuildIntervalMs > 0) {
+            rebuilder.scheduleWithFixedDelay(() -> lastRebuildAttempts.keySet()
+                            .forEach(namespace -> rebuildQuietly(namespace, false)),
+                    rebuildIntervalMs, rebuildIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    public void destroy() {
+        if (rebuilder != null) {
+            rebuilder.shutdownNow();
+            rebuilder = null;
+        }
+        lastRebuildAttempts.clear();
+    }
+
+    private void warn(String message, Exception e) {
+        long now = System.currentTimeMillis(), last = lastWarn.get();
+        if (now - last >= WARN_INTERVAL_MS && lastWarn.compareAndSet(last, now)) {
+            LOGGER.warn(message + e.getMessage(), e);
+        }
+    }
+
+    private long[] bitsOf(String key, boolean isObj) {
+        return BloomFilter.bitsOf((isObj ? "o:" : "t:") + key, numBits, numHashes);
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * Add a written mapping's object & target to the filter of its namespace.
+     *
+     * @param namespace
+     * @param obj
+     * @param target
+     */
+    public void add(String namespace, String obj, String target) {
+        long[] objBits = obj != null ? bitsOf(obj, true) : new long[0];
+        long[] targetBits = target != null ? bitsOf(target, false) : new long[0];
+        long[] bits = new long[objBits.length + targetBits.length];
+        System.arraycopy(objBits, 0, bits, 0, objBits.length);
+        System.arraycopy(targetBits, 0, bits, objBits.length, targetBits.length);
+        String name = filterName.apply(namespace);
+        try {
+            redis.bloomAdd(name, bits);
+        } catch (RuntimeException e) {
+            // the filter now misses a stored mapping: it must not be used until rebuilt
+            pendingDrops.add(name);
+            warn("Cannot update existence filter [" + name + "]: ", e);
+            retryDrops();
+        }
+    }
+
+    /**
+     * Drop filters that missed writes.
+     *
+     * @return {@code true} if no filter is pending drop
+     */
+    private boolean retryDrops() {
+        for (String name : pendingDrops) {
+            try {
+                redis.bloomDelete(name);
+                pendingDrops.remove(name);
+            } catch (RuntimeException e) {
+                warn("Cannot drop existence filter [" + name + "]: ", e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Look keys up in the filter of a namespace.
+     *
+     * @param namespace
+     * @param keys
+     * @param isObj
+     * @return {@code result[i]} is {@code false} if key {@code i} definitely has no mapping;
+     * {@code null} if the filter is not available
+     */
+    private boolean[] mightContain(String namespace, List<String> keys, boolean isObj) {
+        if (namespace == null || !pendingDrops.isEmpty() && !retryDrops()) {
+            return null;
+        }
+        long[][] bitsOfKeys = new long[keys.size()][];
+        for (int i = 0; i < bitsOfKeys.length; i++) {
+            bitsOfKeys[i] = bitsOf(keys.get(i), isObj);
+        }
+        String name = filterName.apply(namespace);
+        try {
+            boolean[] result = redis.bloomMightContain(name, bitsOfKeys);
+            if (result == null) {
+                scheduleRebuild(namespace);
+            } else {
+                lastRebuildAttempts.putIfAbsent(namespace, 0L);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            warn("Cannot read existence filter [" + name + "]: ", e);
+            return null;
+        }
+    }
+
+    /**
+     * Check if a key (object or target) definitely has no mapping.
+     *
+     * @param namespace
+     * @param key
+     * @param isObj
+     * @return {@code false} if the key may have mappings, or the filter is not available
+     */
+    public boolean isKnownAbsent(String namespace, String key, boolean isObj) {
+        boolean[] result = mightContain(namespace, Collections.singletonList(key), isObj);
+        return result != null && !result[0];
+    }
+
+    /**
+     * Split keys (objects or targets) into those that may have mappings and those that
+     * definitely have none.
+     *
+     * @param namespace
+     * @param keys
+     * @param isObj
+     * @param knownAbsent
+     *         receives keys that definitely have no mapping
+     * @return keys that may have mappings ({@code keys} itself if the filter is not available)
+     */
+    public Collection<String> excludeKnownAbsent(String namespace, Collection<String> keys,
+            boolean isObj, Set<String> knownAbsent) {
+        List<String> keyList = new ArrayList<>(keys);
+        boolean[] found = keyList.isEmpty() ? null : mightContain(namespace, keyList, isObj);
+        if (found == null) {
+            return keys;
+        }
+        List<String> result = new ArrayList<>(keyList.size());
+        for (int i = 0; i < found.length; i++) {
+            if (found[i]) {
+                result.add(keyList.get(i));
+            } else {
+                knownAbsent.add(keyList.get(i));
+            }
+        }
+        return result;
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    private void scheduleRebuild(String namespace) {
+        ScheduledExecutorService rebuilder = this.rebuilder;
+        long now = System.currentTimeMillis();
+        Long last = lastRebuildAttempts.get(namespace);
+        if (rebuilder == null || last != null && now - last < RETRY_MS
+                || !(last == null ? lastRebuildAttempts.putIfAbsent(namespace, now) == null
+                : lastRebuildAttempts.replace(namespace, last, now))) {
+            return;
+        }
+        try {
+            rebuilder.execute(() -> rebuildQuietly(namespace, false));
+        } catch (RuntimeException e) {
+            // rebuilder has been shut down
+        }
+    }
+
+    private void rebuildQuietly(String namespace, boolean force) {
+        try {
+            long t = System.currentTimeMillis();
+            if (rebuild(namespace, force)) {
+                LOGGER.info("Rebuilt existence filter of namespace [" + namespace + "] in "
+                        + (System.currentTimeMillis() - t) + "ms.");
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Cannot rebuild existence filter of namespace [" + namespace + "]: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Rebuild the filter of a namespace from a full scan of storage.
+     *
+     * <p>Writes during the scan are added to the filter being rebuilt, so the new filter misses
+     * nothing that is in storage when it replaces the current one.</p>
+     *
+     * @param namespace
+     * @param force
+     *         {@code false}: skip if the filter has been rebuilt within the rebuild interval
+     * @return {@code false} if skipped (not due, or being rebuilt by another node)
+     */
+    public boolean rebuild(String namespace, boolean force) {
+        if (!rebuilding.add(namespace)) {
+            return false;
+        }
+        try {
+            String name = filterName.apply(namespace);
+            String token = redis.bloomStartRebuild(name, force,
+                    Math.max(rebuildIntervalMs, MIN_REBUILD_LEASE_MS));
+            if (token == null) {
+                return false;
+            }
+            boolean finished = false;
+            try {
+                BloomFilter filter = new BloomFilter(expectedItems * 2, fpp);
+                scanner.scan(namespace, obj -> filter.put("o:" + obj),
+                        target -> filter.put("t:" + target));
+                finished = redis.bloomFinishRebuild(name, token, filter.toByteArray(),
+                        Math.max(0, rebuildIntervalMs));
+                if (!finished) {
+                    LOGGER.warn("Rebuild lease of existence filter [" + name + "] has expired.");
+                }
+                return finished;
+            } finally {
+                if (!finished) {
+                    redis.bloomAbortRebuild(name, token);
+                }
+            }
+        } finally {
+            rebuilding.remove(namespace);
+        }
+    }
+}
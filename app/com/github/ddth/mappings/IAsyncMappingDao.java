@@ -0,0 +1,92 @@
+package com.github.ddth.mappings;
+
+import com.github.ddth.mappings.utils.MappingsUtils;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Asynchronous mappings API: same as {@link IMappingDao} but methods return immediately with a
+ * {@link CompletionStage}, no calling thread is blocked waiting for storage I/O.
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public interface IAsyncMappingDao {
+    /**
+     * Map an object to target.
+     *
+     * @param namespace
+     * @param obj
+     * @param target
+     * @return see {@link IMappingDao#map(String, String, String)}
+     */
+    public CompletionStage<MappingsUtils.DaoResult> mapAsync(String namespace, String obj,
+            String target);
+
+    /**
+     * Unmap an object from target.
+     *
+     * @param namespace
+     * @param obj
+     * @param target
+     * @return see {@link IMappingDao#unmap(String, String, String)}
+     */
+    public CompletionStage<MappingsUtils.DaoResult> unmapAsync(String namespace, String obj,
+            String target);
+
+    /**
+     * Get all mappings (i.e targets) for an object.
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     */
+    public default CompletionStage<Collection<MappingBo>> getMappingsForObjectAsync(
+            String namespace, String obj) {
+        return findMappingsForObjectAsync(namespace, obj).thenApply(Mapping::toMappingBos);
+    }
+
+    /**
+     * Get all mappings (i.e objects) for a target.
+     *
+     * @param namespace
+     * @param target
+     * @return
+     */
+    public default CompletionStage<Collection<MappingBo>> getMappingsForTargetAsync(
+            String namespace, String target) {
+        return findMappingsForTargetAsync(namespace, target).thenApply(Mapping::toMappingBos);
+    }
+
+    /**
+     * Same as {@link #getMappingsForObjectAsync(String, String)}, but returns {@link Mapping}s.
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     * @since 0.1.0
+     */
+    public CompletionStage<Collection<Mapping>> findMappingsForObjectAsync(String namespace,
+            String obj);
+
+    /**
+     * Same as {@link #getMappingsForTargetAsync(String, String)}, but returns {@link Mapping}s.
+     *
+     * @param namespace
+     * @param target
+     * @return
+     * @since 0.1.0
+     */
+    public CompletionStage<Collection<Mapping>> findMappingsForTargetAsync(String namespace,
+            String target);
+
+    /**
+     * Get mappings stats.
+     *
+     * @param namespace
+     * @return
+     */
+    public CompletionStage<Map<String, Long>> getStatsAsync(String namespace);
+}
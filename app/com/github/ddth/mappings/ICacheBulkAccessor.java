@@ -0,0 +1,35 @@
+package com.github.ddth.mappings;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Multi-key access to remote cache entries (e.g. Redis {@code MGET}/pipelining), used by bulk
+ * lookups instead of the one-key-at-a-time API of the cache factory.
+ *
+ * <p>Implementation must read and write entries in the same format (key layout, entry
+ * serialization) as the cache factory, so that both can be used interchangeably.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public interface ICacheBulkAccessor {
+    /**
+     * Get multiple entries in as few round-trips as possible.
+     *
+     * @param cacheName
+     * @param keys
+     * @return map of found entries {@code key -> value}, keys not found are omitted
+     */
+    Map<String, Object> getAll(String cacheName, Collection<String> keys);
+
+    /**
+     * Put multiple entries in as few round-trips as possible.
+     *
+     * @param cacheName
+     * @param entries
+     * @param ttlSeconds
+     *         TTL of the entries, {@code 0} or negative: no expiry
+     */
+    void putAll(String cacheName, Map<String, ?> entries, long ttlSeconds);
+}
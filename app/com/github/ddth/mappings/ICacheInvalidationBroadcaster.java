@@ -0,0 +1,19 @@
+package com.github.ddth.mappings;
+
+/**
+ * Broadcast cache invalidations to other nodes, so that they can evict their in-process L1 cache
+ * entries.
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public interface ICacheInvalidationBroadcaster {
+    /**
+     * Broadcast invalidation of a cache entry. Implementation should not block (e.g. buffer
+     * invalidations and send them in batch).
+     *
+     * @param cacheName
+     * @param key
+     */
+    void broadcast(String cacheName, String key);
+}
@@ -1,8 +1,11 @@
 package com.github.ddth.mappings;
 
 import com.github.ddth.mappings.utils.MappingsUtils;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -32,6 +35,44 @@ public interface IMappingDao {
      */
     public MappingsUtils.DaoResult unmap(String namespace, String obj, String target);
 
+    /**
+     * Map objects to targets in batch.
+     *
+     * <p>Pairs are processed in order: a pair sees the effect of pairs before it in the same
+     * batch.</p>
+     *
+     * <p>The batch as a whole is not atomic: each pair succeeds or fails on its own. A pair
+     * reported as failed ({@link MappingsUtils.DaoActionStatus#ERROR}) may have been partially
+     * applied to storage, and can be safely retried.</p>
+     *
+     * @param namespace
+     * @param objTargets list of {@code (object, target)} pairs
+     * @return per-pair results (same as {@link #map(String, String, String)}), in the same order
+     * as {@code objTargets}
+     * @since 0.1.0
+     */
+    public List<MappingsUtils.DaoResult> mapBatch(String namespace,
+            Collection<Pair<String, String>> objTargets);
+
+    /**
+     * Unmap objects from targets in batch.
+     *
+     * <p>Pairs are processed in order: a pair sees the effect of pairs before it in the same
+     * batch.</p>
+     *
+     * <p>The batch as a whole is not atomic: each pair succeeds or fails on its own. A pair
+     * reported as failed ({@link MappingsUtils.DaoActionStatus#ERROR}) may have been partially
+     * applied to storage, and can be safely retried.</p>
+     *
+     * @param namespace
+     * @param objTargets list of {@code (object, target)} pairs
+     * @return per-pair results (same as {@link #unmap(String, String, String)}), in the same
+     * order as {@code objTargets}
+     * @since 0.1.0
+     */
+    public List<MappingsUtils.DaoResult> unmapBatch(String namespace,
+            Collection<Pair<String, String>> objTargets);
+
     /**
      * Get all mappings (i.e targets) for an object.
      *
@@ -39,7 +80,9 @@ public interface IMappingDao {
      * @param obj
      * @return
      */
-    public Collection<MappingBo> getMappingsForObject(String namespace, String obj);
+    public default Collection<MappingBo> getMappingsForObject(String namespace, String obj) {
+        return Mapping.toMappingBos(findMappingsForObject(namespace, obj));
+    }
 
     /**
      * Get all mappings (i.e objects) for a target.
@@ -48,7 +91,178 @@ public interface IMappingDao {
      * @param target
      * @return
      */
-    public Collection<MappingBo> getMappingsForTarget(String namespace, String target);
+    public default Collection<MappingBo> getMappingsForTarget(String namespace, String target) {
+        return Mapping.toMappingBos(findMappingsForTarget(namespace, target));
+    }
+
+    /**
+     * Same as {@link #getMappingsForObject(String, String)}, but returns {@link Mapping}s.
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     * @since 0.1.0
+     */
+    public Collection<Mapping> findMappingsForObject(String namespace, String obj);
+
+    /**
+     * Same as {@link #getMappingsForTarget(String, String)}, but returns {@link Mapping}s.
+     *
+     * @param namespace
+     * @param target
+     * @return
+     * @since 0.1.0
+     */
+    public Collection<Mapping> findMappingsForTarget(String namespace, String target);
+
+    /**
+     * Get mappings (i.e targets) for an object, page by page.
+     *
+     * <p>Default implementation slices the result of
+     * {@link #getMappingsForObject(String, String)}. Implementations for large fan-outs should
+     * override this method to read only one page from storage.</p>
+     *
+     * @param namespace
+     * @param obj
+     * @param limit
+     *         max number of mappings to return
+     * @param cursor
+     *         {@code null} for the first page, or {@link MappingsPage#getCursor()} of the previous
+     *         page
+     * @return
+     * @since 0.1.0
+     */
+    public default MappingsPage getMappingsForObject(String namespace, String obj, int limit,
+            String cursor) {
+        return MappingsPage.slice(getMappingsForObject(namespace, obj), limit, cursor);
+    }
+
+    /**
+     * Get mappings (i.e objects) for a target, page by page.
+     *
+     * <p>See {@link #getMappingsForObject(String, String, int, String)}.</p>
+     *
+     * @param namespace
+     * @param target
+     * @param limit
+     * @param cursor
+     * @return
+     * @since 0.1.0
+     */
+    public default MappingsPage getMappingsForTarget(String namespace, String target, int limit,
+            String cursor) {
+        return MappingsPage.slice(getMappingsForTarget(namespace, target), limit, cursor);
+    }
+
+    /**
+     * Iterate over all mappings (i.e targets) for an object.
+     *
+     * <p>Mappings are not cached. Implementations for large fan-outs should override this method
+     * to stream mappings from storage without materializing the full set. Default
+     * implementation iterates the result of {@link #getMappingsForObject(String, String)}.</p>
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     * @since 0.1.0
+     */
+    public default Iterator<MappingBo> iterateMappingsForObject(String namespace, String obj) {
+        return getMappingsForObject(namespace, obj).iterator();
+    }
+
+    /**
+     * Iterate over all mappings (i.e objects) for a target.
+     *
+     * <p>See {@link #iterateMappingsForObject(String, String)}.</p>
+     *
+     * @param namespace
+     * @param target
+     * @return
+     * @since 0.1.0
+     */
+    public default Iterator<MappingBo> iterateMappingsForTarget(String namespace, String target) {
+        return getMappingsForTarget(namespace, target).iterator();
+    }
+
+    /**
+     * Count mappings (i.e targets) of an object.
+     *
+     * <p>Default implementation counts the result of
+     * {@link #findMappingsForObject(String, String)}. Implementations for large fan-outs should
+     * override this method to count without loading mappings.</p>
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     * @since 0.1.0
+     */
+    public default long countMappingsForObject(String namespace, String obj) {
+        return findMappingsForObject(namespace, obj).size();
+    }
+
+    /**
+     * Count mappings (i.e objects) of a target.
+     *
+     * <p>See {@link #countMappingsForObject(String, String)}.</p>
+     *
+     * @param namespace
+     * @param target
+     * @return
+     * @since 0.1.0
+     */
+    public default long countMappingsForTarget(String namespace, String target) {
+        return findMappingsForTarget(namespace, target).size();
+    }
+
+    /**
+     * Get all mappings (i.e targets) for multiple objects in one call.
+     *
+     * @param namespace
+     * @param objs
+     * @return map {@code object -> mappings}, with an entry (empty collection if no mapping found)
+     * for each input object
+     * @since 0.1.0
+     */
+    public default Map<String, Collection<MappingBo>> getMappingsForObjects(String namespace,
+            Collection<String> objs) {
+        return Mapping.toMappingBos(findMappingsForObjects(namespace, objs));
+    }
+
+    /**
+     * Get all mappings (i.e objects) for multiple targets in one call.
+     *
+     * @param namespace
+     * @param targets
+     * @return map {@code target -> mappings}, with an entry (empty collection if no mapping found)
+     * for each input target
+     * @since 0.1.0
+     */
+    public default Map<String, Collection<MappingBo>> getMappingsForTargets(String namespace,
+            Collection<String> targets) {
+        return Mapping.toMappingBos(findMappingsForTargets(namespace, targets));
+    }
+
+    /**
+     * Same as {@link #getMappingsForObjects(String, Collection)}, but returns {@link Mapping}s.
+     *
+     * @param namespace
+     * @param objs
+     * @return
+     * @since 0.1.0
+     */
+    public Map<String, Collection<Mapping>> findMappingsForObjects(String namespace,
+            Collection<String> objs);
+
+    /**
+     * Same as {@link #getMappingsForTargets(String, Collection)}, but returns {@link Mapping}s.
+     *
+     * @param namespace
+     * @param targets
+     * @return
+     * @since 0.1.0
+     */
+    public Map<String, Collection<Mapping>> findMappingsForTargets(String namespace,
+            Collection<String> targets);
 
     /**
      * Get mappings stats.
@@ -57,4 +271,13 @@ public interface IMappingDao {
      * @return
      */
     public Map<String, Long> getStats(String namespace);
+
+    /**
+     * Invalidate all cached data of a namespace at once (e.g. after a bulk reload or truncate
+     * of storage). Stored mappings and stats are not touched.
+     *
+     * @param namespace
+     * @since 0.1.0
+     */
+    public void resetNamespace(String namespace);
 }
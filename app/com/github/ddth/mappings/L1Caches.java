@@ -0,0 +1,106 @@
+package com.github.ddth.mappings;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process L1 caches {@code cacheName -> cache}, in front of the remote cache.
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+class L1Caches {
+
+    private long maxWeight = 10000;
+    private long ttlSeconds = 5;
+    private final ConcurrentMap<String, Cache<String, Object>> caches = new ConcurrentHashMap<>();
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public L1Caches setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+        return this;
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public L1Caches setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+        return this;
+    }
+
+    public void destroy() {
+        caches.values().forEach(Cache::invalidateAll);
+        caches.clear();
+    }
+
+    /**
+     * An entry weighs the number of mappings it holds (min 1).
+     */
+    private static int weight(Object value) {
+        if (value instanceof AbstractMappingDao.Page) {
+            return Math.max(1, ((AbstractMappingDao.Page) value).getMappings().size());
+        }
+        return value instanceof Collection ? Math.max(1, ((Collection<?>) value).size()) : 1;
+    }
+
+    /**
+     * Get the L1 cache of a cache name.
+     *
+     * @param cacheName
+     * @return {@code null} if L1 cache is disabled
+     */
+    public Cache<String, Object> get(String cacheName) {
+        if (maxWeight <= 0 || ttlSeconds <= 0 || cacheName == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(cacheName,
+                name -> Caffeine.newBuilder().maximumWeight(maxWeight)
+                        .weigher((String key, Object value) -> weight(value))
+                        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).build());
+    }
+
+    /**
+     * Put an entry to L1 cache, {@code null} value removes the entry.
+     *
+     * @param cacheName
+     * @param key
+     * @param value
+     */
+    public void put(String cacheName, String key, Object value) {
+        Cache<String, Object> l1 = get(cacheName);
+        if (l1 != null) {
+            if (value != null) {
+                l1.put(key, value);
+            } else {
+                l1.invalidate(key);
+            }
+        }
+    }
+
+    public void invalidate(String cacheName, String key) {
+        put(cacheName, key, null);
+    }
+
+    /**
+     * Evict entries of an already created L1 cache.
+     *
+     * @param cacheName
+     * @param keys
+     */
+    public void evict(String cacheName, Collection<String> keys) {
+        Cache<String, Object> l1 = cacheName != null ? caches.get(cacheName) : null;
+        if (l1 != null) {
+            l1.invalidateAll(keys);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.github.ddth.mappings;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable mapping {@code object <--> target}, used internally by DAOs & caches.
+ *
+ * <p>Same fields & normalization rules as {@link MappingBo} (namespace is trimmed and
+ * lower-cased, object/target/info are trimmed), but stored as plain fields with a primitive
+ * timestamp and a cached hash code. {@link #equals(Object)} and {@link #hashCode()} take
+ * namespace, object and target into account (consistent with {@link MappingBo}).</p>
+ *
+ * <p>Public API still exposes {@link MappingBo} (converted only at the API boundary), see
+ * {@link #toMappingBo()} and {@link #fromMappingBo(MappingBo)}.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public final class Mapping implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static Mapping of(String namespace, String obj, String target) {
+        return new Mapping(namespace, obj, target, System.currentTimeMillis(), null);
+    }
+
+    public static Mapping of(String namespace, String obj, String target, long timestamp) {
+        return new Mapping(namespace, obj, target, timestamp, null);
+    }
+
+    public static Mapping of(String namespace, String obj, String target, long timestamp,
+            String info) {
+        return new Mapping(namespace, obj, target, timestamp, info);
+    }
+
+    /**
+     * Convert a {@link MappingBo} to {@link Mapping}.
+     *
+     * @param bo
+     * @return {@code null} if input is {@code null}
+     */
+    public static Mapping fromMappingBo(MappingBo bo) {
+        return bo != null ? new Mapping(bo.getNamespace(), bo.getObject(), bo.getTarget(),
+                bo.getTimestampAsLong(), bo.getInfo()) : null;
+    }
+
+    /**
+     * Convert a collection of {@link Mapping}s to a list of {@link MappingBo}s.
+     *
+     * @param mappings
+     * @return empty list if input is {@code null}
+     */
+    public static List<MappingBo> toMappingBos(Collection<Mapping> mappings) {
+        if (mappings == null || mappings.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<MappingBo> result = new ArrayList<>(mappings.size());
+        mappings.forEach(m -> result.add(m.toMappingBo()));
+        return result;
+    }
+
+    /**
+     * Convert a map of {@code key -> mappings} to {@code key -> MappingBos}.
+     *
+     * @param mappings
+     * @return
+     */
+    public static Map<String, Collection<MappingBo>> toMappingBos(
+            Map<String, Collection<Mapping>> mappings) {
+        Map<String, Collection<MappingBo>> result = new HashMap<>();
+        mappings.forEach((key, value) -> result.put(key, toMappingBos(value)));
+        return result;
+    }
+
+    /*
+     * Fields are not final so that serialization frameworks (e.g. Kryo used by cache entry
+     * serializers) can populate them, but there is no mutator.
+     */
+    private String namespace, object, target, info;
+    private long timestamp;
+    private transient int hash;
+
+    /**
+     * For serialization frameworks only.
+     */
+    private Mapping() {
+    }
+
+    private Mapping(String namespace, String obj, String target, long timestamp, String info) {
+        this.namespace = namespace != null ? namespace.trim().toLowerCase() : null;
+        this.object = obj != null ? obj.trim() : null;
+        this.target = target != null ? target.trim() : null;
+        this.timestamp = timestamp;
+        this.info = info != null ? info.trim() : null;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public String getObject() {
+        return object;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getInfo() {
+        return info;
+    }
+
+    /**
+     * Convert to {@link MappingBo}.
+     *
+     * @return
+     */
+    public MappingBo toMappingBo() {
+        return MappingBo.newInstance(namespace, object, target, timestamp, info);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = Objects.hashCode(namespace);
+            h = 31 * h + Objects.hashCode(object);
+            h = 31 * h + Objects.hashCode(target);
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof Mapping)) {
+            return false;
+        }
+        Mapping other = (Mapping) obj;
+        return hashCode() == other.hashCode() && Objects.equals(object, other.object)
+                && Objects.equals(target, other.target)
+                && Objects.equals(namespace, other.namespace);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "Mapping[" + namespace + ":" + object + "->" + target + "@" + timestamp + "]";
+    }
+}
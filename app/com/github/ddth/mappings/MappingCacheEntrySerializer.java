@@ -0,0 +1,370 @@
+package com.github.ddth.mappings;
+
+import com.github.ddth.cacheadapter.CacheEntry;
+import com.github.ddth.cacheadapter.ICacheEntrySerializer;
+import com.github.ddth.mappings.utils.MappingsUtils;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import net.jpountz.lz4.LZ4Factory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Compact {@link ICacheEntrySerializer} for values cached by mapping DAOs ({@link Mapping},
+ * collections of {@link Mapping}s, first pages, counts and the "known absent" marker), to be
+ * plugged into the cache factory (e.g. {@code RedisCacheFactory.cacheEntrySerializer}).
+ *
+ * <p>Format (version 1):</p>
+ * <pre>
+ * [0xCE marker][version: 1 byte][flags: 1 byte]
+ * [raw body length: varint]                    (if flag FLAG_LZ4 is set, body is LZ4-compressed)
+ * body: [key: string][creation & last access timestamps: 2 varlongs]
+ *       [expire after write & after access: 2 zigzag varlongs][value type: 1 byte][value]
+ * string: [utf-8 length + 1: varint][utf-8 bytes]      (0: null)
+ * list of mappings: [count: varint][namespace: string][dictionary size: varint][strings...]
+ *       [base timestamp: varlong], then per mapping
+ *       [object index: varint][target index: varint][timestamp - base: varlong][info: string]
+ * </pre>
+ *
+ * <p>Objects/targets repeated in a collection (e.g. the object of all mappings
+ * {@code object -> targets}) are written once in the dictionary. Other types of values are
+ * Java-serialized. Entries in other formats (e.g. written by {@code DefaultCacheEntrySerializer}
+ * before switching) are treated as cache misses.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class MappingCacheEntrySerializer implements ICacheEntrySerializer {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(MappingCacheEntrySerializer.class);
+
+    public final static byte MARKER = (byte) 0xCE;
+    public final static byte VERSION_1 = 1;
+
+    public final static int FLAG_LZ4 = 0x01;
+
+    private final static byte TYPE_NULL = 0;
+    private final static byte TYPE_ABSENT = 1;
+    private final static byte TYPE_MAPPING = 2;
+    private final static byte TYPE_MAPPINGS = 3;
+    private final static byte TYPE_LONG = 4;
+    private final static byte TYPE_PAGE = 5;
+    private final static byte TYPE_JAVA = 127;
+
+    private int compressionThreshold = 1024;
+    private LZ4Compressor compressor;
+    private LZ4FastDecompressor decompressor;
+
+    /**
+     * Bodies of at least this number of bytes are LZ4-compressed (and kept compressed only if
+     * smaller). Default 1024, {@code 0} or negative disables compression.
+     *
+     * @return
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public MappingCacheEntrySerializer setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+        return this;
+    }
+
+    public MappingCacheEntrySerializer init() {
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        compressor = factory.fastCompressor();
+        decompressor = factory.fastDecompressor();
+        return this;
+    }
+
+    public void destroy() {
+        // EMPTY
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] serialize(CacheEntry ce) {
+        Output body = new Output();
+        body.writeString(ce.getKey());
+        body.writeVarlong(ce.getCreationTimestamp());
+        body.writeVarlong(ce.getLastAccessTimestamp());
+        body.writeVarlong(zigzag(ce.getExpireAfterWrite()));
+        body.writeVarlong(zigzag(ce.getExpireAfterAccess()));
+        writeValue(body, ce.getValue());
+
+        Output result = new Output();
+        int len = body.size();
+        if (compressionThreshold > 0 && len >= compressionThreshold && compressor != null) {
+            byte[] compressed = new byte[compressor.maxCompressedLength(len)];
+            int compressedLen = compressor.compress(body.buffer(), 0, len, compressed, 0,
+                    compressed.length);
+            if (compressedLen < len) {
+                result.write(MARKER);
+                result.write(VERSION_1);
+                result.write(FLAG_LZ4);
+                result.writeVarlong(len);
+                result.write(compressed, 0, compressedLen);
+                return result.toByteArray();
+            }
+        }
+        result.write(MARKER);
+        result.write(VERSION_1);
+        result.write(0);
+        result.write(body.buffer(), 0, len);
+        return result.toByteArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@code null} if data is not in this serializer's format
+     */
+    @Override
+    public CacheEntry deserialize(byte[] data) {
+        if (data == null || data.length < 3 || data[0] != MARKER || data[1] != VERSION_1) {
+            return null;
+        }
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(data, 3, data.length - 3);
+            if ((data[2] & FLAG_LZ4) != 0) {
+                byte[] raw = new byte[(int) readVarlong(buf)];
+                decompressor.decompress(data, buf.position(), raw, 0, raw.length);
+                buf = ByteBuffer.wrap(raw);
+            }
+            String key = readString(buf);
+            long creationTimestamp = readVarlong(buf);
+            long lastAccessTimestamp = readVarlong(buf);
+            long expireAfterWrite = unzigzag(readVarlong(buf));
+            long expireAfterAccess = unzigzag(readVarlong(buf));
+            CacheEntry ce = new CacheEntry(key, readValue(buf), expireAfterWrite,
+                    expireAfterAccess);
+            ce.setCreationTimestamp(creationTimestamp);
+            ce.setLastAccessTimestamp(lastAccessTimestamp);
+            return ce;
+        } catch (Exception e) {
+            LOGGER.warn("Cannot deserialize cache entry: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    private static void writeValue(Output out, Object value) {
+        if (value == null) {
+            out.write(TYPE_NULL);
+        } else if (AbstractMappingDao.isAbsent(value)) {
+            out.write(TYPE_ABSENT);
+        } else if (value instanceof Mapping) {
+            Mapping m = (Mapping) value;
+            out.write(TYPE_MAPPING);
+            out.writeString(m.getNamespace());
+            out.writeString(m.getObject());
+            out.writeString(m.getTarget());
+            out.writeVarlong(zigzag(m.getTimestamp()));
+            out.writeString(m.getInfo());
+        } else if (value instanceof Long) {
+            out.write(TYPE_LONG);
+            out.writeVarlong(zigzag(((Long) value).longValue()));
+        } else if (value instanceof Collection && isMappings((Collection<?>) value)) {
+            out.write(TYPE_MAPPINGS);
+            writeMappings(out, (Collection<Mapping>) value);
+        } else if (value instanceof AbstractMappingDao.Page && isMappings(
+                ((AbstractMappingDao.Page) value).getMappings())) {
+            AbstractMappingDao.Page page = (AbstractMappingDao.Page) value;
+            out.write(TYPE_PAGE);
+            out.writeString(page.getCursor());
+            writeMappings(out, page.getMappings());
+        } else {
+            out.write(TYPE_JAVA);
+            try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+                oos.writeObject(value);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot serialize value of type "
+                        + value.getClass().getName(), e);
+            }
+        }
+    }
+
+    private static Object readValue(ByteBuffer buf) throws IOException, ClassNotFoundException {
+        byte type = buf.get();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_ABSENT:
+                return AbstractMappingDao.ABSENT;
+            case TYPE_MAPPING:
+                return Mapping.of(readString(buf), readString(buf), readString(buf),
+                        unzigzag(readVarlong(buf)), readString(buf));
+            case TYPE_LONG:
+                return unzigzag(readVarlong(buf));
+            case TYPE_MAPPINGS:
+                // DAOs cache sets: keep membership checks O(1)
+                return readMappings(buf,
+                        count -> new HashSet<>(Math.max(16, (int) (count / 0.75f) + 1)));
+            case TYPE_PAGE:
+                String cursor = readString(buf);
+                return new AbstractMappingDao.Page(readMappings(buf, ArrayList::new), cursor);
+            case TYPE_JAVA:
+                try (ObjectInputStream ois = new ObjectInputStream(
+                        new ByteArrayInputStream(buf.array(), buf.arrayOffset() + buf.position(),
+                                buf.remaining()))) {
+                    return ois.readObject();
+                }
+            default:
+                throw new IllegalArgumentException("Unknown value type: " + type);
+        }
+    }
+
+    /**
+     * Can a collection be written as a list of mappings (all elements are {@link Mapping}s of
+     * the same namespace)?
+     */
+    private static boolean isMappings(Collection<?> values) {
+        String namespace = null;
+        for (Object value : values) {
+            if (!(value instanceof Mapping)) {
+                return false;
+            }
+            String ns = ((Mapping) value).getNamespace();
+            if (namespace == null) {
+                namespace = ns;
+            }
+            if (ns == null || !ns.equals(namespace)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeMappings(Output out, Collection<Mapping> mappings) {
+        out.writeVarlong(mappings.size());
+        if (mappings.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> dict = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        long baseTimestamp = Long.MAX_VALUE;
+        for (Mapping m : mappings) {
+            for (String s : new String[] {m.getObject(), m.getTarget()}) {
+                if (dict.putIfAbsent(s, strings.size()) == null) {
+                    strings.add(s);
+                }
+            }
+            baseTimestamp = Math.min(baseTimestamp, m.getTimestamp());
+        }
+        out.writeString(mappings.iterator().next().getNamespace());
+        out.writeVarlong(strings.size());
+        strings.forEach(out::writeString);
+        out.writeVarlong(zigzag(baseTimestamp));
+        for (Mapping m : mappings) {
+            out.writeVarlong(dict.get(m.getObject()));
+            out.writeVarlong(dict.get(m.getTarget()));
+            out.writeVarlong(m.getTimestamp() - baseTimestamp);
+            out.writeString(m.getInfo());
+        }
+    }
+
+    private static <C extends Collection<Mapping>> C readMappings(ByteBuffer buf,
+            IntFunction<C> factory) {
+        int count = (int) readVarlong(buf);
+        C result = factory.apply(count);
+        if (count == 0) {
+            return result;
+        }
+        String namespace = readString(buf);
+        String[] strings = new String[(int) readVarlong(buf)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(buf);
+        }
+        long baseTimestamp = unzigzag(readVarlong(buf));
+        for (int i = 0; i < count; i++) {
+            String obj = strings[(int) readVarlong(buf)];
+            String target = strings[(int) readVarlong(buf)];
+            long timestamp = baseTimestamp + readVarlong(buf);
+            result.add(Mapping.of(namespace, obj, target, timestamp, readString(buf)));
+        }
+        return result;
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarlong(ByteBuffer buf) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buf.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varlong");
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int len = (int) readVarlong(buf) - 1;
+        if (len < 0) {
+            return null;
+        }
+        String result = new String(buf.array(), buf.arrayOffset() + buf.position(), len,
+                MappingsUtils.UTF8);
+        buf.position(buf.position() + len);
+        return result;
+    }
+
+    /**
+     * Growable output buffer, with direct access to its content.
+     */
+    private final static class Output extends ByteArrayOutputStream {
+        private Output() {
+            super(256);
+        }
+
+        private byte[] buffer() {
+            return buf;
+        }
+
+        private void writeVarlong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                write(0);
+            } else {
+                byte[] bytes = value.getBytes(MappingsUtils.UTF8);
+                writeVarlong(bytes.length + 1);
+                write(bytes, 0, bytes.length);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.ddth.mappings;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mappings of a key while a batch is being processed: the (cached) existing collection is copied
+ * at most once, on first change, then changed in place. Changes are logged so that
+ * {@link #snapshot()} can view earlier states without copying.
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+class MappingWorkingSet {
+
+    /**
+     * Build working sets {@code key -> working set} of existing mappings.
+     *
+     * @param mappings
+     * @return
+     */
+    public static Map<String, MappingWorkingSet> of(Map<String, Collection<Mapping>> mappings) {
+        Map<String, MappingWorkingSet> result = new HashMap<>();
+        mappings.forEach((key, value) -> result.put(key, new MappingWorkingSet(value)));
+        return result;
+    }
+
+    private final Collection<Mapping> existing;
+    private Set<Mapping> current;
+    /* each change toggles membership of a mapping */
+    private final List<Mapping> changes = new ArrayList<>();
+
+    public MappingWorkingSet(Collection<Mapping> existing) {
+        this.existing = existing;
+    }
+
+    private Collection<Mapping> live() {
+        return current != null ? current : existing;
+    }
+
+    public boolean contains(Mapping bo) {
+        return live().contains(bo);
+    }
+
+    /**
+     * Add (if absent) or remove (if present) a mapping.
+     *
+     * @param bo
+     * @param add
+     */
+    public void change(Mapping bo, boolean add) {
+        if (current == null) {
+            current = new HashSet<>(existing);
+        }
+        if (add ? current.add(bo) : current.remove(bo)) {
+            changes.add(bo);
+        }
+    }
+
+    /**
+     * Read-only view of the current state, still valid after further changes.
+     *
+     * @return
+     */
+    public Collection<Mapping> snapshot() {
+        return new Snapshot(this, changes.size(), live().size());
+    }
+
+    /**
+     * State of a working set before its changes {@code from..}: the live set, with membership of
+     * mappings changed an odd number of times since then flipped.
+     */
+    private static class Snapshot extends AbstractCollection<Mapping> {
+        private final MappingWorkingSet ws;
+        private final int from, size;
+
+        Snapshot(MappingWorkingSet ws, int from, int size) {
+            this.ws = ws;
+            this.from = from;
+            this.size = size;
+        }
+
+        private Set<Mapping> flipped() {
+            Set<Mapping> result = new HashSet<>();
+            for (Mapping bo : ws.changes.subList(from, ws.changes.size())) {
+                if (!result.remove(bo)) {
+                    result.add(bo);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            boolean flipped = false;
+            for (int i = from, n = ws.changes.size(); i < n; i++) {
+                flipped ^= ws.changes.get(i).equals(o);
+            }
+            return ws.contains((Mapping) o) != flipped;
+        }
+
+        @Override
+        public Iterator<Mapping> iterator() {
+            if (from == ws.changes.size()) {
+                return ws.live().iterator();
+            }
+            Set<Mapping> flipped = flipped();
+            List<Mapping> result = new ArrayList<>(size);
+            ws.live().forEach(bo -> {
+                if (!flipped.contains(bo)) {
+                    result.add(bo);
+                }
+            });
+            flipped.forEach(bo -> {
+                if (!ws.contains(bo)) {
+                    result.add(bo);
+                }
+            });
+            return Collections.unmodifiableList(result).iterator();
+        }
+    }
+}
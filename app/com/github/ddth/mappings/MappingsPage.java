@@ -0,0 +1,73 @@
+package com.github.ddth.mappings;
+
+import com.github.ddth.mappings.utils.MappingsUtils;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A page of mappings, result of paged reads (e.g.
+ * {@link IMappingDao#getMappingsForObject(String, String, int, String)}).
+ *
+ * <p>{@link #getCursor()} is an opaque string to be passed to the next call to fetch the next
+ * page, {@code null} if there is no more page.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class MappingsPage {
+    public final static MappingsPage EMPTY = new MappingsPage(Collections.emptyList(), null);
+
+    private final static Comparator<MappingBo> COMPARATOR = Comparator
+            .comparing(MappingBo::getObject, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(MappingBo::getTarget, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /**
+     * Build a page out of a fully loaded collection of mappings: mappings are sorted by
+     * {@code (object, target)} and the cursor is the offset of the next page.
+     *
+     * @param mappings
+     * @param limit
+     * @param cursor
+     *         {@code null} for the first page
+     * @return
+     */
+    public static MappingsPage slice(Collection<MappingBo> mappings, int limit, String cursor) {
+        Pair<List<MappingBo>, String> page = MappingsUtils.slice(mappings, COMPARATOR, limit,
+                cursor);
+        return new MappingsPage(page.getLeft(), page.getRight());
+    }
+
+    private final List<MappingBo> mappings;
+    private final String cursor;
+
+    public MappingsPage(List<MappingBo> mappings, String cursor) {
+        this.mappings = mappings != null ? mappings : Collections.emptyList();
+        this.cursor = cursor;
+    }
+
+    /**
+     * Mappings of this page.
+     *
+     * @return
+     */
+    public List<MappingBo> getMappings() {
+        return mappings;
+    }
+
+    /**
+     * Opaque cursor to fetch the next page.
+     *
+     * @return {@code null} if there is no more page
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public boolean hasMore() {
+        return cursor != null;
+    }
+}
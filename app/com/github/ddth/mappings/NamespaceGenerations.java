@@ -0,0 +1,118 @@
+package com.github.ddth.mappings;
+
+import com.github.ddth.mappings.redis.RedisDelegator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Namespace generations, embedded in cache keys: resetting a namespace bumps its generation, so
+ * that cache entries of previous generations are no longer reachable.
+ *
+ * <p>Generations are kept per node, or shared cluster-wide via Redis counters.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+class NamespaceGenerations {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(NamespaceGenerations.class);
+
+    private final static class Generation {
+        private final long value, fetchedAt;
+
+        private Generation(long value, long fetchedAt) {
+            this.value = value;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    private RedisDelegator redis;
+    private long refreshMs = 5000;
+    private Function<String, String> counterName;
+    private final ConcurrentMap<String, Generation> generations = new ConcurrentHashMap<>();
+
+    public RedisDelegator getRedis() {
+        return redis;
+    }
+
+    public NamespaceGenerations setRedis(RedisDelegator redis) {
+        this.redis = redis;
+        return this;
+    }
+
+    public long getRefreshMs() {
+        return refreshMs;
+    }
+
+    public NamespaceGenerations setRefreshMs(long refreshMs) {
+        this.refreshMs = refreshMs;
+        return this;
+    }
+
+    /**
+     * Name of the Redis counter of a namespace.
+     *
+     * @param counterName
+     * @return
+     */
+    public NamespaceGenerations setCounterName(Function<String, String> counterName) {
+        this.counterName = counterName;
+        return this;
+    }
+
+    /**
+     * Get current generation of a namespace.
+     *
+     * @param namespace
+     * @return {@code 0} if the namespace has never been reset
+     */
+    public long get(String namespace) {
+        Generation gen = generations.get(namespace);
+        RedisDelegator redis = this.redis;
+        if (redis == null) {
+            return gen != null ? gen.value : 0;
+        }
+        long now = System.currentTimeMillis();
+        if (gen != null && (now - gen.fetchedAt < refreshMs
+                // another thread is refreshing: keep using the current value meanwhile
+                || !generations.replace(namespace, gen, new Generation(gen.value, now)))) {
+            return gen.value;
+        }
+        long value;
+        try {
+            value = redis.getCounter(counterName.apply(namespace));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot read generation of namespace [" + namespace + "]: "
+                    + e.getMessage(), e);
+            value = gen != null ? gen.value : 0;
+        }
+        set(namespace, value, now);
+        return value;
+    }
+
+    private void set(String namespace, long value, long fetchedAt) {
+        // generations only increase: a slow refresh must not undo a concurrent reset
+        generations.compute(namespace, (k, old) -> new Generation(
+                old != null ? Math.max(old.value, value) : value, fetchedAt));
+    }
+
+    /**
+     * Bump generation of a namespace.
+     *
+     * @param namespace
+     */
+    public void reset(String namespace) {
+        RedisDelegator redis = this.redis;
+        if (redis != null) {
+            set(namespace, redis.incrCounter(counterName.apply(namespace)),
+                    System.currentTimeMillis());
+        } else {
+            Generation gen = generations.get(namespace);
+            set(namespace, (gen != null ? gen.value : 0) + 1, 0);
+        }
+    }
+}
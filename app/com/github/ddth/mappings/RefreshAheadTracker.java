@@ -0,0 +1,146 @@
+package com.github.ddth.mappings;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Refresh-ahead: tracks {@code cacheKey -> timestamp after which the entry is refreshed} of
+ * entries written by this node, so that hot entries are reloaded before they expire.
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+class RefreshAheadTracker {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(RefreshAheadTracker.class);
+
+    private double factor = 0;
+    private long maxKeys = 100000;
+    private Executor executor;
+    private volatile Cache<String, Long> refreshAt;
+
+    public double getFactor() {
+        return factor;
+    }
+
+    /**
+     * Fraction of an entry's TTL after which it is refreshed, in {@code (0, 1)}; other values
+     * disable refresh-ahead.
+     *
+     * @param factor
+     * @return
+     */
+    public RefreshAheadTracker setFactor(double factor) {
+        this.factor = factor;
+        return this;
+    }
+
+    public long getMaxKeys() {
+        return maxKeys;
+    }
+
+    public RefreshAheadTracker setMaxKeys(long maxKeys) {
+        this.maxKeys = maxKeys;
+        return this;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public RefreshAheadTracker setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public RefreshAheadTracker init() {
+        if (factor > 0 && factor < 1 && refreshAt == null) {
+            refreshAt = Caffeine.newBuilder().maximumSize(Math.max(1, maxKeys)).build();
+        }
+        return this;
+    }
+
+    public void destroy() {
+        refreshAt = null;
+    }
+
+    public boolean isEnabled() {
+        return refreshAt != null;
+    }
+
+    /**
+     * Record when a just-written entry should be refreshed.
+     *
+     * @param key
+     * @param ttlSeconds
+     *         TTL of the written entry, {@code 0} or negative: entry is not refreshed
+     */
+    public void track(String key, long ttlSeconds) {
+        Cache<String, Long> tracker = refreshAt;
+        if (tracker != null) {
+            if (ttlSeconds > 0) {
+                tracker.put(key,
+                        System.currentTimeMillis() + (long) (ttlSeconds * 1000 * factor));
+            } else {
+                tracker.invalidate(key);
+            }
+        }
+    }
+
+    public void invalidate(String key) {
+        track(key, 0);
+    }
+
+    /**
+     * Check if an entry is due for refresh. If so, the refresh is claimed: subsequent calls
+     * return {@code false} until the entry is tracked again.
+     *
+     * @param key
+     * @return
+     */
+    public boolean claim(String key) {
+        Cache<String, Long> tracker = refreshAt;
+        Long at = tracker != null ? tracker.getIfPresent(key) : null;
+        return at != null && at.longValue() <= System.currentTimeMillis()
+                && tracker.asMap().remove(key, at);
+    }
+
+    /**
+     * Re-schedule a claimed refresh that could not run now, unless the entry has been tracked
+     * again meanwhile.
+     *
+     * @param key
+     * @param delayMs
+     */
+    public void rearm(String key, long delayMs) {
+        Cache<String, Long> tracker = refreshAt;
+        if (tracker != null) {
+            tracker.asMap().putIfAbsent(key, System.currentTimeMillis() + delayMs);
+        }
+    }
+
+    /**
+     * Run a reload on {@link #getExecutor()} (or {@code defaultExecutor} if not set). Failures
+     * are logged and ignored: the entry simply expires.
+     *
+     * @param reload
+     * @param defaultExecutor
+     */
+    public void submit(Runnable reload, Executor defaultExecutor) {
+        try {
+            (executor != null ? executor : defaultExecutor).execute(() -> {
+                try {
+                    reload.run();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Refresh-ahead failed: " + e.getMessage(), e);
+                }
+            });
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot schedule refresh-ahead: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.github.ddth.mappings;
+
+import com.github.ddth.mappings.redis.RedisDelegator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight loads of cache-missed entries: concurrent loads of a same key on this node share
+ * one invocation of the loader.
+ *
+ * <p>If a lease Redis is set, sync loads are also guarded by a cluster-wide lease: a node that
+ * does not get the lease polls the cache until the lease holder has filled it, and loads by
+ * itself if the lease expires first.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+class SingleFlightLoader {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(SingleFlightLoader.class);
+
+    private final static long LEASE_POLL_MS = 10;
+
+    private boolean enabled = true;
+    private RedisDelegator leaseRedis;
+    private long leaseTtlMs = 1000;
+    private Function<String, String> leaseName;
+    private Function<String, Object> cacheReader;
+
+    /**
+     * In-flight loads {@code key -> future of the value to be cached}, shared by sync and async
+     * loads.
+     */
+    private final ConcurrentMap<String, CompletableFuture<Object>> inflight
+            = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public SingleFlightLoader setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public RedisDelegator getLeaseRedis() {
+        return leaseRedis;
+    }
+
+    public SingleFlightLoader setLeaseRedis(RedisDelegator leaseRedis) {
+        this.leaseRedis = leaseRedis;
+        return this;
+    }
+
+    public long getLeaseTtlMs() {
+        return leaseTtlMs;
+    }
+
+    public SingleFlightLoader setLeaseTtlMs(long leaseTtlMs) {
+        this.leaseTtlMs = leaseTtlMs;
+        return this;
+    }
+
+    /**
+     * Name of the cluster-wide lease of a key.
+     *
+     * @param leaseName
+     * @return
+     */
+    public SingleFlightLoader setLeaseName(Function<String, String> leaseName) {
+        this.leaseName = leaseName;
+        return this;
+    }
+
+    /**
+     * Read the cached value of a key, polled while another node holds the key's lease.
+     *
+     * @param cacheReader
+     * @return
+     */
+    public SingleFlightLoader setCacheReader(Function<String, Object> cacheReader) {
+        this.cacheReader = cacheReader;
+        return this;
+    }
+
+    public boolean hasClusterLease() {
+        return leaseRedis != null && leaseTtlMs > 0;
+    }
+
+    /**
+     * Get the in-flight load of a key.
+     *
+     * @param key
+     * @return {@code null} if the key is not being loaded
+     */
+    public CompletableFuture<Object> getInflight(String key) {
+        return inflight.get(key);
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * Try to acquire the cluster-wide lease of a key.
+     *
+     * @param key
+     * @return lease token, {@code null} if the lease is held by another node (or Redis is not
+     * available)
+     */
+    public String tryAcquireLease(String key) {
+        String name = leaseName.apply(key);
+        try {
+            return leaseRedis.tryAcquireLease(name, leaseTtlMs);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot acquire load lease [" + name + "]: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    public void releaseLease(String key, String token) {
+        String name = leaseName.apply(key);
+        try {
+            leaseRedis.releaseLease(name, token);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot release load lease [" + name + "]: " + e.getMessage(), e);
+        }
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * Load a key, single-flight.
+     *
+     * @param key
+     * @param loader
+     *         load the entry from storage and put it to cache, returns the cached value
+     * @return
+     */
+    public Object load(String key, Supplier<Object> loader) {
+        return load(key, loader, null);
+    }
+
+    /**
+     * Reload a cached key, single-flight. If another node holds the key's lease, the cached
+     * value is returned and {@code onDeferred} is called.
+     *
+     * @param key
+     * @param loader
+     * @param onDeferred
+     * @return
+     */
+    public Object refresh(String key, Supplier<Object> loader, Runnable onDeferred) {
+        return load(key, loader, onDeferred);
+    }
+
+    private Object load(String key, Supplier<Object> loader, Runnable onDeferred) {
+        if (!enabled) {
+            return loader.get();
+        }
+        CompletableFuture<Object> myLoad = new CompletableFuture<>();
+        CompletableFuture<Object> other = inflight.putIfAbsent(key, myLoad);
+        if (other != null) {
+            try {
+                return other.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            Object value = loadUnderLease(key, loader, onDeferred);
+            myLoad.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            myLoad.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(key, myLoad);
+        }
+    }
+
+    /**
+     * Async version of {@link #load(String, Supplier)}, coalesced per node only (never blocks
+     * waiting for a cluster-wide lease).
+     *
+     * @param key
+     * @param loader
+     * @return
+     */
+    public CompletionStage<Object> loadAsync(String key,
+            Supplier<CompletionStage<Object>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        CompletableFuture<Object> myLoad = new CompletableFuture<>();
+        CompletableFuture<Object> other = inflight.putIfAbsent(key, myLoad);
+        if (other != null) {
+            return other;
+        }
+        CompletionStage<Object> load;
+        try {
+            load = loader.get();
+        } catch (RuntimeException e) {
+            CompletableFuture<Object> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            load = failed;
+        }
+        load.whenComplete((value, e) -> {
+            inflight.remove(key, myLoad);
+            if (e != null) {
+                myLoad.completeExceptionally(e);
+            } else {
+                myLoad.complete(value);
+            }
+        });
+        return myLoad;
+    }
+
+    private Object loadUnderLease(String key, Supplier<Object> loader, Runnable onDeferred) {
+        if (!hasClusterLease()) {
+            return loader.get();
+        }
+        String token;
+        try {
+            token = leaseRedis.tryAcquireLease(leaseName.apply(key), leaseTtlMs);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot acquire load lease [" + leaseName.apply(key) + "]: "
+                    + e.getMessage(), e);
+            return loader.get();
+        }
+        if (token != null) {
+            try {
+                return loader.get();
+            } finally {
+                releaseLease(key, token);
+            }
+        }
+        if (onDeferred != null) {
+            // another node is refreshing the entry: keep serving the cached value
+            Object cached = cacheReader.apply(key);
+            if (cached != null) {
+                onDeferred.run();
+                return cached;
+            }
+        }
+        // another node is loading the entry, wait for it to fill the cache
+        long deadline = System.currentTimeMillis() + leaseTtlMs;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(LEASE_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            Object cached = cacheReader.apply(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return loader.get();
+    }
+}
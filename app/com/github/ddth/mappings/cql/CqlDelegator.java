@@ -4,12 +4,23 @@ import com.datastax.driver.core.*;
 import com.github.ddth.cql.CqlUtils;
 import com.github.ddth.cql.SessionManager;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.text.MessageFormat;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 /**
  * @author Thanh Nguyen <btnguyen2k@gmail.com>
@@ -27,6 +38,9 @@ public class CqlDelegator {
     private String hostsAndPorts;
     private ConsistencyLevel consistencyLevelRead = ConsistencyLevel.LOCAL_ONE;
     private ConsistencyLevel consistencyLevelWrite = ConsistencyLevel.LOCAL_ONE;
+    private int maxBatchSize = 100;
+    private int maxAsyncRequests = 128;
+    private long statsFlushIntervalMs = 1000;
 
     public String getTableStats() {
         return tableStats;
@@ -82,6 +96,54 @@ public class CqlDelegator {
         return this;
     }
 
+    /**
+     * Max number of statements per batch, used by
+     * {@link #executeBatchesByPartition(PartitionedStatements)}.
+     *
+     * @return
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public CqlDelegator setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    /**
+     * Max number of in-flight async requests, used by
+     * {@link #executeBatchesByPartition(PartitionedStatements)}.
+     *
+     * @return
+     */
+    public int getMaxAsyncRequests() {
+        return maxAsyncRequests;
+    }
+
+    public CqlDelegator setMaxAsyncRequests(int maxAsyncRequests) {
+        this.maxAsyncRequests = maxAsyncRequests;
+        return this;
+    }
+
+    /**
+     * Stats updates are aggregated in memory and written to storage every
+     * {@code statsFlushIntervalMs} milliseconds (write-behind), default 1000. Value {@code 0} or
+     * negative disables write-behind (stats are updated synchronously).
+     *
+     * <p>Note: must be set before {@link #init()}.</p>
+     *
+     * @return
+     */
+    public long getStatsFlushIntervalMs() {
+        return statsFlushIntervalMs;
+    }
+
+    public CqlDelegator setStatsFlushIntervalMs(long statsFlushIntervalMs) {
+        this.statsFlushIntervalMs = statsFlushIntervalMs;
+        return this;
+    }
+
     public ConsistencyLevel getConsistencyLevelRead() {
         return consistencyLevelRead;
     }
@@ -115,16 +177,71 @@ public class CqlDelegator {
                     " FROM {0} WHERE " + COL_MAPPING + "=? AND " + COL_NAMESPACE + "=?";
     private PreparedStatement pstmUpdateStats, pstmGetAllStats;
 
+    /**
+     * In-memory stats counter: {@code value} is the total of all updates, {@code flushed} the
+     * part already written to storage.
+     */
+    private static class StatsCounter {
+        private final LongAdder value = new LongAdder();
+        private volatile long flushed = 0;
+
+        private long pending() {
+            return value.sum() - flushed;
+        }
+    }
+
+    /**
+     * Aggregated stats updates {@code (mapping, namespace, key) -> counter}.
+     */
+    private final ConcurrentMap<Triple<String, String, String>, StatsCounter> statsCounters
+            = new ConcurrentHashMap<>();
+    /**
+     * Incremented before and after each flush (odd while a flush is in progress), so that
+     * readers can detect a flush happening between reading storage and pending counters.
+     */
+    private final AtomicLong statsFlushSeq = new AtomicLong(0);
+    private ScheduledExecutorService statsFlusher;
+
     public CqlDelegator init() {
         if (sessionManager == null) {
             sessionManager = new SessionManager();
             sessionManager.init();
             myOwnSessionManager = true;
         }
+        if (statsFlushIntervalMs > 0 && statsFlusher == null) {
+            statsFlusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "cql-stats-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            statsFlusher.scheduleWithFixedDelay(() -> {
+                try {
+                    flushStats();
+                } catch (Exception e) {
+                    LOGGER.warn(e.getMessage(), e);
+                }
+            }, statsFlushIntervalMs, statsFlushIntervalMs, TimeUnit.MILLISECONDS);
+        }
         return this;
     }
 
     public void destroy() {
+        if (statsFlusher != null) {
+            try {
+                statsFlusher.shutdown();
+                statsFlusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                statsFlusher = null;
+            }
+            try {
+                // drain pending stats updates
+                flushStats();
+            } catch (Exception e) {
+                LOGGER.warn(e.getMessage(), e);
+            }
+        }
         if (sessionManager != null && myOwnSessionManager) {
             try {
                 sessionManager.destroy();
@@ -213,6 +330,109 @@ public class CqlDelegator {
         return CqlUtils.execute(session, pstm, getConsistencyLevelRead(), params);
     }
 
+    /**
+     * Fetch rows using a pre-bound statement (e.g. with custom fetch size).
+     *
+     * @param stm
+     * @return
+     */
+    public ResultSet select(Statement stm) {
+        return select(getSession(), stm);
+    }
+
+    /**
+     * Fetch rows using a pre-bound statement (e.g. with custom fetch size).
+     *
+     * @param session
+     * @param stm
+     * @return
+     */
+    public ResultSet select(Session session, Statement stm) {
+        return session.execute(stm.setConsistencyLevel(getConsistencyLevelRead()));
+    }
+
+    /**
+     * Convert driver's {@link ResultSetFuture} to a {@link CompletableFuture}.
+     *
+     * <p>Note: the returned future is completed on driver's I/O thread, dependent stages that
+     * may block (e.g. iterating a multi-page result set, accessing cache) should be executed
+     * asynchronously with a separated executor.</p>
+     *
+     * @param future
+     * @return
+     */
+    public static CompletableFuture<ResultSet> toCompletableFuture(ResultSetFuture future) {
+        CompletableFuture<ResultSet> result = new CompletableFuture<>();
+        future.addListener(() -> {
+            try {
+                result.complete(future.getUninterruptibly());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, Runnable::run);
+        return result;
+    }
+
+    /**
+     * Fetch rows asynchronously.
+     *
+     * @param pstm
+     * @param params
+     * @return
+     */
+    public CompletableFuture<ResultSet> selectAsync(PreparedStatement pstm, Object... params) {
+        return selectAsync(getSession(), pstm, params);
+    }
+
+    /**
+     * Fetch rows asynchronously.
+     *
+     * @param session
+     * @param pstm
+     * @param params
+     * @return
+     */
+    public CompletableFuture<ResultSet> selectAsync(Session session, PreparedStatement pstm,
+            Object... params) {
+        Statement stm = CqlUtils.bindValues(pstm, params);
+        return toCompletableFuture(
+                session.executeAsync(stm.setConsistencyLevel(getConsistencyLevelRead())));
+    }
+
+    /**
+     * Fetch one row asynchronously.
+     *
+     * @param pstm
+     * @param params
+     * @return
+     */
+    public CompletableFuture<Row> selectOneRowAsync(PreparedStatement pstm, Object... params) {
+        return selectAsync(pstm, params).thenApply(ResultSet::one);
+    }
+
+    /**
+     * Execute multiple queries in parallel (at most {@link #getMaxAsyncRequests()} in-flight
+     * requests) and wait for all results.
+     *
+     * @param stms map {@code id -> statement}
+     * @return map {@code id -> result}
+     */
+    public <K> Map<K, ResultSet> selectAll(Map<K, Statement> stms) {
+        Session session = getSession();
+        Map<K, ResultSet> result = new HashMap<>();
+        Map<K, ResultSetFuture> inflight = new HashMap<>();
+        for (Map.Entry<K, Statement> entry : stms.entrySet()) {
+            Statement stm = entry.getValue().setConsistencyLevel(getConsistencyLevelRead());
+            inflight.put(entry.getKey(), session.executeAsync(stm));
+            if (inflight.size() >= maxAsyncRequests) {
+                inflight.forEach((k, f) -> result.put(k, f.getUninterruptibly()));
+                inflight.clear();
+            }
+        }
+        inflight.forEach((k, f) -> result.put(k, f.getUninterruptibly()));
+        return result;
+    }
+
     /**
      * Execute update statement.
      *
@@ -251,9 +471,184 @@ public class CqlDelegator {
                 BatchStatement.Type.LOGGED, stms);
     }
 
+    /**
+     * Execute update statement asynchronously.
+     *
+     * @param pstm
+     * @param params
+     * @return
+     */
+    public CompletableFuture<ResultSet> updateAsync(PreparedStatement pstm, Object... params) {
+        Statement stm = CqlUtils.bindValues(pstm, params);
+        return toCompletableFuture(
+                getSession().executeAsync(stm.setConsistencyLevel(getConsistencyLevelWrite())));
+    }
+
+    /**
+     * Execute a (logged) batch of statements asynchronously.
+     *
+     * @param stms
+     * @return
+     */
+    public CompletableFuture<ResultSet> executeBatchAsync(Statement... stms) {
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.LOGGED);
+        for (Statement stm : stms) {
+            batch.add(stm);
+        }
+        batch.setConsistencyLevel(getConsistencyLevelWrite());
+        return toCompletableFuture(getSession().executeAsync(batch));
+    }
+
+    /**
+     * Statements grouped by partition, each statement is tagged with index of the item (e.g. a
+     * mapping in a batch) it belongs to.
+     */
+    public static class PartitionedStatements {
+        private final Map<String, List<Pair<Integer, Statement>>> statements
+                = new LinkedHashMap<>();
+        private final Map<Integer, List<Statement>> itemStatements = new HashMap<>();
+
+        public PartitionedStatements add(String partition, int itemIndex, Statement stm) {
+            statements.computeIfAbsent(partition, k -> new ArrayList<>())
+                    .add(Pair.of(itemIndex, stm));
+            itemStatements.computeIfAbsent(itemIndex, k -> new ArrayList<>()).add(stm);
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return statements.isEmpty();
+        }
+    }
+
+    /**
+     * Execute statements grouped by partition.
+     *
+     * <p>Statements of a partition are sent as {@link BatchStatement.Type#UNLOGGED} batches of at
+     * most {@link #getMaxBatchSize()} statements (single-partition batches are applied atomically
+     * by Cassandra without the batch-log). Batches are executed asynchronously, with at most
+     * {@link #getMaxAsyncRequests()} requests in-flight.</p>
+     *
+     * <p>Statements of an item usually span several partitions (e.g. both directions of a
+     * mapping). If a batch fails, each of its items is re-applied in full as one
+     * {@link BatchStatement.Type#LOGGED} batch, so that an item is never left half-applied
+     * because a batch of another partition failed. Hence statements must be idempotent (no
+     * counter or conditional updates). An item is reported as failed only if its logged retry
+     * fails too; as with any failed logged batch, such an item may still be partially
+     * applied, and can be safely retried.</p>
+     *
+     * @param stms
+     * @return indexes of failed items
+     */
+    public Set<Integer> executeBatchesByPartition(PartitionedStatements stms) {
+        Session session = getSession();
+        Set<Integer> failedItems = new HashSet<>();
+        List<Pair<Set<Integer>, ResultSetFuture>> inflight = new ArrayList<>();
+        for (List<Pair<Integer, Statement>> partitionStms : stms.statements.values()) {
+            for (int i = 0, n = partitionStms.size(); i < n; i += maxBatchSize) {
+                List<Pair<Integer, Statement>> chunk = partitionStms
+                        .subList(i, Math.min(n, i + maxBatchSize));
+                Set<Integer> chunkItems = new HashSet<>();
+                BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+                chunk.forEach(p -> {
+                    chunkItems.add(p.getLeft());
+                    batch.add(p.getRight());
+                });
+                Statement stm = chunk.size() == 1 ? chunk.get(0).getRight() : batch;
+                stm.setConsistencyLevel(getConsistencyLevelWrite());
+                inflight.add(Pair.of(chunkItems, session.executeAsync(stm)));
+                if (inflight.size() >= maxAsyncRequests) {
+                    waitForBatches(inflight, failedItems);
+                }
+            }
+        }
+        waitForBatches(inflight, failedItems);
+        if (failedItems.isEmpty()) {
+            return failedItems;
+        }
+
+        // retry failed items, each one as a logged batch
+        Set<Integer> result = new HashSet<>();
+        for (Integer item : failedItems) {
+            BatchStatement batch = new BatchStatement(BatchStatement.Type.LOGGED);
+            stms.itemStatements.get(item).forEach(batch::add);
+            batch.setConsistencyLevel(getConsistencyLevelWrite());
+            inflight.add(Pair.of(Collections.singleton(item), session.executeAsync(batch)));
+            if (inflight.size() >= maxAsyncRequests) {
+                waitForBatches(inflight, result);
+            }
+        }
+        waitForBatches(inflight, result);
+        return result;
+    }
+
+    /**
+     * Write a statement for each row of a query (e.g. to copy rows between tables).
+     *
+     * <p>Rows are read page by page ({@code pageSize} rows); statements of a page are executed
+     * via {@link #executeBatchesByPartition(PartitionedStatements)}, hence must be
+     * idempotent.</p>
+     *
+     * @param select
+     * @param pageSize
+     * @param toStatement
+     *         map a row to {@code (partition-id, statement)}
+     * @return number of rows written
+     * @throws IllegalStateException
+     *         if some statements of a page could not be executed
+     */
+    public long executeForEachRow(Statement select, int pageSize,
+            Function<Row, Pair<String, Statement>> toStatement) {
+        select.setFetchSize(pageSize);
+        long counter = 0;
+        PartitionedStatements page = new PartitionedStatements();
+        int pageRows = 0;
+        for (Row row : select(select)) {
+            Pair<String, Statement> stm = toStatement.apply(row);
+            page.add(stm.getLeft(), pageRows++, stm.getRight());
+            if (pageRows >= pageSize) {
+                counter += executePage(page, pageRows, counter);
+                page = new PartitionedStatements();
+                pageRows = 0;
+            }
+        }
+        if (pageRows > 0) {
+            counter += executePage(page, pageRows, counter);
+        }
+        return counter;
+    }
+
+    private int executePage(PartitionedStatements page, int pageRows, long done) {
+        Set<Integer> failedItems = executeBatchesByPartition(page);
+        if (!failedItems.isEmpty()) {
+            throw new IllegalStateException("Failed to write " + failedItems.size() + " of "
+                    + pageRows + " rows (" + done + " rows written before).");
+        }
+        return pageRows;
+    }
+
+    private void waitForBatches(List<Pair<Set<Integer>, ResultSetFuture>> inflight,
+            Set<Integer> failedItems) {
+        for (Pair<Set<Integer>, ResultSetFuture> pair : inflight) {
+            boolean ok;
+            try {
+                ok = pair.getRight().getUninterruptibly().wasApplied();
+            } catch (Exception e) {
+                LOGGER.warn(e.getMessage(), e);
+                ok = false;
+            }
+            if (!ok) {
+                failedItems.addAll(pair.getLeft());
+            }
+        }
+        inflight.clear();
+    }
+
     /**
      * Update mapping stats.
      *
+     * <p>If write-behind is enabled (see {@link #getStatsFlushIntervalMs()}), the update is
+     * aggregated in memory and this method returns {@code null}.</p>
+     *
      * @param mapping
      * @param namespace
      * @param key
@@ -261,16 +656,145 @@ public class CqlDelegator {
      * @return
      */
     public ResultSet updateStats(String mapping, String namespace, String key, long value) {
+        if (statsFlusher != null) {
+            aggregateStats(mapping, namespace, key, value);
+            return null;
+        }
         Session session = getSession();
+        return update(session, getPstmUpdateStats(session), value, mapping, namespace, key);
+    }
+
+    /**
+     * Update mapping stats asynchronously.
+     *
+     * <p>If write-behind is enabled (see {@link #getStatsFlushIntervalMs()}), the update is
+     * aggregated in memory and the returned future is already completed with {@code null}.</p>
+     *
+     * @param mapping
+     * @param namespace
+     * @param key
+     * @param value
+     * @return
+     */
+    public CompletableFuture<ResultSet> updateStatsAsync(String mapping, String namespace,
+            String key, long value) {
+        if (statsFlusher != null) {
+            aggregateStats(mapping, namespace, key, value);
+            return CompletableFuture.completedFuture(null);
+        }
+        return updateAsync(getPstmUpdateStats(getSession()), value, mapping, namespace, key);
+    }
+
+    private PreparedStatement getPstmUpdateStats(Session session) {
         if (pstmUpdateStats == null) {
             pstmUpdateStats = prepareStatement(session, MessageFormat.format(CQL_UPDATE_STATS,
                     tableStats));
         }
-        return update(session, pstmUpdateStats, value, mapping, namespace, key);
+        return pstmUpdateStats;
+    }
+
+    private PreparedStatement getPstmGetAllStats(Session session) {
+        if (pstmGetAllStats == null) {
+            pstmGetAllStats = prepareStatement(session, MessageFormat.format(CQL_SELECT_ALL_STATS,
+                    tableStats));
+        }
+        return pstmGetAllStats;
+    }
+
+    private void aggregateStats(String mapping, String namespace, String key, long value) {
+        // add within compute(...) so that the update cannot race with pruning of the counter
+        statsCounters.compute(Triple.of(mapping, namespace, key), (k, counter) -> {
+            StatsCounter result = counter != null ? counter : new StatsCounter();
+            result.value.add(value);
+            return result;
+        });
+    }
+
+    /**
+     * Write aggregated stats updates to storage.
+     *
+     * <p>Counters of a flush are updated in parallel. Counter updates are not idempotent (a
+     * timed-out update may still have been applied), so a failed update is not retried: its
+     * delta is dropped and logged. Counters with nothing pending after the flush are
+     * removed.</p>
+     */
+    public void flushStats() {
+        synchronized (statsCounters) {
+            statsFlushSeq.incrementAndGet();
+            try {
+                List<Triple<String, String, String>> keys = new ArrayList<>();
+                List<Pair<StatsCounter, Long>> deltas = new ArrayList<>();
+                List<CompletableFuture<ResultSet>> futures = new ArrayList<>();
+                statsCounters.forEach((k, counter) -> {
+                    long delta = counter.pending();
+                    if (delta != 0) {
+                        keys.add(k);
+                        deltas.add(Pair.of(counter, delta));
+                        futures.add(updateAsync(getPstmUpdateStats(getSession()), delta,
+                                k.getLeft(), k.getMiddle(), k.getRight()));
+                    }
+                });
+                for (int i = 0, n = futures.size(); i < n; i++) {
+                    StatsCounter counter = deltas.get(i).getLeft();
+                    long delta = deltas.get(i).getRight();
+                    try {
+                        futures.get(i).join();
+                    } catch (Exception e) {
+                        LOGGER.error("Error flushing stats, dropped delta " + delta + " of "
+                                + keys.get(i) + ": " + e.getMessage(), e);
+                    }
+                    counter.flushed += delta;
+                }
+                keys.forEach(k -> statsCounters
+                        .computeIfPresent(k, (key, counter) -> counter.pending() != 0
+                                ? counter : null));
+            } finally {
+                statsFlushSeq.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Add pending (not yet flushed) stats updates of a mapping namespace to {@code stats}.
+     */
+    private Map<String, Long> addPendingStats(String mapping, String namespace,
+            Map<String, Long> stats) {
+        statsCounters.forEach((k, counter) -> {
+            if (k.getLeft().equals(mapping) && k.getMiddle().equals(namespace)) {
+                long pending = counter.pending();
+                if (pending != 0) {
+                    stats.merge(k.getRight(), pending, Long::sum);
+                }
+            }
+        });
+        return stats;
+    }
+
+    private static boolean isStableFlushSeq(long seqBefore, long seqAfter) {
+        return (seqBefore & 1) == 0 && seqBefore == seqAfter;
+    }
+
+    /**
+     * Number of lock-free attempts to read stats before falling back to reading while holding
+     * the flush lock.
+     */
+    private final static int MAX_STATS_READ_ATTEMPTS = 3;
+
+    private Map<String, Long> readAllStats(Session session, String mapping, String namespace) {
+        Map<String, Long> result = new HashMap<>();
+        ResultSet rs = select(session, getPstmGetAllStats(session), mapping, namespace);
+        rs.forEach(row -> result.put(row.getString(COL_KEY), row.getLong(COL_VALUE)));
+        return addPendingStats(mapping, namespace, result);
+    }
+
+    private Map<String, Long> readAllStatsLocked(String mapping, String namespace) {
+        synchronized (statsCounters) {
+            return readAllStats(getSession(), mapping, namespace);
+        }
     }
 
     /**
-     * Get all stats of a mapping namespace.
+     * Get all stats of a mapping namespace, including pending updates of this node.
      *
      * @param mapping
      * @param namespace
@@ -278,13 +802,48 @@ public class CqlDelegator {
      */
     public Map<String, Long> getAllStats(String mapping, String namespace) {
         Session session = getSession();
-        if (pstmGetAllStats == null) {
-            pstmGetAllStats = prepareStatement(session, MessageFormat.format(CQL_SELECT_ALL_STATS,
-                    tableStats));
+        for (int i = 0; i < MAX_STATS_READ_ATTEMPTS; i++) {
+            long seq = statsFlushSeq.get();
+            Map<String, Long> result = readAllStats(session, mapping, namespace);
+            if (isStableFlushSeq(seq, statsFlushSeq.get())) {
+                return result;
+            }
         }
-        Map<String, Long> result = new HashMap<>();
-        ResultSet rs = select(session, pstmGetAllStats, mapping, namespace);
-        rs.forEach(row -> result.put(row.getString(COL_KEY), row.getLong(COL_VALUE)));
-        return result;
+        return readAllStatsLocked(mapping, namespace);
+    }
+
+    /**
+     * Get all stats of a mapping namespace asynchronously, including pending updates of this
+     * node.
+     *
+     * @param mapping
+     * @param namespace
+     * @param executor
+     *         to run the (blocking) locked read on, after concurrent flushes kept interfering
+     * @return
+     */
+    public CompletableFuture<Map<String, Long>> getAllStatsAsync(String mapping,
+            String namespace, Executor executor) {
+        return getAllStatsAsync(mapping, namespace, executor, MAX_STATS_READ_ATTEMPTS);
+    }
+
+    private CompletableFuture<Map<String, Long>> getAllStatsAsync(String mapping,
+            String namespace, Executor executor, int attemptsLeft) {
+        if (attemptsLeft <= 0) {
+            return CompletableFuture.supplyAsync(() -> readAllStatsLocked(mapping, namespace),
+                    executor);
+        }
+        Session session = getSession();
+        long seq = statsFlushSeq.get();
+        return selectAsync(session, getPstmGetAllStats(session), mapping, namespace)
+                .thenCompose(rs -> {
+                    // stats partition is small, all rows are fetched within the first page
+                    Map<String, Long> result = new HashMap<>();
+                    rs.forEach(row -> result.put(row.getString(COL_KEY), row.getLong(COL_VALUE)));
+                    addPendingStats(mapping, namespace, result);
+                    return isStableFlushSeq(seq, statsFlushSeq.get())
+                            ? CompletableFuture.completedFuture(result)
+                            : getAllStatsAsync(mapping, namespace, executor, attemptsLeft - 1);
+                });
     }
 }
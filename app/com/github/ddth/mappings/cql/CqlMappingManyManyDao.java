@@ -1,18 +1,28 @@
 package com.github.ddth.mappings.cql;
 
+import com.datastax.driver.core.PagingState;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
+import com.datastax.driver.core.SimpleStatement;
 import com.datastax.driver.core.Statement;
 import com.github.ddth.cql.CqlUtils;
 import com.github.ddth.mappings.AbstractMappingManyManyDao;
-import com.github.ddth.mappings.MappingBo;
+import com.github.ddth.mappings.Mapping;
+import com.github.ddth.mappings.utils.MappingDataCodec;
 import com.github.ddth.mappings.utils.MappingsUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.nio.ByteBuffer;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * CQL-implementation of n-n mapping.
@@ -25,6 +35,7 @@ public class CqlMappingManyManyDao extends AbstractMappingManyManyDao {
     private CqlDelegator cqlDelegator;
 
     private String tableData = "mapmm_data";
+    private int fetchSize = 1000;
 
     public CqlDelegator getCqlDelegator() {
         return cqlDelegator;
@@ -44,6 +55,51 @@ public class CqlMappingManyManyDao extends AbstractMappingManyManyDao {
         return this;
     }
 
+    /**
+     * Number of rows fetched per round-trip when reading all mappings of a key (e.g.
+     * {@link #iterateMappingsForObject(String, String)}), default 1000.
+     *
+     * @return
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public CqlMappingManyManyDao setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * Partition layout of the data table, default {@link CqlTableLayout#NAMESPACE}.
+     *
+     * @return
+     */
+    public CqlTableLayout getTableLayout() {
+        return tableLayout;
+    }
+
+    public CqlMappingManyManyDao setTableLayout(CqlTableLayout tableLayout) {
+        this.tableLayout = tableLayout != null ? tableLayout : CqlTableLayout.NAMESPACE;
+        return this;
+    }
+
+    /**
+     * Number of hash-buckets per namespace, used by layout {@link CqlTableLayout#BUCKET}.
+     *
+     * <p>Note: this value must not be changed once data has been written to the table!</p>
+     *
+     * @return
+     */
+    public int getNumBuckets() {
+        return numBuckets;
+    }
+
+    public CqlMappingManyManyDao setNumBuckets(int numBuckets) {
+        this.numBuckets = numBuckets;
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -51,21 +107,42 @@ public class CqlMappingManyManyDao extends AbstractMappingManyManyDao {
     public CqlMappingManyManyDao init() {
         super.init();
 
-        pstmDeleteDataSingle = cqlDelegator
-                .prepareStatement(MessageFormat.format(CQL_DELETE_DATA_SINGLE, tableData));
-        pstmDeleteDataSingleIfExists = cqlDelegator
-                .prepareStatement(
-                        MessageFormat.format(CQL_DELETE_DATA_SINGLE_IF_EXISTS, tableData));
+        if (tableLayout.isBucketed() && numBuckets < 1) {
+            throw new IllegalStateException("Invalid number of buckets: " + numBuckets);
+        }
+        final String cols = StringUtils
+                .join(tableLayout.isBucketed() ? _COL_ALL_BUCKET : _COL_ALL, ",");
+        final String values = StringUtils.repeat("?", ",",
+                tableLayout.isBucketed() ? _COL_ALL_BUCKET.length : _COL_ALL.length);
+        final String whereSingle = StringUtils.join(
+                tableLayout.isBucketed() ? _WHERE_DATA_SINGLE_BUCKET : _WHERE_DATA_SINGLE,
+                " AND ");
+        final String whereMultiple = StringUtils.join(
+                tableLayout.isBucketed() ? _WHERE_DATA_MULTIPLE_BUCKET : _WHERE_DATA_MULTIPLE,
+                " AND ");
+
+        pstmDeleteDataSingle = cqlDelegator.prepareStatement(
+                MessageFormat.format(CQL_DELETE_DATA_SINGLE, tableData, whereSingle));
+        pstmDeleteDataSingleIfExists = cqlDelegator.prepareStatement(
+                MessageFormat.format(CQL_DELETE_DATA_SINGLE_IF_EXISTS, tableData, whereSingle));
 
         pstmInsertData = cqlDelegator
-                .prepareStatement(MessageFormat.format(CQL_INSERT_DATA, tableData));
-        pstmInsertDataIfNotExists = cqlDelegator
-                .prepareStatement(MessageFormat.format(CQL_INSERT_DATA_IF_NOT_EXISTS, tableData));
+                .prepareStatement(MessageFormat.format(CQL_INSERT_DATA, tableData, cols, values));
+        pstmInsertDataIfNotExists = cqlDelegator.prepareStatement(
+                MessageFormat.format(CQL_INSERT_DATA_IF_NOT_EXISTS, tableData, cols, values));
+
+        pstmSeleteDataSingle = cqlDelegator.prepareStatement(
+                MessageFormat.format(CQL_SELECT_DATA_SINGLE, tableData, cols, whereSingle));
+        pstmSeleteDataMultiple = cqlDelegator.prepareStatement(
+                MessageFormat.format(CQL_SELECT_DATA_MULTIPLE, tableData, cols, whereMultiple));
+        pstmCountDataMultiple = cqlDelegator.prepareStatement(
+                MessageFormat.format(CQL_COUNT_DATA_MULTIPLE, tableData, whereMultiple));
 
-        pstmSeleteDataSingle = cqlDelegator
-                .prepareStatement(MessageFormat.format(CQL_SELECT_DATA_SINGLE, tableData));
-        pstmSeleteDataMultiple = cqlDelegator
-                .prepareStatement(MessageFormat.format(CQL_SELECT_DATA_MULTIPLE, tableData));
+        if (tableLayout != CqlTableLayout.KEY) {
+            pstmSelectKeys = cqlDelegator.prepareStatement(MessageFormat.format(CQL_SELECT_KEYS,
+                    tableData, COL_NAMESPACE + "=?" + (tableLayout.isBucketed()
+                            ? " AND " + COL_BUCKET + "=?" : "")));
+        }
 
         return this;
     }
@@ -73,35 +150,87 @@ public class CqlMappingManyManyDao extends AbstractMappingManyManyDao {
     private PreparedStatement pstmDeleteDataSingle, pstmDeleteDataSingleIfExists;
     private PreparedStatement pstmInsertData, pstmInsertDataIfNotExists;
     private PreparedStatement pstmSeleteDataSingle, pstmSeleteDataMultiple;
+    private PreparedStatement pstmCountDataMultiple;
+    private PreparedStatement pstmSelectKeys;
 
     private final static String COL_NAMESPACE = "m_namespace";
+    private final static String COL_BUCKET = "m_bucket";
     private final static String COL_TYPE = "m_type";
     private final static String COL_KEY = "m_key";
     private final static String COL_VALUE = "m_value";
     private final static String COL_DATA = "m_data";
     private final static String[] _COL_ALL = {COL_NAMESPACE, COL_TYPE, COL_KEY, COL_VALUE,
             COL_DATA};
+    private final static String[] _COL_ALL_BUCKET = {COL_NAMESPACE, COL_BUCKET, COL_TYPE, COL_KEY,
+            COL_VALUE, COL_DATA};
     private final static String[] _WHERE_DATA_SINGLE = {COL_NAMESPACE + "=?", COL_TYPE + "=?",
             COL_KEY + "=?", COL_VALUE + "=?"};
+    private final static String[] _WHERE_DATA_SINGLE_BUCKET = {COL_NAMESPACE + "=?",
+            COL_BUCKET + "=?", COL_TYPE + "=?", COL_KEY + "=?", COL_VALUE + "=?"};
     private final static String[] _WHERE_DATA_MULTIPLE = {COL_NAMESPACE + "=?", COL_TYPE + "=?",
             COL_KEY + "=?"};
+    private final static String[] _WHERE_DATA_MULTIPLE_BUCKET = {COL_NAMESPACE + "=?",
+            COL_BUCKET + "=?", COL_TYPE + "=?", COL_KEY + "=?"};
 
-    private final static String CQL_DELETE_DATA_SINGLE = "DELETE FROM {0} WHERE " + StringUtils.join
-            (_WHERE_DATA_SINGLE, " AND ");
-    private final static String CQL_DELETE_DATA_SINGLE_IF_EXISTS = "DELETE FROM {0} WHERE " +
-            StringUtils.join(_WHERE_DATA_SINGLE, " AND ") + " IF EXISTS";
+    /* {0}: table name, {1}: WHERE clause */
+    private final static String CQL_DELETE_DATA_SINGLE = "DELETE FROM {0} WHERE {1}";
+    private final static String CQL_DELETE_DATA_SINGLE_IF_EXISTS = "DELETE FROM {0} WHERE {1} IF "
+            + "EXISTS";
+    /* {0}: table name, {1}: column list, {2}: value placeholders */
+    private final static String CQL_INSERT_DATA = "INSERT INTO {0} ({1}) VALUES ({2})";
+    private final static String CQL_INSERT_DATA_IF_NOT_EXISTS = "INSERT INTO {0} ({1}) VALUES "
+            + "({2}) IF NOT EXISTS";
+    /* {0}: table name, {1}: column list, {2}: WHERE clause */
+    private final static String CQL_SELECT_DATA_SINGLE = "SELECT {1} FROM {0} WHERE {2}";
+    private final static String CQL_SELECT_DATA_MULTIPLE = "SELECT {1} FROM {0} WHERE {2}";
+    /* {0}: table name, {1}: WHERE clause */
+    private final static String CQL_COUNT_DATA_MULTIPLE = "SELECT COUNT(*) FROM {0} WHERE {1}";
 
-    private final static String CQL_INSERT_DATA =
-            "INSERT INTO {0} (" + StringUtils.join(_COL_ALL, ",") + ") VALUES (" +
-                    StringUtils.repeat("?", ",", _COL_ALL.length) + ")";
-    private final static String CQL_INSERT_DATA_IF_NOT_EXISTS =
-            "INSERT INTO {0} (" + StringUtils.join(_COL_ALL, ",") + ") VALUES (" +
-                    StringUtils.repeat("?", ",", _COL_ALL.length) + ") IF NOT EXISTS";
-    private final static String CQL_SELECT_DATA_SINGLE = "SELECT " + StringUtils.join(_COL_ALL, ",")
-            + " FROM {0} WHERE " + StringUtils.join(_WHERE_DATA_SINGLE, " AND ");
-    private final static String CQL_SELECT_DATA_MULTIPLE = "SELECT " + StringUtils.join(_COL_ALL,
-            ",") + " FROM {0} WHERE " + StringUtils.join(_WHERE_DATA_MULTIPLE, " AND ");
+    private CqlTableLayout tableLayout = CqlTableLayout.NAMESPACE;
+    private int numBuckets = 64;
 
+    /**
+     * Identify the partition a data row belongs to.
+     *
+     * @param namespace
+     * @param type
+     * @param key
+     * @return
+     */
+    private String partitionId(String namespace, String type, String key) {
+        switch (tableLayout) {
+            case KEY:
+                return MappingsUtils.seEncodeAsString(namespace, type, key);
+            case BUCKET:
+                return MappingsUtils.seEncodeAsString(namespace,
+                        String.valueOf(MappingsUtils.bucket(type, key, numBuckets)));
+            default:
+                return namespace;
+        }
+    }
+
+    /**
+     * Build bind-values for a data row: {@code namespace, [bucket], type, key, others...}.
+     *
+     * @param namespace
+     * @param type
+     * @param key
+     * @param others
+     * @return
+     */
+    private Object[] dataValues(String namespace, String type, String key, Object... others) {
+        List<Object> values = new ArrayList<>(4 + others.length);
+        values.add(namespace);
+        if (tableLayout.isBucketed()) {
+            values.add(MappingsUtils.bucket(type, key, numBuckets));
+        }
+        values.add(type);
+        values.add(key);
+        for (Object v : others) {
+            values.add(v);
+        }
+        return values.toArray();
+    }
 
     public final static String DATA_TYPE_OBJ_TARGET = "obj:target";
     public final static String DATA_TYPE_TARGET_OBJ = "target:obj";
@@ -109,21 +238,20 @@ public class CqlMappingManyManyDao extends AbstractMappingManyManyDao {
     public final static String STATS_KEY_TOTAL_OBJS = "total-objs";
     public final static String STATS_KEY_TOTAL_TARGETS = "total-targets";
 
-    private MappingBo newMappingBo(Row row) {
+    private Mapping newMapping(Row row) {
         if (row != null) {
             String namespace = row.getString(COL_NAMESPACE);
             String type = row.getString(COL_TYPE);
-            String[] tokens = MappingsUtils.seDecode(row.getBytes(COL_DATA));
+            MappingDataCodec.Data data = MappingDataCodec.decode(row.getBytes(COL_DATA), false);
+            long timestamp = data != null ? data.timestamp : 0;
             if (StringUtils.equalsIgnoreCase(type, DATA_TYPE_OBJ_TARGET)) {
                 String obj = row.getString(COL_KEY);
                 String target = row.getString(COL_VALUE);
-                long timestamp = Long.parseLong(tokens[0]);
-                return MappingBo.newInstance(namespace, obj, target, timestamp);
+                return Mapping.of(namespace, obj, target, timestamp);
             } else if (StringUtils.equalsIgnoreCase(type, DATA_TYPE_TARGET_OBJ)) {
                 String target = row.getString(COL_KEY);
                 String obj = row.getString(COL_VALUE);
-                long timestamp = Long.parseLong(tokens[0]);
-                return MappingBo.newInstance(namespace, obj, target, timestamp);
+                return Mapping.of(namespace, obj, target, timestamp);
             }
         }
         return null;
@@ -141,11 +269,18 @@ public class CqlMappingManyManyDao extends AbstractMappingManyManyDao {
      * {@inheritDoc}
      */
     @Override
-    protected Collection<MappingBo> storageGetMappingsObjTargets(String namespace, String obj) {
-        Collection<MappingBo> result = new HashSet<>();
-        ResultSet rs = cqlDelegator
-                .select(pstmSeleteDataMultiple, namespace, DATA_TYPE_OBJ_TARGET, obj);
-        rs.forEach(row -> result.add(newMappingBo(row)));
+    public CompletionStage<Map<String, Long>> getStatsAsync(String namespace) {
+        return cqlDelegator.getAllStatsAsync(STATS_MAPPING, namespace, getAsyncExecutor());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Collection<Mapping> storageGetMappingsObjTargets(String namespace, String obj) {
+        Collection<Mapping> result = new HashSet<>();
+        cqlDelegator.select(selectDataStatement(namespace, DATA_TYPE_OBJ_TARGET, obj, fetchSize))
+                .forEach(row -> result.add(newMapping(row)));
         return result;
     }
 
@@ -153,14 +288,247 @@ public class CqlMappingManyManyDao extends AbstractMappingManyManyDao {
      * {@inheritDoc}
      */
     @Override
-    protected Collection<MappingBo> storageGetMappingsTargetObjs(String namespace, String target) {
-        Collection<MappingBo> result = new HashSet<>();
-        ResultSet rs = cqlDelegator
-                .select(pstmSeleteDataMultiple, namespace, DATA_TYPE_TARGET_OBJ, target);
-        rs.forEach(row -> result.add(newMappingBo(row)));
+    protected Collection<Mapping> storageGetMappingsTargetObjs(String namespace, String target) {
+        Collection<Mapping> result = new HashSet<>();
+        cqlDelegator
+                .select(selectDataStatement(namespace, DATA_TYPE_TARGET_OBJ, target, fetchSize))
+                .forEach(row -> result.add(newMapping(row)));
+        return result;
+    }
+
+    /**
+     * Build statement to select all rows of a key.
+     *
+     * @param namespace
+     * @param type
+     * @param key
+     * @param fetchSize
+     * @return
+     */
+    private Statement selectDataStatement(String namespace, String type, String key,
+            int fetchSize) {
+        Statement stm = CqlUtils
+                .bindValues(pstmSeleteDataMultiple, dataValues(namespace, type, key));
+        if (fetchSize > 0) {
+            stm.setFetchSize(fetchSize);
+        }
+        return stm;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Cursor is the driver's paging state.</p>
+     */
+    @Override
+    protected Page storageGetMappingsObjTargetsPage(String namespace, String obj, int limit,
+            String cursor) {
+        return storageGetMappingsPage(namespace, DATA_TYPE_OBJ_TARGET, obj, limit, cursor);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Cursor is the driver's paging state.</p>
+     */
+    @Override
+    protected Page storageGetMappingsTargetObjsPage(String namespace, String target, int limit,
+            String cursor) {
+        return storageGetMappingsPage(namespace, DATA_TYPE_TARGET_OBJ, target, limit, cursor);
+    }
+
+    /**
+     * Read one page (one round-trip with fetch size {@code limit}) of rows of a key.
+     */
+    private Page storageGetMappingsPage(String namespace, String type, String key, int limit,
+            String cursor) {
+        Statement stm = selectDataStatement(namespace, type, key, limit);
+        if (cursor != null) {
+            try {
+                stm.setPagingState(PagingState.fromString(cursor));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+            }
+        }
+        ResultSet rs = cqlDelegator.select(stm);
+        List<Mapping> mappings = new ArrayList<>(limit);
+        // do not iterate past the fetched rows, which would trigger fetching the next page
+        for (int n = rs.getAvailableWithoutFetching(); n > 0; n--) {
+            mappings.add(newMapping(rs.one()));
+        }
+        PagingState nextPage = rs.getExecutionInfo().getPagingState();
+        return new Page(mappings, nextPage != null ? nextPage.toString() : null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>{@code SELECT COUNT(*)} restricted to the key's rows: the count is computed by
+     * Cassandra, rows are not sent to the client.</p>
+     */
+    @Override
+    protected long storageCountMappingsObjTargets(String namespace, String obj) {
+        return storageCountMappings(namespace, DATA_TYPE_OBJ_TARGET, obj);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>See {@link #storageCountMappingsObjTargets(String, String)}.</p>
+     */
+    @Override
+    protected long storageCountMappingsTargetObjs(String namespace, String target) {
+        return storageCountMappings(namespace, DATA_TYPE_TARGET_OBJ, target);
+    }
+
+    private long storageCountMappings(String namespace, String type, String key) {
+        Row row = cqlDelegator
+                .selectOneRow(pstmCountDataMultiple, dataValues(namespace, type, key));
+        return row != null ? row.getLong(0) : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Rows are fetched page by page ({@link #getFetchSize()} rows per page) as the iterator
+     * advances.</p>
+     */
+    @Override
+    protected Iterator<Mapping> storageIterateMappingsObjTargets(String namespace, String obj) {
+        return storageIterateMappings(namespace, DATA_TYPE_OBJ_TARGET, obj);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Rows are fetched page by page ({@link #getFetchSize()} rows per page) as the iterator
+     * advances.</p>
+     */
+    @Override
+    protected Iterator<Mapping> storageIterateMappingsTargetObjs(String namespace,
+            String target) {
+        return storageIterateMappings(namespace, DATA_TYPE_TARGET_OBJ, target);
+    }
+
+    private Iterator<Mapping> storageIterateMappings(String namespace, String type, String key) {
+        Iterator<Row> rows = cqlDelegator
+                .select(selectDataStatement(namespace, type, key, fetchSize)).iterator();
+        return new Iterator<Mapping>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public Mapping next() {
+                return newMapping(rows.next());
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Objects are queried in parallel via async requests.</p>
+     */
+    @Override
+    protected Map<String, Collection<Mapping>> storageGetMappingsObjTargets(String namespace,
+            Collection<String> objs) {
+        return storageGetMappingsMultiple(namespace, DATA_TYPE_OBJ_TARGET, objs);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Targets are queried in parallel via async requests.</p>
+     */
+    @Override
+    protected Map<String, Collection<Mapping>> storageGetMappingsTargetObjs(String namespace,
+            Collection<String> targets) {
+        return storageGetMappingsMultiple(namespace, DATA_TYPE_TARGET_OBJ, targets);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Rows are converted on {@link #getAsyncExecutor()} as iterating a multi-page result set
+     * may block.</p>
+     */
+    @Override
+    protected CompletionStage<Collection<Mapping>> storageGetMappingsObjTargetsAsync(
+            String namespace, String obj) {
+        return storageGetMappingsAsync(namespace, DATA_TYPE_OBJ_TARGET, obj);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Rows are converted on {@link #getAsyncExecutor()} as iterating a multi-page result set
+     * may block.</p>
+     */
+    @Override
+    protected CompletionStage<Collection<Mapping>> storageGetMappingsTargetObjsAsync(
+            String namespace, String target) {
+        return storageGetMappingsAsync(namespace, DATA_TYPE_TARGET_OBJ, target);
+    }
+
+    private CompletionStage<Collection<Mapping>> storageGetMappingsAsync(String namespace,
+            String type, String key) {
+        return cqlDelegator.selectAsync(pstmSeleteDataMultiple, dataValues(namespace, type, key))
+                .thenApplyAsync(rs -> {
+                    Collection<Mapping> result = new HashSet<>();
+                    rs.forEach(row -> result.add(newMapping(row)));
+                    return result;
+                }, getAsyncExecutor());
+    }
+
+    private Map<String, Collection<Mapping>> storageGetMappingsMultiple(String namespace,
+            String type, Collection<String> keys) {
+        Map<String, Statement> stms = new HashMap<>();
+        keys.forEach(key -> stms.put(key, selectDataStatement(namespace, type, key, fetchSize)));
+        Map<String, Collection<Mapping>> result = new HashMap<>();
+        cqlDelegator.selectAll(stms).forEach((key, rs) -> {
+            Collection<Mapping> mappings = new HashSet<>();
+            rs.forEach(row -> mappings.add(newMapping(row)));
+            result.put(key, mappings);
+        });
         return result;
     }
 
+    /**
+     * Build statements to save mapping {@code object <-> target}.
+     *
+     * @param mappingToAdd
+     * @return
+     */
+    private Statement[] mapStatements(Mapping mappingToAdd) {
+        long now = System.currentTimeMillis();
+        ByteBuffer data = MappingDataCodec.encode(null, now);
+        final String namespace = mappingToAdd.getNamespace();
+        final String obj = mappingToAdd.getObject();
+        final String target = mappingToAdd.getTarget();
+        return new Statement[] {CqlUtils.bindValues(pstmInsertData,
+                dataValues(namespace, DATA_TYPE_OBJ_TARGET, obj, target, data)),
+                CqlUtils.bindValues(pstmInsertData,
+                        dataValues(namespace, DATA_TYPE_TARGET_OBJ, target, obj, data))};
+    }
+
+    /**
+     * Build statements to remove mapping {@code object <-> target}.
+     *
+     * @param mappingToRemove
+     * @return
+     */
+    private Statement[] unmapStatements(Mapping mappingToRemove) {
+        final String namespace = mappingToRemove.getNamespace();
+        final String obj = mappingToRemove.getObject();
+        final String target = mappingToRemove.getTarget();
+        return new Statement[] {CqlUtils.bindValues(pstmDeleteDataSingle,
+                dataValues(namespace, DATA_TYPE_OBJ_TARGET, obj, target)),
+                CqlUtils.bindValues(pstmDeleteDataSingle,
+                        dataValues(namespace, DATA_TYPE_TARGET_OBJ, target, obj))};
+    }
+
     /**
      * Save mapping {@code object <-> target} to storage.
      *
@@ -170,6 +538,8 @@ public class CqlMappingManyManyDao extends AbstractMappingManyManyDao {
      * <li>If {@code existingOT} is empty, increase stats count {@link #STATS_KEY_TOTAL_OBJS}</li>
      * <li>If {@code existingTO} is empty, increase stats count
      * {@link #STATS_KEY_TOTAL_TARGETS}</li>
+     * <li>Stats are not touched if existing mappings are unknown ({@code null}), see
+     * {@link #recomputeStats(String)}.</li>
      * </ul>
      *
      * @param mappingToAdd
@@ -178,31 +548,20 @@ public class CqlMappingManyManyDao extends AbstractMappingManyManyDao {
      * @return
      */
     @Override
-    protected MappingsUtils.DaoResult storageMap(MappingBo mappingToAdd,
-            Collection<MappingBo> existingOT, Collection<MappingBo> existingTO) {
-        long now = System.currentTimeMillis();
-        ByteBuffer data = MappingsUtils.seEncodeAsByteBuffer(String.valueOf(now));
+    protected MappingsUtils.DaoResult storageMap(Mapping mappingToAdd,
+            Collection<Mapping> existingOT, Collection<Mapping> existingTO) {
         final String namespace = mappingToAdd.getNamespace();
-        final String obj = mappingToAdd.getObject();
-        final String target = mappingToAdd.getTarget();
-
-        List<Statement> stmList = new ArrayList<>();
-        stmList.add(CqlUtils.bindValues(pstmInsertData, namespace, DATA_TYPE_OBJ_TARGET, obj,
-                target, data));
-        stmList.add(CqlUtils.bindValues(pstmInsertData, namespace, DATA_TYPE_TARGET_OBJ, target,
-                obj, data));
-        ResultSet rs = cqlDelegator.executeBatch(stmList.toArray(new Statement[0]));
+        ResultSet rs = cqlDelegator.executeBatch(mapStatements(mappingToAdd));
         if (rs.wasApplied()) {
-            if (existingOT == null || existingOT.size() == 0) {
+            if (existingOT != null && existingOT.isEmpty()) {
                 storageUpdateStats(namespace, STATS_KEY_TOTAL_OBJS, 1);
             }
-            if (existingTO == null || existingTO.size() == 0) {
+            if (existingTO != null && existingTO.isEmpty()) {
                 storageUpdateStats(namespace, STATS_KEY_TOTAL_TARGETS, 1);
             }
-            return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL,
-                    existingOT);
+            return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL);
         } else {
-            return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.ERROR, existingOT);
+            return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.ERROR);
         }
     }
 
@@ -222,33 +581,348 @@ public class CqlMappingManyManyDao extends AbstractMappingManyManyDao {
      * @return
      */
     @Override
-    protected MappingsUtils.DaoResult storageUnmap(MappingBo mappingToRemove,
-            Collection<MappingBo> existingOT, Collection<MappingBo> existingTO) {
+    protected MappingsUtils.DaoResult storageUnmap(Mapping mappingToRemove,
+            Collection<Mapping> existingOT, Collection<Mapping> existingTO) {
         final String namespace = mappingToRemove.getNamespace();
-        final String obj = mappingToRemove.getObject();
-        final String target = mappingToRemove.getTarget();
-        Statement stmDeleteObjTarget = CqlUtils.bindValues(pstmDeleteDataSingle, namespace,
-                DATA_TYPE_OBJ_TARGET, obj, target);
-        Statement stmDeleteTargetObj = CqlUtils.bindValues(pstmDeleteDataSingle, namespace,
-                DATA_TYPE_TARGET_OBJ, target, obj);
-        ResultSet rs = cqlDelegator.executeBatch(stmDeleteObjTarget, stmDeleteTargetObj);
+        ResultSet rs = cqlDelegator.executeBatch(unmapStatements(mappingToRemove));
         if (rs.wasApplied()) {
-            if (existingOT == null || existingOT.size() == 0 ||
-                    (existingOT.size() == 1 && existingOT.contains(mappingToRemove))) {
+            if (existingOT != null && (existingOT.isEmpty() ||
+                    (existingOT.size() == 1 && existingOT.contains(mappingToRemove)))) {
                 storageUpdateStats(namespace, STATS_KEY_TOTAL_OBJS, -1);
             }
-            if (existingTO == null || existingTO.size() == 0 ||
-                    (existingTO.size() == 1 && existingTO.contains(mappingToRemove))) {
+            if (existingTO != null && (existingTO.isEmpty() ||
+                    (existingTO.size() == 1 && existingTO.contains(mappingToRemove)))) {
                 storageUpdateStats(namespace, STATS_KEY_TOTAL_TARGETS, -1);
             }
-            return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL,
-                    existingOT);
+            return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL);
         } else {
-            return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.NOT_FOUND, existingOT);
+            return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.NOT_FOUND);
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Same as {@link #storageMap(Mapping, Collection, Collection)}, but batch and stats
+     * updates are executed asynchronously.</p>
+     */
+    @Override
+    protected CompletionStage<MappingsUtils.DaoResult> storageMapAsync(Mapping mappingToAdd,
+            Collection<Mapping> existingOT, Collection<Mapping> existingTO) {
+        final String namespace = mappingToAdd.getNamespace();
+        return cqlDelegator.executeBatchAsync(mapStatements(mappingToAdd)).thenCompose(rs -> {
+            if (!rs.wasApplied()) {
+                return CompletableFuture.completedFuture(new MappingsUtils.DaoResult(
+                        MappingsUtils.DaoActionStatus.ERROR));
+            }
+            List<CompletableFuture<?>> statsUpdates = new ArrayList<>();
+            if (existingOT != null && existingOT.isEmpty()) {
+                statsUpdates.add(storageUpdateStatsAsync(namespace, STATS_KEY_TOTAL_OBJS, 1));
+            }
+            if (existingTO != null && existingTO.isEmpty()) {
+                statsUpdates.add(storageUpdateStatsAsync(namespace, STATS_KEY_TOTAL_TARGETS, 1));
+            }
+            return CompletableFuture.allOf(statsUpdates.toArray(new CompletableFuture[0]))
+                    .thenApply(v -> new MappingsUtils.DaoResult(
+                            MappingsUtils.DaoActionStatus.SUCCESSFUL));
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Same as {@link #storageUnmap(Mapping, Collection, Collection)}, but batch and stats
+     * updates are executed asynchronously.</p>
+     */
+    @Override
+    protected CompletionStage<MappingsUtils.DaoResult> storageUnmapAsync(
+            Mapping mappingToRemove, Collection<Mapping> existingOT,
+            Collection<Mapping> existingTO) {
+        final String namespace = mappingToRemove.getNamespace();
+        return cqlDelegator.executeBatchAsync(unmapStatements(mappingToRemove)).thenCompose(rs -> {
+            if (!rs.wasApplied()) {
+                return CompletableFuture.completedFuture(new MappingsUtils.DaoResult(
+                        MappingsUtils.DaoActionStatus.NOT_FOUND));
+            }
+            List<CompletableFuture<?>> statsUpdates = new ArrayList<>();
+            if (existingOT != null && (existingOT.isEmpty() ||
+                    (existingOT.size() == 1 && existingOT.contains(mappingToRemove)))) {
+                statsUpdates.add(storageUpdateStatsAsync(namespace, STATS_KEY_TOTAL_OBJS, -1));
+            }
+            if (existingTO != null && (existingTO.isEmpty() ||
+                    (existingTO.size() == 1 && existingTO.contains(mappingToRemove)))) {
+                statsUpdates.add(storageUpdateStatsAsync(namespace, STATS_KEY_TOTAL_TARGETS, -1));
+            }
+            return CompletableFuture.allOf(statsUpdates.toArray(new CompletableFuture[0]))
+                    .thenApply(v -> new MappingsUtils.DaoResult(
+                            MappingsUtils.DaoActionStatus.SUCCESSFUL));
+        });
+    }
+
+    /**
+     * Save multiple mappings {@code object <-> target} to storage.
+     *
+     * <ul>
+     * <li>Insert statements are grouped by partition and sent as single-partition batches (see
+     * {@link CqlDelegator#executeBatchesByPartition(CqlDelegator.PartitionedStatements)}),
+     * instead of one logged batch per mapping.</li>
+     * <li>A mapping whose batch fails is retried as one logged batch of both directions, see
+     * {@link CqlDelegator#executeBatchesByPartition(CqlDelegator.PartitionedStatements)}.</li>
+     * <li>Stats deltas are summed up and updated once per stats key.</li>
+     * </ul>
+     *
+     * @param mappingsToAdd
+     * @param existingOTs
+     * @param existingTOs
+     * @return
+     */
+    @Override
+    protected List<MappingsUtils.DaoResult> storageMapBatch(List<Mapping> mappingsToAdd,
+            List<Collection<Mapping>> existingOTs, List<Collection<Mapping>> existingTOs) {
+        long now = System.currentTimeMillis();
+        ByteBuffer data = MappingDataCodec.encode(null, now);
+        CqlDelegator.PartitionedStatements stms = new CqlDelegator.PartitionedStatements();
+        for (int i = 0, n = mappingsToAdd.size(); i < n; i++) {
+            Mapping bo = mappingsToAdd.get(i);
+            final String namespace = bo.getNamespace();
+            final String obj = bo.getObject();
+            final String target = bo.getTarget();
+            stms.add(partitionId(namespace, DATA_TYPE_OBJ_TARGET, obj), i, CqlUtils
+                    .bindValues(pstmInsertData,
+                            dataValues(namespace, DATA_TYPE_OBJ_TARGET, obj, target, data)));
+            stms.add(partitionId(namespace, DATA_TYPE_TARGET_OBJ, target), i, CqlUtils
+                    .bindValues(pstmInsertData,
+                            dataValues(namespace, DATA_TYPE_TARGET_OBJ, target, obj, data)));
+        }
+        Set<Integer> failedItems = cqlDelegator.executeBatchesByPartition(stms);
+
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(mappingsToAdd.size());
+        Map<Pair<String, String>, Long> statsDeltas = new HashMap<>();
+        for (int i = 0, n = mappingsToAdd.size(); i < n; i++) {
+            Collection<Mapping> existingOT = existingOTs.get(i);
+            Collection<Mapping> existingTO = existingTOs.get(i);
+            if (failedItems.contains(i)) {
+                result.add(new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.ERROR));
+                continue;
+            }
+            final String namespace = mappingsToAdd.get(i).getNamespace();
+            if (existingOT != null && existingOT.isEmpty()) {
+                statsDeltas.merge(Pair.of(namespace, STATS_KEY_TOTAL_OBJS), 1L, Long::sum);
+            }
+            if (existingTO != null && existingTO.isEmpty()) {
+                statsDeltas.merge(Pair.of(namespace, STATS_KEY_TOTAL_TARGETS), 1L, Long::sum);
+            }
+            result.add(new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL));
+        }
+        statsDeltas.forEach((k, v) -> {
+            if (v.longValue() != 0) {
+                storageUpdateStats(k.getLeft(), k.getRight(), v.longValue());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Remove multiple mappings {@code object <-> target} from storage.
+     *
+     * <p>See {@link #storageMapBatch(List, List, List)}.</p>
+     *
+     * @param mappingsToRemove
+     * @param existingOTs
+     * @param existingTOs
+     * @return
+     */
+    @Override
+    protected List<MappingsUtils.DaoResult> storageUnmapBatch(List<Mapping> mappingsToRemove,
+            List<Collection<Mapping>> existingOTs, List<Collection<Mapping>> existingTOs) {
+        CqlDelegator.PartitionedStatements stms = new CqlDelegator.PartitionedStatements();
+        for (int i = 0, n = mappingsToRemove.size(); i < n; i++) {
+            Mapping bo = mappingsToRemove.get(i);
+            final String namespace = bo.getNamespace();
+            final String obj = bo.getObject();
+            final String target = bo.getTarget();
+            stms.add(partitionId(namespace, DATA_TYPE_OBJ_TARGET, obj), i, CqlUtils
+                    .bindValues(pstmDeleteDataSingle,
+                            dataValues(namespace, DATA_TYPE_OBJ_TARGET, obj, target)));
+            stms.add(partitionId(namespace, DATA_TYPE_TARGET_OBJ, target), i, CqlUtils
+                    .bindValues(pstmDeleteDataSingle,
+                            dataValues(namespace, DATA_TYPE_TARGET_OBJ, target, obj)));
+        }
+        Set<Integer> failedItems = cqlDelegator.executeBatchesByPartition(stms);
+
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(mappingsToRemove.size());
+        Map<Pair<String, String>, Long> statsDeltas = new HashMap<>();
+        for (int i = 0, n = mappingsToRemove.size(); i < n; i++) {
+            Mapping bo = mappingsToRemove.get(i);
+            Collection<Mapping> existingOT = existingOTs.get(i);
+            Collection<Mapping> existingTO = existingTOs.get(i);
+            if (failedItems.contains(i)) {
+                result.add(new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.ERROR));
+                continue;
+            }
+            if (existingOT != null && (existingOT.isEmpty() ||
+                    (existingOT.size() == 1 && existingOT.contains(bo)))) {
+                statsDeltas.merge(Pair.of(bo.getNamespace(), STATS_KEY_TOTAL_OBJS), -1L,
+                        Long::sum);
+            }
+            if (existingTO != null && (existingTO.isEmpty() ||
+                    (existingTO.size() == 1 && existingTO.contains(bo)))) {
+                statsDeltas.merge(Pair.of(bo.getNamespace(), STATS_KEY_TOTAL_TARGETS), -1L,
+                        Long::sum);
+            }
+            result.add(new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL));
+        }
+        statsDeltas.forEach((k, v) -> {
+            if (v.longValue() != 0) {
+                storageUpdateStats(k.getLeft(), k.getRight(), v.longValue());
+            }
+        });
+        return result;
+    }
+
+    private final static String CQL_SELECT_LEGACY_NAMESPACE = "SELECT {1} FROM {0} WHERE "
+            + COL_NAMESPACE + "=?";
+    private final ConcurrentMap<String, PreparedStatement> pstmSelectLegacyNamespace
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Copy all mappings of a namespace from a {@link CqlTableLayout#NAMESPACE}-layout table (e.g.
+     * the legacy {@code mapmm_data}) to this DAO's data table.
+     *
+     * <p>Rows are streamed from the source partition page by page, and re-inserted using the
+     * current layout (see {@link CqlDelegator#executeForEachRow(Statement, int,
+     * java.util.function.Function)}). Stats are not touched as they do not depend on table
+     * layout. The operation is idempotent and can be re-run safely.</p>
+     *
+     * @param srcTable
+     * @param namespace
+     * @param fetchSize
+     * @return number of rows copied
+     */
+    public long migrateNamespaceFrom(String srcTable, String namespace, int fetchSize) {
+        PreparedStatement pstmSelect = pstmSelectLegacyNamespace.computeIfAbsent(srcTable,
+                table -> cqlDelegator.prepareStatement(MessageFormat.format(
+                        CQL_SELECT_LEGACY_NAMESPACE, table, StringUtils.join(_COL_ALL, ","))));
+        Statement stm = CqlUtils.bindValues(pstmSelect, namespace);
+        return cqlDelegator.executeForEachRow(stm, fetchSize > 0 ? fetchSize : 1000, row -> {
+            String type = row.getString(COL_TYPE), key = row.getString(COL_KEY);
+            return Pair.of(partitionId(namespace, type, key), CqlUtils.bindValues(pstmInsertData,
+                    dataValues(namespace, type, key, row.getString(COL_VALUE),
+                            row.getBytes(COL_DATA))));
+        });
+    }
+
+    private final static String CQL_SELECT_KEYS = "SELECT " + COL_TYPE + "," + COL_KEY
+            + " FROM {0} WHERE {1}";
+    private final static String CQL_SELECT_DISTINCT_KEYS = "SELECT DISTINCT " + COL_NAMESPACE
+            + "," + COL_TYPE + "," + COL_KEY + " FROM {0}";
+    private final static int RECOMPUTE_FETCH_SIZE = 1000;
+
+    /**
+     * Scan distinct {@code (type, key)} of a namespace's data rows.
+     *
+     * <ul>
+     * <li>{@link CqlTableLayout#NAMESPACE}/{@link CqlTableLayout#BUCKET}: the namespace's
+     * partition(s) are scanned.</li>
+     * <li>{@link CqlTableLayout#KEY}: partition keys of the whole table are scanned (expensive).
+     * </li>
+     * </ul>
+     *
+     * @param namespace
+     * @param consumer
+     */
+    private void scanKeys(String namespace, BiConsumer<String, String> consumer) {
+        if (tableLayout == CqlTableLayout.KEY) {
+            Statement stm = new SimpleStatement(
+                    MessageFormat.format(CQL_SELECT_DISTINCT_KEYS, tableData));
+            stm.setFetchSize(RECOMPUTE_FETCH_SIZE);
+            for (Row row : cqlDelegator.select(stm)) {
+                if (StringUtils.equals(namespace, row.getString(COL_NAMESPACE))) {
+                    consumer.accept(row.getString(COL_TYPE), row.getString(COL_KEY));
+                }
+            }
+            return;
+        }
+        int numPartitions = tableLayout.isBucketed() ? numBuckets : 1;
+        for (int bucket = 0; bucket < numPartitions; bucket++) {
+            Statement stm = tableLayout.isBucketed()
+                    ? CqlUtils.bindValues(pstmSelectKeys, namespace, bucket)
+                    : CqlUtils.bindValues(pstmSelectKeys, namespace);
+            stm.setFetchSize(RECOMPUTE_FETCH_SIZE);
+            // rows are ordered by (type, key) within a partition: report distinct keys
+            String lastType = null, lastKey = null;
+            for (Row row : cqlDelegator.select(stm)) {
+                String type = row.getString(COL_TYPE), key = row.getString(COL_KEY);
+                if (!StringUtils.equals(type, lastType) || !StringUtils.equals(key, lastKey)) {
+                    consumer.accept(type, key);
+                    lastType = type;
+                    lastKey = key;
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Same scan as {@link #recomputeStats(String)}.</p>
+     */
+    @Override
+    protected void storageScanKeys(String namespace, Consumer<String> objConsumer,
+            Consumer<String> targetConsumer) {
+        scanKeys(namespace, (type, key) -> {
+            if (StringUtils.equals(type, DATA_TYPE_OBJ_TARGET)) {
+                objConsumer.accept(key);
+            } else if (StringUtils.equals(type, DATA_TYPE_TARGET_OBJ)) {
+                targetConsumer.accept(key);
+            }
+        });
+    }
+
+    /**
+     * Recompute stats {@link #STATS_KEY_TOTAL_OBJS} and {@link #STATS_KEY_TOTAL_TARGETS} of a
+     * namespace from data rows, and correct stored stats to match (e.g. periodically when
+     * {@link #isBlindWrites()} is enabled).
+     *
+     * <ul>
+     * <li>{@link CqlTableLayout#NAMESPACE}/{@link CqlTableLayout#BUCKET}: the namespace's
+     * partition(s) are scanned.</li>
+     * <li>{@link CqlTableLayout#KEY}: partition keys of the whole table are scanned (expensive).
+     * </li>
+     * </ul>
+     *
+     * <p>Note: writes happening during the scan may make the result slightly off, it will be
+     * corrected by the next run.</p>
+     *
+     * @param namespace
+     * @return the recomputed stats
+     */
+    public Map<String, Long> recomputeStats(String namespace) {
+        Map<String, Long> counts = new HashMap<>();
+        counts.put(DATA_TYPE_OBJ_TARGET, 0L);
+        counts.put(DATA_TYPE_TARGET_OBJ, 0L);
+        scanKeys(namespace, (type, key) -> counts.computeIfPresent(type, (k, v) -> v + 1));
+
+        Map<String, Long> result = new HashMap<>();
+        result.put(STATS_KEY_TOTAL_OBJS, counts.get(DATA_TYPE_OBJ_TARGET));
+        result.put(STATS_KEY_TOTAL_TARGETS, counts.get(DATA_TYPE_TARGET_OBJ));
+        Map<String, Long> current = getStats(namespace);
+        result.forEach((key, value) -> {
+            Long currentValue = current.get(key);
+            long delta = value - (currentValue != null ? currentValue.longValue() : 0);
+            if (delta != 0) {
+                storageUpdateStats(namespace, key, delta);
+            }
+        });
+        return result;
+    }
+
     private void storageUpdateStats(String namespace, String key, long value) {
         cqlDelegator.updateStats(STATS_MAPPING, namespace, key, value);
     }
+
+    private CompletableFuture<ResultSet> storageUpdateStatsAsync(String namespace, String key,
+            long value) {
+        return cqlDelegator.updateStatsAsync(STATS_MAPPING, namespace, key, value);
+    }
 }
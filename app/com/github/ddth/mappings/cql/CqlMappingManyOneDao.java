@@ -0,0 +1,471 @@
+package com.github.ddth.mappings.cql;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Statement;
+import com.github.ddth.cql.CqlUtils;
+import com.github.ddth.mappings.AbstractMappingManyOneDao;
+import com.github.ddth.mappings.Mapping;
+import com.github.ddth.mappings.utils.MappingDataCodec;
+import com.github.ddth.mappings.utils.MappingsUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * CQL-implementation of n-1 mapping.
+ *
+ * <ul>
+ * <li>Mapping {@code object -> target} is stored in table {@link #getTableObjTarget()}, one row
+ * per object: lookup is a single-row read.</li>
+ * <li>Mappings {@code target -> objects} are stored in table {@link #getTableTargetObj()}, one
+ * row per {@code (target, object)} clustered by target: lookup is a range read.</li>
+ * </ul>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class CqlMappingManyOneDao extends AbstractMappingManyOneDao {
+
+    private CqlDelegator cqlDelegator;
+
+    private String tableObjTarget = "mapmo_objtarget";
+    private String tableTargetObj = "mapmo_targetobj";
+    private int fetchSize = 1000;
+
+    public CqlDelegator getCqlDelegator() {
+        return cqlDelegator;
+    }
+
+    public CqlMappingManyOneDao setCqlDelegator(CqlDelegator cqlDelegator) {
+        this.cqlDelegator = cqlDelegator;
+        return this;
+    }
+
+    public String getTableObjTarget() {
+        return tableObjTarget;
+    }
+
+    public CqlMappingManyOneDao setTableObjTarget(String tableObjTarget) {
+        this.tableObjTarget = tableObjTarget;
+        return this;
+    }
+
+    public String getTableTargetObj() {
+        return tableTargetObj;
+    }
+
+    public CqlMappingManyOneDao setTableTargetObj(String tableTargetObj) {
+        this.tableTargetObj = tableTargetObj;
+        return this;
+    }
+
+    /**
+     * Number of rows fetched per round-trip when reading mappings {@code target -> objects},
+     * default 1000.
+     *
+     * @return
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public CqlMappingManyOneDao setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CqlMappingManyOneDao init() {
+        super.init();
+
+        pstmSelectObjTarget = cqlDelegator.prepareStatement(
+                MessageFormat.format(CQL_SELECT, tableObjTarget, StringUtils.join(_COL_OT, ","),
+                        StringUtils.join(_WHERE_OT, " AND ")));
+        pstmInsertObjTarget = cqlDelegator.prepareStatement(
+                MessageFormat.format(CQL_INSERT, tableObjTarget, StringUtils.join(_COL_OT, ","),
+                        StringUtils.repeat("?", ",", _COL_OT.length)));
+        pstmDeleteObjTarget = cqlDelegator.prepareStatement(MessageFormat
+                .format(CQL_DELETE, tableObjTarget, StringUtils.join(_WHERE_OT, " AND ")));
+
+        pstmSelectTargetObjs = cqlDelegator.prepareStatement(
+                MessageFormat.format(CQL_SELECT, tableTargetObj, StringUtils.join(_COL_TO, ","),
+                        StringUtils.join(_WHERE_TO_RANGE, " AND ")));
+        pstmInsertTargetObj = cqlDelegator.prepareStatement(
+                MessageFormat.format(CQL_INSERT, tableTargetObj, StringUtils.join(_COL_TO, ","),
+                        StringUtils.repeat("?", ",", _COL_TO.length)));
+        pstmDeleteTargetObj = cqlDelegator.prepareStatement(MessageFormat
+                .format(CQL_DELETE, tableTargetObj, StringUtils.join(_WHERE_TO, " AND ")));
+
+        pstmScanObjs = cqlDelegator.prepareStatement(
+                MessageFormat.format(CQL_SCAN_KEYS, tableObjTarget, COL_OBJECT));
+        pstmScanTargets = cqlDelegator.prepareStatement(
+                MessageFormat.format(CQL_SCAN_KEYS, tableTargetObj, COL_TARGET));
+
+        return this;
+    }
+
+    private PreparedStatement pstmSelectObjTarget, pstmInsertObjTarget, pstmDeleteObjTarget;
+    private PreparedStatement pstmSelectTargetObjs, pstmInsertTargetObj, pstmDeleteTargetObj;
+    private PreparedStatement pstmScanObjs, pstmScanTargets;
+
+    private final static String COL_NAMESPACE = "m_namespace";
+    private final static String COL_OBJECT = "m_object";
+    private final static String COL_TARGET = "m_target";
+    private final static String COL_DATA = "m_data";
+    private final static String[] _COL_OT = {COL_NAMESPACE, COL_OBJECT, COL_DATA};
+    private final static String[] _COL_TO = {COL_NAMESPACE, COL_TARGET, COL_OBJECT, COL_DATA};
+    private final static String[] _WHERE_OT = {COL_NAMESPACE + "=?", COL_OBJECT + "=?"};
+    private final static String[] _WHERE_TO = {COL_NAMESPACE + "=?", COL_TARGET + "=?",
+            COL_OBJECT + "=?"};
+    private final static String[] _WHERE_TO_RANGE = {COL_NAMESPACE + "=?", COL_TARGET + "=?"};
+
+    /* {0}: table name, {1}: column list, {2}: WHERE clause */
+    private final static String CQL_SELECT = "SELECT {1} FROM {0} WHERE {2}";
+    /* {0}: table name, {1}: column list, {2}: value placeholders */
+    private final static String CQL_INSERT = "INSERT INTO {0} ({1}) VALUES ({2})";
+    /* {0}: table name, {1}: WHERE clause */
+    private final static String CQL_DELETE = "DELETE FROM {0} WHERE {1}";
+
+    private final static String CQL_SCAN_KEYS = "SELECT {1} FROM {0} WHERE " + COL_NAMESPACE + "=?";
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Both tables are partitioned by namespace: the namespace's partition of each table is
+     * scanned.</p>
+     */
+    @Override
+    protected void storageScanKeys(String namespace, Consumer<String> objConsumer,
+            Consumer<String> targetConsumer) {
+        Statement stm = CqlUtils.bindValues(pstmScanObjs, namespace);
+        stm.setFetchSize(fetchSize);
+        cqlDelegator.select(stm).forEach(row -> objConsumer.accept(row.getString(COL_OBJECT)));
+
+        stm = CqlUtils.bindValues(pstmScanTargets, namespace);
+        stm.setFetchSize(fetchSize);
+        // rows are ordered by target within the partition: report distinct targets
+        String lastTarget = null;
+        for (Row row : cqlDelegator.select(stm)) {
+            String target = row.getString(COL_TARGET);
+            if (!StringUtils.equals(target, lastTarget)) {
+                targetConsumer.accept(target);
+                lastTarget = target;
+            }
+        }
+    }
+
+    public final static String STATS_MAPPING = "mappings-mo";
+    public final static String STATS_KEY_TOTAL_OBJS = "total-objs";
+    public final static String STATS_KEY_TOTAL_TARGETS = "total-targets";
+
+    private Mapping newMappingObjTarget(Row row) {
+        if (row == null) {
+            return null;
+        }
+        MappingDataCodec.Data data = MappingDataCodec.decode(row.getBytes(COL_DATA), true);
+        return data != null ? Mapping.of(row.getString(COL_NAMESPACE), row.getString(COL_OBJECT),
+                data.value, data.timestamp) : null;
+    }
+
+    private Mapping newMappingTargetObj(Row row) {
+        MappingDataCodec.Data data = MappingDataCodec.decode(row.getBytes(COL_DATA), false);
+        return Mapping.of(row.getString(COL_NAMESPACE), row.getString(COL_OBJECT),
+                row.getString(COL_TARGET), data != null ? data.timestamp : 0);
+    }
+
+    private Collection<Mapping> newMappingsTargetObj(ResultSet rs) {
+        Collection<Mapping> result = new HashSet<>();
+        rs.forEach(row -> result.add(newMappingTargetObj(row)));
+        return result;
+    }
+
+    private Statement selectTargetObjsStatement(String namespace, String target) {
+        Statement stm = CqlUtils.bindValues(pstmSelectTargetObjs, namespace, target);
+        if (fetchSize > 0) {
+            stm.setFetchSize(fetchSize);
+        }
+        return stm;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getStats(String namespace) {
+        return cqlDelegator.getAllStats(STATS_MAPPING, namespace);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Map<String, Long>> getStatsAsync(String namespace) {
+        return cqlDelegator.getAllStatsAsync(STATS_MAPPING, namespace, getAsyncExecutor());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Mapping storageGetMappingObjTarget(String namespace, String obj) {
+        return newMappingObjTarget(cqlDelegator.selectOneRow(pstmSelectObjTarget, namespace, obj));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Collection<Mapping> storageGetMappingsTargetObjs(String namespace, String target) {
+        return newMappingsTargetObj(cqlDelegator.select(selectTargetObjsStatement(namespace,
+                target)));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Objects are queried in parallel via async requests.</p>
+     */
+    @Override
+    protected Map<String, Mapping> storageGetMappingObjTarget(String namespace,
+            Collection<String> objs) {
+        Map<String, Statement> stms = new HashMap<>();
+        objs.forEach(
+                obj -> stms.put(obj, CqlUtils.bindValues(pstmSelectObjTarget, namespace, obj)));
+        Map<String, Mapping> result = new HashMap<>();
+        cqlDelegator.selectAll(stms)
+                .forEach((obj, rs) -> result.put(obj, newMappingObjTarget(rs.one())));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Targets are queried in parallel via async requests.</p>
+     */
+    @Override
+    protected Map<String, Collection<Mapping>> storageGetMappingsTargetObjs(String namespace,
+            Collection<String> targets) {
+        Map<String, Statement> stms = new HashMap<>();
+        targets.forEach(target -> stms.put(target, selectTargetObjsStatement(namespace, target)));
+        Map<String, Collection<Mapping>> result = new HashMap<>();
+        cqlDelegator.selectAll(stms)
+                .forEach((target, rs) -> result.put(target, newMappingsTargetObj(rs)));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected CompletionStage<Mapping> storageGetMappingObjTargetAsync(String namespace,
+            String obj) {
+        return cqlDelegator.selectOneRowAsync(pstmSelectObjTarget, namespace, obj)
+                .thenApply(this::newMappingObjTarget);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Rows are converted on {@link #getAsyncExecutor()} as iterating a multi-page result set
+     * may block.</p>
+     */
+    @Override
+    protected CompletionStage<Collection<Mapping>> storageGetMappingsTargetObjsAsync(
+            String namespace, String target) {
+        return cqlDelegator.selectAsync(pstmSelectTargetObjs, namespace, target)
+                .thenApplyAsync(this::newMappingsTargetObj, getAsyncExecutor());
+    }
+
+    /**
+     * Build statements to save mapping {@code object -> target}.
+     *
+     * @param mappingToAdd
+     * @param existingOT
+     * @return
+     */
+    private Statement[] mapStatements(Mapping mappingToAdd, Mapping existingOT) {
+        long now = System.currentTimeMillis();
+        final String namespace = mappingToAdd.getNamespace();
+        final String obj = mappingToAdd.getObject();
+        final String target = mappingToAdd.getTarget();
+        List<Statement> stmList = new ArrayList<>();
+        if (existingOT != null && !StringUtils.equals(target, existingOT.getTarget())) {
+            stmList.add(CqlUtils.bindValues(pstmDeleteTargetObj, namespace,
+                    existingOT.getTarget(), obj));
+        }
+        stmList.add(CqlUtils.bindValues(pstmInsertObjTarget, namespace, obj,
+                MappingDataCodec.encode(target, now)));
+        stmList.add(CqlUtils.bindValues(pstmInsertTargetObj, namespace, target, obj,
+                MappingDataCodec.encode(null, now)));
+        return stmList.toArray(new Statement[0]);
+    }
+
+    /**
+     * Build statements to remove mapping {@code object -> target}.
+     *
+     * @param mappingToRemove
+     * @return
+     */
+    private Statement[] unmapStatements(Mapping mappingToRemove) {
+        final String namespace = mappingToRemove.getNamespace();
+        final String obj = mappingToRemove.getObject();
+        return new Statement[] {
+                CqlUtils.bindValues(pstmDeleteObjTarget, namespace, obj),
+                CqlUtils.bindValues(pstmDeleteTargetObj, namespace, mappingToRemove.getTarget(),
+                        obj)};
+    }
+
+    /**
+     * Calculate stats deltas of a map operation.
+     *
+     * @return {@code [delta of total-objs, delta of total-targets]}
+     */
+    private static long[] mapStatsDeltas(Mapping existingOT, Collection<Mapping> existingTO,
+            Collection<Mapping> existingOldTO) {
+        long deltaObjs = existingOT == null ? 1 : 0;
+        long deltaTargets = existingTO == null || existingTO.isEmpty() ? 1 : 0;
+        if (existingOT != null && existingOldTO != null && existingOldTO.size() == 1
+                && existingOldTO.contains(existingOT)) {
+            // object was the last one of the old target
+            deltaTargets--;
+        }
+        return new long[] {deltaObjs, deltaTargets};
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <ul>
+     * <li>Remove existing {@code old-target <- object}, if any.</li>
+     * <li>Store mapping {@code object -> target}, will override any existing {@code object ->
+     * old-target}.</li>
+     * <li>Store mapping {@code target <- object}.</li>
+     * <li>All operations above are within a logged batch.</li>
+     * <li>Finally, update stats if needed.</li>
+     * </ul>
+     */
+    @Override
+    protected MappingsUtils.DaoResult storageMap(Mapping mappingToAdd, Mapping existingOT,
+            Collection<Mapping> existingTO, Collection<Mapping> existingOldTO) {
+        ResultSet rs = cqlDelegator.executeBatch(mapStatements(mappingToAdd, existingOT));
+        if (!rs.wasApplied()) {
+            return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.ERROR);
+        }
+        long[] deltas = mapStatsDeltas(existingOT, existingTO, existingOldTO);
+        if (deltas[0] != 0) {
+            storageUpdateStats(mappingToAdd.getNamespace(), STATS_KEY_TOTAL_OBJS, deltas[0]);
+        }
+        if (deltas[1] != 0) {
+            storageUpdateStats(mappingToAdd.getNamespace(), STATS_KEY_TOTAL_TARGETS, deltas[1]);
+        }
+        return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Same as {@link #storageMap(Mapping, Mapping, Collection, Collection)}, but batch and
+     * stats updates are executed asynchronously.</p>
+     */
+    @Override
+    protected CompletionStage<MappingsUtils.DaoResult> storageMapAsync(Mapping mappingToAdd,
+            Mapping existingOT, Collection<Mapping> existingTO,
+            Collection<Mapping> existingOldTO) {
+        final String namespace = mappingToAdd.getNamespace();
+        return cqlDelegator.executeBatchAsync(mapStatements(mappingToAdd, existingOT))
+                .thenCompose(rs -> {
+                    if (!rs.wasApplied()) {
+                        return CompletableFuture.completedFuture(
+                                new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.ERROR));
+                    }
+                    long[] deltas = mapStatsDeltas(existingOT, existingTO, existingOldTO);
+                    List<CompletableFuture<?>> statsUpdates = new ArrayList<>();
+                    if (deltas[0] != 0) {
+                        statsUpdates.add(storageUpdateStatsAsync(namespace, STATS_KEY_TOTAL_OBJS,
+                                deltas[0]));
+                    }
+                    if (deltas[1] != 0) {
+                        statsUpdates.add(storageUpdateStatsAsync(namespace,
+                                STATS_KEY_TOTAL_TARGETS, deltas[1]));
+                    }
+                    return CompletableFuture.allOf(statsUpdates.toArray(new CompletableFuture[0]))
+                            .thenApply(v -> new MappingsUtils.DaoResult(
+                                    MappingsUtils.DaoActionStatus.SUCCESSFUL));
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <ul>
+     * <li>Logged batch operation: remove mappings {@code object -> target} & {@code
+     * target <- object}.</li>
+     * <li>Decrease stats count {@link #STATS_KEY_TOTAL_OBJS}.</li>
+     * <li>Decrease stats count {@link #STATS_KEY_TOTAL_TARGETS} if object was the last one of
+     * the target.</li>
+     * </ul>
+     */
+    @Override
+    protected MappingsUtils.DaoResult storageUnmap(Mapping mappingToRemove,
+            Collection<Mapping> existingTO) {
+        final String namespace = mappingToRemove.getNamespace();
+        ResultSet rs = cqlDelegator.executeBatch(unmapStatements(mappingToRemove));
+        if (!rs.wasApplied()) {
+            return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.NOT_FOUND);
+        }
+        storageUpdateStats(namespace, STATS_KEY_TOTAL_OBJS, -1);
+        if (isLastOne(mappingToRemove, existingTO)) {
+            storageUpdateStats(namespace, STATS_KEY_TOTAL_TARGETS, -1);
+        }
+        return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Same as {@link #storageUnmap(Mapping, Collection)}, but batch and stats updates are
+     * executed asynchronously.</p>
+     */
+    @Override
+    protected CompletionStage<MappingsUtils.DaoResult> storageUnmapAsync(
+            Mapping mappingToRemove, Collection<Mapping> existingTO) {
+        final String namespace = mappingToRemove.getNamespace();
+        return cqlDelegator.executeBatchAsync(unmapStatements(mappingToRemove)).thenCompose(rs -> {
+            if (!rs.wasApplied()) {
+                return CompletableFuture.completedFuture(
+                        new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.NOT_FOUND));
+            }
+            List<CompletableFuture<?>> statsUpdates = new ArrayList<>();
+            statsUpdates.add(storageUpdateStatsAsync(namespace, STATS_KEY_TOTAL_OBJS, -1));
+            if (isLastOne(mappingToRemove, existingTO)) {
+                statsUpdates.add(storageUpdateStatsAsync(namespace, STATS_KEY_TOTAL_TARGETS, -1));
+            }
+            return CompletableFuture.allOf(statsUpdates.toArray(new CompletableFuture[0]))
+                    .thenApply(v -> new MappingsUtils.DaoResult(
+                            MappingsUtils.DaoActionStatus.SUCCESSFUL));
+        });
+    }
+
+    private static boolean isLastOne(Mapping m, Collection<Mapping> existingTO) {
+        return existingTO != null && (existingTO.isEmpty() ||
+                (existingTO.size() == 1 && existingTO.contains(m)));
+    }
+
+    private void storageUpdateStats(String namespace, String key, long value) {
+        cqlDelegator.updateStats(STATS_MAPPING, namespace, key, value);
+    }
+
+    private CompletableFuture<ResultSet> storageUpdateStatsAsync(String namespace, String key,
+            long value) {
+        return cqlDelegator.updateStatsAsync(STATS_MAPPING, namespace, key, value);
+    }
+}
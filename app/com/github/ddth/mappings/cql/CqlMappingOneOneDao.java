@@ -3,18 +3,25 @@ package com.github.ddth.mappings.cql;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
+import com.datastax.driver.core.SimpleStatement;
 import com.datastax.driver.core.Statement;
 import com.github.ddth.cql.CqlUtils;
 import com.github.ddth.mappings.AbstractMappingOneOneDao;
-import com.github.ddth.mappings.MappingBo;
+import com.github.ddth.mappings.Mapping;
+import com.github.ddth.mappings.utils.MappingDataCodec;
 import com.github.ddth.mappings.utils.MappingsUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
 
 import java.nio.ByteBuffer;
 import java.text.MessageFormat;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 
 /**
  * CQL-implementation of 1-1 mapping.
@@ -46,6 +53,36 @@ public class CqlMappingOneOneDao extends AbstractMappingOneOneDao {
         return this;
     }
 
+    /**
+     * Partition layout of the data table, default {@link CqlTableLayout#NAMESPACE}.
+     *
+     * @return
+     */
+    public CqlTableLayout getTableLayout() {
+        return tableLayout;
+    }
+
+    public CqlMappingOneOneDao setTableLayout(CqlTableLayout tableLayout) {
+        this.tableLayout = tableLayout != null ? tableLayout : CqlTableLayout.NAMESPACE;
+        return this;
+    }
+
+    /**
+     * Number of hash-buckets per namespace, used by layout {@link CqlTableLayout#BUCKET}.
+     *
+     * <p>Note: this value must not be changed once data has been written to the table!</p>
+     *
+     * @return
+     */
+    public int getNumBuckets() {
+        return numBuckets;
+    }
+
+    public CqlMappingOneOneDao setNumBuckets(int numBuckets) {
+        this.numBuckets = numBuckets;
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -53,73 +90,175 @@ public class CqlMappingOneOneDao extends AbstractMappingOneOneDao {
     public CqlMappingOneOneDao init() {
         super.init();
 
+        if (tableLayout.isBucketed() && numBuckets < 1) {
+            throw new IllegalStateException("Invalid number of buckets: " + numBuckets);
+        }
+        final String cols = StringUtils
+                .join(tableLayout.isBucketed() ? _COL_DATA_ALL_BUCKET : _COL_DATA_ALL, ",");
+        final String values = StringUtils.repeat("?", ",",
+                tableLayout.isBucketed() ? _COL_DATA_ALL_BUCKET.length : _COL_DATA_ALL.length);
+        final String where = StringUtils
+                .join(tableLayout.isBucketed() ? _WHERE_DATA_BUCKET : _WHERE_DATA, " AND ");
 
         pstmDeleteData = cqlDelegator
-                .prepareStatement(MessageFormat.format(CQL_DELETE_DATA, tableData));
-        pstmDeleteDataIfExists = cqlDelegator
-                .prepareStatement(MessageFormat.format(CQL_DELETE_DATA_IF_EXISTS, tableData));
+                .prepareStatement(MessageFormat.format(CQL_DELETE_DATA, tableData, where));
+        pstmDeleteDataIfExists = cqlDelegator.prepareStatement(
+                MessageFormat.format(CQL_DELETE_DATA_IF_EXISTS, tableData, where));
 
         pstmInsertData = cqlDelegator
-                .prepareStatement(MessageFormat.format(CQL_INSERT_DATA, tableData));
-        pstmInsertDataIfNotExists = cqlDelegator
-                .prepareStatement(MessageFormat.format(CQL_INSERT_DATA_IF_NOT_EXISTS, tableData));
+                .prepareStatement(MessageFormat.format(CQL_INSERT_DATA, tableData, cols, values));
+        pstmInsertDataIfNotExists = cqlDelegator.prepareStatement(
+                MessageFormat.format(CQL_INSERT_DATA_IF_NOT_EXISTS, tableData, cols, values));
 
         pstmSeleteData = cqlDelegator
-                .prepareStatement(MessageFormat.format(CQL_SELECT_DATA, tableData));
+                .prepareStatement(MessageFormat.format(CQL_SELECT_DATA, tableData, where));
+
+        if (tableLayout != CqlTableLayout.KEY) {
+            pstmScanData = cqlDelegator.prepareStatement(MessageFormat.format(CQL_SCAN_DATA,
+                    tableData) + " WHERE " + COL_DATA_NAMESPACE + "=?" + (tableLayout.isBucketed()
+                    ? " AND " + COL_DATA_BUCKET + "=?" : "") + " AND " + COL_DATA_TYPE + "=?");
+        }
 
         return this;
     }
 
     private PreparedStatement pstmDeleteData, pstmDeleteDataIfExists;
     private PreparedStatement pstmInsertData, pstmInsertDataIfNotExists;
-    private PreparedStatement pstmSeleteData;
+    private PreparedStatement pstmSeleteData, pstmScanData;
 
     private final static String COL_DATA_NAMESPACE = "m_namespace";
+    private final static String COL_DATA_BUCKET = "m_bucket";
     private final static String COL_DATA_TYPE = "m_type";
     private final static String COL_DATA_KEY = "m_key";
     private final static String COL_DATA_DATA = "m_data";
     private final static String[] _COL_DATA_ALL = {COL_DATA_NAMESPACE, COL_DATA_TYPE, COL_DATA_KEY,
             COL_DATA_DATA};
+    private final static String[] _COL_DATA_ALL_BUCKET = {COL_DATA_NAMESPACE, COL_DATA_BUCKET,
+            COL_DATA_TYPE, COL_DATA_KEY, COL_DATA_DATA};
     private final static String[] _WHERE_DATA = {COL_DATA_NAMESPACE + "=?", COL_DATA_TYPE + "=?",
             COL_DATA_KEY + "=?"};
+    private final static String[] _WHERE_DATA_BUCKET = {COL_DATA_NAMESPACE + "=?",
+            COL_DATA_BUCKET + "=?", COL_DATA_TYPE + "=?", COL_DATA_KEY + "=?"};
+
+    /* {0}: table name, {1}: WHERE clause */
+    private final static String CQL_DELETE_DATA = "DELETE FROM {0} WHERE {1}";
+    private final static String CQL_DELETE_DATA_IF_EXISTS = "DELETE FROM {0} WHERE {1} IF EXISTS";
+    private final static String CQL_SELECT_DATA = "SELECT * FROM {0} WHERE {1}";
+    /* {0}: table name, {1}: column list, {2}: value placeholders */
+    private final static String CQL_INSERT_DATA = "INSERT INTO {0} ({1}) VALUES ({2})";
+    private final static String CQL_INSERT_DATA_IF_NOT_EXISTS = "INSERT INTO {0} ({1}) VALUES "
+            + "({2}) IF NOT EXISTS";
+
+    private CqlTableLayout tableLayout = CqlTableLayout.NAMESPACE;
+    private int numBuckets = 64;
+
+    /**
+     * Identify the partition a data row belongs to.
+     *
+     * @param namespace
+     * @param type
+     * @param key
+     * @return
+     */
+    private String partitionId(String namespace, String type, String key) {
+        switch (tableLayout) {
+            case KEY:
+                return MappingsUtils.seEncodeAsString(namespace, type, key);
+            case BUCKET:
+                return MappingsUtils.seEncodeAsString(namespace,
+                        String.valueOf(MappingsUtils.bucket(type, key, numBuckets)));
+            default:
+                return namespace;
+        }
+    }
+
+    /**
+     * Build bind-values for a data row: {@code namespace, [bucket], type, key, others...}.
+     *
+     * @param namespace
+     * @param type
+     * @param key
+     * @param others
+     * @return
+     */
+    private Object[] dataValues(String namespace, String type, String key, Object... others) {
+        List<Object> values = new ArrayList<>(4 + others.length);
+        values.add(namespace);
+        if (tableLayout.isBucketed()) {
+            values.add(MappingsUtils.bucket(type, key, numBuckets));
+        }
+        values.add(type);
+        values.add(key);
+        for (Object v : others) {
+            values.add(v);
+        }
+        return values.toArray();
+    }
 
-    private final static String CQL_DELETE_DATA = "DELETE FROM {0} WHERE " + StringUtils.join
-            (_WHERE_DATA, " AND ");
-    private final static String CQL_DELETE_DATA_IF_EXISTS = "DELETE FROM {0} WHERE " + StringUtils
-            .join(_WHERE_DATA, " AND ") + " IF EXISTS";
-    private final static String CQL_INSERT_DATA =
-            "INSERT INTO {0} (" + StringUtils.join(_COL_DATA_ALL, ",")
-                    + ") VALUES (" + StringUtils.repeat("?", ",", _COL_DATA_ALL.length) + ")";
-    private final static String CQL_INSERT_DATA_IF_NOT_EXISTS =
-            "INSERT INTO {0} (" + StringUtils.join(_COL_DATA_ALL, ",")
-                    + ") VALUES (" + StringUtils.repeat("?", ",", _COL_DATA_ALL.length) +
-                    ") IF NOT EXISTS";
-    private final static String CQL_SELECT_DATA = "SELECT * FROM {0} WHERE " + StringUtils.join
-            (_WHERE_DATA, " AND ");
+    private final static String CQL_SCAN_DATA = "SELECT " + COL_DATA_NAMESPACE + ","
+            + COL_DATA_TYPE + "," + COL_DATA_KEY + "," + COL_DATA_DATA + " FROM {0}";
+    private final static int SCAN_FETCH_SIZE = 1000;
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Only {@code obj:target} rows are read, each of them carries both keys.
+     * {@link CqlTableLayout#NAMESPACE}/{@link CqlTableLayout#BUCKET}: the namespace's
+     * partition(s) are scanned; {@link CqlTableLayout#KEY}: the whole table is scanned
+     * (expensive).</p>
+     */
+    @Override
+    protected void storageScanKeys(String namespace, Consumer<String> objConsumer,
+            Consumer<String> targetConsumer) {
+        List<Statement> stms = new ArrayList<>();
+        if (tableLayout == CqlTableLayout.KEY) {
+            stms.add(new SimpleStatement(MessageFormat.format(CQL_SCAN_DATA, tableData)));
+        } else {
+            if (tableLayout.isBucketed()) {
+                for (int bucket = 0; bucket < numBuckets; bucket++) {
+                    stms.add(CqlUtils.bindValues(pstmScanData, namespace, bucket,
+                            DATA_TYPE_OBJ_TARGET));
+                }
+            } else {
+                stms.add(CqlUtils.bindValues(pstmScanData, namespace, DATA_TYPE_OBJ_TARGET));
+            }
+        }
+        for (Statement stm : stms) {
+            stm.setFetchSize(SCAN_FETCH_SIZE);
+            for (Row row : cqlDelegator.select(stm)) {
+                if (StringUtils.equals(namespace, row.getString(COL_DATA_NAMESPACE))
+                        && StringUtils.equals(DATA_TYPE_OBJ_TARGET, row.getString(COL_DATA_TYPE))) {
+                    Mapping m = newMapping(row);
+                    if (m != null) {
+                        objConsumer.accept(m.getObject());
+                        targetConsumer.accept(m.getTarget());
+                    }
+                }
+            }
+        }
+    }
 
     public final static String DATA_TYPE_OBJ_TARGET = "obj:target";
     public final static String DATA_TYPE_TARGET_OBJ = "target:obj";
     public final static String STATS_MAPPING = "mappings-oo";
     public final static String STATS_KEY_TOTAL_ITEMS = "total-items";
 
-    private MappingBo newMappingBo(Row row) {
+    private Mapping newMapping(Row row) {
         if (row == null) {
             return null;
         }
         String namespace = row.getString(COL_DATA_NAMESPACE);
         String type = row.getString(COL_DATA_TYPE);
-        String[] tokens = MappingsUtils.seDecode(row.getBytes(COL_DATA_DATA));
+        MappingDataCodec.Data data = MappingDataCodec.decode(row.getBytes(COL_DATA_DATA), true);
+        if (data == null) {
+            return null;
+        }
         if (StringUtils.equalsIgnoreCase(type, DATA_TYPE_OBJ_TARGET)) {
             String obj = row.getString(COL_DATA_KEY);
-            String target = tokens[0];
-            long timestamp = Long.parseLong(tokens[1]);
-            return MappingBo.newInstance(namespace, obj, target, timestamp);
+            return Mapping.of(namespace, obj, data.value, data.timestamp);
         } else if (StringUtils.equalsIgnoreCase(type, DATA_TYPE_TARGET_OBJ)) {
             String target = row.getString(COL_DATA_KEY);
-            String obj = tokens[0];
-            long timestamp = Long.parseLong(tokens[1]);
-            return MappingBo.newInstance(namespace, obj, target, timestamp);
+            return Mapping.of(namespace, data.value, target, data.timestamp);
         }
         return null;
     }
@@ -136,19 +275,115 @@ public class CqlMappingOneOneDao extends AbstractMappingOneOneDao {
      * {@inheritDoc}
      */
     @Override
-    protected MappingBo storageGetMappingObjTarget(String namespace, String obj) {
-        Row row = cqlDelegator.selectOneRow(pstmSeleteData, namespace, DATA_TYPE_OBJ_TARGET, obj);
-        return newMappingBo(row);
+    public CompletionStage<Map<String, Long>> getStatsAsync(String namespace) {
+        return cqlDelegator.getAllStatsAsync(STATS_MAPPING, namespace, getAsyncExecutor());
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    protected MappingBo storageGetMappingTargetObj(String namespace, String target) {
+    protected Mapping storageGetMappingObjTarget(String namespace, String obj) {
         Row row = cqlDelegator
-                .selectOneRow(pstmSeleteData, namespace, DATA_TYPE_TARGET_OBJ, target);
-        return newMappingBo(row);
+                .selectOneRow(pstmSeleteData, dataValues(namespace, DATA_TYPE_OBJ_TARGET, obj));
+        return newMapping(row);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Mapping storageGetMappingTargetObj(String namespace, String target) {
+        Row row = cqlDelegator.selectOneRow(pstmSeleteData,
+                dataValues(namespace, DATA_TYPE_TARGET_OBJ, target));
+        return newMapping(row);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Objects are queried in parallel via async requests.</p>
+     */
+    @Override
+    protected Map<String, Mapping> storageGetMappingObjTarget(String namespace,
+            Collection<String> objs) {
+        return storageGetMappingMultiple(namespace, DATA_TYPE_OBJ_TARGET, objs);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Targets are queried in parallel via async requests.</p>
+     */
+    @Override
+    protected Map<String, Mapping> storageGetMappingTargetObj(String namespace,
+            Collection<String> targets) {
+        return storageGetMappingMultiple(namespace, DATA_TYPE_TARGET_OBJ, targets);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected CompletionStage<Mapping> storageGetMappingObjTargetAsync(String namespace,
+            String obj) {
+        return cqlDelegator.selectOneRowAsync(pstmSeleteData,
+                dataValues(namespace, DATA_TYPE_OBJ_TARGET, obj)).thenApply(this::newMapping);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected CompletionStage<Mapping> storageGetMappingTargetObjAsync(String namespace,
+            String target) {
+        return cqlDelegator.selectOneRowAsync(pstmSeleteData,
+                dataValues(namespace, DATA_TYPE_TARGET_OBJ, target)).thenApply(this::newMapping);
+    }
+
+    private Map<String, Mapping> storageGetMappingMultiple(String namespace, String type,
+            Collection<String> keys) {
+        Map<String, Statement> stms = new HashMap<>();
+        keys.forEach(key -> stms.put(key,
+                CqlUtils.bindValues(pstmSeleteData, dataValues(namespace, type, key))));
+        Map<String, Mapping> result = new HashMap<>();
+        cqlDelegator.selectAll(stms).forEach((key, rs) -> result.put(key, newMapping(rs.one())));
+        return result;
+    }
+
+    /**
+     * Build statements to save mapping {@code object <-> target}.
+     *
+     * @param mappingToAdd
+     * @param existingOT
+     * @param now
+     * @return list of {@code (partition-id, row-id, statement)}
+     */
+    private List<Triple<String, String, Statement>> mapStatements(Mapping mappingToAdd,
+            Mapping existingOT, long now) {
+        final String namespace = mappingToAdd.getNamespace();
+        final String obj = mappingToAdd.getObject();
+        final String target = mappingToAdd.getTarget();
+        ByteBuffer targetTime = MappingDataCodec.encode(target, now);
+        ByteBuffer objTime = MappingDataCodec.encode(obj, now);
+
+        List<Triple<String, String, Statement>> stmList = new ArrayList<>();
+        if (existingOT != null && !StringUtils.equals(target, existingOT.getTarget())) {
+            final String oldTarget = existingOT.getTarget();
+            stmList.add(Triple.of(partitionId(namespace, DATA_TYPE_TARGET_OBJ, oldTarget),
+                    MappingsUtils.seEncodeAsString(DATA_TYPE_TARGET_OBJ, oldTarget),
+                    CqlUtils.bindValues(pstmDeleteData,
+                            dataValues(namespace, DATA_TYPE_TARGET_OBJ, oldTarget))));
+        }
+        stmList.add(Triple.of(partitionId(namespace, DATA_TYPE_OBJ_TARGET, obj),
+                MappingsUtils.seEncodeAsString(DATA_TYPE_OBJ_TARGET, obj),
+                CqlUtils.bindValues(pstmInsertData,
+                        dataValues(namespace, DATA_TYPE_OBJ_TARGET, obj, targetTime))));
+        stmList.add(Triple.of(partitionId(namespace, DATA_TYPE_TARGET_OBJ, target),
+                MappingsUtils.seEncodeAsString(DATA_TYPE_TARGET_OBJ, target),
+                CqlUtils.bindValues(pstmInsertData,
+                        dataValues(namespace, DATA_TYPE_TARGET_OBJ, target, objTime))));
+        return stmList;
     }
 
     /**
@@ -164,28 +399,15 @@ public class CqlMappingOneOneDao extends AbstractMappingOneOneDao {
      * </ul>
      */
     @Override
-    protected MappingsUtils.DaoResult storageMap(MappingBo mappingToAdd, MappingBo existingOT,
-            MappingBo existingTO) {
-        final String namespace = mappingToAdd.getNamespace();
-        final String obj = mappingToAdd.getObject();
-        final String target = mappingToAdd.getTarget();
-        long now = System.currentTimeMillis();
-        ByteBuffer targetTime = MappingsUtils.seEncodeAsByteBuffer(target, String.valueOf(now));
-        ByteBuffer objTime = MappingsUtils.seEncodeAsByteBuffer(obj, String.valueOf(now));
-
+    protected MappingsUtils.DaoResult storageMap(Mapping mappingToAdd, Mapping existingOT,
+            Mapping existingTO) {
         List<Statement> stmList = new ArrayList<>();
-        if (existingTO != null) {
-            stmList.add(CqlUtils.bindValues(pstmDeleteData, namespace, DATA_TYPE_TARGET_OBJ,
-                    existingTO.getTarget()));
-        }
-        stmList.add(CqlUtils.bindValues(pstmInsertData, namespace, DATA_TYPE_OBJ_TARGET, obj,
-                targetTime));
-        stmList.add(CqlUtils.bindValues(pstmInsertData, namespace, DATA_TYPE_TARGET_OBJ, target,
-                objTime));
+        mapStatements(mappingToAdd, existingOT, System.currentTimeMillis())
+                .forEach(t -> stmList.add(t.getRight()));
         ResultSet rs = cqlDelegator.executeBatch(stmList.toArray(new Statement[0]));
         if (rs.wasApplied()) {
             if (existingOT == null) {
-                storageUpdateStats(namespace, STATS_KEY_TOTAL_ITEMS, 1);
+                storageUpdateStats(mappingToAdd.getNamespace(), STATS_KEY_TOTAL_ITEMS, 1);
             }
             return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL);
         } else {
@@ -196,23 +418,167 @@ public class CqlMappingOneOneDao extends AbstractMappingOneOneDao {
     /**
      * {@inheritDoc}
      *
-     * <ul>
-     * <li>Remove mapping {@code object -> target}.</li>
-     * <li>Remove mapping {@code target <- object}.</li>
-     * <li>All operations above are within a logged batch.</li>
-     * <li>Finally, update stats if needed.</li>
-     * </ul>
+     * <p>Same as {@link #storageMap(Mapping, Mapping, Mapping)}, but batch and stats update
+     * are executed asynchronously.</p>
      */
     @Override
-    protected MappingsUtils.DaoResult storageUnmap(MappingBo mappingToRemove) {
+    protected CompletionStage<MappingsUtils.DaoResult> storageMapAsync(Mapping mappingToAdd,
+            Mapping existingOT, Mapping existingTO) {
+        List<Statement> stmList = new ArrayList<>();
+        mapStatements(mappingToAdd, existingOT, System.currentTimeMillis())
+                .forEach(t -> stmList.add(t.getRight()));
+        return cqlDelegator.executeBatchAsync(stmList.toArray(new Statement[0]))
+                .thenCompose(rs -> {
+                    if (!rs.wasApplied()) {
+                        return CompletableFuture.completedFuture(
+                                new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.ERROR));
+                    }
+                    MappingsUtils.DaoResult result = new MappingsUtils.DaoResult(
+                            MappingsUtils.DaoActionStatus.SUCCESSFUL);
+                    return existingOT != null ? CompletableFuture.completedFuture(result)
+                            : storageUpdateStatsAsync(mappingToAdd.getNamespace(),
+                                    STATS_KEY_TOTAL_ITEMS, 1).thenApply(v -> result);
+                });
+    }
+
+    /**
+     * Execute statements of multiple mappings, grouped by partition.
+     *
+     * <p>Statements within a batch share one write timestamp, hence a delete & an insert of a
+     * same row in one batch would conflict (delete wins). Items are split into sequential rounds
+     * so that a row is touched at most once per round.</p>
+     *
+     * @param itemStatements
+     * @return indexes of failed items
+     */
+    private Set<Integer> executeBatchesInRounds(
+            List<List<Triple<String, String, Statement>>> itemStatements) {
+        Set<Integer> failedItems = new HashSet<>();
+        CqlDelegator.PartitionedStatements round = new CqlDelegator.PartitionedStatements();
+        Set<String> touchedRows = new HashSet<>();
+        for (int i = 0, n = itemStatements.size(); i < n; i++) {
+            List<Triple<String, String, Statement>> stms = itemStatements.get(i);
+            if (stms.stream().anyMatch(t -> touchedRows.contains(t.getMiddle()))) {
+                failedItems.addAll(cqlDelegator.executeBatchesByPartition(round));
+                round = new CqlDelegator.PartitionedStatements();
+                touchedRows.clear();
+            }
+            for (Triple<String, String, Statement> t : stms) {
+                round.add(t.getLeft(), i, t.getRight());
+                touchedRows.add(t.getMiddle());
+            }
+        }
+        if (!round.isEmpty()) {
+            failedItems.addAll(cqlDelegator.executeBatchesByPartition(round));
+        }
+        return failedItems;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Statements are grouped by partition and sent as single-partition batches (see
+     * {@link CqlDelegator#executeBatchesByPartition(CqlDelegator.PartitionedStatements)}),
+     * stats delta is updated once at the end. A mapping whose batch fails is retried as one
+     * logged batch of all its statements.</p>
+     */
+    @Override
+    protected List<MappingsUtils.DaoResult> storageMapBatch(List<Mapping> mappingsToAdd,
+            List<Mapping> existingOTs, List<Mapping> existingTOs) {
+        long now = System.currentTimeMillis();
+        List<List<Triple<String, String, Statement>>> itemStatements = new ArrayList<>();
+        for (int i = 0, n = mappingsToAdd.size(); i < n; i++) {
+            itemStatements.add(mapStatements(mappingsToAdd.get(i), existingOTs.get(i), now));
+        }
+        Set<Integer> failedItems = executeBatchesInRounds(itemStatements);
+
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(mappingsToAdd.size());
+        Map<String, Long> statsDeltas = new HashMap<>();
+        for (int i = 0, n = mappingsToAdd.size(); i < n; i++) {
+            if (failedItems.contains(i)) {
+                result.add(new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.ERROR));
+            } else {
+                if (existingOTs.get(i) == null) {
+                    statsDeltas.merge(mappingsToAdd.get(i).getNamespace(), 1L, Long::sum);
+                }
+                result.add(new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL));
+            }
+        }
+        statsDeltas.forEach((namespace, v) -> {
+            if (v.longValue() != 0) {
+                storageUpdateStats(namespace, STATS_KEY_TOTAL_ITEMS, v.longValue());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Build statements to remove mapping {@code object <-> target}.
+     *
+     * @param mappingToRemove
+     * @param conditional
+     *         delete rows only if they exist ({@code IF EXISTS}), only possible with
+     *         {@link CqlTableLayout#NAMESPACE} layout as a conditional batch can not span
+     *         multiple partitions
+     * @return list of {@code (partition-id, row-id, statement)}
+     */
+    private List<Triple<String, String, Statement>> unmapStatements(Mapping mappingToRemove,
+            boolean conditional) {
         final String namespace = mappingToRemove.getNamespace();
         final String obj = mappingToRemove.getObject();
         final String target = mappingToRemove.getTarget();
-        Statement stmDeleteObjTarget = CqlUtils.bindValues(pstmDeleteDataIfExists, namespace,
-                DATA_TYPE_OBJ_TARGET, obj);
-        Statement stmDeleteTargetObj = CqlUtils.bindValues(pstmDeleteDataIfExists, namespace,
-                DATA_TYPE_TARGET_OBJ, target);
-        ResultSet rs = cqlDelegator.executeBatch(stmDeleteObjTarget, stmDeleteTargetObj);
+        PreparedStatement pstmDelete = conditional ? pstmDeleteDataIfExists : pstmDeleteData;
+        return Arrays.asList(
+                Triple.of(partitionId(namespace, DATA_TYPE_OBJ_TARGET, obj),
+                        MappingsUtils.seEncodeAsString(DATA_TYPE_OBJ_TARGET, obj),
+                        CqlUtils.bindValues(pstmDelete,
+                                dataValues(namespace, DATA_TYPE_OBJ_TARGET, obj))),
+                Triple.of(partitionId(namespace, DATA_TYPE_TARGET_OBJ, target),
+                        MappingsUtils.seEncodeAsString(DATA_TYPE_TARGET_OBJ, target),
+                        CqlUtils.bindValues(pstmDelete,
+                                dataValues(namespace, DATA_TYPE_TARGET_OBJ, target))));
+    }
+
+    private static Statement[] toStatementArray(List<Triple<String, String, Statement>> stms) {
+        return stms.stream().map(Triple::getRight).toArray(Statement[]::new);
+    }
+
+    /**
+     * Does the stored {@code object -> target} row match the mapping to remove?
+     *
+     * @param mappingToRemove
+     * @param stored
+     * @return
+     */
+    private static boolean isStored(Mapping mappingToRemove, Mapping stored) {
+        return stored != null && StringUtils.equals(mappingToRemove.getTarget(),
+                stored.getTarget());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <ul>
+     * <li>{@link CqlTableLayout#NAMESPACE}: remove mappings {@code object -> target} and
+     * {@code target <- object} within a conditional ({@code IF EXISTS}) logged batch. The
+     * mapping is reported {@code NOT_FOUND} if the batch is not applied.</li>
+     * <li>Other layouts: the {@code object -> target} row is read from storage first, the
+     * mapping is reported {@code NOT_FOUND} if it does not exist. Otherwise both rows are
+     * removed within a (non-conditional) logged batch. Note: concurrent removals of a same
+     * mapping may all report {@code SUCCESSFUL}.</li>
+     * <li>Finally, update stats if mapping was removed.</li>
+     * </ul>
+     */
+    @Override
+    protected MappingsUtils.DaoResult storageUnmap(Mapping mappingToRemove) {
+        final String namespace = mappingToRemove.getNamespace();
+        boolean conditional = tableLayout == CqlTableLayout.NAMESPACE;
+        if (!conditional && !isStored(mappingToRemove,
+                storageGetMappingObjTarget(namespace, mappingToRemove.getObject()))) {
+            return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.NOT_FOUND);
+        }
+        ResultSet rs = cqlDelegator
+                .executeBatch(toStatementArray(unmapStatements(mappingToRemove, conditional)));
         if (rs.wasApplied()) {
             storageUpdateStats(namespace, STATS_KEY_TOTAL_ITEMS, -1);
             return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL);
@@ -221,7 +587,129 @@ public class CqlMappingOneOneDao extends AbstractMappingOneOneDao {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Same as {@link #storageUnmap(Mapping)}, but pre-read, batch and stats update are
+     * executed asynchronously.</p>
+     */
+    @Override
+    protected CompletionStage<MappingsUtils.DaoResult> storageUnmapAsync(
+            Mapping mappingToRemove) {
+        final String namespace = mappingToRemove.getNamespace();
+        boolean conditional = tableLayout == CqlTableLayout.NAMESPACE;
+        CompletionStage<Boolean> stored = conditional ? CompletableFuture.completedFuture(true)
+                : storageGetMappingObjTargetAsync(namespace, mappingToRemove.getObject())
+                        .thenApply(m -> isStored(mappingToRemove, m));
+        return stored.thenCompose(exists -> !exists ? CompletableFuture.completedFuture(null)
+                : cqlDelegator.executeBatchAsync(
+                        toStatementArray(unmapStatements(mappingToRemove, conditional))))
+                .thenCompose(rs -> {
+                    if (rs == null || !rs.wasApplied()) {
+                        return CompletableFuture.completedFuture(new MappingsUtils.DaoResult(
+                                MappingsUtils.DaoActionStatus.NOT_FOUND));
+                    }
+                    return storageUpdateStatsAsync(namespace, STATS_KEY_TOTAL_ITEMS, -1)
+                            .thenApply(v -> new MappingsUtils.DaoResult(
+                                    MappingsUtils.DaoActionStatus.SUCCESSFUL));
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>{@code object -> target} rows of all mappings are read from storage first (in
+     * parallel), mappings that do not exist are reported {@code NOT_FOUND}. Statements of the
+     * remaining mappings are grouped by partition and sent as single-partition batches (see
+     * {@link CqlDelegator#executeBatchesByPartition(CqlDelegator.PartitionedStatements)}),
+     * stats delta is updated once at the end. A mapping whose batch fails is retried as one
+     * logged batch of all its statements.</p>
+     */
+    @Override
+    protected List<MappingsUtils.DaoResult> storageUnmapBatch(List<Mapping> mappingsToRemove) {
+        // pre-read object -> target rows, grouped by namespace
+        Map<String, Set<String>> objsByNamespace = new HashMap<>();
+        mappingsToRemove.forEach(bo -> objsByNamespace
+                .computeIfAbsent(bo.getNamespace(), k -> new HashSet<>()).add(bo.getObject()));
+        Map<String, Map<String, Mapping>> stored = new HashMap<>();
+        objsByNamespace.forEach((namespace, objs) -> stored
+                .put(namespace, storageGetMappingObjTarget(namespace, objs)));
+
+        List<Integer> pendingIndexes = new ArrayList<>();
+        List<List<Triple<String, String, Statement>>> itemStatements = new ArrayList<>();
+        Set<Mapping> pending = new HashSet<>();
+        for (int i = 0, n = mappingsToRemove.size(); i < n; i++) {
+            Mapping bo = mappingsToRemove.get(i);
+            if (isStored(bo, stored.get(bo.getNamespace()).get(bo.getObject()))
+                    && pending.add(bo)) {
+                pendingIndexes.add(i);
+                itemStatements.add(unmapStatements(bo, false));
+            }
+        }
+        Set<Integer> failedItems = executeBatchesInRounds(itemStatements);
+
+        MappingsUtils.DaoResult[] results = new MappingsUtils.DaoResult[mappingsToRemove.size()];
+        Map<String, Long> statsDeltas = new HashMap<>();
+        for (int i = 0, n = pendingIndexes.size(); i < n; i++) {
+            int index = pendingIndexes.get(i);
+            if (failedItems.contains(i)) {
+                results[index] = new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.ERROR);
+            } else {
+                statsDeltas.merge(mappingsToRemove.get(index).getNamespace(), -1L, Long::sum);
+                results[index] = new MappingsUtils.DaoResult(
+                        MappingsUtils.DaoActionStatus.SUCCESSFUL);
+            }
+        }
+        statsDeltas.forEach((namespace, v) -> {
+            if (v.longValue() != 0) {
+                storageUpdateStats(namespace, STATS_KEY_TOTAL_ITEMS, v.longValue());
+            }
+        });
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(results.length);
+        for (MappingsUtils.DaoResult r : results) {
+            result.add(r != null ? r
+                    : new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.NOT_FOUND));
+        }
+        return result;
+    }
+
+    private final static String CQL_SELECT_LEGACY_NAMESPACE = "SELECT {1} FROM {0} WHERE "
+            + COL_DATA_NAMESPACE + "=?";
+    private final ConcurrentMap<String, PreparedStatement> pstmSelectLegacyNamespace
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Copy all mappings of a namespace from a {@link CqlTableLayout#NAMESPACE}-layout table (e.g.
+     * the legacy {@code mapoo_data}) to this DAO's data table.
+     *
+     * <p>Rows are streamed from the source partition page by page, and re-inserted using the
+     * current layout (see {@link CqlDelegator#executeForEachRow(Statement, int,
+     * java.util.function.Function)}). Stats are not touched as they do not depend on table
+     * layout. The operation is idempotent and can be re-run safely.</p>
+     *
+     * @param srcTable
+     * @param namespace
+     * @param fetchSize
+     * @return number of rows copied
+     */
+    public long migrateNamespaceFrom(String srcTable, String namespace, int fetchSize) {
+        PreparedStatement pstmSelect = pstmSelectLegacyNamespace.computeIfAbsent(srcTable,
+                table -> cqlDelegator.prepareStatement(MessageFormat.format(
+                        CQL_SELECT_LEGACY_NAMESPACE, table, StringUtils.join(_COL_DATA_ALL, ","))));
+        Statement stm = CqlUtils.bindValues(pstmSelect, namespace);
+        return cqlDelegator.executeForEachRow(stm, fetchSize > 0 ? fetchSize : 1000, row -> {
+            String type = row.getString(COL_DATA_TYPE), key = row.getString(COL_DATA_KEY);
+            return Pair.of(partitionId(namespace, type, key), CqlUtils.bindValues(pstmInsertData,
+                    dataValues(namespace, type, key, row.getBytes(COL_DATA_DATA))));
+        });
+    }
+
     private void storageUpdateStats(String namespace, String key, long value) {
         cqlDelegator.updateStats(STATS_MAPPING, namespace, key, value);
     }
+
+    private CompletionStage<ResultSet> storageUpdateStatsAsync(String namespace, String key,
+            long value) {
+        return cqlDelegator.updateStatsAsync(STATS_MAPPING, namespace, key, value);
+    }
 }
@@ -0,0 +1,31 @@
+package com.github.ddth.mappings.cql;
+
+/**
+ * Partition layouts of CQL mapping data tables.
+ *
+ * <ul>
+ * <li>{@link #NAMESPACE}: (legacy) partition key is {@code m_namespace}, all mappings of a
+ * namespace live in one partition.</li>
+ * <li>{@link #KEY}: partition key is {@code (m_namespace, m_type, m_key)}, one partition per
+ * mapping key.</li>
+ * <li>{@link #BUCKET}: partition key is {@code (m_namespace, m_bucket)}, mappings of a namespace
+ * are spread over a fixed number of hash-buckets.</li>
+ * </ul>
+ *
+ * <p>See {@code dbschema/dbschema.cql.sql} for table definitions and migration notes.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public enum CqlTableLayout {
+    NAMESPACE, KEY, BUCKET;
+
+    /**
+     * Does the layout need the {@code m_bucket} column?
+     *
+     * @return
+     */
+    public boolean isBucketed() {
+        return this == BUCKET;
+    }
+}
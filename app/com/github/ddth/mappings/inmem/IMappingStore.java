@@ -0,0 +1,103 @@
+package com.github.ddth.mappings.inmem;
+
+import com.github.ddth.mappings.Mapping;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Local storage of mappings, backend of in-process mapping DAOs.
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public interface IMappingStore {
+
+    /**
+     * Get mappings {@code object -> targets}.
+     *
+     * @param namespace
+     * @param obj
+     * @return empty list if none
+     */
+    List<Mapping> getTargets(String namespace, String obj);
+
+    /**
+     * Get mappings {@code target -> objects}.
+     *
+     * @param namespace
+     * @param target
+     * @return empty list if none
+     */
+    List<Mapping> getObjects(String namespace, String target);
+
+    /**
+     * Count mappings {@code object -> targets}.
+     *
+     * @param namespace
+     * @param obj
+     * @return
+     */
+    int countTargets(String namespace, String obj);
+
+    /**
+     * Count mappings {@code target -> objects}.
+     *
+     * @param namespace
+     * @param target
+     * @return
+     */
+    int countObjects(String namespace, String target);
+
+    /**
+     * Number of distinct objects that have at least one mapping in a namespace.
+     *
+     * @param namespace
+     * @return
+     */
+    long totalObjects(String namespace);
+
+    /**
+     * Number of distinct targets that have at least one mapping in a namespace.
+     *
+     * @param namespace
+     * @return
+     */
+    long totalTargets(String namespace);
+
+    /**
+     * Add (or refresh timestamp of) mapping {@code object <-> target}.
+     *
+     * @param mapping
+     * @param uniqueObj
+     *         if {@code true}, other mappings of the object are removed (an object maps to at
+     *         most one target)
+     * @param uniqueTarget
+     *         if {@code true}, other mappings of the target are removed (a target is mapped by at
+     *         most one object)
+     */
+    void add(Mapping mapping, boolean uniqueObj, boolean uniqueTarget);
+
+    /**
+     * Remove mapping {@code object <-> target}.
+     *
+     * @param mapping
+     * @return {@code false} if the mapping does not exist
+     */
+    boolean remove(Mapping mapping);
+
+    /**
+     * Remove all mappings.
+     */
+    void clear();
+
+    /**
+     * Visit mappings {@code object -> targets} of all objects (e.g. to take a snapshot).
+     *
+     * <p>Each object is visited once with a consistent view of its mappings; the whole visit is
+     * not atomic, writes made meanwhile may or may not be seen.</p>
+     *
+     * @param action
+     */
+    void forEachObject(Consumer<List<Mapping>> action);
+}
@@ -0,0 +1,189 @@
+package com.github.ddth.mappings.inmem;
+
+import com.github.ddth.mappings.AbstractMappingManyManyDao;
+import com.github.ddth.mappings.Mapping;
+import com.github.ddth.mappings.utils.MappingsUtils;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * In-memory implementation of n-n mapping, for small & hot namespaces and for tests.
+ *
+ * <p>Mappings live in an {@link IMappingStore} (see {@link #getStore()}); stats are computed
+ * from its indexes. Loads are cheap, so they are not coalesced (see
+ * {@link #isSingleFlightLoads()}) and no cache is needed in front of this DAO.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class InmemMappingManyManyDao extends AbstractMappingManyManyDao {
+
+    public final static String STATS_KEY_TOTAL_OBJS = "total-objs";
+    public final static String STATS_KEY_TOTAL_TARGETS = "total-targets";
+
+    private IMappingStore store = new InmemMappingStore();
+    private File snapshotFile;
+
+    public InmemMappingManyManyDao() {
+        setSingleFlightLoads(false);
+    }
+
+    /**
+     * Storage of mappings, default an on-heap {@link InmemMappingStore}.
+     *
+     * @return
+     */
+    public IMappingStore getStore() {
+        return store;
+    }
+
+    public InmemMappingManyManyDao setStore(IMappingStore store) {
+        this.store = store != null ? store : new InmemMappingStore();
+        return this;
+    }
+
+    /**
+     * If set, mappings are loaded from this file upon {@link #init()} and saved to it upon
+     * {@link #destroy()}.
+     *
+     * @return
+     */
+    public String getSnapshotFile() {
+        return snapshotFile != null ? snapshotFile.getPath() : null;
+    }
+
+    public InmemMappingManyManyDao setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile != null ? new File(snapshotFile) : null;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InmemMappingManyManyDao init() {
+        super.init();
+        if (snapshotFile != null) {
+            InmemSnapshotter.load(store, snapshotFile);
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy() {
+        try {
+            if (snapshotFile != null) {
+                InmemSnapshotter.saveQuietly(store, snapshotFile);
+            }
+        } finally {
+            super.destroy();
+        }
+    }
+
+    /**
+     * Save all mappings to {@link #getSnapshotFile()} now.
+     */
+    public void saveSnapshot() {
+        if (snapshotFile == null) {
+            throw new IllegalStateException("Snapshot file is not set.");
+        }
+        InmemSnapshotter.save(store, snapshotFile);
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getStats(String namespace) {
+        Map<String, Long> result = new HashMap<>();
+        result.put(STATS_KEY_TOTAL_OBJS, store.totalObjects(namespace));
+        result.put(STATS_KEY_TOTAL_TARGETS, store.totalTargets(namespace));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Map<String, Long>> getStatsAsync(String namespace) {
+        return CompletableFuture.completedFuture(getStats(namespace));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Collection<Mapping> storageGetMappingsObjTargets(String namespace, String obj) {
+        return store.getTargets(namespace, obj);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Collection<Mapping> storageGetMappingsTargetObjs(String namespace, String target) {
+        return store.getObjects(namespace, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected long storageCountMappingsObjTargets(String namespace, String obj) {
+        return store.countTargets(namespace, obj);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected long storageCountMappingsTargetObjs(String namespace, String target) {
+        return store.countObjects(namespace, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected MappingsUtils.DaoResult storageMap(Mapping mappingToAdd,
+            Collection<Mapping> existingOT, Collection<Mapping> existingTO) {
+        store.add(mappingToAdd, false, false);
+        return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected MappingsUtils.DaoResult storageUnmap(Mapping mappingToRemove,
+            Collection<Mapping> existingOT, Collection<Mapping> existingTO) {
+        return new MappingsUtils.DaoResult(store.remove(mappingToRemove)
+                ? MappingsUtils.DaoActionStatus.SUCCESSFUL
+                : MappingsUtils.DaoActionStatus.NOT_FOUND);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void storageScanKeys(String namespace, Consumer<String> objConsumer,
+            Consumer<String> targetConsumer) {
+        store.forEachObject(mappings -> mappings.forEach(m -> {
+            if (namespace.equals(m.getNamespace())) {
+                objConsumer.accept(m.getObject());
+                targetConsumer.accept(m.getTarget());
+            }
+        }));
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.ddth.mappings.inmem;
+
+import com.github.ddth.mappings.AbstractMappingOneOneDao;
+import com.github.ddth.mappings.Mapping;
+import com.github.ddth.mappings.utils.MappingsUtils;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * In-memory implementation of 1-1 mapping, for small & hot namespaces and for tests.
+ *
+ * <p>Mappings live in an {@link IMappingStore} (see {@link #getStore()}); stats are computed
+ * from its indexes. Loads are cheap, so they are not coalesced (see
+ * {@link #isSingleFlightLoads()}) and no cache is needed in front of this DAO.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class InmemMappingOneOneDao extends AbstractMappingOneOneDao {
+
+    public final static String STATS_KEY_TOTAL_ITEMS = "total-items";
+
+    private IMappingStore store = new InmemMappingStore();
+    private File snapshotFile;
+
+    public InmemMappingOneOneDao() {
+        setSingleFlightLoads(false);
+    }
+
+    /**
+     * Storage of mappings, default an on-heap {@link InmemMappingStore}.
+     *
+     * @return
+     */
+    public IMappingStore getStore() {
+        return store;
+    }
+
+    public InmemMappingOneOneDao setStore(IMappingStore store) {
+        this.store = store != null ? store : new InmemMappingStore();
+        return this;
+    }
+
+    /**
+     * If set, mappings are loaded from this file upon {@link #init()} and saved to it upon
+     * {@link #destroy()}.
+     *
+     * @return
+     */
+    public String getSnapshotFile() {
+        return snapshotFile != null ? snapshotFile.getPath() : null;
+    }
+
+    public InmemMappingOneOneDao setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile != null ? new File(snapshotFile) : null;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InmemMappingOneOneDao init() {
+        super.init();
+        if (snapshotFile != null) {
+            InmemSnapshotter.load(store, snapshotFile);
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy() {
+        try {
+            if (snapshotFile != null) {
+                InmemSnapshotter.saveQuietly(store, snapshotFile);
+            }
+        } finally {
+            super.destroy();
+        }
+    }
+
+    /**
+     * Save all mappings to {@link #getSnapshotFile()} now.
+     */
+    public void saveSnapshot() {
+        if (snapshotFile == null) {
+            throw new IllegalStateException("Snapshot file is not set.");
+        }
+        InmemSnapshotter.save(store, snapshotFile);
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getStats(String namespace) {
+        return Collections.singletonMap(STATS_KEY_TOTAL_ITEMS, store.totalObjects(namespace));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Map<String, Long>> getStatsAsync(String namespace) {
+        return CompletableFuture.completedFuture(getStats(namespace));
+    }
+
+    private static Mapping first(List<Mapping> mappings) {
+        return mappings.isEmpty() ? null : mappings.get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Mapping storageGetMappingObjTarget(String namespace, String obj) {
+        return first(store.getTargets(namespace, obj));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Mapping storageGetMappingTargetObj(String namespace, String target) {
+        return first(store.getObjects(namespace, target));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Existing mappings of both the object and the target are replaced.</p>
+     */
+    @Override
+    protected MappingsUtils.DaoResult storageMap(Mapping mappingToAdd, Mapping existingOT,
+            Mapping existingTO) {
+        store.add(mappingToAdd, true, true);
+        return new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected MappingsUtils.DaoResult storageUnmap(Mapping mappingToRemove) {
+        return new MappingsUtils.DaoResult(store.remove(mappingToRemove)
+                ? MappingsUtils.DaoActionStatus.SUCCESSFUL
+                : MappingsUtils.DaoActionStatus.NOT_FOUND);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void storageScanKeys(String namespace, Consumer<String> objConsumer,
+            Consumer<String> targetConsumer) {
+        store.forEachObject(mappings -> mappings.forEach(m -> {
+            if (namespace.equals(m.getNamespace())) {
+                objConsumer.accept(m.getObject());
+                targetConsumer.accept(m.getTarget());
+            }
+        }));
+    }
+}
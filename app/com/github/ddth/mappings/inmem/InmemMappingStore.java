@@ -0,0 +1,312 @@
+package com.github.ddth.mappings.inmem;
+
+import com.github.ddth.mappings.Mapping;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * On-heap {@link IMappingStore}.
+ *
+ * <ul>
+ * <li>Objects and targets are dictionary-encoded to {@code int} ids.</li>
+ * <li>Each namespace holds two concurrent hash indexes {@code object -> targets} and
+ * {@code target -> objects}, an entry is an immutable sorted {@code int[]} of ids with a parallel
+ * {@code long[]} of timestamps.</li>
+ * <li>Reads are lock-free; writes are serialized per namespace and replace entries
+ * copy-on-write.</li>
+ * </ul>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class InmemMappingStore implements IMappingStore {
+
+    /**
+     * Immutable adjacency list of a key: ids sorted ascending, with their timestamps.
+     */
+    private final static class Edges {
+        private final static Edges EMPTY = new Edges(new int[0], new long[0]);
+
+        private final int[] ids;
+        private final long[] timestamps;
+
+        private Edges(int[] ids, long[] timestamps) {
+            this.ids = ids;
+            this.timestamps = timestamps;
+        }
+
+        private int indexOf(int id) {
+            return Arrays.binarySearch(ids, id);
+        }
+
+        private Edges with(int id, long timestamp) {
+            int i = indexOf(id);
+            if (i >= 0) {
+                long[] newTimestamps = timestamps.clone();
+                newTimestamps[i] = timestamp;
+                return new Edges(ids, newTimestamps);
+            }
+            i = -i - 1;
+            int[] newIds = new int[ids.length + 1];
+            long[] newTimestamps = new long[ids.length + 1];
+            System.arraycopy(ids, 0, newIds, 0, i);
+            System.arraycopy(timestamps, 0, newTimestamps, 0, i);
+            newIds[i] = id;
+            newTimestamps[i] = timestamp;
+            System.arraycopy(ids, i, newIds, i + 1, ids.length - i);
+            System.arraycopy(timestamps, i, newTimestamps, i + 1, ids.length - i);
+            return new Edges(newIds, newTimestamps);
+        }
+
+        /**
+         * @return {@code null} if the result is empty
+         */
+        private Edges without(int id) {
+            int i = indexOf(id);
+            if (i < 0) {
+                return this;
+            }
+            if (ids.length == 1) {
+                return null;
+            }
+            int[] newIds = new int[ids.length - 1];
+            long[] newTimestamps = new long[ids.length - 1];
+            System.arraycopy(ids, 0, newIds, 0, i);
+            System.arraycopy(timestamps, 0, newTimestamps, 0, i);
+            System.arraycopy(ids, i + 1, newIds, i, ids.length - i - 1);
+            System.arraycopy(timestamps, i + 1, newTimestamps, i, ids.length - i - 1);
+            return new Edges(newIds, newTimestamps);
+        }
+    }
+
+    private final static class Namespace {
+        private final ConcurrentMap<Integer, Edges> objTargets = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Integer, Edges> targetObjs = new ConcurrentHashMap<>();
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    private final ConcurrentMap<String, Integer> dictIds = new ConcurrentHashMap<>();
+    private volatile String[] dictStrings = new String[1024];
+    private int dictSize = 0;
+
+    private final ConcurrentMap<String, Namespace> namespaces = new ConcurrentHashMap<>();
+
+    /**
+     * Dictionary-encode a string, assign a new id if needed.
+     *
+     * @param str
+     * @return
+     */
+    private int encode(String str) {
+        Integer id = dictIds.get(str);
+        if (id != null) {
+            return id.intValue();
+        }
+        synchronized (dictIds) {
+            id = dictIds.get(str);
+            if (id == null) {
+                String[] strings = dictStrings;
+                if (dictSize >= strings.length) {
+                    strings = Arrays.copyOf(strings, strings.length * 2);
+                }
+                strings[dictSize] = str;
+                // publish the array before the id, readers look up id first
+                dictStrings = strings;
+                id = dictSize++;
+                dictIds.put(str, id);
+            }
+            return id.intValue();
+        }
+    }
+
+    /**
+     * Look up id of an encoded string.
+     *
+     * @param str
+     * @return {@code -1} if the string is unknown
+     */
+    private int lookup(String str) {
+        Integer id = str != null ? dictIds.get(str) : null;
+        return id != null ? id.intValue() : -1;
+    }
+
+    private String decode(int id) {
+        return dictStrings[id];
+    }
+
+    private Edges edges(ConcurrentMap<Integer, Edges> index, int id) {
+        return id >= 0 ? index.get(id) : null;
+    }
+
+    private List<Mapping> toMappings(String namespace, int keyId, Edges edges,
+            boolean keyIsObject) {
+        if (edges == null) {
+            return Collections.emptyList();
+        }
+        String key = decode(keyId);
+        List<Mapping> result = new ArrayList<>(edges.ids.length);
+        for (int i = 0; i < edges.ids.length; i++) {
+            String other = decode(edges.ids[i]);
+            result.add(keyIsObject
+                    ? Mapping.of(namespace, key, other, edges.timestamps[i])
+                    : Mapping.of(namespace, other, key, edges.timestamps[i]));
+        }
+        return result;
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Mapping> getTargets(String namespace, String obj) {
+        Namespace ns = namespaces.get(namespace);
+        int id = lookup(obj);
+        return ns != null ? toMappings(namespace, id, edges(ns.objTargets, id), true)
+                : Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Mapping> getObjects(String namespace, String target) {
+        Namespace ns = namespaces.get(namespace);
+        int id = lookup(target);
+        return ns != null ? toMappings(namespace, id, edges(ns.targetObjs, id), false)
+                : Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int countTargets(String namespace, String obj) {
+        Namespace ns = namespaces.get(namespace);
+        Edges edges = ns != null ? edges(ns.objTargets, lookup(obj)) : null;
+        return edges != null ? edges.ids.length : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int countObjects(String namespace, String target) {
+        Namespace ns = namespaces.get(namespace);
+        Edges edges = ns != null ? edges(ns.targetObjs, lookup(target)) : null;
+        return edges != null ? edges.ids.length : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long totalObjects(String namespace) {
+        Namespace ns = namespaces.get(namespace);
+        return ns != null ? ns.objTargets.size() : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long totalTargets(String namespace) {
+        Namespace ns = namespaces.get(namespace);
+        return ns != null ? ns.targetObjs.size() : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(Mapping mapping, boolean uniqueObj, boolean uniqueTarget) {
+        Namespace ns = namespaces.computeIfAbsent(mapping.getNamespace(), k -> new Namespace());
+        int obj = encode(mapping.getObject());
+        int target = encode(mapping.getTarget());
+        synchronized (ns) {
+            if (uniqueObj) {
+                Edges old = ns.objTargets.get(obj);
+                for (int i = 0; old != null && i < old.ids.length; i++) {
+                    if (old.ids[i] != target) {
+                        removeEdge(ns, obj, old.ids[i]);
+                    }
+                }
+            }
+            if (uniqueTarget) {
+                Edges old = ns.targetObjs.get(target);
+                for (int i = 0; old != null && i < old.ids.length; i++) {
+                    if (old.ids[i] != obj) {
+                        removeEdge(ns, old.ids[i], target);
+                    }
+                }
+            }
+            long timestamp = mapping.getTimestamp();
+            ns.objTargets.put(obj, ns.objTargets.getOrDefault(obj, Edges.EMPTY)
+                    .with(target, timestamp));
+            ns.targetObjs.put(target, ns.targetObjs.getOrDefault(target, Edges.EMPTY)
+                    .with(obj, timestamp));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(Mapping mapping) {
+        Namespace ns = namespaces.get(mapping.getNamespace());
+        int obj = lookup(mapping.getObject());
+        int target = lookup(mapping.getTarget());
+        if (ns == null || obj < 0 || target < 0) {
+            return false;
+        }
+        synchronized (ns) {
+            return removeEdge(ns, obj, target);
+        }
+    }
+
+    private boolean removeEdge(Namespace ns, int obj, int target) {
+        Edges ot = ns.objTargets.get(obj);
+        if (ot == null || ot.indexOf(target) < 0) {
+            return false;
+        }
+        replace(ns.objTargets, obj, ot.without(target));
+        Edges to = ns.targetObjs.get(target);
+        if (to != null) {
+            replace(ns.targetObjs, target, to.without(obj));
+        }
+        return true;
+    }
+
+    private static void replace(ConcurrentMap<Integer, Edges> index, int id, Edges edges) {
+        if (edges != null) {
+            index.put(id, edges);
+        } else {
+            index.remove(id);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        namespaces.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEachObject(Consumer<List<Mapping>> action) {
+        namespaces.forEach((namespace, ns) -> ns.objTargets
+                .forEach((obj, edges) -> action.accept(toMappings(namespace, obj, edges, true))));
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.ddth.mappings.inmem;
+
+import com.github.ddth.mappings.Mapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Saves/loads content of an {@link IMappingStore} to/from a snapshot file.
+ *
+ * <p>Format: {@code [magic][version]} followed by one block per object
+ * {@code [true][namespace][object][num targets]([target][timestamp])*}, terminated by
+ * {@code [false]}.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+class InmemSnapshotter {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(InmemSnapshotter.class);
+
+    private final static int SNAPSHOT_MAGIC = 0x4D415053; // "MAPS"
+    private final static int SNAPSHOT_VERSION = 1;
+
+    /**
+     * Save all mappings of a store to a snapshot file.
+     *
+     * <p>The snapshot is written to a temp file which then replaces {@code file}, so that a
+     * crash never leaves a partially written snapshot.</p>
+     *
+     * @param store
+     * @param file
+     */
+    static void save(IMappingStore store, File file) {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null) {
+            dir.mkdirs();
+        }
+        File tmp = new File(dir, file.getName() + ".tmp");
+        long[] numMappings = {0};
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                store.forEachObject(mappings -> {
+                    try {
+                        writeObject(out, mappings);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    numMappings[0] += mappings.size();
+                });
+                out.writeBoolean(false);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        LOGGER.info("Saved " + numMappings[0] + " mapping(s) to snapshot [" + file + "].");
+    }
+
+    /**
+     * Same as {@link #save(IMappingStore, File)}, but errors are logged and swallowed (e.g.
+     * upon shutdown).
+     *
+     * @param store
+     * @param file
+     */
+    static void saveQuietly(IMappingStore store, File file) {
+        try {
+            save(store, file);
+        } catch (Exception e) {
+            LOGGER.error("Cannot save snapshot [" + file + "]: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Load mappings from a snapshot file into a store, existing mappings are replaced. Nothing
+     * is done if the file does not exist.
+     *
+     * @param store
+     * @param file
+     */
+    static void load(IMappingStore store, File file) {
+        if (!file.exists()) {
+            return;
+        }
+        store.clear();
+        long numMappings = 0;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Invalid or unsupported snapshot file [" + file + "].");
+            }
+            while (in.readBoolean()) {
+                String namespace = readString(in);
+                String obj = readString(in);
+                for (int numTargets = in.readInt(); numTargets > 0; numTargets--) {
+                    String target = readString(in);
+                    store.add(Mapping.of(namespace, obj, target, in.readLong()), false, false);
+                    numMappings++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        LOGGER.info("Loaded " + numMappings + " mapping(s) from snapshot [" + file + "].");
+    }
+
+    private static void writeObject(DataOutputStream out, List<Mapping> mappings)
+            throws IOException {
+        if (mappings.isEmpty()) {
+            return;
+        }
+        Mapping first = mappings.get(0);
+        out.writeBoolean(true);
+        writeString(out, first.getNamespace());
+        writeString(out, first.getObject());
+        out.writeInt(mappings.size());
+        for (Mapping m : mappings) {
+            writeString(out, m.getTarget());
+            out.writeLong(m.getTimestamp());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] data = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+}
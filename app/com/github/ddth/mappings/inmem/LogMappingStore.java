@@ -0,0 +1,538 @@
+package com.github.ddth.mappings.inmem;
+
+import com.github.ddth.mappings.Mapping;
+import com.github.ddth.mappings.utils.MappingDataCodec;
+import com.github.ddth.mappings.utils.MappingsUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * File-backed {@link IMappingStore}: the current state is held by an in-process index store
+ * (see {@link #getIndex()}) that serves all reads, every write applied to the index is then
+ * appended to a log of memory-mapped segment files.
+ *
+ * <ul>
+ * <li>Log records: {@code [payload length: 4][crc32 of payload: 4][payload]}, payload is
+ * {@code [op: 1][flags: 1][timestamp: 8][namespace][object][target]} (strings are
+ * varint-length-prefixed utf-8). Segments are pre-allocated and zero-filled, a zero length marks
+ * the end of a segment.</li>
+ * <li>Checkpoint: the log is rolled to a new segment, the index is saved to a snapshot named
+ * after that segment, then older segments and snapshots are deleted. Checkpoints are taken in
+ * background once {@link #getCompactionThreshold()} bytes have been appended, and upon
+ * {@link #destroy()}.</li>
+ * <li>Startup loads the latest checkpoint and replays the log from there; a torn record at the
+ * tail (crash in the middle of a write) is discarded.</li>
+ * </ul>
+ *
+ * <p>Snapshots do not block writes: a snapshot may contain writes made after its segment was
+ * started, which is harmless since replaying those writes again yields the same state.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class LogMappingStore implements IMappingStore {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(LogMappingStore.class);
+
+    private final static byte OP_ADD = 1;
+    private final static byte OP_REMOVE = 2;
+    private final static byte OP_CLEAR = 3;
+
+    private final static int FLAG_UNIQUE_OBJ = 0x01;
+    private final static int FLAG_UNIQUE_TARGET = 0x02;
+
+    private final static String SEGMENT_FORMAT = "log-%016d.seg";
+    private final static Pattern SEGMENT_PATTERN = Pattern.compile("^log-(\\d+)\\.seg$");
+    private final static String CHECKPOINT_FORMAT = "checkpoint-%016d.snapshot";
+    private final static Pattern CHECKPOINT_PATTERN = Pattern
+            .compile("^checkpoint-(\\d+)\\.snapshot$");
+
+    private String dataDir = "./data/mappings";
+    private int segmentSize = 64 * 1024 * 1024;
+    private long syncIntervalMs = 1000;
+    private long compactionThreshold = 256 * 1024 * 1024;
+    private IMappingStore index = new InmemMappingStore();
+
+    /**
+     * Directory of log segments and checkpoints, default {@code ./data/mappings}.
+     *
+     * @return
+     */
+    public String getDataDir() {
+        return dataDir;
+    }
+
+    public LogMappingStore setDataDir(String dataDir) {
+        this.dataDir = dataDir;
+        return this;
+    }
+
+    /**
+     * Size (in bytes) of each log segment, default 64MB.
+     *
+     * @return
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public LogMappingStore setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+        return this;
+    }
+
+    /**
+     * Interval (in milliseconds) to flush written log to disk, default 1000. {@code 0} or
+     * negative flushes upon every write.
+     *
+     * @return
+     */
+    public long getSyncIntervalMs() {
+        return syncIntervalMs;
+    }
+
+    public LogMappingStore setSyncIntervalMs(long syncIntervalMs) {
+        this.syncIntervalMs = syncIntervalMs;
+        return this;
+    }
+
+    /**
+     * Take a checkpoint (and drop older log segments) once this number of bytes have been
+     * appended since the last one, default 256MB. {@code 0} or negative disables background
+     * checkpoints.
+     *
+     * @return
+     */
+    public long getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    public LogMappingStore setCompactionThreshold(long compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+        return this;
+    }
+
+    /**
+     * In-process store holding the current state, default an {@link InmemMappingStore}.
+     *
+     * @return
+     */
+    public IMappingStore getIndex() {
+        return index;
+    }
+
+    public LogMappingStore setIndex(IMappingStore index) {
+        this.index = index != null ? index : new InmemMappingStore();
+        return this;
+    }
+
+    private File dir;
+    private ScheduledExecutorService maintenance;
+
+    /* guards the fields below, serializes writes */
+    private final Object writeLock = new Object();
+    private MappedByteBuffer segment;
+    private long segmentSeq;
+    private boolean dirty;
+    private long appendedBytes;
+
+    private final Object checkpointLock = new Object();
+
+    public LogMappingStore init() {
+        dir = new File(dataDir);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("Cannot create directory [" + dir + "].");
+        }
+        synchronized (writeLock) {
+            recover();
+        }
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "mapping-log-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = syncIntervalMs > 0 ? syncIntervalMs : 1000;
+        maintenance.scheduleWithFixedDelay(() -> {
+            try {
+                maintain();
+            } catch (Exception e) {
+                LOGGER.warn(e.getMessage(), e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    public void destroy() {
+        if (maintenance != null) {
+            try {
+                maintenance.shutdown();
+                maintenance.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                maintenance = null;
+            }
+        }
+        if (segment != null) {
+            try {
+                // leave a short log to replay upon next startup
+                checkpoint();
+            } catch (Exception e) {
+                LOGGER.warn(e.getMessage(), e);
+            }
+            synchronized (writeLock) {
+                segment.force();
+                segment = null;
+            }
+        }
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    private static TreeMap<Long, File> listFiles(File dir, Pattern pattern) {
+        TreeMap<Long, File> result = new TreeMap<>();
+        File[] files = dir.listFiles();
+        for (File f : files != null ? files : new File[0]) {
+            Matcher m = pattern.matcher(f.getName());
+            if (m.matches()) {
+                result.put(Long.parseLong(m.group(1)), f);
+            }
+        }
+        return result;
+    }
+
+    private static MappedByteBuffer map(File file, long size) {
+        try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return fc.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Load latest checkpoint and replay the log, must be called within {@link #writeLock}.
+     */
+    private void recover() {
+        TreeMap<Long, File> checkpoints = listFiles(dir, CHECKPOINT_PATTERN);
+        long fromSeq = 0;
+        if (checkpoints.isEmpty()) {
+            index.clear();
+        } else {
+            fromSeq = checkpoints.lastKey();
+            InmemSnapshotter.load(index, checkpoints.lastEntry().getValue());
+        }
+        TreeMap<Long, File> segments = listFiles(dir, SEGMENT_PATTERN);
+        long numRecords = 0;
+        for (Map.Entry<Long, File> e : segments.entrySet()) {
+            if (e.getKey() < fromSeq) {
+                continue;
+            }
+            File file = e.getValue();
+            // only the last segment is appended to: older ones are mapped as they are
+            MappedByteBuffer buf = map(file, e.getKey().equals(segments.lastKey())
+                    ? Math.max(file.length(), segmentSize) : file.length());
+            numRecords += replay(buf, file);
+            segment = buf;
+            segmentSeq = e.getKey();
+        }
+        if (segment == null) {
+            segmentSeq = fromSeq;
+            segment = map(new File(dir, String.format(SEGMENT_FORMAT, segmentSeq)),
+                    segmentSize);
+        }
+        appendedBytes = 0;
+        LOGGER.info("Recovered mapping log [" + dir + "]: checkpoint " + fromSeq + ", "
+                + numRecords + " record(s) replayed.");
+    }
+
+    /**
+     * Replay records of a segment, leave its position after the last valid record.
+     */
+    private long replay(MappedByteBuffer buf, File file) {
+        long numRecords = 0;
+        CRC32 crc = new CRC32();
+        while (buf.remaining() >= 8) {
+            int start = buf.position();
+            int length = buf.getInt();
+            if (length == 0) {
+                ((Buffer) buf).position(start);
+                return numRecords;
+            }
+            int checksum = buf.getInt();
+            if (length < 0 || length > buf.remaining()) {
+                truncate(buf, start, file);
+                return numRecords;
+            }
+            byte[] payload = new byte[length];
+            buf.get(payload);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                truncate(buf, start, file);
+                return numRecords;
+            }
+            apply(ByteBuffer.wrap(payload));
+            numRecords++;
+        }
+        return numRecords;
+    }
+
+    private void truncate(MappedByteBuffer buf, int position, File file) {
+        LOGGER.warn("Discarding torn log tail of [" + file + "] at offset " + position + ".");
+        for (int i = position; i < buf.limit(); i++) {
+            buf.put(i, (byte) 0);
+        }
+        ((Buffer) buf).position(position);
+    }
+
+    private void apply(ByteBuffer payload) {
+        byte op = payload.get();
+        int flags = payload.get();
+        long timestamp = payload.getLong();
+        Mapping mapping = Mapping.of(readString(payload), readString(payload),
+                readString(payload), timestamp);
+        switch (op) {
+        case OP_ADD:
+            index.add(mapping, (flags & FLAG_UNIQUE_OBJ) != 0,
+                    (flags & FLAG_UNIQUE_TARGET) != 0);
+            break;
+        case OP_REMOVE:
+            index.remove(mapping);
+            break;
+        case OP_CLEAR:
+            index.clear();
+            break;
+        default:
+            throw new IllegalStateException("Unknown log record type: " + op);
+        }
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] data = new byte[MappingDataCodec.getVarint(buf)];
+        buf.get(data);
+        return new String(data, MappingsUtils.UTF8);
+    }
+
+    private static void writeString(ByteBuffer buf, byte[] data) {
+        MappingDataCodec.putVarint(buf, data.length);
+        buf.put(data);
+    }
+
+    /**
+     * Encode a log record and make room for it in the current segment, must be called within
+     * {@link #writeLock}. Fails before anything is written, so that callers can prepare the
+     * record before applying the write to the index, and append it after.
+     *
+     * @return the record's payload, to be passed to {@link #append(byte[])}
+     */
+    private byte[] prepareAppend(byte op, int flags, Mapping mapping) {
+        if (segment == null) {
+            throw new IllegalStateException("Mapping log is not initialized.");
+        }
+        byte[] ns = mapping != null ? mapping.getNamespace().getBytes(MappingsUtils.UTF8)
+                : new byte[0];
+        byte[] obj = mapping != null ? mapping.getObject().getBytes(MappingsUtils.UTF8)
+                : new byte[0];
+        byte[] target = mapping != null ? mapping.getTarget().getBytes(MappingsUtils.UTF8)
+                : new byte[0];
+        ByteBuffer payload = ByteBuffer.allocate(1 + 1 + 8
+                + MappingDataCodec.varintSize(ns.length) + ns.length
+                + MappingDataCodec.varintSize(obj.length) + obj.length
+                + MappingDataCodec.varintSize(target.length) + target.length);
+        payload.put(op).put((byte) flags).putLong(mapping != null ? mapping.getTimestamp() : 0);
+        writeString(payload, ns);
+        writeString(payload, obj);
+        writeString(payload, target);
+        byte[] data = payload.array();
+
+        int size = 8 + data.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Log record too large: " + size + " bytes.");
+        }
+        if (segment.remaining() < size) {
+            roll();
+        }
+        return data;
+    }
+
+    /**
+     * Append a record prepared by {@link #prepareAppend(byte, int, Mapping)}, must be called
+     * within {@link #writeLock}.
+     */
+    private void append(byte[] data) {
+        int size = 8 + data.length;
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        segment.putInt(data.length).putInt((int) crc.getValue()).put(data);
+        appendedBytes += size;
+        dirty = true;
+        if (syncIntervalMs <= 0) {
+            segment.force();
+            dirty = false;
+        }
+    }
+
+    /**
+     * Switch to a new segment, must be called within {@link #writeLock}.
+     */
+    private void roll() {
+        segment.force();
+        MappedByteBuffer next = map(new File(dir, String.format(SEGMENT_FORMAT,
+                segmentSeq + 1)), segmentSize);
+        segmentSeq++;
+        segment = next;
+        dirty = false;
+    }
+
+    private void maintain() {
+        boolean needCheckpoint;
+        synchronized (writeLock) {
+            if (segment == null) {
+                return;
+            }
+            if (dirty) {
+                segment.force();
+                dirty = false;
+            }
+            needCheckpoint = compactionThreshold > 0 && appendedBytes >= compactionThreshold;
+        }
+        if (needCheckpoint) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Take a checkpoint now: save a snapshot of the index and delete log segments it covers.
+     */
+    public void checkpoint() {
+        synchronized (checkpointLock) {
+            long seq;
+            synchronized (writeLock) {
+                roll();
+                seq = segmentSeq;
+                appendedBytes = 0;
+            }
+            InmemSnapshotter.save(index, new File(dir, String.format(CHECKPOINT_FORMAT, seq)));
+            listFiles(dir, CHECKPOINT_PATTERN).headMap(seq).values().forEach(File::delete);
+            listFiles(dir, SEGMENT_PATTERN).headMap(seq).values().forEach(File::delete);
+        }
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Mapping> getTargets(String namespace, String obj) {
+        return index.getTargets(namespace, obj);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Mapping> getObjects(String namespace, String target) {
+        return index.getObjects(namespace, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int countTargets(String namespace, String obj) {
+        return index.countTargets(namespace, obj);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int countObjects(String namespace, String target) {
+        return index.countObjects(namespace, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long totalObjects(String namespace) {
+        return index.totalObjects(namespace);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long totalTargets(String namespace) {
+        return index.totalTargets(namespace);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(Mapping mapping, boolean uniqueObj, boolean uniqueTarget) {
+        int flags = (uniqueObj ? FLAG_UNIQUE_OBJ : 0) | (uniqueTarget ? FLAG_UNIQUE_TARGET : 0);
+        synchronized (writeLock) {
+            byte[] record = prepareAppend(OP_ADD, flags, mapping);
+            index.add(mapping, uniqueObj, uniqueTarget);
+            append(record);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(Mapping mapping) {
+        synchronized (writeLock) {
+            byte[] record = prepareAppend(OP_REMOVE, 0, mapping);
+            if (!index.remove(mapping)) {
+                return false;
+            }
+            append(record);
+            return true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        synchronized (writeLock) {
+            byte[] record = prepareAppend(OP_CLEAR, 0, null);
+            index.clear();
+            append(record);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEachObject(Consumer<List<Mapping>> action) {
+        index.forEachObject(action);
+    }
+}
@@ -0,0 +1,826 @@
+package com.github.ddth.mappings.inmem;
+
+import com.github.ddth.mappings.Mapping;
+import com.github.ddth.mappings.utils.MappingDataCodec;
+import com.github.ddth.mappings.utils.MappingsUtils;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Off-heap {@link IMappingStore}: mappings live in direct {@link ByteBuffer}s, out of reach of
+ * the garbage collector. The heap only holds buffer handles and per-namespace counters.
+ *
+ * <ul>
+ * <li>Each key {@code (direction, namespace, object-or-target)} owns one head record
+ * {@code [record length: 4][key length: varint][key][count: varint][number of chunks: varint]
+ * ([chunk address: 8])*}. Entries of the key are spread over chunks by hash of the other
+ * side, each chunk is a record {@code [record length: 4][count: varint]([entry length: varint]
+ * [entry])*}, an entry is the {@link MappingDataCodec} encoding of
+ * {@code (other side, timestamp)}.</li>
+ * <li>Records are located via open-addressing hash tables (also off-heap), split into segments
+ * guarded by read-write locks.</li>
+ * <li>Record memory is allocated from slabs (see {@link #getSlabSize()}) in power-of-two size
+ * classes, freed blocks are recycled via per-class free-lists.</li>
+ * <li>Writes are serialized store-wide and rewrite the head and one chunk of a key, chunks
+ * are split once they hold more than {@value #CHUNK_ENTRIES} entries on average.</li>
+ * </ul>
+ *
+ * <p>Note: direct memory is capped by JVM option {@code -XX:MaxDirectMemorySize}, which defaults
+ * to the max heap size ({@code -m} of {@code conf/server.sh}); raise it (e.g. via {@code -j})
+ * according to {@link #getMaxMemory()}.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class OffheapMappingStore implements IMappingStore {
+
+    private final static byte DIR_OBJ_TARGET = 1;
+    private final static byte DIR_TARGET_OBJ = 2;
+
+    /* slot of hash tables: [record address: 8][key hash: 4][unused: 4] */
+    private final static int SLOT_SIZE = 16;
+    private final static long SLOT_EMPTY = 0;
+    private final static long SLOT_DELETED = -1;
+    private final static int MAX_TABLE_CAPACITY = 1 << 26;
+
+    private final static int MIN_BLOCK_CLASS = 4;
+
+    private final static int CHUNK_ENTRIES = 64;
+    private final static int MAX_CHUNKS = 4096;
+
+    private int slabSize = 16 * 1024 * 1024;
+    private long maxMemory = 0;
+    private int numSegments = 16;
+    private int initialSegmentCapacity = 1024;
+
+    /**
+     * Size (in bytes) of each slab, default 16MB. Records larger than this get a dedicated
+     * buffer.
+     *
+     * @return
+     */
+    public int getSlabSize() {
+        return slabSize;
+    }
+
+    public OffheapMappingStore setSlabSize(int slabSize) {
+        this.slabSize = slabSize;
+        return this;
+    }
+
+    /**
+     * Max total size (in bytes) of slabs, default {@code 0} (no limit). Writes fail with
+     * {@link IllegalStateException} once the limit is reached.
+     *
+     * @return
+     */
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    public OffheapMappingStore setMaxMemory(long maxMemory) {
+        this.maxMemory = maxMemory;
+        return this;
+    }
+
+    /**
+     * Number of hash table segments, default 16.
+     *
+     * @return
+     */
+    public int getNumSegments() {
+        return numSegments;
+    }
+
+    public OffheapMappingStore setNumSegments(int numSegments) {
+        this.numSegments = numSegments;
+        return this;
+    }
+
+    /**
+     * Initial number of slots per segment, default 1024.
+     *
+     * @return
+     */
+    public int getInitialSegmentCapacity() {
+        return initialSegmentCapacity;
+    }
+
+    public OffheapMappingStore setInitialSegmentCapacity(int initialSegmentCapacity) {
+        this.initialSegmentCapacity = initialSegmentCapacity;
+        return this;
+    }
+
+    public OffheapMappingStore init() {
+        if (slabSize < 1024) {
+            throw new IllegalStateException("Invalid slab size: " + slabSize);
+        }
+        if (numSegments < 1) {
+            throw new IllegalStateException("Invalid number of segments: " + numSegments);
+        }
+        synchronized (writeLock) {
+            Segment[] segs = new Segment[numSegments];
+            for (int i = 0; i < numSegments; i++) {
+                segs[i] = new Segment();
+            }
+            resetSlabs();
+            counters.clear();
+            segments = segs;
+        }
+        return this;
+    }
+
+    public void destroy() {
+        synchronized (writeLock) {
+            segments = null;
+            slabs = new ByteBuffer[0];
+            counters.clear();
+        }
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    private final class Segment {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private ByteBuffer table;
+        private int capacity, size, deleted;
+
+        private Segment() {
+            reset();
+        }
+
+        private void reset() {
+            capacity = Math.max(16, Integer.highestOneBit(Math.max(1,
+                    initialSegmentCapacity - 1)) << 1);
+            table = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+            size = deleted = 0;
+        }
+
+        /**
+         * @return index of the slot holding {@code key}, or {@code -1}
+         */
+        private int find(byte[] key, int hash) {
+            int mask = capacity - 1;
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                long address = table.getLong(i * SLOT_SIZE);
+                if (address == SLOT_EMPTY) {
+                    return -1;
+                }
+                if (address != SLOT_DELETED && table.getInt(i * SLOT_SIZE + 8) == hash
+                        && keyEquals(address, key)) {
+                    return i;
+                }
+            }
+        }
+
+        private long address(int slot) {
+            return table.getLong(slot * SLOT_SIZE);
+        }
+
+        private void put(int slot, long address) {
+            table.putLong(slot * SLOT_SIZE, address);
+        }
+
+        private void insert(int hash, long address) {
+            if ((size + deleted + 1) * 4L > capacity * 3L) {
+                rehash();
+            }
+            int mask = capacity - 1;
+            int i = hash & mask;
+            while (table.getLong(i * SLOT_SIZE) > SLOT_EMPTY) {
+                i = (i + 1) & mask;
+            }
+            if (table.getLong(i * SLOT_SIZE) == SLOT_DELETED) {
+                deleted--;
+            }
+            table.putLong(i * SLOT_SIZE, address);
+            table.putInt(i * SLOT_SIZE + 8, hash);
+            size++;
+        }
+
+        private void delete(int slot) {
+            table.putLong(slot * SLOT_SIZE, SLOT_DELETED);
+            size--;
+            deleted++;
+        }
+
+        private void rehash() {
+            int newCapacity = capacity;
+            while ((size + 1) * 2L > newCapacity) {
+                newCapacity <<= 1;
+            }
+            if (newCapacity > MAX_TABLE_CAPACITY) {
+                throw new IllegalStateException("Off-heap mapping store: segment is full.");
+            }
+            ByteBuffer newTable = ByteBuffer.allocateDirect(newCapacity * SLOT_SIZE);
+            int mask = newCapacity - 1;
+            for (int slot = 0; slot < capacity; slot++) {
+                long address = table.getLong(slot * SLOT_SIZE);
+                if (address > SLOT_EMPTY) {
+                    int hash = table.getInt(slot * SLOT_SIZE + 8);
+                    int i = hash & mask;
+                    while (newTable.getLong(i * SLOT_SIZE) != SLOT_EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    newTable.putLong(i * SLOT_SIZE, address);
+                    newTable.putInt(i * SLOT_SIZE + 8, hash);
+                }
+            }
+            table = newTable;
+            capacity = newCapacity;
+            deleted = 0;
+        }
+    }
+
+    private volatile Segment[] segments;
+
+    /* serializes writes; guards the allocator fields below */
+    private final Object writeLock = new Object();
+    private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+    private int currentSlab = -1, currentOffset;
+    private final long[][] freeLists = new long[32][];
+    private final int[] freeCounts = new int[32];
+    private long allocatedBytes;
+
+    /* namespace -> [number of objects, number of targets] */
+    private final ConcurrentMap<String, AtomicLongArray> counters = new ConcurrentHashMap<>();
+
+    private Segment[] segments() {
+        Segment[] result = segments;
+        if (result == null) {
+            throw new IllegalStateException("Off-heap mapping store is not initialized.");
+        }
+        return result;
+    }
+
+    private Segment segment(int hash) {
+        Segment[] segs = segments();
+        return segs[(int) (((hash & 0xFFFFFFFFL) * segs.length) >>> 32)];
+    }
+
+    private static byte[] key(byte direction, String namespace, String key) {
+        byte[] ns = namespace.getBytes(MappingsUtils.UTF8);
+        byte[] k = key.getBytes(MappingsUtils.UTF8);
+        ByteBuffer buf = ByteBuffer.allocate(
+                1 + MappingDataCodec.varintSize(ns.length) + ns.length + k.length);
+        buf.put(direction);
+        MappingDataCodec.putVarint(buf, ns.length);
+        buf.put(ns).put(k);
+        return buf.array();
+    }
+
+    private static int hash(byte[] key) {
+        int h = 0x811C9DC5;
+        for (byte b : key) {
+            h = (h ^ b) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    private void resetSlabs() {
+        slabs = new ByteBuffer[0];
+        currentSlab = -1;
+        currentOffset = 0;
+        Arrays.fill(freeCounts, 0);
+        allocatedBytes = 0;
+    }
+
+    private static int blockClass(int size) {
+        return Math.max(MIN_BLOCK_CLASS, 32 - Integer.numberOfLeadingZeros(size - 1));
+    }
+
+    private ByteBuffer slab(long address) {
+        return slabs[(int) (address >>> 32) - 1];
+    }
+
+    /**
+     * Allocate a block of at least {@code size} bytes.
+     */
+    private long allocate(int size) {
+        int cls = blockClass(size);
+        long blockSize = 1L << cls;
+        if (blockSize > slabSize) {
+            // dedicated buffer
+            return (long) (addSlab(size) + 1) << 32;
+        }
+        if (freeCounts[cls] > 0) {
+            return freeLists[cls][--freeCounts[cls]];
+        }
+        if (currentSlab < 0 || currentOffset + blockSize > slabSize) {
+            currentSlab = addSlab(slabSize);
+            currentOffset = 0;
+        }
+        long address = ((long) (currentSlab + 1) << 32) | currentOffset;
+        currentOffset += (int) blockSize;
+        return address;
+    }
+
+    private int addSlab(int size) {
+        if (maxMemory > 0 && allocatedBytes + size > maxMemory) {
+            throw new IllegalStateException("Off-heap mapping store is full (" + allocatedBytes
+                    + " bytes allocated).");
+        }
+        // reuse the slot of a dropped dedicated buffer, if any
+        int index = 0;
+        while (index < slabs.length && slabs[index] != null) {
+            index++;
+        }
+        ByteBuffer[] newSlabs = index < slabs.length ? slabs.clone()
+                : Arrays.copyOf(slabs, slabs.length + 1);
+        newSlabs[index] = ByteBuffer.allocateDirect(size);
+        allocatedBytes += size;
+        slabs = newSlabs;
+        return index;
+    }
+
+    /**
+     * Free a block, caller must make sure it is no longer reachable by readers.
+     */
+    private void free(long address) {
+        ByteBuffer slab = slab(address);
+        int offset = (int) address;
+        int cls = blockClass(4 + slab.getInt(offset));
+        if ((1L << cls) > slabSize) {
+            // dedicated buffer: drop it
+            ByteBuffer[] newSlabs = slabs.clone();
+            newSlabs[(int) (address >>> 32) - 1] = null;
+            allocatedBytes -= slab.capacity();
+            slabs = newSlabs;
+            return;
+        }
+        long[] list = freeLists[cls];
+        if (list == null || freeCounts[cls] >= list.length) {
+            freeLists[cls] = list = list == null ? new long[16] : Arrays.copyOf(list,
+                    list.length * 2);
+        }
+        list[freeCounts[cls]++] = address;
+    }
+
+    /**
+     * Content of a record, positioned after the record length.
+     */
+    private ByteBuffer record(long address) {
+        ByteBuffer buf = slab(address).duplicate();
+        int offset = (int) address;
+        int length = buf.getInt(offset);
+        ((Buffer) buf).limit(offset + 4 + length);
+        ((Buffer) buf).position(offset + 4);
+        return buf;
+    }
+
+    private boolean keyEquals(long address, byte[] key) {
+        ByteBuffer buf = record(address);
+        if (MappingDataCodec.getVarint(buf) != key.length) {
+            return false;
+        }
+        int pos = buf.position();
+        for (int i = 0; i < key.length; i++) {
+            if (buf.get(pos + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * Read entries {@code other-side -> timestamp} of a key, given the address of its head
+     * record.
+     */
+    private void readEntries(long head, BiConsumer<String, Long> consumer) {
+        for (long chunk : readChunks(head)) {
+            readChunk(chunk, consumer);
+        }
+    }
+
+    /**
+     * Read entries {@code other-side -> timestamp} of a key.
+     */
+    private Map<String, Long> readEntries(byte[] key) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        int hash = hash(key);
+        Segment seg = segment(hash);
+        seg.lock.readLock().lock();
+        try {
+            int slot = seg.find(key, hash);
+            if (slot >= 0) {
+                readEntries(seg.address(slot), result::put);
+            }
+        } finally {
+            seg.lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private void readChunk(long chunk, BiConsumer<String, Long> consumer) {
+        if (chunk == SLOT_EMPTY) {
+            return;
+        }
+        ByteBuffer buf = record(chunk);
+        for (int n = MappingDataCodec.getVarint(buf); n > 0; n--) {
+            int entryLength = MappingDataCodec.getVarint(buf);
+            MappingDataCodec.Data data = MappingDataCodec.decode(buf, true);
+            consumer.accept(data.value, data.timestamp);
+            ((Buffer) buf).position(buf.position() + entryLength);
+        }
+    }
+
+    /**
+     * Position a head record after its key.
+     */
+    private ByteBuffer skipKey(long head) {
+        ByteBuffer buf = record(head);
+        int keyLength = MappingDataCodec.getVarint(buf);
+        ((Buffer) buf).position(buf.position() + keyLength);
+        return buf;
+    }
+
+    private long[] readChunks(long head) {
+        ByteBuffer buf = skipKey(head);
+        MappingDataCodec.getVarint(buf);
+        long[] chunks = new long[MappingDataCodec.getVarint(buf)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = buf.getLong();
+        }
+        return chunks;
+    }
+
+    private static int chunkIndex(String other, int numChunks) {
+        int h = other.hashCode();
+        return (h ^ (h >>> 16)) & (numChunks - 1);
+    }
+
+    private List<Mapping> readMappings(byte direction, String namespace, String key) {
+        Map<String, Long> entries = readEntries(key(direction, namespace, key));
+        if (entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Mapping> result = new ArrayList<>(entries.size());
+        entries.forEach((other, timestamp) -> result.add(direction == DIR_OBJ_TARGET
+                ? Mapping.of(namespace, key, other, timestamp)
+                : Mapping.of(namespace, other, key, timestamp)));
+        return result;
+    }
+
+    private int count(byte direction, String namespace, String key) {
+        byte[] k = key(direction, namespace, key);
+        int hash = hash(k);
+        Segment seg = segment(hash);
+        seg.lock.readLock().lock();
+        try {
+            int slot = seg.find(k, hash);
+            return slot >= 0 ? MappingDataCodec.getVarint(skipKey(seg.address(slot))) : 0;
+        } finally {
+            seg.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write a chunk record, {@link #SLOT_EMPTY} if there is no entry.
+     */
+    private long writeChunk(Map<String, Long> entries, List<Long> allocated) {
+        if (entries.isEmpty()) {
+            return SLOT_EMPTY;
+        }
+        List<ByteBuffer> encoded = new ArrayList<>(entries.size());
+        int length = MappingDataCodec.varintSize(entries.size());
+        for (Map.Entry<String, Long> e : entries.entrySet()) {
+            ByteBuffer entry = MappingDataCodec.encode(e.getKey(), e.getValue());
+            encoded.add(entry);
+            length += MappingDataCodec.varintSize(entry.remaining()) + entry.remaining();
+        }
+        long address = allocate(4 + length);
+        allocated.add(address);
+        ByteBuffer buf = slab(address).duplicate();
+        ((Buffer) buf).position((int) address);
+        buf.putInt(length);
+        MappingDataCodec.putVarint(buf, entries.size());
+        for (ByteBuffer entry : encoded) {
+            MappingDataCodec.putVarint(buf, entry.remaining());
+            buf.put(entry);
+        }
+        return address;
+    }
+
+    private long writeHead(byte[] key, int count, long[] chunks, List<Long> allocated) {
+        int length = MappingDataCodec.varintSize(key.length) + key.length
+                + MappingDataCodec.varintSize(count) + MappingDataCodec.varintSize(chunks.length)
+                + 8 * chunks.length;
+        long address = allocate(4 + length);
+        allocated.add(address);
+        ByteBuffer buf = slab(address).duplicate();
+        ((Buffer) buf).position((int) address);
+        buf.putInt(length);
+        MappingDataCodec.putVarint(buf, key.length);
+        buf.put(key);
+        MappingDataCodec.putVarint(buf, count);
+        MappingDataCodec.putVarint(buf, chunks.length);
+        for (long chunk : chunks) {
+            buf.putLong(chunk);
+        }
+        return address;
+    }
+
+    /**
+     * Spread entries of a key over {@code numChunks} new chunks.
+     *
+     * @param chunks
+     *         current chunks
+     * @param index
+     *         index of the chunk whose entries are given by {@code entries}
+     */
+    private long[] splitChunks(long[] chunks, int index, Map<String, Long> entries,
+            int numChunks, List<Long> allocated) {
+        List<Map<String, Long>> parts = new ArrayList<>(numChunks);
+        for (int i = 0; i < numChunks; i++) {
+            parts.add(new LinkedHashMap<>());
+        }
+        BiConsumer<String, Long> spread = (other, timestamp) -> parts
+                .get(chunkIndex(other, numChunks)).put(other, timestamp);
+        for (int i = 0; i < chunks.length; i++) {
+            if (i == index) {
+                entries.forEach(spread);
+            } else {
+                readChunk(chunks[i], spread);
+            }
+        }
+        long[] result = new long[numChunks];
+        for (int i = 0; i < numChunks; i++) {
+            result[i] = writeChunk(parts.get(i), allocated);
+        }
+        return result;
+    }
+
+    /**
+     * Put ({@code timestamp != null}) or remove ({@code timestamp == null}) an entry of a key,
+     * must be called within {@link #writeLock}. Only the head record and the chunk holding the
+     * entry are rewritten (all chunks if they are split).
+     *
+     * @return {@code false} if there is no entry to remove
+     */
+    private boolean writeEntry(byte direction, String namespace, String key, String other,
+            Long timestamp) {
+        byte[] k = key(direction, namespace, key);
+        int hash = hash(k);
+        Segment seg = segment(hash);
+        // writes are serialized by writeLock: the table can be read without the segment's lock
+        int slot = seg.find(k, hash);
+        long oldHead = slot >= 0 ? seg.address(slot) : SLOT_EMPTY;
+        if (oldHead == SLOT_EMPTY && timestamp == null) {
+            return false;
+        }
+        long[] chunks = oldHead != SLOT_EMPTY ? readChunks(oldHead) : new long[1];
+        int count = oldHead != SLOT_EMPTY ? MappingDataCodec.getVarint(skipKey(oldHead)) : 0;
+        int index = chunkIndex(other, chunks.length);
+        Map<String, Long> entries = new LinkedHashMap<>();
+        readChunk(chunks[index], entries::put);
+        Long old = timestamp != null ? entries.put(other, timestamp) : entries.remove(other);
+        if (timestamp == null && old == null) {
+            return false;
+        }
+        count += timestamp == null ? -1 : (old == null ? 1 : 0);
+
+        List<Long> allocated = new ArrayList<>(), obsolete = new ArrayList<>();
+        long newHead = SLOT_EMPTY;
+        try {
+            long[] newChunks;
+            if (count == 0) {
+                newChunks = null;
+            } else if (count > chunks.length * CHUNK_ENTRIES && chunks.length < MAX_CHUNKS) {
+                newChunks = splitChunks(chunks, index, entries, chunks.length * 2, allocated);
+            } else {
+                newChunks = chunks.clone();
+                newChunks[index] = writeChunk(entries, allocated);
+            }
+            if (newChunks != null) {
+                newHead = writeHead(k, count, newChunks, allocated);
+            }
+            boolean rewrittenAll = newChunks == null || newChunks.length != chunks.length;
+            for (int i = 0; i < chunks.length; i++) {
+                if (chunks[i] != SLOT_EMPTY && (rewrittenAll || i == index)) {
+                    obsolete.add(chunks[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            allocated.forEach(this::free);
+            throw e;
+        }
+
+        seg.lock.writeLock().lock();
+        try {
+            if (slot >= 0) {
+                if (newHead != SLOT_EMPTY) {
+                    seg.put(slot, newHead);
+                } else {
+                    seg.delete(slot);
+                }
+            } else {
+                seg.insert(hash, newHead);
+            }
+        } finally {
+            seg.lock.writeLock().unlock();
+        }
+        if (oldHead != SLOT_EMPTY) {
+            // no reader can reach the old records any more
+            obsolete.add(oldHead);
+        }
+        obsolete.forEach(this::free);
+
+        int delta = (oldHead == SLOT_EMPTY ? 0 : -1) + (newHead == SLOT_EMPTY ? 0 : 1);
+        if (delta != 0) {
+            counters.computeIfAbsent(namespace, ns -> new AtomicLongArray(2))
+                    .addAndGet(direction == DIR_OBJ_TARGET ? 0 : 1, delta);
+        }
+        return true;
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Mapping> getTargets(String namespace, String obj) {
+        return readMappings(DIR_OBJ_TARGET, namespace, obj);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Mapping> getObjects(String namespace, String target) {
+        return readMappings(DIR_TARGET_OBJ, namespace, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int countTargets(String namespace, String obj) {
+        return count(DIR_OBJ_TARGET, namespace, obj);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int countObjects(String namespace, String target) {
+        return count(DIR_TARGET_OBJ, namespace, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long totalObjects(String namespace) {
+        AtomicLongArray c = counters.get(namespace);
+        return c != null ? c.get(0) : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long totalTargets(String namespace) {
+        AtomicLongArray c = counters.get(namespace);
+        return c != null ? c.get(1) : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(Mapping mapping, boolean uniqueObj, boolean uniqueTarget) {
+        String namespace = mapping.getNamespace();
+        String obj = mapping.getObject();
+        String target = mapping.getTarget();
+        synchronized (writeLock) {
+            if (uniqueObj) {
+                for (String oldTarget : readEntries(key(DIR_OBJ_TARGET, namespace, obj))
+                        .keySet()) {
+                    if (!oldTarget.equals(target)) {
+                        removeEntry(DIR_OBJ_TARGET, namespace, obj, oldTarget);
+                        removeEntry(DIR_TARGET_OBJ, namespace, oldTarget, obj);
+                    }
+                }
+            }
+            if (uniqueTarget) {
+                for (String oldObj : readEntries(key(DIR_TARGET_OBJ, namespace, target))
+                        .keySet()) {
+                    if (!oldObj.equals(obj)) {
+                        removeEntry(DIR_TARGET_OBJ, namespace, target, oldObj);
+                        removeEntry(DIR_OBJ_TARGET, namespace, oldObj, target);
+                    }
+                }
+            }
+            writeEntry(DIR_OBJ_TARGET, namespace, obj, target, mapping.getTimestamp());
+            writeEntry(DIR_TARGET_OBJ, namespace, target, obj, mapping.getTimestamp());
+        }
+    }
+
+    private boolean removeEntry(byte direction, String namespace, String key, String other) {
+        return writeEntry(direction, namespace, key, other, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(Mapping mapping) {
+        String namespace = mapping.getNamespace();
+        synchronized (writeLock) {
+            if (!removeEntry(DIR_OBJ_TARGET, namespace, mapping.getObject(),
+                    mapping.getTarget())) {
+                return false;
+            }
+            removeEntry(DIR_TARGET_OBJ, namespace, mapping.getTarget(), mapping.getObject());
+            return true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        synchronized (writeLock) {
+            Segment[] segs = segments();
+            for (Segment seg : segs) {
+                seg.lock.writeLock().lock();
+            }
+            try {
+                for (Segment seg : segs) {
+                    seg.reset();
+                }
+                resetSlabs();
+                counters.clear();
+            } finally {
+                for (Segment seg : segs) {
+                    seg.lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Mappings of a segment's objects are collected while holding the segment's read lock,
+     * {@code action} is then called without holding any lock.</p>
+     */
+    @Override
+    public void forEachObject(Consumer<List<Mapping>> action) {
+        for (Segment seg : segments()) {
+            List<List<Mapping>> objects = new ArrayList<>();
+            seg.lock.readLock().lock();
+            try {
+                for (int slot = 0; slot < seg.capacity; slot++) {
+                    long address = seg.address(slot);
+                    if (address <= SLOT_EMPTY) {
+                        continue;
+                    }
+                    ByteBuffer buf = record(address);
+                    int keyLength = MappingDataCodec.getVarint(buf);
+                    int keyEnd = buf.position() + keyLength;
+                    if (buf.get() != DIR_OBJ_TARGET) {
+                        continue;
+                    }
+                    byte[] ns = new byte[MappingDataCodec.getVarint(buf)];
+                    buf.get(ns);
+                    byte[] obj = new byte[keyEnd - buf.position()];
+                    buf.get(obj);
+                    String namespace = new String(ns, MappingsUtils.UTF8);
+                    String object = new String(obj, MappingsUtils.UTF8);
+                    List<Mapping> mappings = new ArrayList<>();
+                    readEntries(address, (target, timestamp) -> mappings
+                            .add(Mapping.of(namespace, object, target, timestamp)));
+                    objects.add(mappings);
+                }
+            } finally {
+                seg.lock.readLock().unlock();
+            }
+            objects.forEach(action);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.github.ddth.mappings.jdbc;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared JDBC helpers of JDBC mapping DAOs: connections/transactions, chunked multi-row upserts
+ * & multi-key lookups, and the stats table.
+ *
+ * <p>SQL targets MySQL (also runs on H2 in {@code MODE=MySQL}). With MySQL Connector/J,
+ * {@code rewriteBatchedStatements=true} should be set in the JDBC url so that JDBC batches
+ * (deletes, stats updates) are sent in one round-trip.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class JdbcDelegator {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(JdbcDelegator.class);
+
+    private DataSource dataSource;
+    private String tableStats = "mappings_stats";
+    private int maxBatchSize = 500;
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public JdbcDelegator setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+        return this;
+    }
+
+    public String getTableStats() {
+        return tableStats;
+    }
+
+    public JdbcDelegator setTableStats(String tableStats) {
+        this.tableStats = tableStats;
+        return this;
+    }
+
+    /**
+     * Max number of rows per multi-row statement ({@code INSERT ... VALUES (..),(..)} or
+     * {@code ... IN (..)}), default 500.
+     *
+     * @return
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public JdbcDelegator setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    public JdbcDelegator init() {
+        if (dataSource == null) {
+            throw new IllegalStateException("Data source is not set.");
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalStateException("Invalid max batch size: " + maxBatchSize);
+        }
+        return this;
+    }
+
+    public void destroy() {
+        // data source is managed by its owner
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * Work to be done with a JDBC connection.
+     *
+     * @param <T>
+     */
+    @FunctionalInterface
+    public interface ConnectionCallback<T> {
+        T doWithConnection(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Work to be done with each row of a result set.
+     */
+    @FunctionalInterface
+    public interface RowCallback {
+        void processRow(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Execute a callback with a connection in auto-commit mode.
+     *
+     * @param callback
+     * @return
+     */
+    public <T> T execute(ConnectionCallback<T> callback) {
+        try (Connection conn = dataSource.getConnection()) {
+            return callback.doWithConnection(conn);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Execute a callback within a transaction: committed if the callback returns normally,
+     * rolled back otherwise.
+     *
+     * @param callback
+     * @return
+     */
+    public <T> T executeInTransaction(ConnectionCallback<T> callback) {
+        try (Connection conn = dataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                T result = callback.doWithConnection(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException e1) {
+                    LOGGER.warn("Cannot rollback transaction: " + e1.getMessage(), e1);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Bind parameters to a prepared statement, starting at position {@code index}.
+     *
+     * @param pstm
+     * @param index
+     * @param params
+     * @return next position
+     * @throws SQLException
+     */
+    public static int bindValues(PreparedStatement pstm, int index, Object... params)
+            throws SQLException {
+        for (Object param : params) {
+            pstm.setObject(index++, param);
+        }
+        return index;
+    }
+
+    /**
+     * Execute a query and process each row of its result.
+     *
+     * @param conn
+     * @param sql
+     * @param callback
+     * @param params
+     * @throws SQLException
+     */
+    public static void query(Connection conn, String sql, RowCallback callback, Object... params)
+            throws SQLException {
+        try (PreparedStatement pstm = conn.prepareStatement(sql)) {
+            bindValues(pstm, 1, params);
+            try (ResultSet rs = pstm.executeQuery()) {
+                while (rs.next()) {
+                    callback.processRow(rs);
+                }
+            }
+        }
+    }
+
+    /* {0}: SELECT ... WHERE ... prefix, {1}: IN column, {2}: value placeholders */
+    private final static String SQL_SELECT_IN = "{0} AND {1} IN ({2})";
+
+    /**
+     * Multi-key lookup: execute {@code <sqlPrefix> AND <inCol> IN (?,...)} for the keys, in
+     * chunks of at most {@link #getMaxBatchSize()} keys.
+     *
+     * @param conn
+     * @param sqlPrefix
+     *         {@code SELECT ... FROM ... WHERE ...}
+     * @param prefixParams
+     *         parameters of {@code sqlPrefix}
+     * @param inCol
+     * @param keys
+     * @param callback
+     * @throws SQLException
+     */
+    public void queryIn(Connection conn, String sqlPrefix, Object[] prefixParams, String inCol,
+            Collection<String> keys, RowCallback callback) throws SQLException {
+        List<String> keyList = new ArrayList<>(keys);
+        for (int from = 0, n = keyList.size(); from < n; from += maxBatchSize) {
+            List<String> chunk = keyList.subList(from, Math.min(n, from + maxBatchSize));
+            String sql = MessageFormat.format(SQL_SELECT_IN, sqlPrefix, inCol,
+                    StringUtils.repeat("?", ",", chunk.size()));
+            try (PreparedStatement pstm = conn.prepareStatement(sql)) {
+                int index = bindValues(pstm, 1, prefixParams);
+                bindValues(pstm, index, chunk.toArray());
+                try (ResultSet rs = pstm.executeQuery()) {
+                    while (rs.next()) {
+                        callback.processRow(rs);
+                    }
+                }
+            }
+        }
+    }
+
+    /* {0}: table, {1}: columns, {2}: row placeholders, {3}: update assignments */
+    private final static String SQL_UPSERT = "INSERT INTO {0} ({1}) VALUES {2} ON DUPLICATE KEY "
+            + "UPDATE {3}";
+
+    /**
+     * Multi-row upsert: {@code INSERT INTO <table> (<cols>) VALUES (..),(..) ON DUPLICATE KEY
+     * UPDATE <updateCols>}, in chunks of at most {@link #getMaxBatchSize()} rows. Columns in
+     * {@code updateCols} are set to the values of the insert.
+     *
+     * @param conn
+     * @param table
+     * @param cols
+     * @param updateCols
+     * @param rows
+     * @throws SQLException
+     */
+    public void upsertRows(Connection conn, String table, String[] cols, String[] updateCols,
+            List<Object[]> rows) throws SQLException {
+        String[] assignments = new String[updateCols.length];
+        for (int i = 0; i < updateCols.length; i++) {
+            assignments[i] = updateCols[i] + "=VALUES(" + updateCols[i] + ")";
+        }
+        final String rowPlaceholders = "(" + StringUtils.repeat("?", ",", cols.length) + ")";
+        PreparedStatement pstmFullChunk = null;
+        try {
+            for (int from = 0, n = rows.size(); from < n; from += maxBatchSize) {
+                List<Object[]> chunk = rows.subList(from, Math.min(n, from + maxBatchSize));
+                boolean isFullChunk = chunk.size() == maxBatchSize;
+                PreparedStatement pstm = isFullChunk ? pstmFullChunk : null;
+                if (pstm == null) {
+                    pstm = conn.prepareStatement(MessageFormat.format(SQL_UPSERT, table,
+                            StringUtils.join(cols, ","),
+                            StringUtils.repeat(rowPlaceholders, ",", chunk.size()),
+                            StringUtils.join(assignments, ",")));
+                    if (isFullChunk) {
+                        pstmFullChunk = pstm;
+                    }
+                }
+                try {
+                    int index = 1;
+                    for (Object[] row : chunk) {
+                        index = bindValues(pstm, index, row);
+                    }
+                    pstm.executeUpdate();
+                } finally {
+                    if (!isFullChunk) {
+                        pstm.close();
+                    }
+                }
+            }
+        } finally {
+            if (pstmFullChunk != null) {
+                pstmFullChunk.close();
+            }
+        }
+    }
+
+    /**
+     * Execute a statement for each set of parameters as one JDBC batch.
+     *
+     * @param conn
+     * @param sql
+     * @param paramsList
+     * @return update counts, one per set of parameters (may be
+     *         {@link java.sql.Statement#SUCCESS_NO_INFO} for rewritten batches)
+     * @throws SQLException
+     */
+    public static int[] executeBatch(Connection conn, String sql, List<Object[]> paramsList)
+            throws SQLException {
+        if (paramsList.isEmpty()) {
+            return new int[0];
+        }
+        try (PreparedStatement pstm = conn.prepareStatement(sql)) {
+            for (Object[] params : paramsList) {
+                bindValues(pstm, 1, params);
+                pstm.addBatch();
+            }
+            return pstm.executeBatch();
+        }
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    private final static String COL_STATS_MAPPING = "m_mapping";
+    private final static String COL_STATS_NAMESPACE = "m_namespace";
+    private final static String COL_STATS_KEY = "m_key";
+    private final static String COL_STATS_VALUE = "m_value";
+    private final static String[] _COL_STATS_ALL = {COL_STATS_MAPPING, COL_STATS_NAMESPACE,
+            COL_STATS_KEY, COL_STATS_VALUE};
+
+    /* {0}: table, {1}: columns */
+    private final static String SQL_INCREASE_STATS = "INSERT INTO {0} ({1}) VALUES (?,?,?,?) "
+            + "ON DUPLICATE KEY UPDATE " + COL_STATS_VALUE + "=" + COL_STATS_VALUE + "+VALUES("
+            + COL_STATS_VALUE + ")";
+    private final static String SQL_SELECT_ALL_STATS = "SELECT " + COL_STATS_KEY + ","
+            + COL_STATS_VALUE + " FROM {0} WHERE " + COL_STATS_MAPPING + "=? AND "
+            + COL_STATS_NAMESPACE + "=?";
+
+    /**
+     * Increase/decrease stats counters, as part of the caller's transaction (one JDBC batch).
+     *
+     * @param conn
+     * @param mapping
+     * @param deltas
+     *         {@code (namespace, key) -> delta}
+     * @throws SQLException
+     */
+    public void updateStats(Connection conn, String mapping,
+            Map<Pair<String, String>, Long> deltas) throws SQLException {
+        List<Object[]> paramsList = new ArrayList<>();
+        deltas.forEach((k, v) -> {
+            if (v.longValue() != 0) {
+                paramsList.add(new Object[] { mapping, k.getLeft(), k.getRight(), v });
+            }
+        });
+        executeBatch(conn, MessageFormat.format(SQL_INCREASE_STATS, tableStats,
+                StringUtils.join(_COL_STATS_ALL, ",")), paramsList);
+    }
+
+    /**
+     * Set stats counters to absolute values (e.g. after recomputing them).
+     *
+     * @param conn
+     * @param mapping
+     * @param namespace
+     * @param values
+     *         {@code key -> value}
+     * @throws SQLException
+     */
+    public void setStats(Connection conn, String mapping, String namespace,
+            Map<String, Long> values) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        values.forEach((k, v) -> rows.add(new Object[] { mapping, namespace, k, v }));
+        upsertRows(conn, tableStats, _COL_STATS_ALL, new String[] { COL_STATS_VALUE }, rows);
+    }
+
+    /**
+     * Get all stats of a mapping namespace.
+     *
+     * @param mapping
+     * @param namespace
+     * @return
+     */
+    public Map<String, Long> getAllStats(String mapping, String namespace) {
+        return execute(conn -> {
+            Map<String, Long> result = new HashMap<>();
+            query(conn, MessageFormat.format(SQL_SELECT_ALL_STATS, tableStats),
+                    rs -> result.put(rs.getString(COL_STATS_KEY), rs.getLong(COL_STATS_VALUE)),
+                    mapping, namespace);
+            return result;
+        });
+    }
+}
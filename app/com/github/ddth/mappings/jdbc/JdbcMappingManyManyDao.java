@@ -0,0 +1,381 @@
+package com.github.ddth.mappings.jdbc;
+
+import com.github.ddth.mappings.AbstractMappingManyManyDao;
+import com.github.ddth.mappings.Mapping;
+import com.github.ddth.mappings.utils.MappingsUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * JDBC-implementation of n-n mapping (MySQL, or H2 in {@code MODE=MySQL}).
+ *
+ * <p>One row per mapping; the primary key serves {@code object -> targets} lookups and a
+ * covering index serves {@code target -> objects} lookups. See
+ * {@code dbschema/dbschema.mysql.sql} for the schema.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class JdbcMappingManyManyDao extends AbstractMappingManyManyDao {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(JdbcMappingManyManyDao.class);
+
+    private JdbcDelegator jdbcDelegator;
+
+    private String tableData = "mapmm";
+
+    public JdbcDelegator getJdbcDelegator() {
+        return jdbcDelegator;
+    }
+
+    public JdbcMappingManyManyDao setJdbcDelegator(JdbcDelegator jdbcDelegator) {
+        this.jdbcDelegator = jdbcDelegator;
+        return this;
+    }
+
+    public String getTableData() {
+        return tableData;
+    }
+
+    public JdbcMappingManyManyDao setTableData(String tableData) {
+        this.tableData = tableData;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JdbcMappingManyManyDao init() {
+        super.init();
+
+        final String cols = StringUtils.join(_COL_ALL, ",");
+        sqlSelectByObj = MessageFormat.format(SQL_SELECT, tableData, cols, WHERE_OBJ);
+        sqlSelectByTarget = MessageFormat.format(SQL_SELECT, tableData, cols, WHERE_TARGET);
+        sqlSelectByNamespace = MessageFormat.format(SQL_SELECT, tableData, cols, WHERE_NAMESPACE);
+        sqlCountByObj = MessageFormat.format(SQL_SELECT, tableData, "COUNT(*)", WHERE_OBJ);
+        sqlCountByTarget = MessageFormat.format(SQL_SELECT, tableData, "COUNT(*)", WHERE_TARGET);
+        sqlDelete = MessageFormat.format(SQL_DELETE, tableData, WHERE_OBJ_TARGET);
+
+        return this;
+    }
+
+    private String sqlSelectByObj, sqlSelectByTarget, sqlSelectByNamespace;
+    private String sqlCountByObj, sqlCountByTarget;
+    private String sqlDelete;
+
+    private final static String COL_NAMESPACE = "m_namespace";
+    private final static String COL_OBJECT = "m_object";
+    private final static String COL_TARGET = "m_target";
+    private final static String COL_TIMESTAMP = "m_timestamp";
+    private final static String[] _COL_ALL = {COL_NAMESPACE, COL_OBJECT, COL_TARGET,
+            COL_TIMESTAMP};
+    private final static String[] _COL_UPDATE = {COL_TIMESTAMP};
+
+    private final static String WHERE_NAMESPACE = COL_NAMESPACE + "=?";
+    private final static String WHERE_OBJ = WHERE_NAMESPACE + " AND " + COL_OBJECT + "=?";
+    private final static String WHERE_TARGET = WHERE_NAMESPACE + " AND " + COL_TARGET + "=?";
+    private final static String WHERE_OBJ_TARGET = WHERE_OBJ + " AND " + COL_TARGET + "=?";
+
+    /* {0}: table name, {1}: column list, {2}: WHERE clause */
+    private final static String SQL_SELECT = "SELECT {1} FROM {0} WHERE {2}";
+    /* {0}: table name, {1}: WHERE clause */
+    private final static String SQL_DELETE = "DELETE FROM {0} WHERE {1}";
+
+    public final static String STATS_MAPPING = "mappings-mm";
+    public final static String STATS_KEY_TOTAL_OBJS = "total-objs";
+    public final static String STATS_KEY_TOTAL_TARGETS = "total-targets";
+
+    private static Mapping newMapping(ResultSet rs) throws SQLException {
+        return Mapping.of(rs.getString(COL_NAMESPACE), rs.getString(COL_OBJECT),
+                rs.getString(COL_TARGET), rs.getLong(COL_TIMESTAMP));
+    }
+
+    private static boolean isAffected(int updateCount) {
+        return updateCount > 0 || updateCount == Statement.SUCCESS_NO_INFO;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getStats(String namespace) {
+        return jdbcDelegator.getAllStats(STATS_MAPPING, namespace);
+    }
+
+    private Collection<Mapping> selectMappings(String sql, String namespace, String key) {
+        return jdbcDelegator.execute(conn -> {
+            List<Mapping> result = new ArrayList<>();
+            JdbcDelegator.query(conn, sql, rs -> result.add(newMapping(rs)), namespace, key);
+            return result;
+        });
+    }
+
+    private long count(String sql, String namespace, String key) {
+        return jdbcDelegator.execute(conn -> {
+            long[] result = {0};
+            JdbcDelegator.query(conn, sql, rs -> result[0] = rs.getLong(1), namespace, key);
+            return result[0];
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Collection<Mapping> storageGetMappingsObjTargets(String namespace, String obj) {
+        return selectMappings(sqlSelectByObj, namespace, obj);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Collection<Mapping> storageGetMappingsTargetObjs(String namespace, String target) {
+        return selectMappings(sqlSelectByTarget, namespace, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Objects are looked up with multi-key {@code IN} queries on the primary key.</p>
+     */
+    @Override
+    protected Map<String, Collection<Mapping>> storageGetMappingsObjTargets(String namespace,
+            Collection<String> objs) {
+        Map<String, Collection<Mapping>> result = new HashMap<>();
+        objs.forEach(obj -> result.put(obj, new ArrayList<>()));
+        jdbcDelegator.execute(conn -> {
+            jdbcDelegator.queryIn(conn, sqlSelectByNamespace, new Object[] {namespace},
+                    COL_OBJECT, result.keySet(), rs -> {
+                        Mapping m = newMapping(rs);
+                        result.get(m.getObject()).add(m);
+                    });
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Targets are looked up with multi-key {@code IN} queries on the covering index.</p>
+     */
+    @Override
+    protected Map<String, Collection<Mapping>> storageGetMappingsTargetObjs(String namespace,
+            Collection<String> targets) {
+        Map<String, Collection<Mapping>> result = new HashMap<>();
+        targets.forEach(target -> result.put(target, new ArrayList<>()));
+        jdbcDelegator.execute(conn -> {
+            jdbcDelegator.queryIn(conn, sqlSelectByNamespace, new Object[] {namespace},
+                    COL_TARGET, result.keySet(), rs -> {
+                        Mapping m = newMapping(rs);
+                        result.get(m.getTarget()).add(m);
+                    });
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected long storageCountMappingsObjTargets(String namespace, String obj) {
+        return count(sqlCountByObj, namespace, obj);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected long storageCountMappingsTargetObjs(String namespace, String target) {
+        return count(sqlCountByTarget, namespace, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>See {@link #storageMapBatch(List, List, List)}.</p>
+     */
+    @Override
+    protected MappingsUtils.DaoResult storageMap(Mapping mappingToAdd,
+            Collection<Mapping> existingOT, Collection<Mapping> existingTO) {
+        return storageMapBatch(Collections.singletonList(mappingToAdd),
+                Collections.singletonList(existingOT), Collections.singletonList(existingTO))
+                .get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <ul>
+     * <li>Mappings are written by multi-row {@code INSERT ... ON DUPLICATE KEY UPDATE}.</li>
+     * <li>Stats count {@link #STATS_KEY_TOTAL_OBJS} (resp. {@link #STATS_KEY_TOTAL_TARGETS}) is
+     * increased for each {@code existingOT} (resp. {@code existingTO}) that is empty; stats are
+     * not touched if existing mappings are unknown ({@code null}), see
+     * {@link #recomputeStats(String)}.</li>
+     * <li>All operations above are within one transaction.</li>
+     * </ul>
+     */
+    @Override
+    protected List<MappingsUtils.DaoResult> storageMapBatch(List<Mapping> mappingsToAdd,
+            List<Collection<Mapping>> existingOTs, List<Collection<Mapping>> existingTOs) {
+        long now = System.currentTimeMillis();
+        List<Object[]> upsertRows = new ArrayList<>(mappingsToAdd.size());
+        Map<Pair<String, String>, Long> statsDeltas = new HashMap<>();
+        for (int i = 0, n = mappingsToAdd.size(); i < n; i++) {
+            Mapping bo = mappingsToAdd.get(i);
+            final String namespace = bo.getNamespace();
+            upsertRows.add(new Object[] {namespace, bo.getObject(), bo.getTarget(), now});
+            Collection<Mapping> existingOT = existingOTs.get(i);
+            Collection<Mapping> existingTO = existingTOs.get(i);
+            if (existingOT != null && existingOT.isEmpty()) {
+                statsDeltas.merge(Pair.of(namespace, STATS_KEY_TOTAL_OBJS), 1L, Long::sum);
+            }
+            if (existingTO != null && existingTO.isEmpty()) {
+                statsDeltas.merge(Pair.of(namespace, STATS_KEY_TOTAL_TARGETS), 1L, Long::sum);
+            }
+        }
+        MappingsUtils.DaoActionStatus status;
+        try {
+            jdbcDelegator.executeInTransaction(conn -> {
+                jdbcDelegator.upsertRows(conn, tableData, _COL_ALL, _COL_UPDATE, upsertRows);
+                jdbcDelegator.updateStats(conn, STATS_MAPPING, statsDeltas);
+                return null;
+            });
+            status = MappingsUtils.DaoActionStatus.SUCCESSFUL;
+        } catch (RuntimeException e) {
+            LOGGER.error("Error saving " + mappingsToAdd.size() + " mapping(s): " + e
+                    .getMessage(), e);
+            status = MappingsUtils.DaoActionStatus.ERROR;
+        }
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(mappingsToAdd.size());
+        for (int i = 0, n = mappingsToAdd.size(); i < n; i++) {
+            result.add(new MappingsUtils.DaoResult(status));
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>See {@link #storageUnmapBatch(List, List, List)}.</p>
+     */
+    @Override
+    protected MappingsUtils.DaoResult storageUnmap(Mapping mappingToRemove,
+            Collection<Mapping> existingOT, Collection<Mapping> existingTO) {
+        return storageUnmapBatch(Collections.singletonList(mappingToRemove),
+                Collections.singletonList(existingOT), Collections.singletonList(existingTO))
+                .get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <ul>
+     * <li>Rows are deleted in one JDBC batch.</li>
+     * <li>Stats count {@link #STATS_KEY_TOTAL_OBJS} (resp. {@link #STATS_KEY_TOTAL_TARGETS}) is
+     * decreased if the object (resp. target) lost its last mapping.</li>
+     * <li>All operations above are within one transaction.</li>
+     * </ul>
+     */
+    @Override
+    protected List<MappingsUtils.DaoResult> storageUnmapBatch(List<Mapping> mappingsToRemove,
+            List<Collection<Mapping>> existingOTs, List<Collection<Mapping>> existingTOs) {
+        List<Object[]> deleteParams = new ArrayList<>(mappingsToRemove.size());
+        mappingsToRemove.forEach(bo -> deleteParams
+                .add(new Object[] {bo.getNamespace(), bo.getObject(), bo.getTarget()}));
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(mappingsToRemove.size());
+        try {
+            jdbcDelegator.executeInTransaction(conn -> {
+                int[] counts = JdbcDelegator.executeBatch(conn, sqlDelete, deleteParams);
+                Map<Pair<String, String>, Long> statsDeltas = new HashMap<>();
+                for (int i = 0; i < counts.length; i++) {
+                    if (!isAffected(counts[i])) {
+                        result.add(new MappingsUtils.DaoResult(
+                                MappingsUtils.DaoActionStatus.NOT_FOUND));
+                        continue;
+                    }
+                    Mapping bo = mappingsToRemove.get(i);
+                    Collection<Mapping> existingOT = existingOTs.get(i);
+                    Collection<Mapping> existingTO = existingTOs.get(i);
+                    if (existingOT != null && (existingOT.isEmpty() ||
+                            (existingOT.size() == 1 && existingOT.contains(bo)))) {
+                        statsDeltas.merge(Pair.of(bo.getNamespace(), STATS_KEY_TOTAL_OBJS), -1L,
+                                Long::sum);
+                    }
+                    if (existingTO != null && (existingTO.isEmpty() ||
+                            (existingTO.size() == 1 && existingTO.contains(bo)))) {
+                        statsDeltas.merge(Pair.of(bo.getNamespace(), STATS_KEY_TOTAL_TARGETS),
+                                -1L, Long::sum);
+                    }
+                    result.add(
+                            new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.SUCCESSFUL));
+                }
+                jdbcDelegator.updateStats(conn, STATS_MAPPING, statsDeltas);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            LOGGER.error("Error removing " + mappingsToRemove.size() + " mapping(s): " + e
+                    .getMessage(), e);
+            result.clear();
+            mappingsToRemove.forEach(bo -> result
+                    .add(new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.ERROR)));
+        }
+        return result;
+    }
+
+    private final static String SQL_COUNT_DISTINCT = "SELECT COUNT(DISTINCT {1}) FROM {0} WHERE "
+            + WHERE_NAMESPACE;
+
+    /**
+     * Recompute stats {@link #STATS_KEY_TOTAL_OBJS} and {@link #STATS_KEY_TOTAL_TARGETS} of a
+     * namespace with {@code COUNT(DISTINCT ...)} queries (served by the primary key and the
+     * covering index), and correct stored stats to match (e.g. periodically when
+     * {@link #isBlindWrites()} is enabled).
+     *
+     * @param namespace
+     * @return the recomputed stats
+     */
+    public Map<String, Long> recomputeStats(String namespace) {
+        return jdbcDelegator.executeInTransaction(conn -> {
+            Map<String, Long> stats = new HashMap<>();
+            JdbcDelegator.query(conn, MessageFormat.format(SQL_COUNT_DISTINCT, tableData,
+                    COL_OBJECT), rs -> stats.put(STATS_KEY_TOTAL_OBJS, rs.getLong(1)), namespace);
+            JdbcDelegator.query(conn, MessageFormat.format(SQL_COUNT_DISTINCT, tableData,
+                    COL_TARGET), rs -> stats.put(STATS_KEY_TOTAL_TARGETS, rs.getLong(1)),
+                    namespace);
+            jdbcDelegator.setStats(conn, STATS_MAPPING, namespace, stats);
+            return stats;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Rows of the namespace are streamed with a single query (served by the primary key).</p>
+     */
+    @Override
+    protected void storageScanKeys(String namespace, Consumer<String> objConsumer,
+            Consumer<String> targetConsumer) {
+        final String sql = MessageFormat.format(SQL_SELECT, tableData,
+                COL_OBJECT + "," + COL_TARGET, WHERE_NAMESPACE);
+        jdbcDelegator.execute(conn -> {
+            JdbcDelegator.query(conn, sql, rs -> {
+                objConsumer.accept(rs.getString(COL_OBJECT));
+                targetConsumer.accept(rs.getString(COL_TARGET));
+            }, namespace);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,327 @@
+package com.github.ddth.mappings.jdbc;
+
+import com.github.ddth.mappings.AbstractMappingOneOneDao;
+import com.github.ddth.mappings.Mapping;
+import com.github.ddth.mappings.utils.MappingsUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * JDBC-implementation of 1-1 mapping (MySQL, or H2 in {@code MODE=MySQL}).
+ *
+ * <p>One row per mapping; the primary key serves {@code object -> target} lookups and a
+ * covering index serves {@code target -> object} lookups. See {@code dbschema/dbschema.mysql.sql}
+ * for the schema.</p>
+ *
+ * <p>Uniqueness of targets is enforced by this DAO (as other implementations do), not by the
+ * index: mapping a target to a new object removes the row of its previous object.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class JdbcMappingOneOneDao extends AbstractMappingOneOneDao {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(JdbcMappingOneOneDao.class);
+
+    private JdbcDelegator jdbcDelegator;
+
+    private String tableData = "mapoo";
+
+    public JdbcDelegator getJdbcDelegator() {
+        return jdbcDelegator;
+    }
+
+    public JdbcMappingOneOneDao setJdbcDelegator(JdbcDelegator jdbcDelegator) {
+        this.jdbcDelegator = jdbcDelegator;
+        return this;
+    }
+
+    public String getTableData() {
+        return tableData;
+    }
+
+    public JdbcMappingOneOneDao setTableData(String tableData) {
+        this.tableData = tableData;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JdbcMappingOneOneDao init() {
+        super.init();
+
+        final String cols = StringUtils.join(_COL_ALL, ",");
+        sqlSelectByObj = MessageFormat.format(SQL_SELECT, tableData, cols, WHERE_OBJ);
+        sqlSelectByTarget = MessageFormat.format(SQL_SELECT, tableData, cols, WHERE_TARGET);
+        sqlSelectByNamespace = MessageFormat.format(SQL_SELECT, tableData, cols, WHERE_NAMESPACE);
+        sqlDeleteByObj = MessageFormat.format(SQL_DELETE, tableData, WHERE_OBJ);
+        sqlDeleteByObjTarget = MessageFormat.format(SQL_DELETE, tableData, WHERE_OBJ_TARGET);
+
+        return this;
+    }
+
+    private String sqlSelectByObj, sqlSelectByTarget, sqlSelectByNamespace;
+    private String sqlDeleteByObj, sqlDeleteByObjTarget;
+
+    private final static String COL_NAMESPACE = "m_namespace";
+    private final static String COL_OBJECT = "m_object";
+    private final static String COL_TARGET = "m_target";
+    private final static String COL_TIMESTAMP = "m_timestamp";
+    private final static String[] _COL_ALL = {COL_NAMESPACE, COL_OBJECT, COL_TARGET,
+            COL_TIMESTAMP};
+    private final static String[] _COL_UPDATE = {COL_TARGET, COL_TIMESTAMP};
+
+    private final static String WHERE_NAMESPACE = COL_NAMESPACE + "=?";
+    private final static String WHERE_OBJ = WHERE_NAMESPACE + " AND " + COL_OBJECT + "=?";
+    private final static String WHERE_TARGET = WHERE_NAMESPACE + " AND " + COL_TARGET + "=?";
+    private final static String WHERE_OBJ_TARGET = WHERE_OBJ + " AND " + COL_TARGET + "=?";
+
+    /* {0}: table name, {1}: column list, {2}: WHERE clause */
+    private final static String SQL_SELECT = "SELECT {1} FROM {0} WHERE {2}";
+    /* {0}: table name, {1}: WHERE clause */
+    private final static String SQL_DELETE = "DELETE FROM {0} WHERE {1}";
+
+    public final static String STATS_MAPPING = "mappings-oo";
+    public final static String STATS_KEY_TOTAL_ITEMS = "total-items";
+
+    private static Mapping newMapping(ResultSet rs) throws SQLException {
+        return Mapping.of(rs.getString(COL_NAMESPACE), rs.getString(COL_OBJECT),
+                rs.getString(COL_TARGET), rs.getLong(COL_TIMESTAMP));
+    }
+
+    private static boolean isAffected(int updateCount) {
+        return updateCount > 0 || updateCount == Statement.SUCCESS_NO_INFO;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getStats(String namespace) {
+        return jdbcDelegator.getAllStats(STATS_MAPPING, namespace);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Mapping storageGetMappingObjTarget(String namespace, String obj) {
+        return jdbcDelegator.execute(conn -> {
+            Mapping[] result = {null};
+            JdbcDelegator.query(conn, sqlSelectByObj, rs -> result[0] = newMapping(rs),
+                    namespace, obj);
+            return result[0];
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Mapping storageGetMappingTargetObj(String namespace, String target) {
+        return jdbcDelegator.execute(conn -> {
+            Mapping[] result = {null};
+            JdbcDelegator.query(conn, sqlSelectByTarget, rs -> result[0] = newMapping(rs),
+                    namespace, target);
+            return result[0];
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Objects are looked up with multi-key {@code IN} queries on the primary key.</p>
+     */
+    @Override
+    protected Map<String, Mapping> storageGetMappingObjTarget(String namespace,
+            Collection<String> objs) {
+        Map<String, Mapping> result = new HashMap<>();
+        objs.forEach(obj -> result.put(obj, null));
+        jdbcDelegator.execute(conn -> {
+            jdbcDelegator.queryIn(conn, sqlSelectByNamespace, new Object[] {namespace},
+                    COL_OBJECT, result.keySet(), rs -> {
+                        Mapping m = newMapping(rs);
+                        result.put(m.getObject(), m);
+                    });
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Targets are looked up with multi-key {@code IN} queries on the covering index.</p>
+     */
+    @Override
+    protected Map<String, Mapping> storageGetMappingTargetObj(String namespace,
+            Collection<String> targets) {
+        Map<String, Mapping> result = new HashMap<>();
+        targets.forEach(target -> result.put(target, null));
+        jdbcDelegator.execute(conn -> {
+            jdbcDelegator.queryIn(conn, sqlSelectByNamespace, new Object[] {namespace},
+                    COL_TARGET, result.keySet(), rs -> {
+                        Mapping m = newMapping(rs);
+                        result.put(m.getTarget(), m);
+                    });
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>See {@link #storageMapBatch(List, List, List)}.</p>
+     */
+    @Override
+    protected MappingsUtils.DaoResult storageMap(Mapping mappingToAdd, Mapping existingOT,
+            Mapping existingTO) {
+        return storageMapBatch(Collections.singletonList(mappingToAdd),
+                Collections.singletonList(existingOT), Collections.singletonList(existingTO))
+                .get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The net effect of all mappings is written within one transaction: rows of objects
+     * whose target has been taken over by another object are deleted (one JDBC batch), then new
+     * mappings are written by multi-row {@code INSERT ... ON DUPLICATE KEY UPDATE}, and finally
+     * stats delta is applied.</p>
+     */
+    @Override
+    protected List<MappingsUtils.DaoResult> storageMapBatch(List<Mapping> mappingsToAdd,
+            List<Mapping> existingOTs, List<Mapping> existingTOs) {
+        long now = System.currentTimeMillis();
+        // (namespace, object) -> did the row exist before this batch?
+        Map<Pair<String, String>, Boolean> existedBefore = new HashMap<>();
+        Map<Pair<String, String>, Mapping> toUpsert = new LinkedHashMap<>();
+        Set<Pair<String, String>> toDelete = new LinkedHashSet<>();
+        for (int i = 0, n = mappingsToAdd.size(); i < n; i++) {
+            Mapping bo = mappingsToAdd.get(i);
+            Mapping existingTO = existingTOs.get(i);
+            Pair<String, String> key = Pair.of(bo.getNamespace(), bo.getObject());
+            existedBefore.putIfAbsent(key, existingOTs.get(i) != null);
+            if (existingTO != null && !StringUtils.equals(bo.getObject(),
+                    existingTO.getObject())) {
+                Pair<String, String> displaced = Pair.of(bo.getNamespace(),
+                        existingTO.getObject());
+                existedBefore.putIfAbsent(displaced, true);
+                toUpsert.remove(displaced);
+                toDelete.add(displaced);
+            }
+            toDelete.remove(key);
+            toUpsert.put(key, Mapping.of(bo.getNamespace(), bo.getObject(), bo.getTarget(), now));
+        }
+        Map<Pair<String, String>, Long> statsDeltas = new HashMap<>();
+        existedBefore.forEach((k, existed) -> {
+            long delta = (toUpsert.containsKey(k) ? 1 : 0) - (existed ? 1 : 0);
+            statsDeltas.merge(Pair.of(k.getLeft(), STATS_KEY_TOTAL_ITEMS), delta, Long::sum);
+        });
+
+        List<Object[]> deleteParams = new ArrayList<>();
+        toDelete.forEach(k -> deleteParams.add(new Object[] {k.getLeft(), k.getRight()}));
+        List<Object[]> upsertRows = new ArrayList<>();
+        toUpsert.values().forEach(m -> upsertRows.add(new Object[] {m.getNamespace(),
+                m.getObject(), m.getTarget(), m.getTimestamp()}));
+        MappingsUtils.DaoActionStatus status;
+        try {
+            jdbcDelegator.executeInTransaction(conn -> {
+                JdbcDelegator.executeBatch(conn, sqlDeleteByObj, deleteParams);
+                jdbcDelegator.upsertRows(conn, tableData, _COL_ALL, _COL_UPDATE, upsertRows);
+                jdbcDelegator.updateStats(conn, STATS_MAPPING, statsDeltas);
+                return null;
+            });
+            status = MappingsUtils.DaoActionStatus.SUCCESSFUL;
+        } catch (RuntimeException e) {
+            LOGGER.error("Error saving " + mappingsToAdd.size() + " mapping(s): " + e
+                    .getMessage(), e);
+            status = MappingsUtils.DaoActionStatus.ERROR;
+        }
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(mappingsToAdd.size());
+        for (int i = 0, n = mappingsToAdd.size(); i < n; i++) {
+            result.add(new MappingsUtils.DaoResult(status));
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected MappingsUtils.DaoResult storageUnmap(Mapping mappingToRemove) {
+        return storageUnmapBatch(Collections.singletonList(mappingToRemove)).get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Rows are deleted in one JDBC batch, stats delta is applied within the same
+     * transaction.</p>
+     */
+    @Override
+    protected List<MappingsUtils.DaoResult> storageUnmapBatch(List<Mapping> mappingsToRemove) {
+        List<Object[]> deleteParams = new ArrayList<>(mappingsToRemove.size());
+        mappingsToRemove.forEach(bo -> deleteParams
+                .add(new Object[] {bo.getNamespace(), bo.getObject(), bo.getTarget()}));
+        List<MappingsUtils.DaoResult> result = new ArrayList<>(mappingsToRemove.size());
+        try {
+            jdbcDelegator.executeInTransaction(conn -> {
+                int[] counts = JdbcDelegator.executeBatch(conn, sqlDeleteByObjTarget,
+                        deleteParams);
+                Map<Pair<String, String>, Long> statsDeltas = new HashMap<>();
+                for (int i = 0; i < counts.length; i++) {
+                    if (isAffected(counts[i])) {
+                        statsDeltas.merge(Pair.of(mappingsToRemove.get(i).getNamespace(),
+                                STATS_KEY_TOTAL_ITEMS), -1L, Long::sum);
+                        result.add(new MappingsUtils.DaoResult(
+                                MappingsUtils.DaoActionStatus.SUCCESSFUL));
+                    } else {
+                        result.add(new MappingsUtils.DaoResult(
+                                MappingsUtils.DaoActionStatus.NOT_FOUND));
+                    }
+                }
+                jdbcDelegator.updateStats(conn, STATS_MAPPING, statsDeltas);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            LOGGER.error("Error removing " + mappingsToRemove.size() + " mapping(s): " + e
+                    .getMessage(), e);
+            result.clear();
+            mappingsToRemove.forEach(bo -> result
+                    .add(new MappingsUtils.DaoResult(MappingsUtils.DaoActionStatus.ERROR)));
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Rows of the namespace are streamed with a single query (served by the primary key).</p>
+     */
+    @Override
+    protected void storageScanKeys(String namespace, Consumer<String> objConsumer,
+            Consumer<String> targetConsumer) {
+        final String sql = MessageFormat.format(SQL_SELECT, tableData,
+                COL_OBJECT + "," + COL_TARGET, WHERE_NAMESPACE);
+        jdbcDelegator.execute(conn -> {
+            JdbcDelegator.query(conn, sql, rs -> {
+                objConsumer.accept(rs.getString(COL_OBJECT));
+                targetConsumer.accept(rs.getString(COL_TARGET));
+            }, namespace);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,236 @@
+package com.github.ddth.mappings.redis;
+
+import com.github.ddth.cacheadapter.CacheEntry;
+import com.github.ddth.cacheadapter.ICacheEntrySerializer;
+import com.github.ddth.cacheadapter.redis.RedisCacheFactory;
+import com.github.ddth.mappings.ICacheBulkAccessor;
+import com.github.ddth.mappings.utils.MappingsUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * {@link ICacheBulkAccessor} for caches created by a {@link RedisCacheFactory}: multi-key reads
+ * are {@code MGET} ({@code HMGET} in {@code HASH} key mode), multi-key writes are pipelined.
+ *
+ * <p>Key mode and entry serializer are those of {@link #getCacheFactory()}.
+ * {@link #getRedisDelegator()} must point to the cache factory's Redis server (checked by
+ * {@link #init()}; its {@code keyPrefix} is not used).</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class RedisCacheBulkAccessor implements ICacheBulkAccessor {
+
+    /**
+     * Key modes of {@code RedisCacheFactory}.
+     */
+    public enum KeyMode {
+        /**
+         * Redis key is {@code cacheName:key}.
+         */
+        NAMESPACE,
+        /**
+         * Redis key is the cache key itself.
+         */
+        MONOPOLISTIC,
+        /**
+         * Entries are fields of the hash {@code cacheName} (no per-entry TTL).
+         */
+        HASH
+    }
+
+    private RedisDelegator redisDelegator;
+    private RedisCacheFactory cacheFactory;
+    private ICacheEntrySerializer cacheEntrySerializer;
+    private KeyMode keyMode;
+    private int maxBatchSize = 1000;
+
+    public RedisDelegator getRedisDelegator() {
+        return redisDelegator;
+    }
+
+    public RedisCacheBulkAccessor setRedisDelegator(RedisDelegator redisDelegator) {
+        this.redisDelegator = redisDelegator;
+        return this;
+    }
+
+    /**
+     * The cache factory whose entries are accessed.
+     *
+     * @return
+     */
+    public RedisCacheFactory getCacheFactory() {
+        return cacheFactory;
+    }
+
+    public RedisCacheBulkAccessor setCacheFactory(RedisCacheFactory cacheFactory) {
+        this.cacheFactory = cacheFactory;
+        return this;
+    }
+
+    /**
+     * Entry serializer of the cache factory, available after {@link #init()}.
+     *
+     * @return
+     */
+    public ICacheEntrySerializer getCacheEntrySerializer() {
+        return cacheEntrySerializer;
+    }
+
+    /**
+     * Key mode of the cache factory, available after {@link #init()}.
+     *
+     * @return
+     */
+    public KeyMode getKeyMode() {
+        return keyMode;
+    }
+
+    /**
+     * Max number of keys per {@code MGET} (or per pipeline sync), default 1000.
+     *
+     * @return
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public RedisCacheBulkAccessor setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    public RedisCacheBulkAccessor init() {
+        if (redisDelegator == null || cacheFactory == null) {
+            throw new IllegalStateException("Redis delegator and cache factory must be set.");
+        }
+        if (!Objects.equals(redisDelegator.getRedisHostAndPort(),
+                cacheFactory.getRedisHostAndPort())) {
+            throw new IllegalStateException("Redis delegator [" + redisDelegator
+                    .getRedisHostAndPort() + "] does not point to the cache factory's Redis ["
+                    + cacheFactory.getRedisHostAndPort() + "].");
+        }
+        cacheEntrySerializer = cacheFactory.getCacheEntrySerializer();
+        if (cacheEntrySerializer == null) {
+            throw new IllegalStateException("Cache factory has no cache entry serializer.");
+        }
+        keyMode = KeyMode.valueOf(String.valueOf(cacheFactory.getKeyMode()));
+        return this;
+    }
+
+    private byte[] redisKey(String cacheName, String key) {
+        String result = keyMode == KeyMode.NAMESPACE ? cacheName + ":" + key : key;
+        return result.getBytes(MappingsUtils.UTF8);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> getAll(String cacheName, Collection<String> keys) {
+        List<String> keyList = new ArrayList<>(keys);
+        Map<String, Object> result = new HashMap<>();
+        int batchSize = maxBatchSize > 0 ? maxBatchSize : keyList.size();
+        try (Jedis jedis = redisDelegator.getJedisPool().getResource()) {
+            for (int from = 0; from < keyList.size(); from += batchSize) {
+                List<String> batch = keyList
+                        .subList(from, Math.min(from + batchSize, keyList.size()));
+                byte[][] redisKeys = new byte[batch.size()][];
+                for (int i = 0; i < redisKeys.length; i++) {
+                    redisKeys[i] = keyMode == KeyMode.HASH
+                            ? batch.get(i).getBytes(MappingsUtils.UTF8)
+                            : redisKey(cacheName, batch.get(i));
+                }
+                List<byte[]> values = keyMode == KeyMode.HASH
+                        ? jedis.hmget(cacheName.getBytes(MappingsUtils.UTF8), redisKeys)
+                        : jedis.mget(redisKeys);
+                Map<byte[], CacheEntry> touched = new HashMap<>();
+                List<byte[]> expired = new ArrayList<>();
+                for (int i = 0; i < redisKeys.length; i++) {
+                    byte[] data = values.get(i);
+                    CacheEntry ce = data != null ? cacheEntrySerializer.deserialize(data) : null;
+                    if (ce == null) {
+                        continue;
+                    }
+                    if (ce.isExpired()) {
+                        // HASH mode has no per-entry TTL: expired entries must be removed
+                        expired.add(redisKeys[i]);
+                        continue;
+                    }
+                    if (ce.touch()) {
+                        touched.put(redisKeys[i], ce);
+                    }
+                    if (ce.getValue() != null) {
+                        result.put(batch.get(i), ce.getValue());
+                    }
+                }
+                if (!expired.isEmpty() || !touched.isEmpty()) {
+                    updateEntries(jedis, cacheName, expired, touched);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Delete expired entries, write back entries whose last access time has been updated
+     * (expire-after-access), in one pipeline.
+     */
+    private void updateEntries(Jedis jedis, String cacheName, List<byte[]> expired,
+            Map<byte[], CacheEntry> touched) {
+        byte[] hashKey = cacheName.getBytes(MappingsUtils.UTF8);
+        Pipeline pipeline = jedis.pipelined();
+        if (!expired.isEmpty()) {
+            byte[][] keys = expired.toArray(new byte[0][]);
+            if (keyMode == KeyMode.HASH) {
+                pipeline.hdel(hashKey, keys);
+            } else {
+                pipeline.del(keys);
+            }
+        }
+        touched.forEach((redisKey, ce) -> {
+            byte[] data = cacheEntrySerializer.serialize(ce);
+            if (keyMode == KeyMode.HASH) {
+                pipeline.hset(hashKey, redisKey, data);
+            } else {
+                pipeline.setex(redisKey, (int) ce.getExpireAfterAccess(), data);
+            }
+        });
+        pipeline.sync();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putAll(String cacheName, Map<String, ?> entries, long ttlSeconds) {
+        byte[] hashKey = cacheName.getBytes(MappingsUtils.UTF8);
+        int batchSize = maxBatchSize > 0 ? maxBatchSize : entries.size();
+        try (Jedis jedis = redisDelegator.getJedisPool().getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            int counter = 0;
+            for (Map.Entry<String, ?> entry : entries.entrySet()) {
+                byte[] data = cacheEntrySerializer.serialize(new CacheEntry(entry.getKey(),
+                        entry.getValue(), ttlSeconds > 0 ? ttlSeconds : -1, -1));
+                if (keyMode == KeyMode.HASH) {
+                    pipeline.hset(hashKey, entry.getKey().getBytes(MappingsUtils.UTF8), data);
+                } else if (ttlSeconds > 0) {
+                    pipeline.setex(redisKey(cacheName, entry.getKey()), (int) ttlSeconds, data);
+                } else {
+                    pipeline.set(redisKey(cacheName, entry.getKey()), data);
+                }
+                if (++counter % batchSize == 0) {
+                    pipeline.sync();
+                }
+            }
+            pipeline.sync();
+        }
+    }
+}
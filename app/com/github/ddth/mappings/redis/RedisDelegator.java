@@ -0,0 +1,339 @@
+package com.github.ddth.mappings.redis;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Redis helper: short-lived cluster-wide leases ({@code SET key token NX PX ttl}), counters and
+ * shared Bloom filters (bitmaps).
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class RedisDelegator {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(RedisDelegator.class);
+
+    private String redisHostAndPort = "localhost:6379";
+    private String redisPassword;
+    private String keyPrefix = "onpar:";
+    private int maxConnections = 32;
+    private JedisPool jedisPool;
+    private boolean myOwnJedisPool = false;
+
+    public String getRedisHostAndPort() {
+        return redisHostAndPort;
+    }
+
+    public RedisDelegator setRedisHostAndPort(String redisHostAndPort) {
+        this.redisHostAndPort = redisHostAndPort;
+        return this;
+    }
+
+    public String getRedisPassword() {
+        return redisPassword;
+    }
+
+    public RedisDelegator setRedisPassword(String redisPassword) {
+        this.redisPassword = redisPassword;
+        return this;
+    }
+
+    /**
+     * Prefix of all Redis keys created by this delegator, default {@code "onpar:"}.
+     *
+     * @return
+     */
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public RedisDelegator setKeyPrefix(String keyPrefix) {
+        this.keyPrefix = keyPrefix != null ? keyPrefix : "";
+        return this;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public RedisDelegator setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    public JedisPool getJedisPool() {
+        return jedisPool;
+    }
+
+    public RedisDelegator setJedisPool(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+        return this;
+    }
+
+    public RedisDelegator init() {
+        if (jedisPool == null) {
+            String[] tokens = StringUtils.split(redisHostAndPort, ':');
+            String host = tokens.length > 0 ? tokens[0] : "localhost";
+            int port = tokens.length > 1 ? Integer.parseInt(tokens[1]) : Protocol.DEFAULT_PORT;
+            JedisPoolConfig poolConfig = new JedisPoolConfig();
+            poolConfig.setMaxTotal(maxConnections);
+            poolConfig.setMaxIdle(maxConnections);
+            poolConfig.setMinIdle(1);
+            poolConfig.setMaxWaitMillis(Protocol.DEFAULT_TIMEOUT);
+            poolConfig.setTestWhileIdle(true);
+            jedisPool = new JedisPool(poolConfig, host, port, Protocol.DEFAULT_TIMEOUT,
+                    StringUtils.isBlank(redisPassword) ? null : redisPassword);
+            myOwnJedisPool = true;
+        }
+        return this;
+    }
+
+    public void destroy() {
+        if (jedisPool != null && myOwnJedisPool) {
+            try {
+                jedisPool.destroy();
+            } catch (Exception e) {
+                LOGGER.warn(e.getMessage(), e);
+            } finally {
+                jedisPool = null;
+            }
+        }
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    private final static String LUA_RELEASE_LEASE = "if redis.call('get', KEYS[1]) == ARGV[1] "
+            + "then return redis.call('del', KEYS[1]) else return 0 end";
+
+    /**
+     * Try to acquire a lease.
+     *
+     * @param name
+     *         name of the lease
+     * @param ttlMs
+     *         lease's TTL in milliseconds, the lease is automatically released after this period
+     * @return the lease token (to be passed to {@link #releaseLease(String, String)}) if
+     * acquired, {@code null} if the lease is being held by someone else
+     */
+    public String tryAcquireLease(String name, long ttlMs) {
+        String token = UUID.randomUUID().toString();
+        try (Jedis jedis = jedisPool.getResource()) {
+            String result = jedis.set(keyPrefix + name, token, "NX", "PX", ttlMs);
+            return "OK".equalsIgnoreCase(result) ? token : null;
+        }
+    }
+
+    /**
+     * Release a lease, only if it is still held by {@code token}.
+     *
+     * @param name
+     * @param token
+     */
+    public void releaseLease(String name, String token) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.eval(LUA_RELEASE_LEASE, Collections.singletonList(keyPrefix + name),
+                    Collections.singletonList(token));
+        }
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /**
+     * Get current value of a counter.
+     *
+     * @param name
+     * @return {@code 0} if the counter does not exist
+     */
+    public long getCounter(String name) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            String value = jedis.get(keyPrefix + name);
+            return value != null ? Long.parseLong(value) : 0;
+        }
+    }
+
+    /**
+     * Atomically increase a counter by 1.
+     *
+     * @param name
+     * @return the counter's new value
+     */
+    public long incrCounter(String name) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            return jedis.incr(keyPrefix + name).longValue();
+        }
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    /*
+     * Shared Bloom filter {name}: bitmap "bf:{name}", rebuilt into "bf:{name}:next" while
+     * lease "bf:{name}:rebuild" is held; "bf:{name}:fresh" exists until the next rebuild is due.
+     */
+    private final static String LUA_BLOOM_ADD = "if redis.call('exists', KEYS[1]) == 1 then "
+            + "for i = 1, #ARGV do redis.call('setbit', KEYS[1], ARGV[i], 1) end end "
+            + "if redis.call('exists', KEYS[3]) == 1 then "
+            + "for i = 1, #ARGV do redis.call('setbit', KEYS[2], ARGV[i], 1) end end "
+            + "return 1";
+    private final static String LUA_BLOOM_MIGHT_CONTAIN = "if redis.call('exists', KEYS[1]) == 0 "
+            + "then return -1 end "
+            + "local k = tonumber(ARGV[1]) local result = {} "
+            + "for i = 0, (#ARGV - 1) / k - 1 do local found = 1 "
+            + "for j = 2, k + 1 do if redis.call('getbit', KEYS[1], ARGV[i * k + j]) == 0 "
+            + "then found = 0 break end end "
+            + "result[i + 1] = found end return result";
+    private final static String LUA_BLOOM_START_REBUILD = "if ARGV[3] == '0' "
+            + "and redis.call('exists', KEYS[1]) == 1 and redis.call('exists', KEYS[4]) == 1 "
+            + "then return 0 end "
+            + "if not redis.call('set', KEYS[3], ARGV[1], 'NX', 'PX', ARGV[2]) then return 0 end "
+            + "redis.call('del', KEYS[2]) redis.call('setbit', KEYS[2], 0, 0) return 1";
+    private final static String LUA_BLOOM_FINISH_REBUILD = "if redis.call('get', KEYS[3]) "
+            + "~= ARGV[1] or redis.call('exists', KEYS[2]) == 0 then "
+            + "redis.call('del', KEYS[5]) return 0 end "
+            + "redis.call('bitop', 'or', KEYS[2], KEYS[2], KEYS[5]) "
+            + "redis.call('rename', KEYS[2], KEYS[1]) redis.call('del', KEYS[5], KEYS[3]) "
+            + "if tonumber(ARGV[2]) > 0 then redis.call('set', KEYS[4], '1', 'PX', ARGV[2]) end "
+            + "return 1";
+
+    /**
+     * Keys of a shared Bloom filter: bitmap, next bitmap, rebuild lease, fresh marker. The name
+     * is a hash tag, so that all keys of a filter go to the same slot.
+     */
+    private List<String> bloomKeys(String name) {
+        String key = keyPrefix + "bf:{" + name + "}";
+        return Arrays.asList(key, key + ":next", key + ":rebuild", key + ":fresh");
+    }
+
+    /**
+     * Add bits to a shared Bloom filter (no-op if the filter has not been built), and to the
+     * filter being rebuilt if any.
+     *
+     * @param name
+     * @param bits
+     */
+    public void bloomAdd(String name, long[] bits) {
+        List<String> args = new ArrayList<>(bits.length);
+        for (long bit : bits) {
+            args.add(String.valueOf(bit));
+        }
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.eval(LUA_BLOOM_ADD, bloomKeys(name).subList(0, 3), args);
+        }
+    }
+
+    /**
+     * Check multiple items against a shared Bloom filter, in one round-trip.
+     *
+     * @param name
+     * @param bitsOfItems
+     *         bits of each item, all items have the same number of bits
+     * @return {@code result[i]} is {@code false} if item {@code i} is definitely not in the
+     * filter; {@code null} if the filter has not been built
+     */
+    public boolean[] bloomMightContain(String name, long[][] bitsOfItems) {
+        if (bitsOfItems.length == 0) {
+            return new boolean[0];
+        }
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(bitsOfItems[0].length));
+        for (long[] bits : bitsOfItems) {
+            for (long bit : bits) {
+                args.add(String.valueOf(bit));
+            }
+        }
+        Object reply;
+        try (Jedis jedis = jedisPool.getResource()) {
+            reply = jedis.eval(LUA_BLOOM_MIGHT_CONTAIN, bloomKeys(name).subList(0, 1), args);
+        }
+        if (!(reply instanceof List)) {
+            return null;
+        }
+        List<?> found = (List<?>) reply;
+        boolean[] result = new boolean[bitsOfItems.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ((Number) found.get(i)).longValue() != 0;
+        }
+        return result;
+    }
+
+    /**
+     * Start rebuilding a shared Bloom filter: acquire its rebuild lease and reset the next
+     * bitmap, which receives all {@link #bloomAdd(String, long[])} from now on.
+     *
+     * @param name
+     * @param force
+     *         {@code false}: do not rebuild if the filter exists and has been rebuilt recently
+     * @param leaseTtlMs
+     * @return the lease token (to be passed to {@link #bloomFinishRebuild(String, String, byte[],
+     * long)}), {@code null} if the filter is being rebuilt by someone else or does not need a
+     * rebuild
+     */
+    public String bloomStartRebuild(String name, boolean force, long leaseTtlMs) {
+        String token = UUID.randomUUID().toString();
+        try (Jedis jedis = jedisPool.getResource()) {
+            Object reply = jedis.eval(LUA_BLOOM_START_REBUILD, bloomKeys(name),
+                    Arrays.asList(token, String.valueOf(leaseTtlMs), force ? "1" : "0"));
+            return reply instanceof Number && ((Number) reply).longValue() != 0 ? token : null;
+        }
+    }
+
+    /**
+     * Finish rebuilding a shared Bloom filter: merge scanned bits into the next bitmap, which
+     * then replaces the filter, atomically.
+     *
+     * @param name
+     * @param token
+     * @param bitmap
+     *         scanned bits, in Redis bitmap order
+     * @param freshMs
+     *         no non-forced rebuild for this number of milliseconds
+     * @return {@code false} if the rebuild lease has been lost meanwhile (nothing is changed)
+     */
+    public boolean bloomFinishRebuild(String name, String token, byte[] bitmap, long freshMs) {
+        List<String> keys = new ArrayList<>(bloomKeys(name));
+        String scanned = keys.get(0) + ":scan:" + token;
+        keys.add(scanned);
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.set(scanned.getBytes(StandardCharsets.UTF_8), bitmap);
+            Object reply = jedis.eval(LUA_BLOOM_FINISH_REBUILD, keys,
+                    Arrays.asList(token, String.valueOf(freshMs)));
+            return reply instanceof Number && ((Number) reply).longValue() != 0;
+        }
+    }
+
+    /**
+     * Abort rebuilding a shared Bloom filter.
+     *
+     * @param name
+     * @param token
+     */
+    public void bloomAbortRebuild(String name, String token) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.eval(LUA_RELEASE_LEASE, bloomKeys(name).subList(2, 3),
+                    Collections.singletonList(token));
+        }
+    }
+
+    /**
+     * Delete a shared Bloom filter (lookups then find it not built).
+     *
+     * @param name
+     */
+    public void bloomDelete(String name) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.del(bloomKeys(name).get(0));
+        }
+    }
+}
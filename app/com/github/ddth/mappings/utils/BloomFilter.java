@@ -0,0 +1,170 @@
+package com.github.ddth.mappings.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe (lock-free) Bloom filter of strings.
+ *
+ * <p>{@link #mightContain(String)} never returns {@code false} for a string that has been
+ * {@link #put(String)}; it returns {@code true} for a string that has not been put with
+ * probability about the configured false positive rate (as long as the number of strings put
+ * does not exceed the expected number).</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long numBits;
+    private final int numHashes;
+
+    /**
+     * @param expectedItems
+     * @param fpp
+     *         desired false positive probability, {@code (0, 1)}
+     */
+    public BloomFilter(long expectedItems, double fpp) {
+        if (expectedItems < 1) {
+            throw new IllegalArgumentException("Expected number of items must be positive.");
+        }
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("False positive probability must be in (0, 1).");
+        }
+        this.numBits = numBits(expectedItems, fpp);
+        this.numHashes = numHashes(expectedItems, numBits);
+        this.bits = new AtomicLongArray((int) (numBits >>> 6));
+    }
+
+    /**
+     * Number of bits of a filter (a multiple of 64).
+     *
+     * @param expectedItems
+     * @param fpp
+     * @return
+     */
+    public static long numBits(long expectedItems, double fpp) {
+        // m = -n * ln(p) / (ln 2)^2
+        long m = (long) Math.ceil(-expectedItems * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        return Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) >>> 6)) << 6;
+    }
+
+    /**
+     * Number of hash functions of a filter.
+     *
+     * @param expectedItems
+     * @param numBits
+     * @return
+     */
+    public static int numHashes(long expectedItems, long numBits) {
+        // k = m / n * ln 2
+        return Math.max(1, (int) Math.round((double) numBits / expectedItems * Math.log(2)));
+    }
+
+    /**
+     * Positions of the bits of a string, in a filter of {@code numBits} bits and
+     * {@code numHashes} hash functions.
+     *
+     * @param item
+     * @param numBits
+     * @param numHashes
+     * @return
+     */
+    public static long[] bitsOf(String item, long numBits, int numHashes) {
+        long h1 = hash(item), h2 = fmix64(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        long[] result = new long[numHashes];
+        for (int i = 0; i < numHashes; i++) {
+            result[i] = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+        }
+        return result;
+    }
+
+    /**
+     * Size of the filter, in bytes.
+     *
+     * @return
+     */
+    public long sizeInBytes() {
+        return numBits >>> 3;
+    }
+
+    public long numBits() {
+        return numBits;
+    }
+
+    public int numHashes() {
+        return numHashes;
+    }
+
+    /**
+     * Bits of the filter: bit {@code i} is bit {@code 7 - i % 8} of byte {@code i / 8} (same
+     * order as Redis bitmaps).
+     *
+     * @return
+     */
+    public byte[] toByteArray() {
+        byte[] result = new byte[(int) (numBits >>> 3)];
+        for (int word = 0, n = bits.length(); word < n; word++) {
+            long value = bits.get(word);
+            for (int i = 0; i < 8 && value != 0; i++, value >>>= 8) {
+                result[(word << 3) + i] = (byte) (Integer.reverse((int) (value & 0xFF)) >>> 24);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add a string to the filter.
+     *
+     * @param item
+     */
+    public void put(String item) {
+        long h1 = hash(item), h2 = fmix64(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long value = bits.get(word);
+            while ((value & mask) == 0 && !bits.compareAndSet(word, value, value | mask)) {
+                value = bits.get(word);
+            }
+        }
+    }
+
+    /**
+     * Check if a string might have been added to the filter.
+     *
+     * @param item
+     * @return {@code false} if the string has definitely not been added
+     */
+    public boolean mightContain(String item) {
+        long h1 = hash(item), h2 = fmix64(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a over UTF-16 chars, finalized with MurmurHash3's mixer.
+     */
+    private static long hash(String item) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0, n = item.length(); i < n; i++) {
+            h = (h ^ item.charAt(i)) * 0x100000001B3L;
+        }
+        return fmix64(h);
+    }
+
+    private static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE1A85EC5L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
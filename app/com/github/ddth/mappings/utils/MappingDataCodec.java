@@ -0,0 +1,209 @@
+package com.github.ddth.mappings.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary codec for mapping data blobs (column {@code m_data}).
+ *
+ * <p>Format (version 1):</p>
+ * <pre>
+ * [0x00 marker][version: 1 byte][flags: 1 byte]
+ * [value length: varint][value: utf-8 bytes]   (if flag FLAG_VALUE is set)
+ * [timestamp: 8 bytes, big-endian]
+ * [info length: varint][info: bytes]           (if flag FLAG_INFO is set)
+ * </pre>
+ *
+ * <p>Blobs written by the legacy simple-encoding
+ * ({@link MappingsUtils#seEncodeAsByteBuffer(String...)}, {@code [value 0x01]
+ * timestamp-as-decimal-string}) never start with byte {@code 0x00} (values are trimmed), so both
+ * formats can be read by {@link #decode(ByteBuffer, boolean)}.</p>
+ *
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.1.0
+ */
+public class MappingDataCodec {
+
+    public final static byte MARKER = 0x00;
+    public final static byte VERSION_1 = 1;
+
+    public final static int FLAG_VALUE = 0x01;
+    public final static int FLAG_INFO = 0x02;
+
+    /**
+     * Decoded mapping data.
+     */
+    public static class Data {
+        /**
+         * The mapped value (e.g. target of mapping {@code obj -> target}), {@code null} if not
+         * stored.
+         */
+        public final String value;
+        public final long timestamp;
+        /**
+         * Optional extra info, {@code null} if not stored.
+         */
+        public final byte[] info;
+
+        public Data(String value, long timestamp, byte[] info) {
+            this.value = value;
+            this.timestamp = timestamp;
+            this.info = info;
+        }
+    }
+
+    /**
+     * Encode mapping data.
+     *
+     * @param value
+     *         {@code null} if value is not needed (e.g. it is already part of the row's key)
+     * @param timestamp
+     * @return
+     */
+    public static ByteBuffer encode(String value, long timestamp) {
+        return encode(value, timestamp, null);
+    }
+
+    /**
+     * Encode mapping data.
+     *
+     * @param value
+     *         {@code null} if value is not needed (e.g. it is already part of the row's key)
+     * @param timestamp
+     * @param info
+     *         optional extra info, can be {@code null}
+     * @return
+     */
+    public static ByteBuffer encode(String value, long timestamp, byte[] info) {
+        byte[] valueBytes = value != null ? value.getBytes(MappingsUtils.UTF8) : null;
+        int size = 3 + 8;
+        int flags = 0;
+        if (valueBytes != null) {
+            flags |= FLAG_VALUE;
+            size += varintSize(valueBytes.length) + valueBytes.length;
+        }
+        if (info != null) {
+            flags |= FLAG_INFO;
+            size += varintSize(info.length) + info.length;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.put(MARKER).put(VERSION_1).put((byte) flags);
+        if (valueBytes != null) {
+            putVarint(buf, valueBytes.length);
+            buf.put(valueBytes);
+        }
+        buf.putLong(timestamp);
+        if (info != null) {
+            putVarint(buf, info.length);
+            buf.put(info);
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * Decode mapping data, either in binary or legacy simple-encoding format.
+     *
+     * <p>Note: position of the input buffer is not changed.</p>
+     *
+     * @param input
+     * @param legacyHasValue
+     *         for legacy format only: does the blob contain value before timestamp?
+     * @return {@code null} if input is {@code null} or empty
+     */
+    public static Data decode(ByteBuffer input, boolean legacyHasValue) {
+        if (input == null || !input.hasRemaining()) {
+            return null;
+        }
+        ByteBuffer buf = input.duplicate();
+        if (buf.get(buf.position()) != MARKER) {
+            return decodeLegacy(buf, legacyHasValue);
+        }
+        buf.get();
+        byte version = buf.get();
+        if (version != VERSION_1) {
+            throw new IllegalArgumentException("Unsupported mapping data version: " + version);
+        }
+        int flags = buf.get();
+        String value = null;
+        if ((flags & FLAG_VALUE) != 0) {
+            int len = getVarint(buf);
+            value = readString(buf, len);
+        }
+        long timestamp = buf.getLong();
+        byte[] info = null;
+        if ((flags & FLAG_INFO) != 0) {
+            info = new byte[getVarint(buf)];
+            buf.get(info);
+        }
+        return new Data(value, timestamp, info);
+    }
+
+    private static Data decodeLegacy(ByteBuffer buf, boolean legacyHasValue) {
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        String[] tokens = MappingsUtils.seDecode(bytes);
+        if (legacyHasValue) {
+            return new Data(tokens[0], Long.parseLong(tokens[1]), null);
+        }
+        return new Data(null, Long.parseLong(tokens[0]), null);
+    }
+
+    private static String readString(ByteBuffer buf, int len) {
+        if (buf.hasArray()) {
+            String result = new String(buf.array(), buf.arrayOffset() + buf.position(), len,
+                    MappingsUtils.UTF8);
+            buf.position(buf.position() + len);
+            return result;
+        }
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return new String(bytes, MappingsUtils.UTF8);
+    }
+
+    /**
+     * Number of bytes of an unsigned varint.
+     *
+     * @param value
+     * @return
+     */
+    public static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Write an unsigned varint (7 bits per byte, least significant group first).
+     *
+     * @param buf
+     * @param value
+     */
+    public static void putVarint(ByteBuffer buf, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte) value);
+    }
+
+    /**
+     * Read an unsigned varint written by {@link #putVarint(ByteBuffer, int)}.
+     *
+     * @param buf
+     * @return
+     */
+    public static int getVarint(ByteBuffer buf) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buf.get();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -1,15 +1,25 @@
 package com.github.ddth.mappings.utils;
 
+import com.github.ddth.mappings.Mapping;
 import com.github.ddth.mappings.MappingBo;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Utility class.
@@ -42,21 +52,126 @@ public class MappingsUtils {
 
     public static class DaoResult {
         public final DaoActionStatus status;
-        public final Collection<MappingBo> output = new HashSet<>();
+        /**
+         * Existing mappings as {@link MappingBo}s, converted upon access (see
+         * {@link #getMappings()}).
+         */
+        public final Collection<MappingBo> output;
+        private final Collection<Mapping> mappings;
 
         public DaoResult(DaoActionStatus status) {
-            this(status, null);
+            this(Collections.emptySet(), status);
         }
 
         public DaoResult(DaoActionStatus status, Collection<MappingBo> output) {
+            this(copyOf(output, Mapping::fromMappingBo), status);
+        }
+
+        private DaoResult(Collection<Mapping> mappings, DaoActionStatus status) {
             this.status = status;
-            if (output != null) {
-                output.stream().filter(bo -> bo != null).allMatch(bo -> this.output.add(bo));
+            this.mappings = Collections.unmodifiableCollection(mappings);
+            this.output = new AbstractCollection<MappingBo>() {
+                @Override
+                public int size() {
+                    return mappings.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return o instanceof MappingBo
+                            && mappings.contains(Mapping.fromMappingBo((MappingBo) o));
+                }
+
+                @Override
+                public Iterator<MappingBo> iterator() {
+                    Iterator<Mapping> it = mappings.iterator();
+                    return new Iterator<MappingBo>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public MappingBo next() {
+                            return it.next().toMappingBo();
+                        }
+                    };
+                }
+            };
+        }
+
+        private static <T> Set<Mapping> copyOf(Collection<T> input,
+                Function<T, Mapping> mapper) {
+            Set<Mapping> result = new HashSet<>();
+            if (input != null) {
+                input.stream().filter(e -> e != null).forEach(e -> result.add(mapper.apply(e)));
             }
+            return result;
+        }
+
+        /**
+         * Create a result with a single existing mapping.
+         *
+         * @param status
+         * @param mapping
+         *         may be {@code null}
+         * @return
+         * @since 0.1.0
+         */
+        public static DaoResult of(DaoActionStatus status, Mapping mapping) {
+            return new DaoResult(mapping != null ? Collections.singleton(mapping)
+                    : Collections.emptySet(), status);
+        }
+
+        /**
+         * Create a result with existing mappings (copied).
+         *
+         * @param status
+         * @param mappings
+         *         may be {@code null}
+         * @return
+         * @since 0.1.0
+         */
+        public static DaoResult of(DaoActionStatus status, Collection<Mapping> mappings) {
+            return new DaoResult(copyOf(mappings, Function.identity()), status);
+        }
+
+        /**
+         * Create a result whose output is a read-only view of {@code mappings} (e.g. of a large
+         * collection), instead of a copy.
+         *
+         * @param status
+         * @param mappings
+         *         must not contain {@code null}, and must not change afterward
+         * @return
+         * @since 0.1.0
+         */
+        public static DaoResult withOutputView(DaoActionStatus status,
+                Collection<Mapping> mappings) {
+            return new DaoResult(mappings, status);
+        }
+
+        /**
+         * Existing mappings, read-only.
+         *
+         * @return
+         * @since 0.1.0
+         */
+        public Collection<Mapping> getMappings() {
+            return mappings;
+        }
+
+        /**
+         * @return
+         * @since 0.1.0
+         */
+        public Mapping getSingleMapping() {
+            return mappings.stream().findAny().orElse(null);
         }
 
         public MappingBo getSingleOutput() {
-            return output.stream().findAny().orElse(null);
+            Mapping m = getSingleMapping();
+            return m != null ? m.toMappingBo() : null;
         }
 
         /**
@@ -65,7 +180,7 @@ public class MappingsUtils {
         @Override
         public String toString() {
             ToStringBuilder tsb = new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE);
-            tsb.append("status", status).append("output", output);
+            tsb.append("status", status).append("output", mappings);
             return tsb.toString();
         }
     }
@@ -138,4 +253,61 @@ public class MappingsUtils {
         return seDecode(input != null ? input.array() : null);
     }
 
+    /**
+     * Slice a page out of a fully loaded collection: items are sorted and the cursor is the
+     * offset of the next page.
+     *
+     * @param items
+     * @param comparator
+     * @param limit
+     *         max number of items of the page
+     * @param cursor
+     *         {@code null} for the first page
+     * @return {@code (items of the page, cursor of the next page or null if no more page)}
+     */
+    public static <T> Pair<List<T>, String> slice(Collection<T> items,
+            Comparator<? super T> comparator, int limit, String cursor) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Invalid limit: " + limit);
+        }
+        int offset;
+        try {
+            offset = cursor != null ? Integer.parseInt(cursor) : 0;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        if (items == null || offset < 0 || offset >= items.size()) {
+            return Pair.of(Collections.emptyList(), null);
+        }
+        List<T> sorted = new ArrayList<>(items);
+        sorted.sort(comparator);
+        int end = Math.min(offset + limit, sorted.size());
+        return Pair.of(new ArrayList<>(sorted.subList(offset, end)),
+                end < sorted.size() ? String.valueOf(end) : null);
+    }
+
+    /**
+     * Calculate hash-bucket of a mapping key.
+     *
+     * <p>Note: result must be stable across JVMs and versions as it is persisted as part of
+     * partition keys.</p>
+     *
+     * @param type
+     * @param key
+     * @param numBuckets
+     * @return a value in range {@code [0, numBuckets)}
+     */
+    public static int bucket(String type, String key, int numBuckets) {
+        if (numBuckets <= 1) {
+            return 0;
+        }
+        int h = 31 * (type != null ? type.hashCode() : 0) + (key != null ? key.hashCode() : 0);
+        // murmur3 finalizer, to spread similar keys over buckets
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, numBuckets);
+    }
 }
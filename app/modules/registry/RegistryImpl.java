@@ -7,6 +7,7 @@ import java.util.concurrent.CompletableFuture;
 
 import javax.inject.Inject;
 
+import com.github.ddth.mappings.AbstractMappingDao;
 import com.github.ddth.mappings.IMappingDao;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
@@ -141,6 +142,7 @@ public class RegistryImpl implements IRegistry {
                         "file:" + springConfigFile.getAbsolutePath());
                 applicationContext.start();
                 appContext = applicationContext;
+                initRefreshAheadExecutors();
             } else {
                 Logger.warn(
                         "Spring config file [" + springConfigFile + "] not found or not readable!");
@@ -148,6 +150,18 @@ public class RegistryImpl implements IRegistry {
         }
     }
 
+    /**
+     * Mapping DAOs with no explicit refresh-ahead executor reload cache entries on
+     * "db-dispatcher" (bounded pool for blocking DB access).
+     */
+    private void initRefreshAheadExecutors() {
+        appContext.getBeansOfType(AbstractMappingDao.class).values().forEach(dao -> {
+            if (dao.getRefreshAheadExecutor() == null) {
+                dao.setRefreshAheadExecutor(getExecutionContextExecutor("db-dispatcher"));
+            }
+        });
+    }
+
     private void destroyApplicationContext() {
         if (appContext != null) {
             try {
@@ -43,6 +43,62 @@ CREATE TABLE mapmm_data (
 ) WITH COMPACT STORAGE;
 
 
+-- ===== Alternative partition layouts for mapoo_data / mapmm_data
+-- Legacy tables above use m_namespace as the only partition key (layout NAMESPACE): a busy
+-- namespace lands in one single, unbounded partition. Tables below spread a namespace's mappings
+-- over the ring. Configure DAO's "tableData" and "tableLayout" (and "numBuckets") accordingly.
+
+-- Layout KEY: one partition per mapping key
+CREATE TABLE mapoo_data_bykey (
+    m_namespace             VARCHAR,
+    m_type                  VARCHAR,
+    m_key                   VARCHAR,
+    m_data                  BLOB,
+    PRIMARY KEY ((m_namespace, m_type, m_key))
+) WITH COMPACT STORAGE;
+
+CREATE TABLE mapmm_data_bykey (
+    m_namespace             VARCHAR,
+    m_type                  VARCHAR,
+    m_key                   VARCHAR,
+    m_value                 VARCHAR,
+    m_data                  BLOB,
+    PRIMARY KEY ((m_namespace, m_type, m_key), m_value)
+) WITH COMPACT STORAGE;
+
+-- Layout BUCKET: a namespace is split into "numBuckets" partitions,
+-- m_bucket = MappingsUtils.bucket(m_type, m_key, numBuckets)
+CREATE TABLE mapoo_data_bybucket (
+    m_namespace             VARCHAR,
+    m_bucket                INT,
+    m_type                  VARCHAR,
+    m_key                   VARCHAR,
+    m_data                  BLOB,
+    PRIMARY KEY ((m_namespace, m_bucket), m_type, m_key)
+) WITH COMPACT STORAGE;
+
+CREATE TABLE mapmm_data_bybucket (
+    m_namespace             VARCHAR,
+    m_bucket                INT,
+    m_type                  VARCHAR,
+    m_key                   VARCHAR,
+    m_value                 VARCHAR,
+    m_data                  BLOB,
+    PRIMARY KEY ((m_namespace, m_bucket), m_type, m_key, m_value)
+) WITH COMPACT STORAGE;
+
+-- Migration from layout NAMESPACE:
+--   1. Create the new table(s) above.
+--   2. Stop writers (or put them into maintenance mode).
+--   3. For each namespace, call CqlMappingOneOneDao/CqlMappingManyManyDao.migrateNamespaceFrom(
+--      "mapoo_data"/"mapmm_data", namespace, fetchSize) on a DAO configured with the new
+--      table/layout. It streams the legacy partition and re-inserts rows, it is safe to re-run.
+--   4. Switch "tableData"/"tableLayout"/"numBuckets" in conf/spring/beans.xml & restart.
+--      Stats (mappings_stats) and cache keys do not depend on table layout and are kept as-is.
+--   5. Drop the legacy tables once verified.
+-- Note: "numBuckets" must never change after data is written to a BUCKET-layout table.
+
+
 -- ===== Tables to store n-1 mappings
 -- Map: object -> target
 CREATE TABLE mapmo_objtarget (
@@ -60,3 +116,6 @@ CREATE TABLE mapmo_targetobj (
     m_data                  BLOB,
     PRIMARY KEY (m_namespace, m_target, m_object)
 ) WITH COMPACT STORAGE;
+
+-- Format of m_data: see MappingDataCodec (binary, versioned). Rows written by older versions
+-- (0x01-separated strings, timestamp as decimal string) are still readable, no migration needed.
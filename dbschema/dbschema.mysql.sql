@@ -0,0 +1,45 @@
+-- MySQL schema for Onpar (JdbcMappingOneOneDao/JdbcMappingManyManyDao)
+-- (also works with H2 in MODE=MySQL)
+
+-- Create database & user
+CREATE DATABASE onpar DEFAULT CHARACTER SET utf8mb4 COLLATE utf8mb4_bin;
+
+CREATE USER 'onpar'@'%' IDENTIFIED BY 's3cr3tp2ssw0rd';
+GRANT SELECT, INSERT, UPDATE, DELETE ON onpar.* TO 'onpar'@'%';
+
+USE onpar;
+
+-- Stats, shared by all mapping tables
+CREATE TABLE mappings_stats (
+    m_mapping               VARCHAR(32)     NOT NULL,
+    m_namespace             VARCHAR(64)     NOT NULL,
+    m_key                   VARCHAR(32)     NOT NULL,
+    m_value                 BIGINT          NOT NULL,
+    PRIMARY KEY (m_mapping, m_namespace, m_key)
+) ENGINE=InnoDB;
+
+
+-- ===== Table to store 1-1 mappings
+-- Primary key serves object -> target lookups, the covering index serves target -> object
+-- lookups. Uniqueness of targets is enforced by the DAO, not by the index.
+CREATE TABLE mapoo (
+    m_namespace             VARCHAR(64)     NOT NULL,
+    m_object                VARCHAR(191)    NOT NULL,
+    m_target                VARCHAR(191)    NOT NULL,
+    m_timestamp             BIGINT          NOT NULL,
+    PRIMARY KEY (m_namespace, m_object)
+) ENGINE=InnoDB;
+CREATE INDEX idx_mapoo_target ON mapoo (m_namespace, m_target, m_object, m_timestamp);
+
+
+-- ===== Table to store n-n mappings
+CREATE TABLE mapmm (
+    m_namespace             VARCHAR(64)     NOT NULL,
+    m_object                VARCHAR(191)    NOT NULL,
+    m_target                VARCHAR(191)    NOT NULL,
+    m_timestamp             BIGINT          NOT NULL,
+    PRIMARY KEY (m_namespace, m_object, m_target)
+) ENGINE=InnoDB;
+CREATE INDEX idx_mapmm_target ON mapmm (m_namespace, m_target, m_object, m_timestamp);
+
+-- Note: VARCHAR(191) keeps index keys within InnoDB's 767-byte limit with utf8mb4.
@@ -0,0 +1,65 @@
+package akka.cluster;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.github.ddth.mappings.Mapping;
+import com.github.ddth.mappings.inmem.InmemMappingManyManyDao;
+
+import junit.framework.TestCase;
+
+public class CacheInvalidationActorTest extends TestCase {
+
+    public CacheInvalidationActorTest(String testName) {
+        super(testName);
+    }
+
+    private final static String NAMESPACE = "enrollment";
+    private final static String SELF = "akka://onpar@10.0.0.1:9051";
+    private final static String OTHER = "akka://onpar@10.0.0.2:9051";
+
+    private static class Dao extends InmemMappingManyManyDao {
+        private String cacheKeyOf(String obj) {
+            return cacheKeyObjTarget(NAMESPACE, obj);
+        }
+    }
+
+    private static CacheInvalidationMessage message(String origin, String cacheName,
+            String key) {
+        return new CacheInvalidationMessage(origin,
+                Collections.singletonMap(cacheName, Collections.singleton(key)));
+    }
+
+    @Test
+    public void testEvictL1Caches() {
+        ExecutorService asyncExecutor = Executors.newSingleThreadExecutor();
+        Dao dao = new Dao();
+        dao.setCacheName("MAPMM");
+        dao.setAsyncExecutor(asyncExecutor).init();
+        try {
+            dao.getStore().add(Mapping.of(NAMESPACE, "one", "1"), false, false);
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "one").size());
+            // written by "another node": L1 entry of this node is stale
+            dao.getStore().add(Mapping.of(NAMESPACE, "one", "2"), false, false);
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "one").size());
+
+            // own invalidations and other caches' are ignored
+            CacheInvalidationActor.evictL1Caches(SELF,
+                    message(SELF, "MAPMM", dao.cacheKeyOf("one")), dao);
+            CacheInvalidationActor.evictL1Caches(SELF,
+                    message(OTHER, "MAPOO", dao.cacheKeyOf("one")), dao);
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "one").size());
+
+            CacheInvalidationActor.evictL1Caches(SELF,
+                    message(OTHER, "MAPMM", dao.cacheKeyOf("one")), null, dao);
+            assertEquals(2, dao.getMappingsForObject(NAMESPACE, "one").size());
+        } finally {
+            dao.destroy();
+            asyncExecutor.shutdown();
+        }
+    }
+
+}
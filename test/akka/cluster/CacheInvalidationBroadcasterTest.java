@@ -0,0 +1,62 @@
+package akka.cluster;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class CacheInvalidationBroadcasterTest extends TestCase {
+
+    public CacheInvalidationBroadcasterTest(String testName) {
+        super(testName);
+    }
+
+    @Test
+    public void testDiscardWhileInactive() {
+        CacheInvalidationBroadcaster broadcaster = new CacheInvalidationBroadcaster();
+        broadcaster.broadcast("MAPMM", "key1");
+        assertTrue(broadcaster.drain().isEmpty());
+
+        broadcaster.setActive(true);
+        broadcaster.broadcast("MAPMM", "key2");
+        // deactivation drains (and discards) buffered invalidations
+        broadcaster.setActive(false);
+        broadcaster.broadcast("MAPMM", "key3");
+        assertTrue(broadcaster.drain().isEmpty());
+    }
+
+    @Test
+    public void testDrainGroupsByCacheName() {
+        CacheInvalidationBroadcaster broadcaster = new CacheInvalidationBroadcaster()
+                .setActive(true);
+        broadcaster.broadcast("MAPMM", "key1");
+        broadcaster.broadcast("MAPMM", "key2");
+        broadcaster.broadcast("MAPMM", "key1");
+        broadcaster.broadcast("MAPOO", "key1");
+        Map<String, Set<String>> keys = broadcaster.drain();
+        assertEquals(2, keys.size());
+        assertEquals(2, keys.get("MAPMM").size());
+        assertEquals(1, keys.get("MAPOO").size());
+        assertTrue(broadcaster.drain().isEmpty());
+    }
+
+    @Test
+    public void testMaxPendingKeys() {
+        CacheInvalidationBroadcaster broadcaster = new CacheInvalidationBroadcaster()
+                .setMaxPendingKeys(3).setActive(true);
+        for (int i = 0; i < 10; i++) {
+            broadcaster.broadcast("MAPMM", "key" + i);
+        }
+        // keys beyond the limit are dropped (and logged), the first ones are kept
+        Set<String> keys = broadcaster.drain().get("MAPMM");
+        assertEquals(3, keys.size());
+        assertTrue(keys.contains("key0") && keys.contains("key2"));
+
+        // draining makes room again
+        broadcaster.broadcast("MAPMM", "key10");
+        assertEquals(1, broadcaster.drain().get("MAPMM").size());
+    }
+
+}
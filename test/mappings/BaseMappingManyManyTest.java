@@ -1,15 +1,23 @@
 package mappings;
 
+import com.github.ddth.mappings.AbstractMappingManyManyDao;
+import com.github.ddth.mappings.IAsyncMappingDao;
 import com.github.ddth.mappings.IMappingDao;
 import com.github.ddth.mappings.MappingBo;
+import com.github.ddth.mappings.MappingsPage;
 import com.github.ddth.mappings.cql.CqlMappingManyManyDao;
+import com.github.ddth.mappings.jdbc.JdbcMappingManyManyDao;
 import com.github.ddth.mappings.utils.MappingsUtils;
 import junit.framework.TestCase;
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Created by thanhnb on 7/16/17.
@@ -37,6 +45,11 @@ public abstract class BaseMappingManyManyTest extends TestCase {
     }
 
     protected final static String NAMESPACE = "enrollment";
+    protected final static ExecutorService ASYNC_EXECUTOR = Executors.newFixedThreadPool(4, r -> {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        return t;
+    });
     protected IMappingDao mappingsDao;
 
     private void assertTotalItems(long expectedObjs, long expectedTargets) {
@@ -362,4 +375,166 @@ public abstract class BaseMappingManyManyTest extends TestCase {
             assertObjectsForTarget(Collections.singleton(object), target);
         }
     }
+
+    @Test
+    public void testMapUnmapBatch() {
+        List<Pair<String, String>> pairs = Arrays.asList(Pair.of("one", "1"), Pair.of("one", "2"),
+                Pair.of("two", "1"), Pair.of("one", "1"));
+        List<MappingsUtils.DaoResult> daoResults = mappingsDao.mapBatch(NAMESPACE, pairs);
+        assertEquals(pairs.size(), daoResults.size());
+        daoResults.forEach(r -> assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL, r.status));
+        assertEquals(0, daoResults.get(0).output.size());
+        assertEquals(1, daoResults.get(1).output.size());
+        assertEquals(0, daoResults.get(2).output.size());
+        assertEquals(2, daoResults.get(3).output.size());
+
+        assertTotalItems(2, 2);
+        assertTargetsForObject(new HashSet<>(Arrays.asList("1", "2")), "one");
+        assertTargetsForObject(Collections.singleton("1"), "two");
+        assertObjectsForTarget(new HashSet<>(Arrays.asList("one", "two")), "1");
+        assertObjectsForTarget(Collections.singleton("one"), "2");
+
+        pairs = Arrays.asList(Pair.of("one", "1"), Pair.of("two", "2"), Pair.of("two", "1"));
+        daoResults = mappingsDao.unmapBatch(NAMESPACE, pairs);
+        assertEquals(pairs.size(), daoResults.size());
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL, daoResults.get(0).status);
+        assertEquals(MappingsUtils.DaoActionStatus.NOT_FOUND, daoResults.get(1).status);
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL, daoResults.get(2).status);
+
+        assertTotalItems(1, 1);
+        assertTargetsForObject(Collections.singleton("2"), "one");
+        assertTargetsForObject(Collections.EMPTY_SET, "two");
+        assertObjectsForTarget(Collections.EMPTY_SET, "1");
+        assertObjectsForTarget(Collections.singleton("one"), "2");
+    }
+
+    @Test
+    public void testGetMappingsMultiple() {
+        mappingsDao.map(NAMESPACE, "one", "1");
+        mappingsDao.map(NAMESPACE, "one", "2");
+        mappingsDao.map(NAMESPACE, "two", "2");
+
+        Map<String, Collection<MappingBo>> result = mappingsDao
+                .getMappingsForObjects(NAMESPACE, Arrays.asList("one", "two", "three"));
+        assertEquals(3, result.size());
+        assertEquals(2, result.get("one").size());
+        assertEquals(1, result.get("two").size());
+        assertEquals(0, result.get("three").size());
+
+        result = mappingsDao.getMappingsForTargets(NAMESPACE, Arrays.asList("1", "2", "3"));
+        assertEquals(3, result.size());
+        assertEquals(1, result.get("1").size());
+        assertEquals(2, result.get("2").size());
+        assertEquals(0, result.get("3").size());
+    }
+
+    @Test
+    public void testMapUnmapAsync() throws Exception {
+        IAsyncMappingDao asyncDao = (IAsyncMappingDao) mappingsDao;
+        List<CompletableFuture<MappingsUtils.DaoResult>> futures = new ArrayList<>();
+        futures.add(asyncDao.mapAsync(NAMESPACE, "one", "1").toCompletableFuture());
+        futures.add(asyncDao.mapAsync(NAMESPACE, "two", "2").toCompletableFuture());
+        for (CompletableFuture<MappingsUtils.DaoResult> f : futures) {
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL, f.get().status);
+        }
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                asyncDao.mapAsync(NAMESPACE, "one", "2").toCompletableFuture().get().status);
+
+        assertTotalItems(2, 2);
+        assertEquals(2, asyncDao.getMappingsForObjectAsync(NAMESPACE, "one").toCompletableFuture()
+                .get().size());
+        assertEquals(2, asyncDao.getMappingsForTargetAsync(NAMESPACE, "2").toCompletableFuture()
+                .get().size());
+        assertEquals(2L, asyncDao.getStatsAsync(NAMESPACE).toCompletableFuture().get()
+                .get("total-objs").longValue());
+
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                asyncDao.unmapAsync(NAMESPACE, "one", "1").toCompletableFuture().get().status);
+        assertEquals(MappingsUtils.DaoActionStatus.NOT_FOUND,
+                asyncDao.unmapAsync(NAMESPACE, "two", "1").toCompletableFuture().get().status);
+        assertTotalItems(2, 1);
+        assertTargetsForObject(Collections.singleton("2"), "one");
+        assertObjectsForTarget(Collections.EMPTY_SET, "1");
+    }
+
+    @Test
+    public void testBlindWritesRecomputeStats() {
+        if (!(mappingsDao instanceof CqlMappingManyManyDao) &&
+                !(mappingsDao instanceof JdbcMappingManyManyDao)) {
+            // stats of other storages are not counters, nothing to recompute
+            return;
+        }
+        AbstractMappingManyManyDao dao = (AbstractMappingManyManyDao) mappingsDao;
+        dao.setBlindWrites(true);
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                dao.map(NAMESPACE, "one", "1").status);
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                dao.map(NAMESPACE, "one", "2").status);
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                dao.map(NAMESPACE, "two", "1").status);
+        dao.mapBatch(NAMESPACE, Arrays.asList(Pair.of("three", "3"), Pair.of("one", "1")));
+        assertTargetsForObject(new HashSet<>(Arrays.asList("1", "2")), "one");
+        assertObjectsForTarget(new HashSet<>(Arrays.asList("one", "two")), "1");
+
+        // stats are not maintained in blind-write mode...
+        assertTotalItems(0, 0);
+        // ...until recomputed
+        if (dao instanceof CqlMappingManyManyDao) {
+            ((CqlMappingManyManyDao) dao).recomputeStats(NAMESPACE);
+        } else {
+            ((JdbcMappingManyManyDao) dao).recomputeStats(NAMESPACE);
+        }
+        assertTotalItems(3, 3);
+    }
+
+    @Test
+    public void testPagedReads() {
+        Set<String> targets = new HashSet<>();
+        List<Pair<String, String>> objTargets = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            targets.add("target-" + i);
+            objTargets.add(Pair.of("one", "target-" + i));
+        }
+        mappingsDao.mapBatch(NAMESPACE, objTargets);
+
+        Set<String> paged = new HashSet<>();
+        int numPages = 0;
+        String cursor = null;
+        do {
+            MappingsPage page = mappingsDao.getMappingsForObject(NAMESPACE, "one", 10, cursor);
+            assertTrue(page.getMappings().size() <= 10);
+            page.getMappings().forEach(m -> paged.add(m.getTarget()));
+            cursor = page.getCursor();
+            numPages++;
+        } while (cursor != null && numPages < 10);
+        assertEquals(targets, paged);
+        assertTrue(numPages >= 3);
+
+        Set<String> iterated = new HashSet<>();
+        mappingsDao.iterateMappingsForObject(NAMESPACE, "one")
+                .forEachRemaining(m -> iterated.add(m.getTarget()));
+        assertEquals(targets, iterated);
+
+        MappingsPage page = mappingsDao.getMappingsForTarget(NAMESPACE, "target-0", 10, null);
+        assertEquals(1, page.getMappings().size());
+        assertEquals("one", page.getMappings().get(0).getObject());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    public void testCountMappings() {
+        assertEquals(0, mappingsDao.countMappingsForObject(NAMESPACE, "one"));
+        mappingsDao.map(NAMESPACE, "one", "1");
+        mappingsDao.map(NAMESPACE, "one", "2");
+        mappingsDao.map(NAMESPACE, "two", "1");
+        assertEquals(2, mappingsDao.countMappingsForObject(NAMESPACE, "one"));
+        assertEquals(1, mappingsDao.countMappingsForObject(NAMESPACE, "two"));
+        assertEquals(2, mappingsDao.countMappingsForTarget(NAMESPACE, "1"));
+        assertEquals(0, mappingsDao.countMappingsForTarget(NAMESPACE, "3"));
+
+        // counts are invalidated upon writes
+        mappingsDao.unmap(NAMESPACE, "one", "1");
+        assertEquals(1, mappingsDao.countMappingsForObject(NAMESPACE, "one"));
+        assertEquals(1, mappingsDao.countMappingsForTarget(NAMESPACE, "1"));
+    }
 }
@@ -0,0 +1,165 @@
+package mappings;
+
+import com.github.ddth.mappings.IAsyncMappingDao;
+import com.github.ddth.mappings.IMappingDao;
+import com.github.ddth.mappings.MappingBo;
+import com.github.ddth.mappings.utils.MappingsUtils;
+import junit.framework.TestCase;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public abstract class BaseMappingManyOneTest extends TestCase {
+
+    public BaseMappingManyOneTest(String testName) {
+        super(testName);
+    }
+
+    protected abstract IMappingDao initDaoInstance();
+
+    protected abstract void destroyDaoInstance(IMappingDao mappingsDao);
+
+    @Before
+    public void setUp() throws Exception {
+        mappingsDao = initDaoInstance();
+    }
+
+    @After
+    public void tearDown() {
+        if (mappingsDao != null) {
+            destroyDaoInstance(mappingsDao);
+        }
+    }
+
+    protected final static String NAMESPACE = "department";
+    protected final static ExecutorService ASYNC_EXECUTOR = Executors.newFixedThreadPool(4, r -> {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        return t;
+    });
+    protected IMappingDao mappingsDao;
+
+    private void assertStat(long expected, String key) {
+        Long value = mappingsDao.getStats(NAMESPACE).get(key);
+        assertEquals(expected, value != null ? value.longValue() : 0);
+    }
+
+    private void assertTotalItems(long expectedObjs, long expectedTargets) {
+        assertStat(expectedObjs, "total-objs");
+        assertStat(expectedTargets, "total-targets");
+    }
+
+    private void assertTargetsForObject(Set<String> expected, String object) {
+        Set<String> targets = new HashSet<>();
+        mappingsDao.getMappingsForObject(NAMESPACE, object)
+                .forEach(bo -> targets.add(bo.getTarget()));
+        assertEquals(expected, targets);
+    }
+
+    private void assertObjectsForTarget(Set<String> expected, String target) {
+        Set<String> objects = new HashSet<>();
+        mappingsDao.getMappingsForTarget(NAMESPACE, target)
+                .forEach(bo -> objects.add(bo.getObject()));
+        assertEquals(expected, objects);
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTotalItems(0, 0);
+        assertTargetsForObject(Collections.EMPTY_SET, "object");
+        assertObjectsForTarget(Collections.EMPTY_SET, "target");
+    }
+
+    @Test
+    public void testMapUnmap() {
+        {
+            MappingsUtils.DaoResult daoResult = mappingsDao.map(NAMESPACE, "one", "1");
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL, daoResult.status);
+            assertEquals(0, ((Collection<MappingBo>) daoResult.output).size());
+            mappingsDao.map(NAMESPACE, "two", "1");
+
+            assertTotalItems(2, 1);
+            assertTargetsForObject(Collections.singleton("1"), "one");
+            assertObjectsForTarget(new HashSet<>(Arrays.asList("one", "two")), "1");
+        }
+
+        {
+            // re-map: an object is mapped to only one target
+            MappingsUtils.DaoResult daoResult = mappingsDao.map(NAMESPACE, "one", "2");
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL, daoResult.status);
+            assertEquals(1, ((Collection<MappingBo>) daoResult.output).size());
+
+            assertTotalItems(2, 2);
+            assertTargetsForObject(Collections.singleton("2"), "one");
+            assertObjectsForTarget(Collections.singleton("two"), "1");
+            assertObjectsForTarget(Collections.singleton("one"), "2");
+        }
+
+        {
+            // re-map the last object of a target
+            mappingsDao.map(NAMESPACE, "two", "2");
+            assertTotalItems(2, 1);
+            assertObjectsForTarget(Collections.EMPTY_SET, "1");
+            assertObjectsForTarget(new HashSet<>(Arrays.asList("one", "two")), "2");
+        }
+
+        {
+            assertEquals(MappingsUtils.DaoActionStatus.NOT_FOUND,
+                    mappingsDao.unmap(NAMESPACE, "one", "1").status);
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    mappingsDao.unmap(NAMESPACE, "one", "2").status);
+            assertTotalItems(1, 1);
+            assertTargetsForObject(Collections.EMPTY_SET, "one");
+            assertObjectsForTarget(Collections.singleton("two"), "2");
+
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    mappingsDao.unmap(NAMESPACE, "two", "2").status);
+            assertTotalItems(0, 0);
+            assertObjectsForTarget(Collections.EMPTY_SET, "2");
+        }
+    }
+
+    @Test
+    public void testBatch() {
+        mappingsDao.mapBatch(NAMESPACE,
+                Arrays.asList(Pair.of("one", "1"), Pair.of("two", "1"), Pair.of("one", "2")));
+        assertTotalItems(2, 2);
+        Map<String, Collection<MappingBo>> forObjects = mappingsDao
+                .getMappingsForObjects(NAMESPACE, Arrays.asList("one", "two", "three"));
+        assertEquals("2", forObjects.get("one").iterator().next().getTarget());
+        assertEquals("1", forObjects.get("two").iterator().next().getTarget());
+        assertTrue(forObjects.get("three").isEmpty());
+        Map<String, Collection<MappingBo>> forTargets = mappingsDao
+                .getMappingsForTargets(NAMESPACE, Arrays.asList("1", "2", "3"));
+        assertEquals(1, forTargets.get("1").size());
+        assertEquals(1, forTargets.get("2").size());
+        assertTrue(forTargets.get("3").isEmpty());
+
+        mappingsDao.unmapBatch(NAMESPACE, Arrays.asList(Pair.of("one", "2"), Pair.of("two", "1")));
+        assertTotalItems(0, 0);
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        IAsyncMappingDao asyncDao = (IAsyncMappingDao) mappingsDao;
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                asyncDao.mapAsync(NAMESPACE, "one", "1").toCompletableFuture().get().status);
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                asyncDao.mapAsync(NAMESPACE, "two", "1").toCompletableFuture().get().status);
+        assertTotalItems(2, 1);
+        assertEquals(2, asyncDao.getMappingsForTargetAsync(NAMESPACE, "1").toCompletableFuture()
+                .get().size());
+        assertEquals(1, asyncDao.getMappingsForObjectAsync(NAMESPACE, "one").toCompletableFuture()
+                .get().size());
+
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                asyncDao.unmapAsync(NAMESPACE, "one", "1").toCompletableFuture().get().status);
+        assertTotalItems(1, 1);
+        assertObjectsForTarget(Collections.singleton("two"), "1");
+    }
+}
@@ -1,17 +1,19 @@
 package mappings;
 
+import com.github.ddth.mappings.IAsyncMappingDao;
 import com.github.ddth.mappings.IMappingDao;
 import com.github.ddth.mappings.MappingBo;
 import com.github.ddth.mappings.utils.MappingsUtils;
 import junit.framework.TestCase;
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Created by thanhnb on 7/16/17.
@@ -39,6 +41,11 @@ public abstract class BaseMappingOneOneTest extends TestCase {
     }
 
     protected final static String NAMESPACE = "email";
+    protected final static ExecutorService ASYNC_EXECUTOR = Executors.newFixedThreadPool(4, r -> {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        return t;
+    });
     protected IMappingDao mappingsDao;
 
     private void assertTotalItems(long expected) {
@@ -244,4 +251,82 @@ public abstract class BaseMappingOneOneTest extends TestCase {
             assertObjectsForTarget(Collections.singleton(object), target);
         }
     }
+
+    @Test
+    public void testMapUnmapBatch() {
+        List<Pair<String, String>> pairs = Arrays.asList(Pair.of("one", "1"), Pair.of("two", "2"),
+                Pair.of("one", "3"), Pair.of("two", "2"));
+        List<MappingsUtils.DaoResult> daoResults = mappingsDao.mapBatch(NAMESPACE, pairs);
+        assertEquals(pairs.size(), daoResults.size());
+        daoResults.forEach(r -> assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL, r.status));
+        assertEquals(0, daoResults.get(0).output.size());
+        assertEquals(0, daoResults.get(1).output.size());
+        assertEquals("1", daoResults.get(2).getSingleOutput().getTarget());
+        assertEquals("2", daoResults.get(3).getSingleOutput().getTarget());
+
+        assertTotalItems(2);
+        assertTargetsForObject(Collections.singleton("3"), "one");
+        assertTargetsForObject(Collections.singleton("2"), "two");
+        assertObjectsForTarget(Collections.EMPTY_SET, "1");
+        assertObjectsForTarget(Collections.singleton("two"), "2");
+        assertObjectsForTarget(Collections.singleton("one"), "3");
+
+        pairs = Arrays.asList(Pair.of("one", "1"), Pair.of("two", "2"));
+        daoResults = mappingsDao.unmapBatch(NAMESPACE, pairs);
+        assertEquals(MappingsUtils.DaoActionStatus.NOT_FOUND, daoResults.get(0).status);
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL, daoResults.get(1).status);
+
+        assertTotalItems(1);
+        assertTargetsForObject(Collections.singleton("3"), "one");
+        assertTargetsForObject(Collections.EMPTY_SET, "two");
+        assertObjectsForTarget(Collections.EMPTY_SET, "2");
+    }
+
+    @Test
+    public void testGetMappingsMultiple() {
+        mappingsDao.map(NAMESPACE, "one", "1");
+        mappingsDao.map(NAMESPACE, "two", "2");
+
+        Map<String, Collection<MappingBo>> result = mappingsDao
+                .getMappingsForObjects(NAMESPACE, Arrays.asList("one", "two", "three"));
+        assertEquals(3, result.size());
+        assertEquals("1", result.get("one").iterator().next().getTarget());
+        assertEquals("2", result.get("two").iterator().next().getTarget());
+        assertEquals(0, result.get("three").size());
+
+        result = mappingsDao.getMappingsForTargets(NAMESPACE, Arrays.asList("1", "3"));
+        assertEquals(2, result.size());
+        assertEquals("one", result.get("1").iterator().next().getObject());
+        assertEquals(0, result.get("3").size());
+    }
+
+    @Test
+    public void testMapUnmapAsync() throws Exception {
+        IAsyncMappingDao asyncDao = (IAsyncMappingDao) mappingsDao;
+        List<CompletableFuture<MappingsUtils.DaoResult>> futures = new ArrayList<>();
+        futures.add(asyncDao.mapAsync(NAMESPACE, "one", "1").toCompletableFuture());
+        futures.add(asyncDao.mapAsync(NAMESPACE, "two", "2").toCompletableFuture());
+        for (CompletableFuture<MappingsUtils.DaoResult> f : futures) {
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL, f.get().status);
+        }
+
+        assertTotalItems(2);
+        Collection<MappingBo> mappings = asyncDao.getMappingsForObjectAsync(NAMESPACE, "one")
+                .toCompletableFuture().get();
+        assertEquals(1, mappings.size());
+        assertEquals("1", mappings.iterator().next().getTarget());
+        mappings = asyncDao.getMappingsForTargetAsync(NAMESPACE, "2").toCompletableFuture().get();
+        assertEquals(1, mappings.size());
+        assertEquals("two", mappings.iterator().next().getObject());
+        assertEquals(2L, asyncDao.getStatsAsync(NAMESPACE).toCompletableFuture().get()
+                .get("total-items").longValue());
+
+        assertEquals(MappingsUtils.DaoActionStatus.NOT_FOUND,
+                asyncDao.unmapAsync(NAMESPACE, "one", "2").toCompletableFuture().get().status);
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                asyncDao.unmapAsync(NAMESPACE, "one", "1").toCompletableFuture().get().status);
+        assertTotalItems(1);
+        assertTargetsForObject(Collections.EMPTY_SET, "one");
+        assertObjectsForTarget(Collections.EMPTY_SET, "1");
+    }
 }
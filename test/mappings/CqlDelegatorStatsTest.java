@@ -0,0 +1,156 @@
+package mappings;
+
+import com.github.ddth.mappings.cql.CqlDelegator;
+import junit.framework.TestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class CqlDelegatorStatsTest extends TestCase {
+
+    public CqlDelegatorStatsTest(String testName) {
+        super(testName);
+    }
+
+    private final static String TABLE_STATS = "mappings_stats";
+    private final static String MAPPING = "mapmm";
+    private final static String NAMESPACE = "enrollment";
+
+    /**
+     * Write-behind disabled: reads storage only, no pending updates.
+     */
+    private CqlDelegator storageReader;
+    private List<CqlDelegator> delegators = new ArrayList<>();
+
+    private CqlDelegator newDelegator(long statsFlushIntervalMs) {
+        CqlDelegator cqlDelegator = new CqlDelegator();
+        cqlDelegator.setTableStats(TABLE_STATS)
+                .setStatsFlushIntervalMs(statsFlushIntervalMs)
+                .setKeyspace("onpar")
+                .setUsername("onpar")
+                .setPassword("onpar")
+                .setHostsAndPorts("127.0.0.1");
+        delegators.add(cqlDelegator.init());
+        return cqlDelegator;
+    }
+
+    @Before
+    public void setUp() {
+        storageReader = newDelegator(0);
+        String CQL = "DROP TABLE IF EXISTS " + TABLE_STATS;
+        storageReader.update(storageReader.prepareStatement(CQL));
+        CQL = "CREATE TABLE IF NOT EXISTS " + TABLE_STATS + "(m_mapping VARCHAR," +
+                "m_namespace VARCHAR,m_key VARCHAR,m_value COUNTER," +
+                "PRIMARY KEY(m_mapping,m_namespace,m_key))" +
+                "WITH COMPACT STORAGE";
+        storageReader.update(storageReader.prepareStatement(CQL));
+    }
+
+    @After
+    public void tearDown() {
+        delegators.forEach(CqlDelegator::destroy);
+        delegators.clear();
+    }
+
+    private Map<String, Long> storedStats() {
+        return storageReader.getAllStats(MAPPING, NAMESPACE);
+    }
+
+    @Test
+    public void testDeltasAddUp() {
+        CqlDelegator cqlDelegator = newDelegator(3600000);
+        cqlDelegator.updateStats(MAPPING, NAMESPACE, "a", 1);
+        assertNull(cqlDelegator.updateStatsAsync(MAPPING, NAMESPACE, "a", 2).join());
+        cqlDelegator.updateStats(MAPPING, NAMESPACE, "b", 5);
+        cqlDelegator.updateStats(MAPPING, NAMESPACE, "a", -1);
+        cqlDelegator.updateStats(MAPPING, "other", "a", 7);
+
+        // pending updates are visible to reads of this node, but not yet stored
+        Map<String, Long> stats = cqlDelegator.getAllStats(MAPPING, NAMESPACE);
+        assertEquals(2, stats.size());
+        assertEquals(2L, stats.get("a").longValue());
+        assertEquals(5L, stats.get("b").longValue());
+        assertTrue(storedStats().isEmpty());
+
+        cqlDelegator.flushStats();
+        assertEquals(stats, storedStats());
+        // flushed deltas are not counted twice
+        assertEquals(stats, cqlDelegator.getAllStats(MAPPING, NAMESPACE));
+        assertEquals(stats, cqlDelegator.getAllStatsAsync(MAPPING, NAMESPACE, Runnable::run)
+                .join());
+        assertEquals(7L, storageReader.getAllStats(MAPPING, "other").get("a").longValue());
+
+        // only new deltas are written by subsequent flushes
+        cqlDelegator.flushStats();
+        cqlDelegator.updateStats(MAPPING, NAMESPACE, "a", 3);
+        cqlDelegator.flushStats();
+        assertEquals(5L, storedStats().get("a").longValue());
+        assertEquals(5L, storedStats().get("b").longValue());
+    }
+
+    @Test
+    public void testConcurrentUpdatesDuringFlush() throws Exception {
+        CqlDelegator cqlDelegator = newDelegator(10);
+        int numThreads = 8, numUpdates = 1000;
+        CountDownLatch start = new CountDownLatch(1), done = new CountDownLatch(numThreads);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread flusher = new Thread(() -> {
+            while (running.get()) {
+                cqlDelegator.flushStats();
+            }
+        });
+        flusher.start();
+        for (int i = 0; i < numThreads; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < numUpdates; j++) {
+                        cqlDelegator.updateStats(MAPPING, NAMESPACE, "a", 1);
+                        long value = cqlDelegator.getAllStats(MAPPING, NAMESPACE).get("a");
+                        assertTrue(value > 0 && value <= numThreads * numUpdates);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        running.set(false);
+        flusher.join();
+
+        long expected = numThreads * numUpdates;
+        assertEquals(expected, cqlDelegator.getAllStats(MAPPING, NAMESPACE).get("a").longValue());
+        cqlDelegator.flushStats();
+        assertEquals(expected, storedStats().get("a").longValue());
+    }
+
+    @Test
+    public void testDestroyFlushesPendingStats() {
+        CqlDelegator cqlDelegator = newDelegator(3600000);
+        cqlDelegator.updateStats(MAPPING, NAMESPACE, "a", 1);
+        cqlDelegator.updateStatsAsync(MAPPING, NAMESPACE, "b", 2);
+        assertTrue(storedStats().isEmpty());
+
+        cqlDelegator.destroy();
+        delegators.remove(cqlDelegator);
+        Map<String, Long> stats = storedStats();
+        assertEquals(1L, stats.get("a").longValue());
+        assertEquals(2L, stats.get("b").longValue());
+    }
+
+    @Test
+    public void testWriteBehindDisabled() {
+        assertNotNull(storageReader.updateStats(MAPPING, NAMESPACE, "a", 1));
+        assertNotNull(storageReader.updateStatsAsync(MAPPING, NAMESPACE, "a", 2).join());
+        assertEquals(3L, storedStats().get("a").longValue());
+    }
+}
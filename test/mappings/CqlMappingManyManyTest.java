@@ -48,7 +48,7 @@ public class CqlMappingManyManyTest extends BaseMappingManyManyTest {
 
         CqlMappingManyManyDao mappingsDao = new CqlMappingManyManyDao();
         mappingsDao.setCqlDelegator(cqlDelegator).setTableData(TABLE_DATA);
-        mappingsDao.init();
+        mappingsDao.setAsyncExecutor(ASYNC_EXECUTOR).init();
 
         return mappingsDao;
     }
@@ -0,0 +1,72 @@
+package mappings;
+
+import com.github.ddth.mappings.IMappingDao;
+import com.github.ddth.mappings.cql.CqlDelegator;
+import com.github.ddth.mappings.cql.CqlMappingManyOneDao;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class CqlMappingManyOneTest extends BaseMappingManyOneTest {
+
+    public CqlMappingManyOneTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(CqlMappingManyOneTest.class);
+    }
+
+    protected final static String TABLE_OBJ_TARGET = "mapmo_objtarget";
+    protected final static String TABLE_TARGET_OBJ = "mapmo_targetobj";
+    protected final static String TABLE_STATS = "mappings_stats";
+
+    protected IMappingDao initDaoInstance() {
+        CqlDelegator cqlDelegator = new CqlDelegator();
+        cqlDelegator.setTableStats(TABLE_STATS)
+                .setKeyspace("onpar")
+                .setUsername("onpar")
+                .setPassword("onpar")
+                .setHostsAndPorts("127.0.0.1");
+        cqlDelegator.init();
+
+        //setup data
+        String CQL = "DROP TABLE IF EXISTS " + TABLE_OBJ_TARGET;
+        cqlDelegator.update(cqlDelegator.prepareStatement(CQL));
+        CQL = "CREATE TABLE IF NOT EXISTS " + TABLE_OBJ_TARGET + "(m_namespace VARCHAR," +
+                "m_object VARCHAR,m_data BLOB," +
+                "PRIMARY KEY(m_namespace,m_object))" +
+                "WITH COMPACT STORAGE";
+        cqlDelegator.update(cqlDelegator.prepareStatement(CQL));
+        CQL = "DROP TABLE IF EXISTS " + TABLE_TARGET_OBJ;
+        cqlDelegator.update(cqlDelegator.prepareStatement(CQL));
+        CQL = "CREATE TABLE IF NOT EXISTS " + TABLE_TARGET_OBJ + "(m_namespace VARCHAR," +
+                "m_target VARCHAR,m_object VARCHAR,m_data BLOB," +
+                "PRIMARY KEY(m_namespace,m_target,m_object))" +
+                "WITH COMPACT STORAGE";
+        cqlDelegator.update(cqlDelegator.prepareStatement(CQL));
+
+        CQL = "DROP TABLE IF EXISTS " + TABLE_STATS;
+        cqlDelegator.update(cqlDelegator.prepareStatement(CQL));
+        CQL = "CREATE TABLE IF NOT EXISTS " + TABLE_STATS + "(m_mapping VARCHAR," +
+                "m_namespace VARCHAR,m_key VARCHAR,m_value COUNTER," +
+                "PRIMARY KEY(m_mapping,m_namespace,m_key))" +
+                "WITH COMPACT STORAGE";
+        cqlDelegator.update(cqlDelegator.prepareStatement(CQL));
+
+        CqlMappingManyOneDao mappingsDao = new CqlMappingManyOneDao();
+        mappingsDao.setCqlDelegator(cqlDelegator).setTableObjTarget(TABLE_OBJ_TARGET)
+                .setTableTargetObj(TABLE_TARGET_OBJ);
+        mappingsDao.setAsyncExecutor(ASYNC_EXECUTOR).init();
+
+        return mappingsDao;
+    }
+
+    protected void destroyDaoInstance(IMappingDao mappingsDao) {
+        if (mappingsDao instanceof CqlMappingManyOneDao) {
+            CqlMappingManyOneDao cqlMappingsDao = (CqlMappingManyOneDao) mappingsDao;
+            cqlMappingsDao.getCqlDelegator().destroy();
+            cqlMappingsDao.destroy();
+        }
+    }
+
+}
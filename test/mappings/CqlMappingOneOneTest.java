@@ -47,7 +47,7 @@ public class CqlMappingOneOneTest extends BaseMappingOneOneTest {
 
         CqlMappingOneOneDao mappingsDao = new CqlMappingOneOneDao();
         mappingsDao.setCqlDelegator(cqlDelegator).setTableData(TABLE_DATA);
-        mappingsDao.init();
+        mappingsDao.setAsyncExecutor(ASYNC_EXECUTOR).init();
 
         return mappingsDao;
     }
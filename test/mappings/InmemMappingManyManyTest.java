@@ -0,0 +1,524 @@
+package mappings;
+
+import com.github.ddth.mappings.IMappingDao;
+import com.github.ddth.mappings.Mapping;
+import com.github.ddth.mappings.MappingBo;
+import com.github.ddth.mappings.inmem.InmemMappingManyManyDao;
+import com.github.ddth.mappings.redis.RedisDelegator;
+import com.github.ddth.mappings.utils.MappingsUtils;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class InmemMappingManyManyTest extends BaseMappingManyManyTest {
+
+    public InmemMappingManyManyTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(InmemMappingManyManyTest.class);
+    }
+
+    protected IMappingDao initDaoInstance() {
+        return new InmemMappingManyManyDao().setAsyncExecutor(ASYNC_EXECUTOR).init();
+    }
+
+    protected void destroyDaoInstance(IMappingDao mappingsDao) {
+        if (mappingsDao instanceof InmemMappingManyManyDao) {
+            ((InmemMappingManyManyDao) mappingsDao).destroy();
+        }
+    }
+
+    @org.junit.Test
+    public void testSnapshot() throws Exception {
+        File file = File.createTempFile("mappings", ".snapshot");
+        try {
+            InmemMappingManyManyDao dao = new InmemMappingManyManyDao()
+                    .setSnapshotFile(file.getPath());
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    dao.map(NAMESPACE, "one", "1").status);
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    dao.map(NAMESPACE, "two", "1").status);
+            dao.saveSnapshot();
+
+            InmemMappingManyManyDao restored = new InmemMappingManyManyDao()
+                    .setSnapshotFile(file.getPath());
+            restored.setAsyncExecutor(ASYNC_EXECUTOR);
+            restored.init();
+            assertEquals(2, restored.countMappingsForTarget(NAMESPACE, "1"));
+            assertEquals(1, restored.countMappingsForObject(NAMESPACE, "one"));
+            assertEquals(2L, restored.getStats(NAMESPACE)
+                    .get(InmemMappingManyManyDao.STATS_KEY_TOTAL_OBJS).longValue());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * In-process stand-in for the shared Bloom filters kept in Redis.
+     */
+    private static class InmemBloomRedis extends RedisDelegator {
+        private final Map<String, BitSet> current = new HashMap<>(), next = new HashMap<>();
+        private final Map<String, String> leases = new HashMap<>();
+        private volatile boolean failAdds;
+
+        @Override
+        public synchronized void bloomAdd(String name, long[] bits) {
+            if (failAdds) {
+                throw new IllegalStateException("Redis is down");
+            }
+            for (BitSet bs : Arrays.asList(current.get(name),
+                    leases.containsKey(name) ? next.get(name) : null)) {
+                for (long bit : bits) {
+                    if (bs != null) {
+                        bs.set((int) bit);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public synchronized boolean[] bloomMightContain(String name, long[][] bitsOfItems) {
+            BitSet bs = current.get(name);
+            if (bs == null) {
+                return null;
+            }
+            boolean[] result = new boolean[bitsOfItems.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = true;
+                for (long bit : bitsOfItems[i]) {
+                    result[i] &= bs.get((int) bit);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public synchronized String bloomStartRebuild(String name, boolean force,
+                long leaseTtlMs) {
+            if (leases.containsKey(name)) {
+                return null;
+            }
+            String token = UUID.randomUUID().toString();
+            leases.put(name, token);
+            next.put(name, new BitSet());
+            return token;
+        }
+
+        @Override
+        public synchronized boolean bloomFinishRebuild(String name, String token, byte[] bitmap,
+                long freshMs) {
+            if (!token.equals(leases.get(name))) {
+                return false;
+            }
+            BitSet bs = next.remove(name);
+            for (int i = 0; i < bitmap.length * 8; i++) {
+                // Redis bitmap order: most significant bit first
+                if ((bitmap[i >>> 3] & (0x80 >>> (i & 7))) != 0) {
+                    bs.set(i);
+                }
+            }
+            current.put(name, bs);
+            leases.remove(name);
+            return true;
+        }
+
+        @Override
+        public synchronized void bloomAbortRebuild(String name, String token) {
+            leases.remove(name, token);
+        }
+
+        @Override
+        public synchronized void bloomDelete(String name) {
+            current.remove(name);
+        }
+    }
+
+    @org.junit.Test
+    public void testExistenceFilter() {
+        InmemMappingManyManyDao dao = new InmemMappingManyManyDao();
+        InmemBloomRedis redis = new InmemBloomRedis();
+        dao.setExistenceFilterExpectedItems(1000).setExistenceFilterRedis(redis);
+        dao.setAsyncExecutor(ASYNC_EXECUTOR).init();
+        try {
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    dao.map(NAMESPACE, "one", "1").status);
+            dao.rebuildExistenceFilter(NAMESPACE);
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "one").size());
+            assertEquals(1, dao.getMappingsForTarget(NAMESPACE, "1").size());
+
+            // written behind the DAO's back: filtered out until next rebuild
+            dao.getStore().add(Mapping.of(NAMESPACE, "two", "2"), false, false);
+            assertTrue(dao.getMappingsForObject(NAMESPACE, "two").isEmpty());
+            assertTrue(dao.getMappingsForTargets(NAMESPACE, Arrays.asList("1", "2")).get("2")
+                    .isEmpty());
+
+            // writes do not trust the filters
+            dao.getStore().add(Mapping.of(NAMESPACE, "four", "4"), false, false);
+            assertTrue(dao.getMappingsForObject(NAMESPACE, "four").isEmpty());
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    dao.unmap(NAMESPACE, "four", "4").status);
+
+            // written via the DAO: visible immediately
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    dao.map(NAMESPACE, "three", "3").status);
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "three").size());
+
+            dao.rebuildExistenceFilter(NAMESPACE);
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "two").size());
+            assertEquals(1, dao.getMappingsForTargets(NAMESPACE, Arrays.asList("1", "2"))
+                    .get("2").size());
+
+            // filter cannot be updated: dropped, lookups go to cache/storage
+            redis.failAdds = true;
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    dao.map(NAMESPACE, "five", "5").status);
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "five").size());
+            assertEquals(1, dao.getMappingsForTarget(NAMESPACE, "5").size());
+        } finally {
+            dao.destroy();
+        }
+    }
+
+    @org.junit.Test
+    public void testFindMappings() {
+        InmemMappingManyManyDao dao = new InmemMappingManyManyDao();
+        dao.setCacheName("MAPMM");
+        dao.setAsyncExecutor(ASYNC_EXECUTOR).init();
+        try {
+            dao.map(NAMESPACE, "one", "1");
+            MappingsUtils.DaoResult result = dao.map(NAMESPACE, "one", "2");
+            assertEquals(Mapping.of(NAMESPACE, "one", "1"), result.getSingleMapping());
+            assertTrue(result.output.contains(MappingBo.newInstance(NAMESPACE, "one", "1")));
+
+            Collection<Mapping> mappings = dao.findMappingsForObject(NAMESPACE, "one");
+            assertEquals(2, mappings.size());
+            assertTrue(mappings.contains(Mapping.of(NAMESPACE, "one", "2")));
+            try {
+                // read-only view of cached mappings
+                mappings.clear();
+                fail("Expected UnsupportedOperationException");
+            } catch (UnsupportedOperationException e) {
+            }
+            assertEquals(2, dao.findMappingsForObject(NAMESPACE, "one").size());
+            assertEquals(1, dao.findMappingsForTargets(NAMESPACE, Arrays.asList("1", "3"))
+                    .get("1").size());
+            assertEquals(dao.getMappingsForObject(NAMESPACE, "one").size(),
+                    dao.findMappingsForObjectAsync(NAMESPACE, "one").toCompletableFuture()
+                            .join().size());
+        } finally {
+            dao.destroy();
+        }
+    }
+
+    @org.junit.Test
+    public void testResetNamespace() {
+        InmemMappingManyManyDao dao = new InmemMappingManyManyDao();
+        dao.setCacheName("MAPMM");
+        dao.setAsyncExecutor(ASYNC_EXECUTOR).init();
+        try {
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    dao.map(NAMESPACE, "one", "1").status);
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "one").size());
+
+            // written behind the DAO's back: cached entry is served until namespace is reset
+            dao.getStore().add(Mapping.of(NAMESPACE, "one", "2"), false, false);
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "one").size());
+            dao.resetNamespace(NAMESPACE);
+            assertEquals(2, dao.getMappingsForObject(NAMESPACE, "one").size());
+        } finally {
+            dao.destroy();
+        }
+    }
+
+    @org.junit.Test
+    public void testIncrementalCacheUpdates() {
+        InmemMappingManyManyDao dao = new InmemMappingManyManyDao();
+        dao.setCacheName("MAPMM");
+        dao.setIncrementalCacheUpdates(true);
+        dao.setAsyncExecutor(ASYNC_EXECUTOR).init();
+        try {
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    dao.map(NAMESPACE, "one", "1").status);
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "one").size());
+            assertEquals(0, dao.getMappingsForTarget(NAMESPACE, "2").size());
+
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    dao.map(NAMESPACE, "one", "2").status);
+            assertEquals(2, dao.getMappingsForObject(NAMESPACE, "one").size());
+            assertEquals(1, dao.getMappingsForTarget(NAMESPACE, "2").size());
+
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    dao.unmap(NAMESPACE, "one", "1").status);
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "one").size());
+            assertEquals(0, dao.getMappingsForTarget(NAMESPACE, "1").size());
+        } finally {
+            dao.destroy();
+        }
+    }
+
+    @org.junit.Test
+    public void testL1Cache() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        InmemMappingManyManyDao dao = new InmemMappingManyManyDao() {
+            @Override
+            protected Collection<Mapping> storageGetMappingsObjTargets(String namespace,
+                    String obj) {
+                loads.incrementAndGet();
+                return super.storageGetMappingsObjTargets(namespace, obj);
+            }
+        };
+        // no remote cache: L1 is the only cache
+        dao.setCacheName("MAPMM");
+        dao.setL1CacheTtlSeconds(1);
+        dao.setAsyncExecutor(ASYNC_EXECUTOR).init();
+        try {
+            dao.getStore().add(Mapping.of(NAMESPACE, "one", "1"), false, false);
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "one").size());
+            assertEquals(1, loads.get());
+
+            // hit: written behind the DAO's back, not seen until the entry expires
+            dao.getStore().add(Mapping.of(NAMESPACE, "one", "2"), false, false);
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "one").size());
+            assertEquals(1, loads.get());
+
+            Thread.sleep(1100);
+            assertEquals(2, dao.getMappingsForObject(NAMESPACE, "one").size());
+            assertEquals(2, loads.get());
+
+            // written via the DAO: cached entries of both sides are evicted/updated
+            assertEquals(0, dao.getMappingsForTarget(NAMESPACE, "3").size());
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    dao.map(NAMESPACE, "one", "3").status);
+            assertEquals(3, dao.getMappingsForObject(NAMESPACE, "one").size());
+            assertEquals(1, dao.getMappingsForTarget(NAMESPACE, "3").size());
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    dao.unmap(NAMESPACE, "one", "1").status);
+            assertEquals(2, dao.getMappingsForObject(NAMESPACE, "one").size());
+        } finally {
+            dao.destroy();
+        }
+    }
+
+    @org.junit.Test
+    public void testBlindUnmap() {
+        AtomicInteger loads = new AtomicInteger();
+        InmemMappingManyManyDao dao = new InmemMappingManyManyDao() {
+            @Override
+            protected Collection<Mapping> storageGetMappingsObjTargets(String namespace,
+                    String obj) {
+                loads.incrementAndGet();
+                return super.storageGetMappingsObjTargets(namespace, obj);
+            }
+        };
+        dao.setCacheName("MAPMM");
+        dao.setBlindWrites(true);
+        dao.setAsyncExecutor(ASYNC_EXECUTOR).init();
+        try {
+            dao.mapBatch(NAMESPACE, Arrays.asList(Pair.of("one", "1"), Pair.of("one", "2"),
+                    Pair.of("one", "3")));
+            assertEquals(3, dao.getMappingsForObject(NAMESPACE, "one").size());
+            int loaded = loads.get();
+
+            // no read-before-write, cached entries are invalidated
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    dao.unmap(NAMESPACE, "one", "1").status);
+            List<MappingsUtils.DaoResult> results = dao.unmapBatch(NAMESPACE,
+                    Arrays.asList(Pair.of("one", "2"), Pair.of("one", "2"), Pair.of("one", "4")));
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL, results.get(0).status);
+            assertEquals(MappingsUtils.DaoActionStatus.NOT_FOUND, results.get(1).status);
+            assertEquals(MappingsUtils.DaoActionStatus.NOT_FOUND, results.get(2).status);
+            assertEquals(loaded, loads.get());
+
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "one").size());
+            assertEquals(0, dao.getMappingsForTarget(NAMESPACE, "1").size());
+        } finally {
+            dao.destroy();
+        }
+    }
+
+    @org.junit.Test
+    public void testRefreshAhead() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        InmemMappingManyManyDao dao = new InmemMappingManyManyDao() {
+            @Override
+            protected Collection<Mapping> storageGetMappingsObjTargets(String namespace,
+                    String obj) {
+                loads.incrementAndGet();
+                return super.storageGetMappingsObjTargets(namespace, obj);
+            }
+        };
+        dao.setCacheName("MAPMM");
+        dao.setL1CacheTtlSeconds(2).setRefreshAheadFactor(0.5)
+                .setRefreshAheadExecutor(Runnable::run);
+        dao.setAsyncExecutor(ASYNC_EXECUTOR).init();
+        try {
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    dao.map(NAMESPACE, "one", "1").status);
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "one").size());
+            int loaded = loads.get();
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "one").size());
+            assertEquals(loaded, loads.get());
+
+            // past half of TTL: cached value is served, and reloaded once
+            Thread.sleep(1100);
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "one").size());
+            assertEquals(loaded + 1, loads.get());
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "one").size());
+            assertEquals(loaded + 1, loads.get());
+        } finally {
+            dao.destroy();
+        }
+    }
+
+    /**
+     * DAO whose storage lookups {@code obj -> targets} are counted, and block until
+     * {@code release} is opened.
+     */
+    private static InmemMappingManyManyDao newCountingDao(AtomicInteger loads,
+            CountDownLatch release) {
+        InmemMappingManyManyDao dao = new InmemMappingManyManyDao() {
+            @Override
+            protected Collection<Mapping> storageGetMappingsObjTargets(String namespace,
+                    String obj) {
+                loads.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.storageGetMappingsObjTargets(namespace, obj);
+            }
+        };
+        // in-memory DAOs do not coalesce loads by default
+        dao.setSingleFlightLoads(true);
+        dao.setCacheName("MAPMM");
+        return dao;
+    }
+
+    /**
+     * Look an object up from {@code numThreads} threads at once.
+     */
+    private static List<Collection<MappingBo>> concurrentLookups(IMappingDao dao, String obj,
+            int numThreads) throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(numThreads);
+        try {
+            CountDownLatch started = new CountDownLatch(numThreads);
+            List<Future<Collection<MappingBo>>> futures = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                futures.add(threads.submit(() -> {
+                    started.countDown();
+                    return dao.getMappingsForObject(NAMESPACE, obj);
+                }));
+            }
+            started.await();
+            List<Collection<MappingBo>> result = new ArrayList<>();
+            for (Future<Collection<MappingBo>> f : futures) {
+                result.add(f.get(10, TimeUnit.SECONDS));
+            }
+            return result;
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @org.junit.Test
+    public void testSingleFlightLoads() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        InmemMappingManyManyDao dao = newCountingDao(loads, release);
+        dao.setAsyncExecutor(ASYNC_EXECUTOR).init();
+        try {
+            dao.getStore().add(Mapping.of(NAMESPACE, "one", "1"), false, false);
+            // concurrent misses of the same key wait for the first one's load
+            new Thread(() -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                release.countDown();
+            }).start();
+            concurrentLookups(dao, "one", 8).forEach(found -> assertEquals(1, found.size()));
+            assertEquals(1, loads.get());
+        } finally {
+            dao.destroy();
+        }
+    }
+
+    /**
+     * In-process stand-in for Redis load leases; leases of another (crashed) node can be
+     * simulated with {@link #foreignLeaseUntil}.
+     */
+    private static class InmemLeaseRedis extends RedisDelegator {
+        private final Map<String, String> leases = new HashMap<>();
+        private final AtomicInteger acquired = new AtomicInteger();
+        private volatile long foreignLeaseUntil;
+
+        @Override
+        public synchronized String tryAcquireLease(String name, long ttlMs) {
+            if (System.currentTimeMillis() < foreignLeaseUntil || leases.containsKey(name)) {
+                return null;
+            }
+            String token = UUID.randomUUID().toString();
+            leases.put(name, token);
+            acquired.incrementAndGet();
+            return token;
+        }
+
+        @Override
+        public synchronized void releaseLease(String name, String token) {
+            leases.remove(name, token);
+        }
+    }
+
+    @org.junit.Test
+    public void testLoadLeaseTakeover() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        InmemMappingManyManyDao dao = newCountingDao(loads, new CountDownLatch(0));
+        InmemLeaseRedis redis = new InmemLeaseRedis();
+        dao.setLoadLeaseRedis(redis).setLoadLeaseTtlMs(300);
+        dao.setAsyncExecutor(ASYNC_EXECUTOR).init();
+        try {
+            dao.getStore().add(Mapping.of(NAMESPACE, "one", "1"), false, false);
+            dao.getStore().add(Mapping.of(NAMESPACE, "two", "2"), false, false);
+
+            // lease held by a node that never fills the cache: taken over after loadLeaseTtlMs,
+            // still one load for all concurrent misses of this node
+            redis.foreignLeaseUntil = System.currentTimeMillis() + 10000;
+            long t = System.currentTimeMillis();
+            concurrentLookups(dao, "one", 4).forEach(found -> assertEquals(1, found.size()));
+            assertTrue(System.currentTimeMillis() - t >= 300);
+            assertEquals(1, loads.get());
+            assertEquals(0, redis.acquired.get());
+
+            // expired lease: acquired right away, and released after the load
+            redis.foreignLeaseUntil = 0;
+            t = System.currentTimeMillis();
+            assertEquals(1, dao.getMappingsForObject(NAMESPACE, "two").size());
+            assertTrue(System.currentTimeMillis() - t < 300);
+            assertEquals(2, loads.get());
+            assertEquals(1, redis.acquired.get());
+            assertTrue(redis.leases.isEmpty());
+        } finally {
+            dao.destroy();
+        }
+    }
+}
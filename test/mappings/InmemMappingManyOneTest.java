@@ -0,0 +1,28 @@
+package mappings;
+
+import com.github.ddth.mappings.IMappingDao;
+import com.github.ddth.mappings.inmem.InmemMappingManyOneDao;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class InmemMappingManyOneTest extends BaseMappingManyOneTest {
+
+    public InmemMappingManyOneTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(InmemMappingManyOneTest.class);
+    }
+
+    protected IMappingDao initDaoInstance() {
+        return new InmemMappingManyOneDao().setAsyncExecutor(ASYNC_EXECUTOR).init();
+    }
+
+    protected void destroyDaoInstance(IMappingDao mappingsDao) {
+        if (mappingsDao instanceof InmemMappingManyOneDao) {
+            ((InmemMappingManyOneDao) mappingsDao).destroy();
+        }
+    }
+
+}
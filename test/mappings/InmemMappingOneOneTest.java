@@ -0,0 +1,28 @@
+package mappings;
+
+import com.github.ddth.mappings.IMappingDao;
+import com.github.ddth.mappings.inmem.InmemMappingOneOneDao;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class InmemMappingOneOneTest extends BaseMappingOneOneTest {
+
+    public InmemMappingOneOneTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(InmemMappingOneOneTest.class);
+    }
+
+    protected IMappingDao initDaoInstance() {
+        return new InmemMappingOneOneDao().setAsyncExecutor(ASYNC_EXECUTOR).init();
+    }
+
+    protected void destroyDaoInstance(IMappingDao mappingsDao) {
+        if (mappingsDao instanceof InmemMappingOneOneDao) {
+            ((InmemMappingOneOneDao) mappingsDao).destroy();
+        }
+    }
+
+}
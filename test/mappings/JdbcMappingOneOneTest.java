@@ -0,0 +1,62 @@
+package mappings;
+
+import com.github.ddth.mappings.IMappingDao;
+import com.github.ddth.mappings.jdbc.JdbcDelegator;
+import com.github.ddth.mappings.jdbc.JdbcMappingOneOneDao;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import org.h2.jdbcx.JdbcDataSource;
+
+public class JdbcMappingOneOneTest extends BaseMappingOneOneTest {
+
+    public JdbcMappingOneOneTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(JdbcMappingOneOneTest.class);
+    }
+
+    protected final static String TABLE_DATA = "mapoo";
+    protected final static String TABLE_STATS = "mappings_stats";
+
+    protected IMappingDao initDaoInstance() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:onpar;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        JdbcDelegator jdbcDelegator = new JdbcDelegator();
+        jdbcDelegator.setDataSource(dataSource).setTableStats(TABLE_STATS).setMaxBatchSize(2);
+        jdbcDelegator.init();
+
+        //setup data
+        jdbcDelegator.execute(conn -> {
+            try (java.sql.Statement stm = conn.createStatement()) {
+                stm.execute("DROP TABLE IF EXISTS " + TABLE_DATA);
+                stm.execute("CREATE TABLE " + TABLE_DATA + "(m_namespace VARCHAR(64) NOT NULL,"
+                        + "m_object VARCHAR(191) NOT NULL,m_target VARCHAR(191) NOT NULL,"
+                        + "m_timestamp BIGINT NOT NULL,PRIMARY KEY(m_namespace, m_object))");
+                stm.execute("CREATE INDEX idx_" + TABLE_DATA + "_target ON " + TABLE_DATA
+                        + "(m_namespace, m_target, m_object, m_timestamp)");
+                stm.execute("DROP TABLE IF EXISTS " + TABLE_STATS);
+                stm.execute("CREATE TABLE " + TABLE_STATS + "(m_mapping VARCHAR(32) NOT NULL,"
+                        + "m_namespace VARCHAR(64) NOT NULL,m_key VARCHAR(32) NOT NULL,"
+                        + "m_value BIGINT NOT NULL,PRIMARY KEY(m_mapping, m_namespace, m_key))");
+            }
+            return null;
+        });
+
+        JdbcMappingOneOneDao mappingsDao = new JdbcMappingOneOneDao();
+        mappingsDao.setJdbcDelegator(jdbcDelegator).setTableData(TABLE_DATA);
+        mappingsDao.setAsyncExecutor(ASYNC_EXECUTOR).init();
+
+        return mappingsDao;
+    }
+
+    protected void destroyDaoInstance(IMappingDao mappingsDao) {
+        if (mappingsDao instanceof JdbcMappingOneOneDao) {
+            JdbcMappingOneOneDao jdbcMappingsDao = (JdbcMappingOneOneDao) mappingsDao;
+            jdbcMappingsDao.getJdbcDelegator().destroy();
+            jdbcMappingsDao.destroy();
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package mappings;
+
+import com.github.ddth.mappings.IMappingDao;
+import com.github.ddth.mappings.Mapping;
+import com.github.ddth.mappings.inmem.InmemMappingManyManyDao;
+import com.github.ddth.mappings.inmem.LogMappingStore;
+import com.github.ddth.mappings.utils.MappingsUtils;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+public class LogMappingManyManyTest extends BaseMappingManyManyTest {
+
+    public LogMappingManyManyTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(LogMappingManyManyTest.class);
+    }
+
+    private File dataDir;
+
+    private InmemMappingManyManyDao openDao() {
+        // small segments to exercise rolling
+        LogMappingStore store = new LogMappingStore().setDataDir(dataDir.getPath())
+                .setSegmentSize(4096).setCompactionThreshold(0).init();
+        InmemMappingManyManyDao dao = new InmemMappingManyManyDao().setStore(store);
+        dao.setAsyncExecutor(ASYNC_EXECUTOR);
+        return dao.init();
+    }
+
+    private static void closeDao(InmemMappingManyManyDao dao) {
+        dao.destroy();
+        ((LogMappingStore) dao.getStore()).destroy();
+    }
+
+    protected IMappingDao initDaoInstance() {
+        try {
+            dataDir = Files.createTempDirectory("mappings").toFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return openDao();
+    }
+
+    protected void destroyDaoInstance(IMappingDao mappingsDao) {
+        if (mappingsDao instanceof InmemMappingManyManyDao) {
+            closeDao((InmemMappingManyManyDao) mappingsDao);
+        }
+        File[] files = dataDir.listFiles();
+        for (File f : files != null ? files : new File[0]) {
+            f.delete();
+        }
+        dataDir.delete();
+    }
+
+    @org.junit.Test
+    public void testRecovery() {
+        InmemMappingManyManyDao dao = (InmemMappingManyManyDao) mappingsDao;
+        for (int i = 0; i < 200; i++) {
+            assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                    dao.map(NAMESPACE, "obj-" + (i % 10), "target-" + i).status);
+        }
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                dao.unmap(NAMESPACE, "obj-0", "target-0").status);
+        ((LogMappingStore) dao.getStore()).checkpoint();
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                dao.unmap(NAMESPACE, "obj-1", "target-1").status);
+
+        // reopen without shutting down: checkpoint + log tail are replayed
+        InmemMappingManyManyDao reopened = openDao();
+        try {
+            assertEquals(19, reopened.countMappingsForObject(NAMESPACE, "obj-0"));
+            assertEquals(19, reopened.countMappingsForObject(NAMESPACE, "obj-1"));
+            assertEquals(20, reopened.countMappingsForObject(NAMESPACE, "obj-2"));
+            assertEquals(198L, reopened.getStats(NAMESPACE)
+                    .get(InmemMappingManyManyDao.STATS_KEY_TOTAL_TARGETS).longValue());
+        } finally {
+            closeDao(reopened);
+        }
+    }
+
+    @org.junit.Test
+    public void testOversizedRecord() {
+        InmemMappingManyManyDao dao = (InmemMappingManyManyDao) mappingsDao;
+        LogMappingStore store = (LogMappingStore) dao.getStore();
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                dao.map(NAMESPACE, "obj", "target").status);
+        String tooLarge = StringUtils.repeat('x', 8192);
+        try {
+            store.add(Mapping.of(NAMESPACE, "obj", tooLarge), true, false);
+            fail("Oversized record must be rejected.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        // the rejected write has not been applied either
+        assertEquals(1, store.countTargets(NAMESPACE, "obj"));
+        assertEquals(0, store.countObjects(NAMESPACE, tooLarge));
+        assertEquals(MappingsUtils.DaoActionStatus.SUCCESSFUL,
+                dao.map(NAMESPACE, "obj", "target2").status);
+
+        InmemMappingManyManyDao reopened = openDao();
+        try {
+            assertEquals(2, reopened.countMappingsForObject(NAMESPACE, "obj"));
+            assertEquals(0, reopened.countMappingsForTarget(NAMESPACE, tooLarge));
+        } finally {
+            closeDao(reopened);
+        }
+    }
+
+}
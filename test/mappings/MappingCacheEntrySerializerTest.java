@@ -0,0 +1,98 @@
+package mappings;
+
+import com.github.ddth.cacheadapter.CacheEntry;
+import com.github.ddth.mappings.Mapping;
+import com.github.ddth.mappings.MappingCacheEntrySerializer;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.*;
+
+public class MappingCacheEntrySerializerTest extends TestCase {
+
+    public MappingCacheEntrySerializerTest(String testName) {
+        super(testName);
+    }
+
+    private final static String NAMESPACE = "enrollment";
+
+    private MappingCacheEntrySerializer newSerializer(int compressionThreshold) {
+        return new MappingCacheEntrySerializer().setCompressionThreshold(compressionThreshold)
+                .init();
+    }
+
+    private static Set<Mapping> buildMappings(int count) {
+        Set<Mapping> mappings = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            mappings.add(Mapping.of(NAMESPACE, "object", "target-" + i, 1500000000000L + i,
+                    i % 2 == 0 ? "info-" + i : null));
+        }
+        return mappings;
+    }
+
+    @Test
+    public void testRoundTripMappings() {
+        MappingCacheEntrySerializer serializer = newSerializer(0);
+        Set<Mapping> mappings = buildMappings(10);
+        CacheEntry ce = new CacheEntry("key", mappings, 60, -1);
+        CacheEntry decoded = serializer.deserialize(serializer.serialize(ce));
+        assertNotNull(decoded);
+        assertEquals("key", decoded.getKey());
+        assertEquals(60, decoded.getExpireAfterWrite());
+        assertEquals(-1, decoded.getExpireAfterAccess());
+        assertTrue(decoded.getValue() instanceof HashSet);
+        assertEquals(mappings, decoded.getValue());
+    }
+
+    @Test
+    public void testRoundTripCompressed() {
+        MappingCacheEntrySerializer serializer = newSerializer(64);
+        Set<Mapping> mappings = buildMappings(1000);
+        byte[] data = serializer.serialize(new CacheEntry("key", mappings, 60, -1));
+        assertEquals(MappingCacheEntrySerializer.FLAG_LZ4,
+                data[2] & MappingCacheEntrySerializer.FLAG_LZ4);
+        CacheEntry decoded = serializer.deserialize(data);
+        assertNotNull(decoded);
+        assertEquals(mappings, decoded.getValue());
+    }
+
+    @Test
+    public void testRoundTripScalars() {
+        MappingCacheEntrySerializer serializer = newSerializer(0);
+        Mapping mapping = Mapping.of(NAMESPACE, "object", "target", 1500000000000L, "info");
+        assertEquals(mapping, serializer
+                .deserialize(serializer.serialize(new CacheEntry("m", mapping, 60, -1)))
+                .getValue());
+        assertEquals(-123L, serializer
+                .deserialize(serializer.serialize(new CacheEntry("l", -123L, 60, -1)))
+                .getValue());
+        assertNull(serializer.deserialize(serializer.serialize(new CacheEntry("n", null, 60, -1)))
+                .getValue());
+        Map<String, String> other = new HashMap<>();
+        other.put("k", "v");
+        assertEquals(other, serializer
+                .deserialize(serializer.serialize(new CacheEntry("o", other, 60, -1)))
+                .getValue());
+    }
+
+    @Test
+    public void testLegacyEntryIsCacheMiss() throws Exception {
+        MappingCacheEntrySerializer serializer = newSerializer(0);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(new CacheEntry("key", buildMappings(3), 60, -1));
+        }
+        assertNull(serializer.deserialize(baos.toByteArray()));
+        assertNull(serializer.deserialize(new byte[0]));
+        assertNull(serializer.deserialize(null));
+    }
+
+    @Test
+    public void testCorruptedEntryIsCacheMiss() {
+        MappingCacheEntrySerializer serializer = newSerializer(0);
+        byte[] data = serializer.serialize(new CacheEntry("key", buildMappings(3), 60, -1));
+        assertNull(serializer.deserialize(Arrays.copyOf(data, data.length / 2)));
+    }
+}
@@ -0,0 +1,76 @@
+package mappings;
+
+import com.github.ddth.mappings.utils.MappingDataCodec;
+import com.github.ddth.mappings.utils.MappingsUtils;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class MappingDataCodecTest extends TestCase {
+
+    public MappingDataCodecTest(String testName) {
+        super(testName);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        ByteBuffer blob = MappingDataCodec.encode("target", 1500000000000L);
+        MappingDataCodec.Data data = MappingDataCodec.decode(blob, true);
+        assertEquals("target", data.value);
+        assertEquals(1500000000000L, data.timestamp);
+        assertNull(data.info);
+        assertEquals(0, blob.position());
+    }
+
+    @Test
+    public void testRoundTripWithInfo() {
+        byte[] info = new byte[200];
+        Arrays.fill(info, (byte) 7);
+        MappingDataCodec.Data data = MappingDataCodec
+                .decode(MappingDataCodec.encode("tàrgét", -1L, info), false);
+        assertEquals("tàrgét", data.value);
+        assertEquals(-1L, data.timestamp);
+        assertTrue(Arrays.equals(info, data.info));
+    }
+
+    @Test
+    public void testRoundTripWithoutValue() {
+        MappingDataCodec.Data data = MappingDataCodec
+                .decode(MappingDataCodec.encode(null, 1500000000000L), true);
+        assertNull(data.value);
+        assertEquals(1500000000000L, data.timestamp);
+    }
+
+    @Test
+    public void testDecodeLegacy() {
+        MappingDataCodec.Data data = MappingDataCodec.decode(
+                MappingsUtils.seEncodeAsByteBuffer("target", "1500000000000"), true);
+        assertEquals("target", data.value);
+        assertEquals(1500000000000L, data.timestamp);
+        assertNull(data.info);
+
+        data = MappingDataCodec
+                .decode(MappingsUtils.seEncodeAsByteBuffer("1500000000000"), false);
+        assertNull(data.value);
+        assertEquals(1500000000000L, data.timestamp);
+    }
+
+    @Test
+    public void testDecodeEmpty() {
+        assertNull(MappingDataCodec.decode(null, true));
+        assertNull(MappingDataCodec.decode(ByteBuffer.allocate(0), true));
+    }
+
+    @Test
+    public void testVarint() {
+        for (int value : new int[] { 0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE }) {
+            ByteBuffer buf = ByteBuffer.allocate(8);
+            MappingDataCodec.putVarint(buf, value);
+            assertEquals(MappingDataCodec.varintSize(value), buf.position());
+            buf.flip();
+            assertEquals(value, MappingDataCodec.getVarint(buf));
+        }
+    }
+}
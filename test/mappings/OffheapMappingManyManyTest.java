@@ -0,0 +1,81 @@
+package mappings;
+
+import com.github.ddth.mappings.IMappingDao;
+import com.github.ddth.mappings.Mapping;
+import com.github.ddth.mappings.inmem.InmemMappingManyManyDao;
+import com.github.ddth.mappings.inmem.OffheapMappingStore;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OffheapMappingManyManyTest extends BaseMappingManyManyTest {
+
+    public OffheapMappingManyManyTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(OffheapMappingManyManyTest.class);
+    }
+
+    protected IMappingDao initDaoInstance() {
+        // small slabs & tables to exercise slab allocation and rehashing
+        OffheapMappingStore store = new OffheapMappingStore().setSlabSize(4096)
+                .setNumSegments(4).setInitialSegmentCapacity(16).init();
+        return new InmemMappingManyManyDao().setStore(store).setAsyncExecutor(ASYNC_EXECUTOR)
+                .init();
+    }
+
+    protected void destroyDaoInstance(IMappingDao mappingsDao) {
+        if (mappingsDao instanceof InmemMappingManyManyDao) {
+            InmemMappingManyManyDao dao = (InmemMappingManyManyDao) mappingsDao;
+            dao.destroy();
+            ((OffheapMappingStore) dao.getStore()).destroy();
+        }
+    }
+
+    @org.junit.Test
+    public void testHighDegreeKeys() {
+        OffheapMappingStore store = new OffheapMappingStore().setSlabSize(4096).init();
+        try {
+            // enough targets to split chunks of the object's record a few times
+            for (int i = 0; i < 1000; i++) {
+                store.add(Mapping.of(NAMESPACE, "one", String.valueOf(i), i), false, false);
+            }
+            store.add(Mapping.of(NAMESPACE, "one", "7", 7000), false, false);
+            assertEquals(1000, store.countTargets(NAMESPACE, "one"));
+            Map<String, Long> targets = new HashMap<>();
+            store.getTargets(NAMESPACE, "one")
+                    .forEach(m -> targets.put(m.getTarget(), m.getTimestamp()));
+            assertEquals(1000, targets.size());
+            assertEquals(7000L, targets.get("7").longValue());
+            assertEquals(999L, targets.get("999").longValue());
+
+            for (int i = 0; i < 1000; i += 2) {
+                assertTrue(store.remove(Mapping.of(NAMESPACE, "one", String.valueOf(i), i)));
+            }
+            assertFalse(store.remove(Mapping.of(NAMESPACE, "one", "0", 0)));
+            assertEquals(500, store.countTargets(NAMESPACE, "one"));
+            assertEquals(1, store.countObjects(NAMESPACE, "1"));
+            assertEquals(0, store.countObjects(NAMESPACE, "2"));
+            assertEquals(1, store.totalObjects(NAMESPACE));
+            assertEquals(500, store.totalTargets(NAMESPACE));
+
+            AtomicInteger visited = new AtomicInteger();
+            store.forEachObject(mappings -> visited.addAndGet(mappings.size()));
+            assertEquals(500, visited.get());
+
+            for (int i = 1; i < 1000; i += 2) {
+                assertTrue(store.remove(Mapping.of(NAMESPACE, "one", String.valueOf(i), i)));
+            }
+            assertEquals(0, store.countTargets(NAMESPACE, "one"));
+            assertEquals(0, store.totalObjects(NAMESPACE));
+        } finally {
+            store.destroy();
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package mappings;
+
+import com.github.ddth.mappings.IMappingDao;
+import com.github.ddth.mappings.inmem.InmemMappingOneOneDao;
+import com.github.ddth.mappings.inmem.OffheapMappingStore;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class OffheapMappingOneOneTest extends BaseMappingOneOneTest {
+
+    public OffheapMappingOneOneTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(OffheapMappingOneOneTest.class);
+    }
+
+    protected IMappingDao initDaoInstance() {
+        // small slabs & tables to exercise slab allocation and rehashing
+        OffheapMappingStore store = new OffheapMappingStore().setSlabSize(4096)
+                .setNumSegments(4).setInitialSegmentCapacity(16).init();
+        return new InmemMappingOneOneDao().setStore(store).setAsyncExecutor(ASYNC_EXECUTOR).init();
+    }
+
+    protected void destroyDaoInstance(IMappingDao mappingsDao) {
+        if (mappingsDao instanceof InmemMappingOneOneDao) {
+            InmemMappingOneOneDao dao = (InmemMappingOneOneDao) mappingsDao;
+            dao.destroy();
+            ((OffheapMappingStore) dao.getStore()).destroy();
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package mappings;
+
+import com.github.ddth.cacheadapter.ICache;
+import com.github.ddth.cacheadapter.redis.BaseRedisCache;
+import com.github.ddth.cacheadapter.redis.RedisCacheFactory;
+import com.github.ddth.mappings.Mapping;
+import com.github.ddth.mappings.MappingCacheEntrySerializer;
+import com.github.ddth.mappings.redis.RedisCacheBulkAccessor;
+import com.github.ddth.mappings.redis.RedisDelegator;
+import junit.framework.TestCase;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class RedisCacheBulkAccessorTest extends TestCase {
+
+    public RedisCacheBulkAccessorTest(String testName) {
+        super(testName);
+    }
+
+    private final static String REDIS_HOST_AND_PORT = "localhost:6379";
+    private final static String CACHE_NAME = "mappings-test";
+
+    private RedisDelegator redisDelegator;
+    private RedisCacheFactory cacheFactory;
+    private ICache cache;
+
+    private RedisCacheBulkAccessor init(BaseRedisCache.KeyMode keyMode) {
+        redisDelegator = new RedisDelegator().setRedisHostAndPort(REDIS_HOST_AND_PORT).init();
+        cacheFactory = new RedisCacheFactory();
+        cacheFactory.setRedisHostAndPort(REDIS_HOST_AND_PORT);
+        cacheFactory.setKeyMode(keyMode);
+        cacheFactory.setCacheEntrySerializer(new MappingCacheEntrySerializer().init());
+        cacheFactory.init();
+        cache = cacheFactory.createCache(CACHE_NAME);
+        cache.deleteAll();
+        return new RedisCacheBulkAccessor().setRedisDelegator(redisDelegator)
+                .setCacheFactory(cacheFactory).setMaxBatchSize(2).init();
+    }
+
+    @After
+    public void tearDown() {
+        if (cache != null) {
+            cache.deleteAll();
+        }
+        if (cacheFactory != null) {
+            cacheFactory.destroy();
+        }
+        if (redisDelegator != null) {
+            redisDelegator.destroy();
+        }
+    }
+
+    private static Mapping mapping(String obj) {
+        return Mapping.of("enrollment", obj, "target-" + obj);
+    }
+
+    private void testGetAll(BaseRedisCache.KeyMode keyMode) {
+        RedisCacheBulkAccessor accessor = init(keyMode);
+        assertEquals(keyMode.name(), accessor.getKeyMode().name());
+        for (String key : Arrays.asList("a", "b", "c")) {
+            cache.set(key, mapping(key));
+        }
+        // more keys than maxBatchSize: several MGET/HMGET round-trips
+        Map<String, Object> result = accessor.getAll(CACHE_NAME,
+                Arrays.asList("a", "b", "missing", "c"));
+        assertEquals(3, result.size());
+        assertEquals(mapping("a"), result.get("a"));
+        assertEquals(mapping("c"), result.get("c"));
+        assertFalse(result.containsKey("missing"));
+    }
+
+    @Test
+    public void testGetAllMget() {
+        testGetAll(BaseRedisCache.KeyMode.NAMESPACE);
+    }
+
+    @Test
+    public void testGetAllHmget() {
+        testGetAll(BaseRedisCache.KeyMode.HASH);
+    }
+
+    @Test
+    public void testPutAll() {
+        for (BaseRedisCache.KeyMode keyMode : Arrays
+                .asList(BaseRedisCache.KeyMode.NAMESPACE, BaseRedisCache.KeyMode.HASH)) {
+            RedisCacheBulkAccessor accessor = init(keyMode);
+            Map<String, Object> entries = new HashMap<>();
+            for (String key : Arrays.asList("a", "b", "c", "d", "e")) {
+                entries.put(key, mapping(key));
+            }
+            // pipeline is synced every maxBatchSize entries
+            accessor.putAll(CACHE_NAME, entries, 60);
+            entries.forEach((key, value) -> assertEquals(value, cache.get(key)));
+            assertEquals(entries, accessor.getAll(CACHE_NAME, entries.keySet()));
+            tearDown();
+        }
+    }
+
+    @Test
+    public void testExpiredHashEntries() throws Exception {
+        RedisCacheBulkAccessor accessor = init(BaseRedisCache.KeyMode.HASH);
+        accessor.putAll(CACHE_NAME, Collections.singletonMap("a", mapping("a")), 1);
+        cache.set("b", mapping("b"));
+        Thread.sleep(2100);
+        Map<String, Object> result = accessor.getAll(CACHE_NAME, Arrays.asList("a", "b"));
+        assertEquals(1, result.size());
+        assertEquals(mapping("b"), result.get("b"));
+        // removed from the hash, not served again
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testExpireAfterAccess() throws Exception {
+        RedisCacheBulkAccessor accessor = init(BaseRedisCache.KeyMode.HASH);
+        cache.set("a", mapping("a"), -1, 2);
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(1000);
+            // each read extends the entry's life by expireAfterAccess
+            assertEquals(mapping("a"),
+                    accessor.getAll(CACHE_NAME, Arrays.asList("a")).get("a"));
+        }
+        Thread.sleep(2100);
+        assertTrue(accessor.getAll(CACHE_NAME, Arrays.asList("a")).isEmpty());
+    }
+}